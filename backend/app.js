@@ -45,6 +45,7 @@ const LocalStrategy = require('passport-local').Strategy;
 const User = require('./models/User');
 const Book = require('./models/Book');
 const Category = require('./models/Category');
+const BookTombstone = require('./models/BookTombstone');
 const MongoStore = require('connect-mongo');
 const flash = require('connect-flash');
 const cors = require('cors');
@@ -850,6 +851,32 @@ app.delete('/api/profile/avatar', authenticateToken, async (req, res) => {
   }
 });
 
+// Convert a book's coverImage path to a full URL
+function toBookJson(book, baseUrl) {
+  const bookObj = book.toObject();
+  if (bookObj.coverImage) {
+    const trimmedCoverImage = bookObj.coverImage.trim();
+    const lowerCoverImage = trimmedCoverImage.toLowerCase();
+    // If it's already a full URL (http:// or https://), use it as-is
+    if (!lowerCoverImage.startsWith('http://') && !lowerCoverImage.startsWith('https://')) {
+      // It's a relative path
+      // If it doesn't start with /uploads/ and doesn't start with /, it's likely a filename
+      // Add /uploads/ prefix for uploaded files
+      let imagePath = trimmedCoverImage;
+      if (!imagePath.startsWith('/uploads/') && !imagePath.startsWith('/') && !imagePath.startsWith('uploads/')) {
+        imagePath = '/uploads/' + imagePath;
+      } else if (!imagePath.startsWith('/')) {
+        imagePath = '/' + imagePath;
+      }
+      bookObj.coverImage = `${baseUrl}${imagePath}`;
+    } else {
+      // It's already a full URL, use trimmed version
+      bookObj.coverImage = trimmedCoverImage;
+    }
+  }
+  return bookObj;
+}
+
 // ===== API GET BOOKS =====
 app.get('/api/books', async (req, res) => {
   try {
@@ -883,34 +910,11 @@ app.get('/api/books', async (req, res) => {
 
     const books = await Book.find(filterConditions)
       .populate('category', 'name')
-      .sort({ createdAt: -1 });
+      .sort({ createdAt: -1, _id: -1 });
 
     // Convert coverImage paths to full URLs
     const baseUrl = `${req.protocol}://${req.get('host')}`;
-    const booksWithFullUrls = books.map(book => {
-      const bookObj = book.toObject();
-      if (bookObj.coverImage) {
-        const trimmedCoverImage = bookObj.coverImage.trim();
-        const lowerCoverImage = trimmedCoverImage.toLowerCase();
-        // If it's already a full URL (http:// or https://), use it as-is
-        if (!lowerCoverImage.startsWith('http://') && !lowerCoverImage.startsWith('https://')) {
-          // It's a relative path
-          // If it doesn't start with /uploads/ and doesn't start with /, it's likely a filename
-          // Add /uploads/ prefix for uploaded files
-          let imagePath = trimmedCoverImage;
-          if (!imagePath.startsWith('/uploads/') && !imagePath.startsWith('/') && !imagePath.startsWith('uploads/')) {
-            imagePath = '/uploads/' + imagePath;
-          } else if (!imagePath.startsWith('/')) {
-            imagePath = '/' + imagePath;
-          }
-          bookObj.coverImage = `${baseUrl}${imagePath}`;
-        } else {
-          // It's already a full URL, use trimmed version
-          bookObj.coverImage = trimmedCoverImage;
-        }
-      }
-      return bookObj;
-    });
+    const booksWithFullUrls = books.map(book => toBookJson(book, baseUrl));
 
     // Get categories for filtering (optional)
     const categories = await Category.find();
@@ -925,6 +929,70 @@ app.get('/api/books', async (req, res) => {
   }
 });
 
+// ===== API GET BOOK CHANGES (delta sync) =====
+// ?since=<updatedAt ISO>_<_id> returns books changed after that watermark, oldest first,
+// in pages of ?limit (default 100, max 500). ?deletedSince=<ISO> also returns the ids of
+// books deleted since then. Without since the whole catalog is returned page by page.
+app.get('/api/books/changes', async (req, res) => {
+  try {
+    // Taken before querying so a deletion racing with this request is reported next time
+    const serverTime = new Date().toISOString();
+    const requestedLimit = parseInt(req.query.limit, 10);
+    const pageSize = Number.isInteger(requestedLimit) && requestedLimit > 0
+      ? Math.min(requestedLimit, 500)
+      : 100;
+
+    const filterConditions = {};
+    if (req.query.since) {
+      const separator = req.query.since.lastIndexOf('_');
+      const sinceDate = new Date(req.query.since.substring(0, separator));
+      const sinceId = req.query.since.substring(separator + 1);
+      if (separator <= 0 || isNaN(sinceDate.getTime()) || !mongoose.Types.ObjectId.isValid(sinceId)) {
+        return res.status(400).json({ error: 'Invalid since' });
+      }
+      filterConditions.$or = [
+        { updatedAt: { $gt: sinceDate } },
+        { updatedAt: sinceDate, _id: { $gt: new mongoose.Types.ObjectId(sinceId) } }
+      ];
+    }
+
+    let books = await Book.find(filterConditions)
+      .populate('category', 'name')
+      .sort({ updatedAt: 1, _id: 1 })
+      .limit(pageSize + 1);
+    const hasMore = books.length > pageSize;
+    if (hasMore) {
+      books = books.slice(0, pageSize);
+    }
+
+    const baseUrl = `${req.protocol}://${req.get('host')}`;
+    let nextSince = req.query.since || null;
+    if (books.length > 0) {
+      const last = books[books.length - 1];
+      nextSince = `${last.updatedAt.toISOString()}_${last._id}`;
+    }
+
+    const payload = {
+      books: books.map(book => toBookJson(book, baseUrl)),
+      nextSince,
+      hasMore,
+      serverTime
+    };
+
+    if (req.query.deletedSince !== undefined) {
+      const deletedSince = new Date(req.query.deletedSince);
+      const tombstoneFilter = isNaN(deletedSince.getTime()) ? {} : { deletedAt: { $gte: deletedSince } };
+      const tombstones = await BookTombstone.find(tombstoneFilter).sort({ deletedAt: 1 });
+      payload.deletedIds = tombstones.map(t => t.book.toString());
+    }
+
+    res.json(payload);
+  } catch (err) {
+    console.error('Get book changes error:', err);
+    res.status(500).json({ error: 'Server error' });
+  }
+});
+
 // ===== API GET BOOK DETAIL =====
 app.get('/api/books/:id', async (req, res) => {
   try {
@@ -3,6 +3,8 @@ const BookAccess = require('../models/BookAccess');
 const User = require('../models/User');
 const PreviewContent = require('../models/PreviewContent');
 const fs = require('fs').promises;
+const { createReadStream } = require('fs');
+const crypto = require('crypto');
 const path = require('path');
 
 // Helper function to check if request wants JSON response
@@ -14,6 +16,36 @@ const wantsJSONResponse = (req) => {
     return acceptHeader.includes('application/json');
 };
 
+// SHA-256 của file nội dung, nhớ theo đường dẫn + kích thước + thời điểm sửa
+const contentDigestCache = new Map();
+
+const getContentDigest = async (filePath) => {
+    const stat = await fs.stat(filePath);
+    const key = `${filePath}:${stat.size}:${stat.mtimeMs}`;
+    if (contentDigestCache.has(key)) {
+        return { size: stat.size, sha256: contentDigestCache.get(key) };
+    }
+    const sha256 = await new Promise((resolve, reject) => {
+        const hash = crypto.createHash('sha256');
+        createReadStream(filePath)
+            .on('data', (chunk) => hash.update(chunk))
+            .on('end', () => resolve(hash.digest('hex')))
+            .on('error', reject);
+    });
+    contentDigestCache.set(key, sha256);
+    return { size: stat.size, sha256 };
+};
+
+// Phiên bản nội dung đầy đủ: đổi khi file nội dung hoặc các chương được sửa.
+// Client so sánh với bản đã tải để biết khi nào cần tải lại
+const buildContentVersion = (contentDigest, previewContent) => {
+    const fileVersion = contentDigest ? contentDigest.sha256 : 'nofile';
+    const chaptersVersion = previewContent && previewContent.updatedAt
+        ? new Date(previewContent.updatedAt).getTime()
+        : 0;
+    return `${fileVersion}-${chaptersVersion}`;
+};
+
 const bookAccessController = {
     // Hiển thị thư viện sách đã mua
     showLibrary: async (req, res) => {
@@ -638,16 +670,23 @@ const bookAccessController = {
                 isActive: true
             }).populate('book', 'title author coverImage digitalContentPath digitalContentFilename');
 
+            // includeContent=false: client tải file qua /content/file (hỗ trợ Range), chỉ cần metadata
+            const includeContent = req.query.includeContent !== 'false' && req.query.includeContent !== '0';
+
             // Try to read full content from file
             let fullContent = null;
+            let contentDigest = null;
             if (book.digitalContentPath) {
                 try {
-                    const content = await fs.readFile(book.digitalContentPath, 'utf-8');
-                    fullContent = content;
+                    contentDigest = await getContentDigest(book.digitalContentPath);
+                    if (includeContent) {
+                        fullContent = await fs.readFile(book.digitalContentPath, 'utf-8');
+                    }
                 } catch (fileError) {
                     console.error('Error reading digital content file:', fileError);
                     // If file read fails, return file path for client to download
                     fullContent = null;
+                    contentDigest = null;
                 }
             }
 
@@ -663,7 +702,7 @@ const bookAccessController = {
                 }));
                 
                 // If no file content, combine chapters as fallback
-                if (!fullContent) {
+                if (!fullContent && (includeContent || !contentDigest)) {
                     fullContent = previewContent.chapters
                         .map(ch => `# ${ch.title}\n\n${ch.content}`)
                         .join('\n\n---\n\n');
@@ -685,7 +724,10 @@ const bookAccessController = {
                     contentPath: book.digitalContentPath ? path.relative(path.join(__dirname, '../public'), book.digitalContentPath) : null,
                     contentFilename: book.digitalContentFilename || null,
                     contentType: book.digitalContentType || 'text/plain',
-                    hasFile: !!book.digitalContentPath,
+                    hasFile: !!contentDigest,
+                    contentLength: contentDigest ? contentDigest.size : null,
+                    contentSha256: contentDigest ? contentDigest.sha256 : null,
+                    contentVersion: buildContentVersion(contentDigest, previewContent),
                     readingProgress: accessRecord ? {
                         lastChapter: accessRecord.readingProgress.lastChapter,
                         totalChapters: accessRecord.readingProgress.totalChapters,
@@ -701,6 +743,162 @@ const bookAccessController = {
                 message: 'Có lỗi xảy ra khi lấy nội dung sách'
             });
         }
+    },
+
+    // API: Mục lục chương (không kèm nội dung) để client tải từng chương khi đọc
+    getChapterIndex: async (req, res) => {
+        try {
+            const { bookId } = req.params;
+            const userId = req.user._id || req.user.id;
+
+            const hasAccess = await BookAccess.hasAccess(userId, bookId);
+            if (!hasAccess) {
+                return res.status(403).json({
+                    success: false,
+                    message: 'Bạn cần mua quyền truy cập để đọc sách này',
+                    hasAccess: false
+                });
+            }
+
+            const previewContent = await PreviewContent.findOne({ book: bookId }).lean();
+            const chapters = previewContent && previewContent.chapters ? previewContent.chapters : [];
+
+            const book = await Book.findById(bookId).select('digitalContentPath').lean();
+            let contentDigest = null;
+            if (book && book.digitalContentPath) {
+                try {
+                    contentDigest = await getContentDigest(book.digitalContentPath);
+                } catch (fileError) {
+                    contentDigest = null;
+                }
+            }
+
+            res.set('Cache-Control', 'private, no-store');
+            res.json({
+                success: true,
+                data: {
+                    // Đổi khi nội dung chương được sửa: client bỏ các chương đã lưu
+                    version: previewContent && previewContent.updatedAt
+                        ? new Date(previewContent.updatedAt).getTime().toString()
+                        : '0',
+                    // Cùng giá trị với /content: dùng để kiểm tra bản offline còn mới không
+                    contentVersion: buildContentVersion(contentDigest, previewContent),
+                    // length: số ký tự (UTF-16) của nội dung, để client biết độ dài trước khi tải
+                    chapters: chapters.map((ch, index) => ({
+                        index,
+                        chapterNumber: ch.chapterNumber,
+                        title: ch.title,
+                        length: ch.content ? ch.content.length : 0
+                    }))
+                }
+            });
+        } catch (error) {
+            console.error('Error getting chapter index:', error);
+            res.status(500).json({
+                success: false,
+                message: 'Có lỗi xảy ra khi lấy mục lục'
+            });
+        }
+    },
+
+    // API: Nội dung một chương theo vị trí trong mục lục
+    getChapter: async (req, res) => {
+        try {
+            const { bookId } = req.params;
+            const index = parseInt(req.params.index, 10);
+            const userId = req.user._id || req.user.id;
+
+            const hasAccess = await BookAccess.hasAccess(userId, bookId);
+            if (!hasAccess) {
+                return res.status(403).json({
+                    success: false,
+                    message: 'Bạn cần mua quyền truy cập để đọc sách này',
+                    hasAccess: false
+                });
+            }
+
+            const previewContent = await PreviewContent.findOne(
+                { book: bookId },
+                { chapters: { $slice: [isNaN(index) ? 0 : index, 1] }, updatedAt: 1 }
+            ).lean();
+            const chapter = previewContent && previewContent.chapters && previewContent.chapters[0];
+            if (isNaN(index) || index < 0 || !chapter) {
+                return res.status(404).json({
+                    success: false,
+                    message: 'Không tìm thấy chương'
+                });
+            }
+
+            res.set('Cache-Control', 'private, no-store');
+            res.json({
+                success: true,
+                data: {
+                    index,
+                    version: previewContent.updatedAt
+                        ? new Date(previewContent.updatedAt).getTime().toString()
+                        : '0',
+                    chapterNumber: chapter.chapterNumber,
+                    title: chapter.title,
+                    content: chapter.content || ''
+                }
+            });
+        } catch (error) {
+            console.error('Error getting chapter:', error);
+            res.status(500).json({
+                success: false,
+                message: 'Có lỗi xảy ra khi lấy nội dung chương'
+            });
+        }
+    },
+
+    // API: Tải file nội dung gốc (sau khi đã mua), hỗ trợ Range để tải tiếp khi bị ngắt
+    getContentFile: async (req, res) => {
+        try {
+            const { bookId } = req.params;
+            const userId = req.user._id || req.user.id;
+
+            const hasAccess = await BookAccess.hasAccess(userId, bookId);
+            if (!hasAccess) {
+                return res.status(403).json({
+                    success: false,
+                    message: 'Bạn cần mua quyền truy cập để đọc sách này',
+                    hasAccess: false
+                });
+            }
+
+            const book = await Book.findById(bookId);
+            if (!book || !book.digitalContentPath) {
+                return res.status(404).json({
+                    success: false,
+                    message: 'Sách chưa có file nội dung'
+                });
+            }
+
+            const digest = await getContentDigest(book.digitalContentPath);
+            res.sendFile(path.resolve(book.digitalContentPath), {
+                acceptRanges: true,
+                cacheControl: false,
+                headers: {
+                    'Content-Type': 'text/plain; charset=utf-8',
+                    'Cache-Control': 'private, no-store',
+                    'X-Content-SHA256': digest.sha256
+                }
+            }, (err) => {
+                if (err && !res.headersSent) {
+                    console.error('Error sending content file:', err);
+                    res.status(err.status || 500).json({
+                        success: false,
+                        message: 'Không thể tải file nội dung'
+                    });
+                }
+            });
+        } catch (error) {
+            console.error('Error getting content file:', error);
+            res.status(500).json({
+                success: false,
+                message: 'Có lỗi xảy ra khi tải file nội dung'
+            });
+        }
     }
 };
 
@@ -113,4 +113,20 @@ BookSchema.methods.updateRating = async function() {
   await this.save();
 };
 
+// Delta sync index: GET /api/books/changes walks books by (updatedAt, _id)
+BookSchema.index({ updatedAt: 1, _id: 1 });
+
+// Leave a tombstone when a book is deleted so synced clients can drop it
+BookSchema.post('findOneAndDelete', async function(doc) {
+  if (!doc) {
+    return;
+  }
+  const BookTombstone = mongoose.model('BookTombstone');
+  await BookTombstone.updateOne(
+    { book: doc._id },
+    { $set: { deletedAt: new Date() } },
+    { upsert: true }
+  );
+});
+
 module.exports = mongoose.model('Book', BookSchema);
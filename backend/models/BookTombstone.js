@@ -0,0 +1,17 @@
+const mongoose = require('mongoose');
+
+// Ghi lại sách đã bị xóa để app đồng bộ gia tăng (GET /api/books/changes) biết cần xóa khỏi bộ nhớ cục bộ
+const BookTombstoneSchema = new mongoose.Schema({
+  book: {
+    type: mongoose.Schema.Types.ObjectId,
+    required: true,
+    unique: true
+  },
+  deletedAt: {
+    type: Date,
+    default: Date.now,
+    index: true
+  }
+});
+
+module.exports = mongoose.model('BookTombstone', BookTombstoneSchema);
@@ -51,6 +51,24 @@ router.get('/api/books/:bookId/content', authenticateToken, (req, res, next) =>
     next();
 }, bookAccessController.getFullContent);
 
+// GET /access/api/books/:bookId/content/file - Tải file nội dung gốc (hỗ trợ Range)
+router.get('/api/books/:bookId/content/file', authenticateToken, (req, res, next) => {
+    req.isApiRequest = true;
+    next();
+}, bookAccessController.getContentFile);
+
+// GET /access/api/books/:bookId/chapters - Mục lục chương (không kèm nội dung)
+router.get('/api/books/:bookId/chapters', authenticateToken, (req, res, next) => {
+    req.isApiRequest = true;
+    next();
+}, bookAccessController.getChapterIndex);
+
+// GET /access/api/books/:bookId/chapters/:index - Nội dung một chương
+router.get('/api/books/:bookId/chapters/:index', authenticateToken, (req, res, next) => {
+    req.isApiRequest = true;
+    next();
+}, bookAccessController.getChapter);
+
 // GET /access/api/library - Lấy danh sách sách đã mua (API JSON cho mobile)
 router.get('/api/library', authenticateToken, (req, res, next) => {
     req.isApiRequest = true;
@@ -41,6 +41,8 @@ android {
     buildTypes {
         debug {
             buildConfigField("String", "BASE_URL", "\"$escapedBaseUrl\"")
+            buildConfigField("String", "NETWORK_LOG_LEVEL", "\"BODY\"")
+            buildConfigField("int", "LOG_LEVEL", "3")
         }
         release {
             isMinifyEnabled = false
@@ -49,6 +51,8 @@ android {
                 "proguard-rules.pro"
             )
             buildConfigField("String", "BASE_URL", "\"$escapedBaseUrl\"")
+            buildConfigField("String", "NETWORK_LOG_LEVEL", "\"NONE\"")
+            buildConfigField("int", "LOG_LEVEL", "5")
         }
     }
     compileOptions {
@@ -69,7 +73,6 @@ dependencies {
     implementation(libs.retrofit)
     implementation(libs.retrofit.gson)
     implementation(libs.okhttp)
-    implementation(libs.okhttp.logging)
     implementation(libs.okhttp.urlconnection)
     implementation(libs.gson)
     implementation(libs.glide)
@@ -18,4 +18,10 @@
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+# AppLog: bỏ hẳn các lời gọi dưới mức WARN trong bản release
+-assumenosideeffects class quynh.ph59304.bansach.logging.AppLog {
+    public static void v(...);
+    public static void d(...);
+    public static void i(...);
+}
@@ -0,0 +1,19 @@
+package quynh.ph59304.bansach;
+
+import android.app.Application;
+
+import quynh.ph59304.bansach.api.RetrofitClient;
+import quynh.ph59304.bansach.repository.CatalogStore;
+import quynh.ph59304.bansach.repository.OfflineBookStore;
+
+public class BanSachApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Khởi tạo các thành phần dùng chung cho toàn app
+        RetrofitClient.init(this);
+        CatalogStore.init(this);
+        OfflineBookStore.init(this);
+    }
+}
@@ -35,14 +35,14 @@ import quynh.ph59304.bansach.adapters.ReviewAdapter;
 import quynh.ph59304.bansach.models.ApiResponse;
 import quynh.ph59304.bansach.models.Book;
 import quynh.ph59304.bansach.models.CartResponse;
-import quynh.ph59304.bansach.models.CoinBalanceResponse;
-import quynh.ph59304.bansach.models.User;
 import quynh.ph59304.bansach.models.PreviewChapter;
 import quynh.ph59304.bansach.models.PreviewResponse;
 import quynh.ph59304.bansach.models.Review;
 import quynh.ph59304.bansach.models.ReviewCreateResponse;
 import quynh.ph59304.bansach.models.ReviewListResponse;
 import quynh.ph59304.bansach.models.ReviewSummary;
+import quynh.ph59304.bansach.repository.BookInfoRepository;
+import quynh.ph59304.bansach.repository.CoinBalanceRepository;
 import quynh.ph59304.bansach.utils.SharedPreferencesManager;
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -69,6 +69,7 @@ public class BookDetailActivity extends AppCompatActivity {
     private ReviewAdapter reviewAdapter;
     private ApiService apiService;
     private SharedPreferencesManager prefManager;
+    private final CoinBalanceRepository.Listener coinBalanceListener = this::updateCoinBalance;
     private String bookId;
     private Book currentBook;
     private final List<Review> reviewList = new ArrayList<>();
@@ -95,7 +96,6 @@ public class BookDetailActivity extends AppCompatActivity {
         setupToolbar();
         setupCoinBalanceClick();
         loadBookDetail();
-        loadCoinBalance();
     }
 
     private void updateReviewSummaryFromBook(Book book) {
@@ -164,29 +164,31 @@ public class BookDetailActivity extends AppCompatActivity {
 
     private void loadBookDetail() {
         showProgress(true);
-        Call<ApiResponse<Book>> call = apiService.getBookDetail(bookId);
-        call.enqueue(new Callback<ApiResponse<Book>>() {
+        // Dùng chung với PreviewActivity: mở lại trong thời gian TTL không cần gọi API
+        BookInfoRepository.getInstance().getBookDetail(bookId, new BookInfoRepository.Callback<Book>() {
             @Override
-            public void onResponse(Call<ApiResponse<Book>> call, Response<ApiResponse<Book>> response) {
+            public void onLoaded(Book book) {
+                if (isDestroyed()) {
+                    return;
+                }
                 showProgress(false);
-                if (response.isSuccessful() && response.body() != null) {
-                    Book book = response.body().getBook();
-                    if (book != null) {
-                        displayBook(book);
-                    } else {
-                        Toast.makeText(BookDetailActivity.this, "Không tìm thấy thông tin sách", Toast.LENGTH_SHORT).show();
-                        finish();
-                    }
+                if (book != null) {
+                    displayBook(book);
                 } else {
-                    Toast.makeText(BookDetailActivity.this, "Không thể tải thông tin sách", Toast.LENGTH_SHORT).show();
+                    Toast.makeText(BookDetailActivity.this, "Không tìm thấy thông tin sách", Toast.LENGTH_SHORT).show();
                     finish();
                 }
             }
 
             @Override
-            public void onFailure(Call<ApiResponse<Book>> call, Throwable t) {
+            public void onError(int httpCode, String message) {
+                if (isDestroyed()) {
+                    return;
+                }
                 showProgress(false);
-                Toast.makeText(BookDetailActivity.this, "Lỗi kết nối: " + t.getMessage(), Toast.LENGTH_SHORT).show();
+                Toast.makeText(BookDetailActivity.this, httpCode != 0
+                        ? "Không thể tải thông tin sách"
+                        : "Lỗi kết nối: " + message, Toast.LENGTH_SHORT).show();
                 finish();
             }
         });
@@ -228,6 +230,11 @@ public class BookDetailActivity extends AppCompatActivity {
         updateReviewSummaryFromBook(book);
         loadReviews();
         loadPreviewSample();
+        // Nạp sẵn quyền đọc để trang đọc thử mở ra không phải chờ
+        String authHeader = getOptionalAuthHeader();
+        if (authHeader != null) {
+            BookInfoRepository.getInstance().prefetchAccess(bookId, authHeader);
+        }
     }
 
     private void loadReviews() {
@@ -292,17 +299,20 @@ public class BookDetailActivity extends AppCompatActivity {
             tvPreviewSampleError.setVisibility(View.GONE);
         }
 
-        apiService.getPreviewContent(bookId, getOptionalAuthHeader()).enqueue(new Callback<PreviewResponse>() {
+        BookInfoRepository previews = BookInfoRepository.getInstance();
+        previews.getPreview(bookId, getOptionalAuthHeader(), new BookInfoRepository.Callback<PreviewResponse>() {
             @Override
-            public void onResponse(Call<PreviewResponse> call, Response<PreviewResponse> response) {
+            public void onLoaded(PreviewResponse preview) {
+                if (isDestroyed()) {
+                    return;
+                }
                 if (previewSampleProgress != null) {
                     previewSampleProgress.setVisibility(View.GONE);
                 }
-                if (response.isSuccessful() && response.body() != null && response.body().isSuccess()
-                        && response.body().getPreview() != null
-                        && response.body().getPreview().getChapters() != null
-                        && !response.body().getPreview().getChapters().isEmpty()) {
-                    PreviewChapter firstChapter = response.body().getPreview().getChapters().get(0);
+                if (preview.getPreview() != null
+                        && preview.getPreview().getChapters() != null
+                        && !preview.getPreview().getChapters().isEmpty()) {
+                    PreviewChapter firstChapter = preview.getPreview().getChapters().get(0);
                     if (tvPreviewSampleTitle != null) {
                         tvPreviewSampleTitle.setText(firstChapter.getTitle());
                     }
@@ -319,12 +329,19 @@ public class BookDetailActivity extends AppCompatActivity {
             }
 
             @Override
-            public void onFailure(Call<PreviewResponse> call, Throwable t) {
+            public void onError(int httpCode, String message) {
+                if (isDestroyed()) {
+                    return;
+                }
                 if (previewSampleProgress != null) {
                     previewSampleProgress.setVisibility(View.GONE);
                 }
-                showPreviewSampleError("Không thể tải nội dung đọc thử.");
-                Log.e(TAG, "Preview sample load error: " + t.getMessage(), t);
+                if (httpCode != 0) {
+                    showPreviewSampleError("Nội dung đọc thử đang được cập nhật.");
+                } else {
+                    showPreviewSampleError("Không thể tải nội dung đọc thử.");
+                    Log.e(TAG, "Preview sample load error: " + message);
+                }
             }
         });
     }
@@ -571,6 +588,18 @@ public class BookDetailActivity extends AppCompatActivity {
         return "Bearer " + token;
     }
     
+    @Override
+    protected void onStart() {
+        super.onStart();
+        CoinBalanceRepository.getInstance().addListener(coinBalanceListener);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        CoinBalanceRepository.getInstance().removeListener(coinBalanceListener);
+    }
+    
     @Override
     protected void onResume() {
         super.onResume();
@@ -587,53 +616,8 @@ public class BookDetailActivity extends AppCompatActivity {
             return;
         }
         
-        String authHeader = "Bearer " + token;
-        
-        // Try getCoinBalance first
-        Call<CoinBalanceResponse> coinCall = apiService.getCoinBalance(authHeader);
-        coinCall.enqueue(new Callback<CoinBalanceResponse>() {
-            @Override
-            public void onResponse(Call<CoinBalanceResponse> call, Response<CoinBalanceResponse> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    CoinBalanceResponse balanceResponse = response.body();
-                    double balance = balanceResponse.getBalance();
-                    updateCoinBalance(balance);
-                } else {
-                    // Fallback to getProfile
-                    loadCoinFromProfile(authHeader);
-                }
-            }
-
-            @Override
-            public void onFailure(Call<CoinBalanceResponse> call, Throwable t) {
-                // Fallback to getProfile
-                loadCoinFromProfile(authHeader);
-            }
-        });
-    }
-    
-    private void loadCoinFromProfile(String authHeader) {
-        Call<ApiResponse<User>> profileCall = apiService.getProfile(authHeader);
-        profileCall.enqueue(new Callback<ApiResponse<User>>() {
-            @Override
-            public void onResponse(Call<ApiResponse<User>> call, Response<ApiResponse<User>> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    ApiResponse<User> apiResponse = response.body();
-                    User user = apiResponse.getUser();
-                    if (user == null && apiResponse.getData() != null) {
-                        user = (User) apiResponse.getData();
-                    }
-                    if (user != null) {
-                        updateCoinBalance(user.getCoinBalance());
-                    }
-                }
-            }
-
-            @Override
-            public void onFailure(Call<ApiResponse<User>> call, Throwable t) {
-                Log.e(TAG, "Failed to load coin balance: " + t.getMessage());
-            }
-        });
+        // Dùng số dư dùng chung, chỉ gọi API khi giá trị đã cũ (TTL)
+        CoinBalanceRepository.getInstance().refresh("Bearer " + token, false);
     }
     
     private void updateCoinBalance(double balance) {
@@ -25,14 +25,18 @@ import com.google.android.material.textfield.TextInputEditText;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import quynh.ph59304.bansach.adapters.BookAdapter;
 import quynh.ph59304.bansach.api.ApiService;
 import quynh.ph59304.bansach.api.RetrofitClient;
 import quynh.ph59304.bansach.models.Book;
-import quynh.ph59304.bansach.models.BooksResponse;
 import quynh.ph59304.bansach.models.CategoriesResponse;
 import quynh.ph59304.bansach.models.Category;
+import quynh.ph59304.bansach.repository.CatalogStore;
+import quynh.ph59304.bansach.search.BookSearchIndex;
+import quynh.ph59304.bansach.search.BookSearchPipeline;
 import quynh.ph59304.bansach.utils.SharedPreferencesManager;
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -40,6 +44,10 @@ import retrofit2.Response;
 
 public class BookListActivity extends AppCompatActivity {
     private static final String TAG = "BookListActivity";
+    // Số sách đọc mỗi lần khi duyệt danh mục không lọc
+    private static final int PAGE_SIZE = 50;
+    // Chỉ mục tìm kiếm đọc danh mục theo trang lớn hơn
+    private static final int INDEX_PAGE_SIZE = 500;
     private RecyclerView recyclerViewBooks;
     private BookAdapter bookAdapter;
     private TextInputEditText edtSearch;
@@ -49,10 +57,51 @@ public class BookListActivity extends AppCompatActivity {
     private TextView tvEmpty;
     private ApiService apiService;
     private SharedPreferencesManager prefManager;
-    private List<Book> allBooks = new ArrayList<>();
+    // Chỉ mục tìm kiếm, được dựng và cập nhật trên indexExecutor
+    private final BookSearchIndex searchIndex = new BookSearchIndex(CatalogStore.NEWEST_FIRST);
+    private final ExecutorService indexExecutor = Executors.newSingleThreadExecutor();
+    private BookSearchPipeline searchPipeline;
     private List<Category> categories = new ArrayList<>();
     private String selectedCategoryId = null;
     private String searchQuery = "";
+    private boolean hasBooks;
+    // Duyệt không lọc: các trang đã đọc từ CatalogStore, thêm trang khi cuộn gần cuối
+    private List<Book> pagedBooks = new ArrayList<>();
+    private boolean pageLoading;
+    private boolean pagesComplete;
+    private int pageGeneration;
+    // Chỉ mục chỉ được dựng khi người dùng tìm kiếm hoặc lọc lần đầu
+    private boolean indexRequested;
+    private boolean indexComplete;
+    private final CatalogStore.Listener catalogListener = new CatalogStore.Listener() {
+        @Override
+        public void onCatalogChanged(List<Book> upserts, List<String> deletedIds) {
+            reloadPages();
+            if (indexRequested) {
+                // Chỉ vá phần thay đổi; trang chỉ mục đọc sau thay đổi này đã có sẵn nó
+                indexExecutor.execute(() -> {
+                    searchIndex.update(upserts, deletedIds);
+                    runOnUiThread(() -> {
+                        if (!isDestroyed() && indexComplete && !isBrowsing()) {
+                            filterBooks();
+                        }
+                    });
+                });
+            }
+        }
+
+        @Override
+        public void onSyncError(String message) {
+            showProgress(false);
+            // Đã có dữ liệu cục bộ thì không cần báo lỗi
+            if (!hasBooks) {
+                showEmpty(true);
+                String msg = "Không thể tải danh sách sách (" + message + ")";
+                Log.e(TAG, msg);
+                Toast.makeText(BookListActivity.this, msg, Toast.LENGTH_SHORT).show();
+            }
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -72,6 +121,7 @@ public class BookListActivity extends AppCompatActivity {
         initViews();
         setupToolbar();
         setupRecyclerView();
+        searchPipeline = new BookSearchPipeline(searchIndex, this::showSearchResults);
         setupSearch();
         setupFilter();
         loadCategories();
@@ -128,11 +178,17 @@ public class BookListActivity extends AppCompatActivity {
     }
 
     private void setupRecyclerView() {
-        bookAdapter = new BookAdapter(allBooks, book -> {
+        bookAdapter = new BookAdapter(new ArrayList<>(), book -> {
             Intent intent = new Intent(BookListActivity.this, BookDetailActivity.class);
             intent.putExtra("book_id", book.getId());
             startActivity(intent);
         });
+        // Cuộn gần hết các trang đã đọc: đọc tiếp trang sau
+        bookAdapter.setOnNearEndListener(() -> {
+            if (isBrowsing()) {
+                loadNextPage();
+            }
+        });
         recyclerViewBooks.setLayoutManager(new LinearLayoutManager(this));
         recyclerViewBooks.setAdapter(bookAdapter);
     }
@@ -145,7 +201,12 @@ public class BookListActivity extends AppCompatActivity {
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
                 searchQuery = s.toString().trim();
-                filterBooks();
+                if (isBrowsing() || !indexComplete) {
+                    filterBooks();
+                } else {
+                    // Debounce: chỉ tìm khi người dùng ngừng gõ một chút
+                    searchPipeline.submit(searchQuery, selectedCategoryId, true);
+                }
             }
 
             @Override
@@ -213,57 +274,137 @@ public class BookListActivity extends AppCompatActivity {
     }
 
     private void loadBooks() {
-        showProgress(true);
-        Call<BooksResponse> call = apiService.getBooks(null, null, null, null);
-        call.enqueue(new Callback<BooksResponse>() {
-            @Override
-            public void onResponse(Call<BooksResponse> call, Response<BooksResponse> response) {
-                showProgress(false);
-                if (response.isSuccessful() && response.body() != null) {
-                    List<Book> books = response.body().getBooks();
-                    if (books != null) {
-                        allBooks = books;
-                        filterBooks();
-                    } else {
-                        showEmpty(true);
-                    }
-                } else {
-                    showEmpty(true);
-                    String msg = "Không thể tải danh sách sách (HTTP " + response.code() + " - " + response.message() + ")";
-                    Log.e(TAG, msg);
-                    Toast.makeText(BookListActivity.this, msg, Toast.LENGTH_SHORT).show();
-                }
+        CatalogStore catalogStore = CatalogStore.getInstance();
+        // Hiện ngay danh mục đã lưu, sau đó chỉ tải phần thay đổi từ server
+        if (!hasBooks) {
+            showProgress(true);
+        }
+        catalogStore.addListener(catalogListener);
+        reloadPages();
+        catalogStore.sync(false);
+    }
+
+    private boolean isBrowsing() {
+        return searchQuery.isEmpty() && selectedCategoryId == null;
+    }
+
+    /**
+     * Reads again every page shown so far (at least the first one), e.g. after a sync.
+     */
+    private void reloadPages() {
+        final int token = ++pageGeneration;
+        final int count = Math.max(PAGE_SIZE, pagedBooks.size());
+        pageLoading = true;
+        CatalogStore.getInstance().loadPage(count, null, books -> {
+            if (isDestroyed() || token != pageGeneration) {
+                return;
             }
+            pageLoading = false;
+            pagedBooks = new ArrayList<>(books);
+            pagesComplete = books.size() < count;
+            onPagesChanged();
+        });
+    }
 
-            @Override
-            public void onFailure(Call<BooksResponse> call, Throwable t) {
-                showProgress(false);
-                showEmpty(true);
-                Log.e(TAG, "Lỗi kết nối khi tải sách: " + t.getMessage(), t);
-                Toast.makeText(BookListActivity.this, "Lỗi kết nối: " + t.getMessage(), Toast.LENGTH_SHORT).show();
+    private void loadNextPage() {
+        if (pageLoading || pagesComplete || pagedBooks.isEmpty()) {
+            return;
+        }
+        final int token = pageGeneration;
+        pageLoading = true;
+        Book last = pagedBooks.get(pagedBooks.size() - 1);
+        CatalogStore.getInstance().loadPage(PAGE_SIZE, last, books -> {
+            if (isDestroyed() || token != pageGeneration) {
+                return;
             }
+            pageLoading = false;
+            pagedBooks.addAll(books);
+            pagesComplete = books.size() < PAGE_SIZE;
+            onPagesChanged();
         });
     }
 
-    private void filterBooks() {
-        List<Book> filteredBooks = new ArrayList<>();
-
-        for (Book book : allBooks) {
-            // Filter by search
-            if (searchQuery.isEmpty() || 
-                book.getTitle().toLowerCase().contains(searchQuery.toLowerCase()) ||
-                book.getAuthor().toLowerCase().contains(searchQuery.toLowerCase())) {
-                
-                // Filter by category
-                if (selectedCategoryId == null || 
-                    (book.getCategory() != null && book.getCategory().getId().equals(selectedCategoryId))) {
-                    filteredBooks.add(book);
+    private void onPagesChanged() {
+        hasBooks = !pagedBooks.isEmpty();
+        if (!isBrowsing()) {
+            return;
+        }
+        // Danh mục trống trong lần đồng bộ đầu tiên: vẫn đang tải
+        if (hasBooks || !CatalogStore.getInstance().isSyncing()) {
+            showProgress(false);
+        }
+        showBooks(pagedBooks);
+    }
+
+    /**
+     * Fills the search index from the stored catalog, one page at a time on the index
+     * thread. Later changes are applied as deltas by the catalog listener.
+     */
+    private void buildIndex() {
+        indexRequested = true;
+        indexPage(null);
+    }
+
+    private void indexPage(Book after) {
+        CatalogStore.getInstance().loadPage(INDEX_PAGE_SIZE, after, books -> {
+            if (isDestroyed()) {
+                return;
+            }
+            boolean lastPage = books.size() < INDEX_PAGE_SIZE;
+            indexExecutor.execute(() -> {
+                searchIndex.addAll(books);
+                if (lastPage) {
+                    runOnUiThread(() -> {
+                        if (!isDestroyed()) {
+                            indexComplete = true;
+                            filterBooks();
+                        }
+                    });
                 }
+            });
+            if (!lastPage) {
+                indexPage(books.get(books.size() - 1));
             }
+        });
+    }
+
+    private void filterBooks() {
+        if (isBrowsing()) {
+            searchPipeline.cancel();
+            onPagesChanged();
+            return;
+        }
+        if (!indexRequested) {
+            buildIndex();
         }
+        if (!indexComplete) {
+            // Lần tìm đầu tiên: chờ chỉ mục dựng xong
+            searchPipeline.cancel();
+            showProgress(true);
+            return;
+        }
+        showProgress(false);
+        searchPipeline.submit(searchQuery, selectedCategoryId, false);
+    }
 
+    private void showBooks(List<Book> books) {
+        bookAdapter.updateBooks(books);
+        showEmpty(books.isEmpty() && !CatalogStore.getInstance().isSyncing());
+    }
+
+    private void showSearchResults(List<Book> filteredBooks) {
         bookAdapter.updateBooks(filteredBooks);
-        showEmpty(filteredBooks.isEmpty());
+        showEmpty(filteredBooks.isEmpty() && !CatalogStore.getInstance().isSyncing());
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        CatalogStore.getInstance().removeListener(catalogListener);
+        if (searchPipeline != null) {
+            searchPipeline.shutdown();
+        }
+        indexExecutor.shutdownNow();
     }
 
     private void showProgress(boolean show) {
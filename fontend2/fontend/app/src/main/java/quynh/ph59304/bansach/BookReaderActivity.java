@@ -1,69 +1,120 @@
 package quynh.ph59304.bansach;
 
+import android.content.ComponentCallbacks2;
 import android.content.Intent;
+import android.graphics.Paint;
+import android.graphics.Typeface;
 import android.os.Bundle;
-import android.util.Log;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextWatcher;
+import android.text.style.StyleSpan;
+import android.util.TypedValue;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
-import android.widget.LinearLayout;
+import android.widget.ArrayAdapter;
+import android.widget.ListView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
-import com.google.android.material.button.MaterialButton;
+import com.google.android.material.textfield.TextInputEditText;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import quynh.ph59304.bansach.api.ApiService;
-import quynh.ph59304.bansach.api.RetrofitClient;
-import quynh.ph59304.bansach.models.ApiResponse;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import quynh.ph59304.bansach.logging.AppLog;
+import quynh.ph59304.bansach.reader.ChapterResidency;
+import quynh.ph59304.bansach.reader.Page;
+import quynh.ph59304.bansach.reader.PageFlipController;
+import quynh.ph59304.bansach.reader.PageView;
+import quynh.ph59304.bansach.reader.ParagraphAdapter;
+import quynh.ph59304.bansach.reader.ParagraphSplitter;
+import quynh.ph59304.bansach.reader.ReaderChapter;
+import quynh.ph59304.bansach.repository.ChapterArchive;
+import quynh.ph59304.bansach.repository.OfflineBookStore;
+import quynh.ph59304.bansach.repository.ReadingPositionStore;
+import quynh.ph59304.bansach.repository.RemoteChapterSource;
+import quynh.ph59304.bansach.search.BookSearchPipeline;
+import quynh.ph59304.bansach.search.BookTextIndex;
 import quynh.ph59304.bansach.utils.SharedPreferencesManager;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
 
 public class BookReaderActivity extends AppCompatActivity {
     private static final String TAG = "BookReaderActivity";
     public static final String EXTRA_BOOK_ID = "book_id";
     public static final String EXTRA_BOOK_TITLE = "book_title";
+    private static final float DEFAULT_PAGE_TEXT_SIZE_SP = 18f;
+    private static final float MIN_PAGE_TEXT_SIZE_SP = 12f;
+    private static final float MAX_PAGE_TEXT_SIZE_SP = 32f;
+    private static final float PAGE_TEXT_SIZE_STEP_SP = 2f;
+    private static final float PAGE_LINE_SPACING_DP = 8f;
+    private static final int MAX_SEARCH_RESULTS_SHOWN = 100;
+    private static final int SNIPPET_CONTEXT_CHARS = 40;
 
     private String bookId;
     private String bookTitle;
-    private ApiService apiService;
+    private OfflineBookStore offlineBookStore;
+    private OfflineBookStore.Callback openCallback;
+    // Bản lưu offline đang đọc; dùng để đọc chương cho chỉ mục tìm kiếm mà không giữ lại
+    private ChapterArchive archive;
+    // Khác null khi đọc trực tuyến từng chương
+    private RemoteChapterSource chapterSource;
     private SharedPreferencesManager prefManager;
-
-    private TextView tvContent;
-    private TextView tvChapterTitle;
-    private TextView tvChapterInfo;
-    private androidx.core.widget.NestedScrollView scrollView;
+    private ReadingPositionStore positions;
+    // Phiên bản nội dung đang đọc, lưu kèm vị trí đọc
+    private String contentVersion;
+
+    private RecyclerView rvChapterContent;
+    private LinearLayoutManager chapterLayoutManager;
+    private ParagraphAdapter paragraphAdapter;
+    private PageView pageView;
+    private TextView tvPageInfo;
+    private PageFlipController pageFlipController;
     private ProgressBar progressBar;
     private TextView tvError;
-    private MaterialButton btnPreviousChapter;
-    private MaterialButton btnNextChapter;
-    private LinearLayout layoutChapterNavigation;
 
     // Chapter management
-    private List<Chapter> chapters = new ArrayList<>();
+    private List<ReaderChapter> chapters = new ArrayList<>();
     private int currentChapterIndex = 0;
-
-    private static class Chapter {
-        String title;
-        String content;
-        int chapterNumber;
-
-        Chapter(String title, String content, int chapterNumber) {
-            this.title = title;
-            this.content = content;
-            this.chapterNumber = chapterNumber;
-        }
-    }
+    // Vị trí bắt đầu của từng đoạn trong chương đang hiện ở chế độ cuộn
+    private int[] currentParagraphOffsets;
+    private int shownChapterIndex = -1;
+    // false khi sách còn đang tải và các chương đến dần
+    private boolean contentComplete;
+    // Tăng mỗi lần đổi chương để bỏ kết quả tách đoạn đã cũ
+    private int chapterRequest;
+    // Chế độ lật trang thay cho cuộn dọc
+    private boolean pagedMode;
+    private float pageTextSizeSp = DEFAULT_PAGE_TEXT_SIZE_SP;
+    private final ExecutorService parseExecutor = Executors.newSingleThreadExecutor();
+
+    // Tìm trong sách: chỉ mục được dựng dần ở luồng nền khi các chương có sẵn
+    private BookTextIndex textIndex = new BookTextIndex();
+    private final ExecutorService indexExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private Runnable pendingSearch;
+    private int searchGeneration;
+    private String lastSearchQuery = "";
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -78,8 +129,9 @@ public class BookReaderActivity extends AppCompatActivity {
             return;
         }
 
-        apiService = RetrofitClient.getInstance().getApiService();
+        offlineBookStore = OfflineBookStore.getInstance();
         prefManager = new SharedPreferencesManager(this);
+        positions = new ReadingPositionStore(this);
 
         if (!prefManager.isLoggedIn()) {
             Toast.makeText(this, "Vui lòng đăng nhập", Toast.LENGTH_SHORT).show();
@@ -90,20 +142,17 @@ public class BookReaderActivity extends AppCompatActivity {
 
         initViews();
         setupToolbar();
-        setupChapterNavigation();
+        setupChapterContent();
+        setupPageMode();
         loadFullContent();
     }
 
     private void initViews() {
-        tvContent = findViewById(R.id.tvBookContent);
-        tvChapterTitle = findViewById(R.id.tvChapterTitle);
-        tvChapterInfo = findViewById(R.id.tvChapterInfo);
-        scrollView = findViewById(R.id.scrollViewContent);
+        rvChapterContent = findViewById(R.id.rvChapterContent);
+        pageView = findViewById(R.id.pageView);
+        tvPageInfo = findViewById(R.id.tvPageInfo);
         progressBar = findViewById(R.id.progressBar);
         tvError = findViewById(R.id.tvError);
-        btnPreviousChapter = findViewById(R.id.btnPreviousChapter);
-        btnNextChapter = findViewById(R.id.btnNextChapter);
-        layoutChapterNavigation = findViewById(R.id.layoutChapterNavigation);
     }
 
     private void setupToolbar() {
@@ -119,30 +168,272 @@ public class BookReaderActivity extends AppCompatActivity {
         toolbar.setNavigationOnClickListener(v -> onBackPressed());
     }
 
-    private void setupChapterNavigation() {
-        btnPreviousChapter.setOnClickListener(v -> {
-            if (currentChapterIndex > 0) {
-                currentChapterIndex--;
-                displayChapter(currentChapterIndex);
-                scrollToTop();
+    private void setupChapterContent() {
+        paragraphAdapter = new ParagraphAdapter(this, new ParagraphAdapter.NavigationListener() {
+            @Override
+            public void onPreviousChapter() {
+                if (currentChapterIndex > 0) {
+                    currentChapterIndex--;
+                    displayChapter(currentChapterIndex);
+                }
+            }
+
+            @Override
+            public void onNextChapter() {
+                if (currentChapterIndex < chapters.size() - 1) {
+                    currentChapterIndex++;
+                    displayChapter(currentChapterIndex);
+                }
             }
         });
+        chapterLayoutManager = new LinearLayoutManager(this);
+        rvChapterContent.setLayoutManager(chapterLayoutManager);
+        rvChapterContent.setAdapter(paragraphAdapter);
+        // Đoạn văn dài ngắn khác nhau; không cần animation khi thay cả chương
+        rvChapterContent.setItemAnimator(null);
+    }
 
-        btnNextChapter.setOnClickListener(v -> {
-            if (currentChapterIndex < chapters.size() - 1) {
-                currentChapterIndex++;
-                displayChapter(currentChapterIndex);
-                scrollToTop();
+    private void setupPageMode() {
+        pageFlipController = new PageFlipController(this::onPageShown);
+        pageView.setListener(new PageView.Listener() {
+            @Override
+            public void onFlipNext() {
+                pageFlipController.next();
+            }
+
+            @Override
+            public void onFlipPrevious() {
+                pageFlipController.previous();
+            }
+
+            @Override
+            public void onViewportChanged(int width, int height) {
+                pageFlipController.setViewport(width, height);
             }
         });
+        applyPageTextStyle();
+    }
+
+    private void applyPageTextStyle() {
+        TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        paint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, pageTextSizeSp,
+                getResources().getDisplayMetrics()));
+        paint.setColor(0xFF333333);
+        float lineSpacing = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, PAGE_LINE_SPACING_DP,
+                getResources().getDisplayMetrics());
+        // Dàn trang lại từ trang đang đọc, không phải từ đầu sách
+        pageFlipController.setTextStyle(paint, lineSpacing);
+    }
+
+    private void onPageShown(Page<StaticLayout> page, boolean hasPrevious, boolean hasNext) {
+        if (isDestroyed() || !pagedMode) {
+            return;
+        }
+        pageView.setPageLayout(page.getLayout());
+        indexChapter(page.getChapterIndex());
+        keepResident(page.getChapterIndex());
+        if (chapterSource != null && page.getChapterIndex() != currentChapterIndex) {
+            chapterSource.prefetchAround(page.getChapterIndex());
+        }
+        currentChapterIndex = page.getChapterIndex();
+        ReaderChapter chapter = chapters.get(currentChapterIndex);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setTitle(chapter.getTitle());
+        }
+        String info = String.format("Chương %d / %d", currentChapterIndex + 1, chapters.size());
+        if (!hasNext) {
+            info += " · Hết";
+        }
+        tvPageInfo.setText(info);
+    }
+
+    private void setPagedMode(boolean paged) {
+        pagedMode = paged;
+        invalidateOptionsMenu();
+        if (chapters.isEmpty()) {
+            return;
+        }
+        rvChapterContent.setVisibility(paged ? View.GONE : View.VISIBLE);
+        pageView.setVisibility(paged ? View.VISIBLE : View.GONE);
+        tvPageInfo.setVisibility(paged ? View.VISIBLE : View.GONE);
+        if (paged) {
+            pageView.setPageLayout(null);
+            pageFlipController.openChapter(currentChapterIndex);
+        } else {
+            displayChapter(currentChapterIndex);
+        }
+    }
+
+    private void changePageTextSize(float deltaSp) {
+        float size = Math.max(MIN_PAGE_TEXT_SIZE_SP, Math.min(MAX_PAGE_TEXT_SIZE_SP, pageTextSizeSp + deltaSp));
+        if (size != pageTextSizeSp) {
+            pageTextSizeSp = size;
+            applyPageTextStyle();
+        }
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_book_reader, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        menu.findItem(R.id.menu_reading_mode).setTitle(pagedMode ? "Chế độ cuộn" : "Chế độ lật trang");
+        // Chế độ lật trang cần đủ các chương
+        menu.findItem(R.id.menu_reading_mode).setEnabled(contentComplete);
+        menu.findItem(R.id.menu_search).setEnabled(!chapters.isEmpty());
+        menu.findItem(R.id.menu_font_smaller).setVisible(pagedMode);
+        menu.findItem(R.id.menu_font_larger).setVisible(pagedMode);
+        return super.onPrepareOptionsMenu(menu);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        int itemId = item.getItemId();
+        if (itemId == R.id.menu_search) {
+            showSearchDialog();
+            return true;
+        } else if (itemId == R.id.menu_reading_mode) {
+            setPagedMode(!pagedMode);
+            return true;
+        } else if (itemId == R.id.menu_font_smaller) {
+            changePageTextSize(-PAGE_TEXT_SIZE_STEP_SP);
+            return true;
+        } else if (itemId == R.id.menu_font_larger) {
+            changePageTextSize(PAGE_TEXT_SIZE_STEP_SP);
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    /**
+     * Scrolls to the paragraph containing {@code offset}, {@code pixelOffset} below the
+     * top of the list; offset 0 shows the chapter title.
+     */
+    private void scrollToOffset(int[] paragraphOffsets, int offset, int pixelOffset) {
+        if (offset <= 0 || paragraphOffsets.length == 0) {
+            chapterLayoutManager.scrollToPositionWithOffset(0, 0);
+            return;
+        }
+        int paragraph = 0;
+        while (paragraph + 1 < paragraphOffsets.length && paragraphOffsets[paragraph + 1] <= offset) {
+            paragraph++;
+        }
+        // Vị trí 0 là tiêu đề chương
+        chapterLayoutManager.scrollToPositionWithOffset(paragraph + 1, pixelOffset);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        savePosition();
     }
 
-    private void scrollToTop() {
-        if (scrollView != null) {
-            scrollView.post(() -> scrollView.smoothScrollTo(0, 0));
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Quay lại đọc: bỏ giới hạn đã đặt khi thiếu bộ nhớ
+        if (archive != null) {
+            archive.getResidency().setRadius(ChapterResidency.DEFAULT_RADIUS);
+        }
+        if (chapterSource != null) {
+            chapterSource.setMemoryLimit(RemoteChapterSource.MEMORY_CACHE_CHARS);
         }
     }
 
+    /**
+     * Shrinks what the reader keeps in memory as the system runs short of it: fewer
+     * chapters around the current one, then only the current one, then nothing (all of
+     * it is read again from disk when needed).
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        ChapterResidency residency = archive != null ? archive.getResidency() : null;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            if (residency != null) {
+                residency.setRadius(0);
+                residency.clear();
+            }
+            if (chapterSource != null) {
+                chapterSource.setMemoryLimit(0);
+            }
+            paragraphAdapter.trimMemory();
+            pageFlipController.trimMemory();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            // RUNNING_LOW, RUNNING_CRITICAL và UI_HIDDEN: chỉ giữ chương đang đọc
+            if (residency != null) {
+                residency.setRadius(0);
+            }
+            if (chapterSource != null) {
+                chapterSource.setMemoryLimit(0);
+            }
+            pageFlipController.trimMemory();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            if (residency != null) {
+                residency.setRadius(Math.min(residency.getRadius(), 1));
+            }
+            if (chapterSource != null) {
+                chapterSource.setMemoryLimit(RemoteChapterSource.MEMORY_CACHE_CHARS / 2);
+            }
+        }
+    }
+
+    // Chương của bản lưu offline được giữ trong bộ nhớ quanh chương đang đọc
+    private void keepResident(int index) {
+        if (archive != null) {
+            archive.getResidency().setCurrentChapter(index);
+        }
+    }
+
+    private void savePosition() {
+        if (positions == null || chapters.isEmpty()) {
+            return;
+        }
+        int chapter = currentChapterIndex;
+        int offset = 0;
+        int pixelOffset = 0;
+        if (pagedMode) {
+            chapter = pageFlipController.getChapterIndex();
+            offset = pageFlipController.getOffset();
+        } else if (shownChapterIndex == currentChapterIndex && currentParagraphOffsets != null) {
+            int first = chapterLayoutManager.findFirstVisibleItemPosition();
+            if (first > 0 && first <= currentParagraphOffsets.length) {
+                offset = currentParagraphOffsets[first - 1];
+                View view = chapterLayoutManager.findViewByPosition(first);
+                pixelOffset = view != null ? view.getTop() : 0;
+            } else if (first > currentParagraphOffsets.length && currentParagraphOffsets.length > 0) {
+                // Đang ở cuối chương
+                offset = currentParagraphOffsets[currentParagraphOffsets.length - 1];
+            }
+        }
+        positions.save(bookId, new ReadingPositionStore.Position(contentVersion, chapter, offset, pixelOffset));
+    }
+
+    /**
+     * A chapter read online was longer or shorter than the saved table of contents said:
+     * rebuild the chapters with the real lengths and reopen at the reading position.
+     */
+    private void onChapterLengthsChanged(RemoteChapterSource source) {
+        if (isDestroyed() || source != chapterSource) {
+            return;
+        }
+        // Chương đang mở chưa hiện ra (vd. mở lại từ vị trí đã lưu): giữ vị trí đã lưu
+        ReadingPositionStore.Position saved = positions.get(bookId);
+        boolean stillOpening = !pagedMode && shownChapterIndex != currentChapterIndex
+                && saved != null && saved.getChapterIndex() == currentChapterIndex;
+        if (!stillOpening) {
+            savePosition();
+        }
+        onChaptersParsed(source.toReaderChapters(), source.getVersion());
+    }
+
+    /**
+     * Opens a downloaded book from disk. Otherwise, when the book has a chapter table of
+     * contents, reads it online chapter by chapter; books without one are downloaded.
+     */
     private void loadFullContent() {
         String authHeader = getAuthHeader();
         if (authHeader == null) {
@@ -151,517 +442,530 @@ public class BookReaderActivity extends AppCompatActivity {
         }
 
         showLoading(true);
-        Call<ApiResponse<Map<String, Object>>> call = apiService.getFullBookContent(authHeader, bookId);
-        call.enqueue(new Callback<ApiResponse<Map<String, Object>>>() {
+        if (offlineBookStore.isDownloaded(bookId)) {
+            openOfflineCopy(authHeader);
+            return;
+        }
+        RemoteChapterSource.loadIndex(this, authHeader, bookId, new RemoteChapterSource.IndexCallback() {
             @Override
-            public void onResponse(Call<ApiResponse<Map<String, Object>>> call, Response<ApiResponse<Map<String, Object>>> response) {
-                showLoading(false);
-                try {
-                    Log.d(TAG, "═══════════════════════════════════════");
-                    Log.d(TAG, "📥 API Response received");
-                    Log.d(TAG, "Response code: " + response.code());
-                    Log.d(TAG, "Response successful: " + response.isSuccessful());
-                    
-                    if (response.isSuccessful() && response.body() != null) {
-                    ApiResponse<Map<String, Object>> apiResponse = response.body();
-                    Boolean success = apiResponse.getSuccess();
-                    if (success != null && success) {
-                        Map<String, Object> data = apiResponse.getData();
-                        if (data != null) {
-                            Log.d(TAG, "Data keys: " + data.keySet());
-                            
-                            // Get content first
-                            String content = (String) data.get("content");
-                            Log.d(TAG, "Content from data: " + (content != null ? "exists, length=" + content.length() : "null"));
-                            
-                            // Try to get chapters array first
-                            @SuppressWarnings("unchecked")
-                            List<Map<String, Object>> chaptersList = (List<Map<String, Object>>) data.get("chapters");
-                            Log.d(TAG, "Chapters list: " + (chaptersList != null ? "exists, size=" + chaptersList.size() : "null"));
-                            
-                            if (chaptersList != null && !chaptersList.isEmpty()) {
-                                Log.d(TAG, "📚 Found chapters array with " + chaptersList.size() + " chapters");
-                                parseChaptersFromArray(chaptersList);
-                                
-                                // Even if we have chapters from array, if only 1 chapter and content is long, split it
-                                if (content != null && content.length() > 1500 && chapters.size() <= 1) {
-                                    Log.w(TAG, "⚠ Chapters array only has " + chapters.size() + " chapter(s), forcing split");
-                                    chapters.clear();
-                                    parseChaptersBySeparator(content);
-                                }
-                            } else if (content != null && !content.isEmpty()) {
-                                Log.d(TAG, "📝 No chapters array, parsing from content string");
-                                String preview = content.length() > 500 ? content.substring(0, 500) : content;
-                                Log.d(TAG, "Content preview (first 500): " + preview);
-                                
-                                // ALWAYS use parseChaptersBySeparator first (more reliable)
-                                parseChaptersBySeparator(content);
-                                
-                                // If that didn't create multiple chapters, try pattern matching
-                                if (chapters.size() <= 1 && content.length() > 2000) {
-                                    Log.d(TAG, "Separator split didn't create multiple chapters, trying pattern matching");
-                                    chapters.clear();
-                                    parseChaptersFromContent(content);
-                                }
-                            } else {
-                                Log.w(TAG, "⚠ No content or chapters found in data");
-                                showError("Nội dung sách đang được cập nhật");
-                                return;
-                            }
-                            
-                            // FINAL CHECK: ALWAYS ensure multiple chapters if content is long
-                            if (content != null && content.length() > 1500) {
-                                if (chapters.isEmpty()) {
-                                    Log.w(TAG, "⚠ No chapters parsed, forcing split");
-                                    parseChaptersBySeparator(content);
-                                } else if (chapters.size() == 1) {
-                                    Log.w(TAG, "⚠ Only one chapter but content is long (" + content.length() + "), forcing split");
-                                    String singleContent = chapters.get(0).content;
-                                    chapters.clear();
-                                    parseChaptersBySeparator(singleContent);
-                                }
-                            }
-                            
-                            // ABSOLUTE FINAL CHECK: If we still have only 1 chapter with long content, force split NOW
-                            if (content != null && content.length() > 1500 && chapters.size() == 1) {
-                                Log.e(TAG, "🚨🚨🚨 CRITICAL: Still only 1 chapter after all parsing! Force splitting NOW!");
-                                String singleContent = chapters.get(0).content;
-                                chapters.clear();
-                                parseChaptersBySeparator(singleContent);
-                                
-                                // If still only 1, manually split
-                                if (chapters.size() <= 1 && singleContent.length() > 1500) {
-                                    Log.e(TAG, "🚨 Manual split required!");
-                                    chapters.clear();
-                                    int targetSize = 2500;
-                                    int count = Math.max(2, (int) Math.ceil((double) singleContent.length() / targetSize));
-                                    count = Math.min(count, 10);
-                                    int size = singleContent.length() / count;
-                                    for (int i = 0; i < count; i++) {
-                                        int start = i * size;
-                                        int end = (i == count - 1) ? singleContent.length() : (i + 1) * size;
-                                        String chContent = singleContent.substring(start, end).trim();
-                                        if (!chContent.isEmpty()) {
-                                            chapters.add(new Chapter("Chương " + (i + 1), chContent, i + 1));
-                                        }
-                                    }
-                                    Log.d(TAG, "🚨 Manual split created " + chapters.size() + " chapters");
-                                }
-                            }
-                            
-                            // Final validation and logging
-                            if (!chapters.isEmpty()) {
-                                Log.d(TAG, "═══════════════════════════════════════");
-                                Log.d(TAG, "✅ FINAL RESULT: " + chapters.size() + " chapters");
-                                for (int i = 0; i < chapters.size(); i++) {
-                                    Chapter ch = chapters.get(i);
-                                    Log.d(TAG, "  Chapter " + (i + 1) + ": " + ch.title + 
-                                          " (length: " + ch.content.length() + " chars)");
-                                }
-                                Log.d(TAG, "═══════════════════════════════════════");
-                                
-                                // Verify we have multiple chapters for long content
-                                if (content != null && content.length() > 1500 && chapters.size() == 1) {
-                                    Log.e(TAG, "❌❌❌ STILL ONLY 1 CHAPTER! This should not happen!");
-                                }
-                                
-                                currentChapterIndex = 0;
-                                displayChapter(0);
-                            } else {
-                                Log.e(TAG, "❌ CRITICAL: Failed to parse any chapters!");
-                                showError("Không tìm thấy chương nào");
-                            }
-                        } else {
-                            Log.e(TAG, "Data is null");
-                            showError("Không tìm thấy nội dung");
-                        }
-                    } else {
-                        String errorMsg = apiResponse.getMessage() != null 
-                            ? apiResponse.getMessage() 
-                            : "Không thể tải nội dung sách";
-                        showError(errorMsg);
-                    }
-                    } else {
-                        if (response.code() == 403) {
-                            showError("Bạn cần mua quyền truy cập để đọc sách này");
-                        } else {
-                            showError("Không thể tải nội dung sách");
-                        }
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "❌ EXCEPTION in onResponse: " + e.getMessage(), e);
-                    showError("Lỗi xử lý dữ liệu: " + e.getMessage());
+            public void onLoaded(RemoteChapterSource source) {
+                if (isDestroyed()) {
+                    source.shutdown();
+                    return;
+                }
+                // Mục lục ít hơn 2 chương thì nội dung nằm trong file: tải cả cuốn
+                if (source.getChapterCount() < 2) {
+                    source.shutdown();
+                    openOfflineCopy(authHeader);
+                    return;
                 }
+                chapterSource = source;
+                source.setOnLengthsChanged(() -> onChapterLengthsChanged(source));
+                onChaptersParsed(source.toReaderChapters(), source.getVersion());
             }
 
             @Override
-            public void onFailure(Call<ApiResponse<Map<String, Object>>> call, Throwable t) {
-                showLoading(false);
-                Log.e(TAG, "❌❌❌ onFailure called");
-                Log.e(TAG, "Error message: " + t.getMessage());
-                Log.e(TAG, "Error class: " + t.getClass().getName());
-                if (t.getCause() != null) {
-                    Log.e(TAG, "Cause: " + t.getCause().getMessage());
+            public void onIndexChanged(RemoteChapterSource newer) {
+                if (isDestroyed() || chapterSource == null || newer.getChapterCount() < 2) {
+                    newer.shutdown();
+                    return;
+                }
+                // Mục lục đã lưu đã cũ: đọc tiếp bằng mục lục mới, giữ chương đang đọc
+                savePosition();
+                chapterSource.shutdown();
+                chapterSource = newer;
+                newer.setOnLengthsChanged(() -> onChapterLengthsChanged(newer));
+                onChaptersParsed(newer.toReaderChapters(), newer.getVersion());
+                Toast.makeText(BookReaderActivity.this, "Nội dung sách đã được cập nhật", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onError(int httpCode, String message) {
+                if (isDestroyed()) {
+                    return;
+                }
+                if (httpCode == 401) {
+                    navigateToLogin();
+                } else if (httpCode == 403) {
+                    showLoading(false);
+                    showError("Bạn cần mua quyền truy cập để đọc sách này");
+                } else {
+                    AppLog.w(TAG, "Chapter index unavailable ({}), downloading the book", message);
+                    openOfflineCopy(authHeader);
                 }
-                Log.e(TAG, "Full stack trace:", t);
-                showError("Lỗi kết nối: " + t.getMessage());
             }
         });
     }
 
-    private void parseChaptersFromArray(List<Map<String, Object>> chaptersList) {
-        chapters.clear();
-        for (Map<String, Object> chapterData : chaptersList) {
-            String title = (String) chapterData.get("title");
-            if (title == null) {
-                title = (String) chapterData.get("chapterTitle");
+    /**
+     * Opens the offline copy of the book, downloading it first if needed (resuming an
+     * interrupted download). While downloading, chapters are shown as they arrive;
+     * afterwards they are read from disk one at a time.
+     */
+    private void openOfflineCopy(String authHeader) {
+        openCallback = new OfflineBookStore.Callback() {
+            @Override
+            public void onProgress(long downloadedBytes, long totalBytes) {
+                if (getSupportActionBar() != null && totalBytes > 0) {
+                    getSupportActionBar().setSubtitle(String.format("Đang tải %d%%", downloadedBytes * 100 / totalBytes));
+                }
+            }
+
+            @Override
+            public void onChapter(int index, ReaderChapter chapter) {
+                onChapterStreamed(index, chapter);
             }
-            String content = (String) chapterData.get("content");
-            Integer chapterNumber = (Integer) chapterData.get("chapterNumber");
-            if (chapterNumber == null) {
-                Object numObj = chapterData.get("number");
-                if (numObj instanceof Number) {
-                    chapterNumber = ((Number) numObj).intValue();
+
+            @Override
+            public void onOpened(ChapterArchive archive) {
+                if (getSupportActionBar() != null) {
+                    getSupportActionBar().setSubtitle(null);
+                }
+                BookReaderActivity.this.archive = archive;
+                List<ReaderChapter> stored = archive.toReaderChapters();
+                if (!chapters.isEmpty() && stored.size() == chapters.size()) {
+                    onStreamCompleted(stored, archive.getContentHash());
                 } else {
-                    chapterNumber = chapters.size() + 1;
+                    onChaptersParsed(stored, archive.getContentHash());
                 }
+                offlineBookStore.checkForUpdate(authHeader, bookId, archive, () -> {
+                    if (!isDestroyed()) {
+                        Toast.makeText(BookReaderActivity.this, "Sách có nội dung mới, sẽ cập nhật ở lần mở sau",
+                                Toast.LENGTH_LONG).show();
+                    }
+                });
             }
-            
-            if (title == null) {
-                title = "Chương " + chapterNumber;
-            }
-            if (content == null) {
-                content = "";
+
+            @Override
+            public void onError(int httpCode, String message) {
+                if (getSupportActionBar() != null) {
+                    getSupportActionBar().setSubtitle(null);
+                }
+                if (!chapters.isEmpty()) {
+                    // Vẫn đọc tiếp được các chương đã nhận
+                    Toast.makeText(BookReaderActivity.this, "Tải sách bị gián đoạn: " + message,
+                            Toast.LENGTH_LONG).show();
+                    return;
+                }
+                showLoading(false);
+                if (httpCode == 401) {
+                    navigateToLogin();
+                } else if (httpCode == 403) {
+                    showError("Bạn cần mua quyền truy cập để đọc sách này");
+                } else {
+                    showError("Không thể tải nội dung sách: " + message);
+                }
             }
-            
-            chapters.add(new Chapter(title, content, chapterNumber));
+        };
+        offlineBookStore.open(authHeader, bookId, openCallback);
+    }
+
+    // Chương đầu hiện ngay khi tới, không chờ tải xong cả sách
+    private void onChapterStreamed(int index, ReaderChapter chapter) {
+        if (isDestroyed() || index != chapters.size()) {
+            return;
+        }
+        chapters.add(chapter);
+        if (index == 0) {
+            textIndex = new BookTextIndex();
+        }
+        indexChapter(index);
+        if (index == 0) {
+            invalidateOptionsMenu();
+            showLoading(false);
+            currentChapterIndex = 0;
+            displayChapter(0);
+        } else if (!pagedMode) {
+            refreshNavigation();
         }
     }
 
-    private void parseChaptersFromContent(String content) {
-        chapters.clear();
-        
-        if (content == null || content.trim().isEmpty()) {
-            Log.w(TAG, "Content is null or empty");
+    /**
+     * The streamed book is now on disk: switch to the stored chapters (same order) so the
+     * downloaded text can be released, and enable the paginated mode. A reader still on
+     * the first chapter is taken to the saved position, now that all chapters are here.
+     */
+    private void onStreamCompleted(List<ReaderChapter> stored, String version) {
+        if (isDestroyed()) {
             return;
         }
-        
-        Log.d(TAG, "=== START PARSING CONTENT ===");
-        Log.d(TAG, "Content length: " + content.length());
-        Log.d(TAG, "First 300 chars: " + (content.length() > 300 ? content.substring(0, 300) : content));
-        
-        // Multiple patterns to try
-        Pattern[] patterns = {
-            // Pattern 1: "Chương X:" or "Chapter X:"
-            Pattern.compile("(?i)(?:chương|chapter)\\s*(\\d+)[:：]\\s*(.*?)(?=(?:chương|chapter)\\s*\\d+[:：]|$)", Pattern.DOTALL),
-            // Pattern 2: "Chương X" or "Chapter X" (without colon)
-            Pattern.compile("(?i)(?:chương|chapter)\\s*(\\d+)\\s+(.*?)(?=(?:chương|chapter)\\s*\\d+|$)", Pattern.DOTALL),
-            // Pattern 3: "CHƯƠNG X" (uppercase)
-            Pattern.compile("CHƯƠNG\\s*(\\d+)[:：]?\\s*(.*?)(?=CHƯƠNG\\s*\\d+|$)", Pattern.DOTALL),
-            // Pattern 4: Just numbers like "1.", "2.", etc. at start of line
-            Pattern.compile("^\\s*(\\d+)\\.\\s+(.*?)(?=^\\s*\\d+\\.|$)", Pattern.MULTILINE | Pattern.DOTALL)
-        };
-        
-        Pattern matchedPattern = null;
-        Matcher matcher = null;
-        
-        // Try each pattern
-        for (Pattern pattern : patterns) {
-            matcher = pattern.matcher(content);
-            if (matcher.find()) {
-                matchedPattern = pattern;
-                Log.d(TAG, "Found pattern match: " + pattern.pattern());
-                break;
-            }
+        chapters = stored;
+        contentComplete = true;
+        contentVersion = version;
+        List<CharSequence> chapterTexts = new ArrayList<>(chapters.size());
+        for (ReaderChapter chapter : chapters) {
+            chapterTexts.add(chapter.getContent());
         }
-        
-        if (matchedPattern == null || matcher == null) {
-            // No pattern matched, try to split by double newlines or other separators
-            Log.d(TAG, "No pattern matched, trying alternative parsing");
-            parseChaptersBySeparator(content);
+        ReadingPositionStore.Position saved = positions.get(bookId);
+        if (currentChapterIndex == 0 && saved != null && saved.getChapterIndex() > 0
+                && saved.getChapterIndex() < chapters.size()) {
+            currentChapterIndex = saved.getChapterIndex();
+            int offset = saved.getOffsetFor(version);
+            pageFlipController.setChapters(chapterTexts, currentChapterIndex, offset);
+            displayChapter(currentChapterIndex, offset, saved.getPixelOffsetFor(version));
+        } else {
+            pageFlipController.setChapters(chapterTexts, currentChapterIndex, 0);
+            refreshNavigation();
+        }
+        invalidateOptionsMenu();
+        indexAllChapters();
+    }
+
+    private void refreshNavigation() {
+        paragraphAdapter.updateNavigation(
+                String.format("Chương %d / %d", currentChapterIndex + 1, chapters.size()),
+                currentChapterIndex > 0, currentChapterIndex < chapters.size() - 1);
+    }
+
+    /**
+     * Shows a complete chapter list, opening it at the saved reading position; the char
+     * offset is only used when {@code version} is the content it was saved for.
+     */
+    private void onChaptersParsed(List<ReaderChapter> parsed, String version) {
+        if (isDestroyed()) {
             return;
         }
-        
-        // Reset matcher to start from beginning
-        matcher = matchedPattern.matcher(content);
-        int lastEnd = 0;
-        
-        while (matcher.find()) {
-            // Add content before first chapter
-            if (matcher.start() > lastEnd) {
-                String preContent = content.substring(lastEnd, matcher.start()).trim();
-                if (!preContent.isEmpty() && preContent.length() > 50) { // Only add if substantial
-                    chapters.add(new Chapter("Mở đầu", preContent, 0));
-                }
-            }
-            
-            int chapterNumber = Integer.parseInt(matcher.group(1));
-            String chapterTitle = matcher.groupCount() > 1 ? matcher.group(2).trim() : "";
-            
-            if (chapterTitle.isEmpty() || chapterTitle.length() > 100) {
-                chapterTitle = "Chương " + chapterNumber;
-            } else {
-                // Clean up title (remove newlines, extra spaces)
-                chapterTitle = chapterTitle.replaceAll("\\s+", " ").trim();
-                if (chapterTitle.length() > 50) {
-                    chapterTitle = chapterTitle.substring(0, 50) + "...";
-                }
-            }
-            
-            int startPos = matcher.end();
-            int endPos = content.length();
-            
-            // Find next match for this chapter's end
-            Matcher nextMatcher = matchedPattern.matcher(content);
-            if (nextMatcher.find(startPos)) {
-                endPos = nextMatcher.start();
-            }
-            
-            String chapterContent = content.substring(startPos, endPos).trim();
-            if (!chapterContent.isEmpty()) {
-                chapters.add(new Chapter(chapterTitle, chapterContent, chapterNumber));
-                Log.d(TAG, "Added chapter: " + chapterTitle + " (length: " + chapterContent.length() + ")");
-            }
-            
-            lastEnd = endPos;
-        }
-        
-        Log.d(TAG, "After pattern matching, chapters found: " + chapters.size());
-        
-        // ALWAYS split if content is long enough, regardless of pattern matching result
-        if (content.length() > 1500) {
-            if (chapters.isEmpty() || chapters.size() == 1) {
-                Log.d(TAG, "Content is long (" + content.length() + ") but only " + chapters.size() + " chapter(s), forcing split");
-                if (chapters.size() == 1) {
-                    content = chapters.get(0).content; // Use the parsed content if available
-                }
-                chapters.clear();
-                parseChaptersBySeparator(content);
-            } else {
-                Log.d(TAG, "Pattern matching successful, found " + chapters.size() + " chapters");
+        showLoading(false);
+        if (parsed.isEmpty()) {
+            showError("Nội dung sách đang được cập nhật");
+            return;
+        }
+        chapters = parsed;
+        contentComplete = true;
+        contentVersion = version;
+        AppLog.d(TAG, "Loaded {} chapters", chapters.size());
+        ReadingPositionStore.Position saved = positions.get(bookId);
+        int offset = 0;
+        int pixelOffset = 0;
+        currentChapterIndex = 0;
+        if (saved != null) {
+            // Số chương có thể đã giảm sau khi sách được cập nhật
+            currentChapterIndex = Math.max(0, Math.min(saved.getChapterIndex(), chapters.size() - 1));
+            if (currentChapterIndex == saved.getChapterIndex()) {
+                offset = saved.getOffsetFor(version);
+                pixelOffset = saved.getPixelOffsetFor(version);
             }
-        } else {
-            Log.d(TAG, "Content is short (" + content.length() + "), keeping as is");
         }
-        
-        Log.d(TAG, "=== END PARSING, TOTAL CHAPTERS: " + chapters.size() + " ===");
+        List<CharSequence> chapterTexts = new ArrayList<>(chapters.size());
+        for (ReaderChapter chapter : chapters) {
+            chapterTexts.add(chapter.getContent());
+        }
+        pageFlipController.setChapters(chapterTexts, currentChapterIndex, offset);
+        invalidateOptionsMenu();
+        // Chế độ lật trang: setChapters đã mở đúng trang
+        if (!pagedMode) {
+            displayChapter(currentChapterIndex, offset, pixelOffset);
+        }
+        textIndex = new BookTextIndex();
+        indexAllChapters();
     }
-    
-    private void parseChaptersBySeparator(String content) {
-        if (content == null || content.trim().isEmpty()) {
-            Log.w(TAG, "parseChaptersBySeparator: content is null or empty");
+
+    /**
+     * Indexes every chapter of a downloaded book in the background. Books read online
+     * are only indexed as their chapters are opened, so searching does not download them.
+     */
+    private void indexAllChapters() {
+        if (chapterSource != null) {
             return;
         }
-        
-        Log.d(TAG, "=== parseChaptersBySeparator START ===");
-        Log.d(TAG, "Content length: " + content.length());
-        chapters.clear(); // Clear any existing chapters
-        
-        // Try splitting by common separators
-        String[] separators = {
-            "\n\n\n",  // Triple newline
-            "\n\n",   // Double newline
-            "---",    // Dashes
-            "***",    // Asterisks
-            "==="     // Triple equals
-        };
-        
-        String[] parts = null;
-        String usedSeparator = null;
-        
-        for (String separator : separators) {
-            if (content.contains(separator)) {
-                parts = content.split(Pattern.quote(separator));
-                usedSeparator = separator;
-                Log.d(TAG, "Split by separator: " + separator + ", parts: " + parts.length);
-                break;
+        for (int i = 0; i < chapters.size(); i++) {
+            indexChapter(i);
+        }
+    }
+
+    private void indexChapter(int index) {
+        if (isDestroyed() || index < 0 || index >= chapters.size()) {
+            return;
+        }
+        final BookTextIndex target = textIndex;
+        final ReaderChapter chapter = chapters.get(index);
+        final ChapterArchive stored = archive;
+        indexExecutor.execute(() -> {
+            if (target.isIndexed(index)) {
+                return;
+            }
+            try {
+                target.addChapter(index, chapterText(chapter, stored, index));
+            } catch (IOException | UncheckedIOException e) {
+                AppLog.w(TAG, "Cannot index chapter {}: {}", index, e.getMessage());
             }
+        });
+    }
+
+    // Chương từ bản lưu được đọc thẳng từ đĩa để không bị giữ lại trong bộ nhớ
+    private static CharSequence chapterText(ReaderChapter chapter, ChapterArchive stored, int index)
+            throws IOException {
+        if (stored != null && index < stored.getEntries().size()) {
+            return stored.readChapter(index);
         }
-        
-        if (parts != null && parts.length > 1) {
-            for (int i = 0; i < parts.length; i++) {
-                String part = parts[i].trim();
-                if (!part.isEmpty() && part.length() > 50) { // Only add substantial parts (at least 50 chars)
-                    String title = "Chương " + (i + 1);
-                    chapters.add(new Chapter(title, part, i + 1));
-                    Log.d(TAG, "Added chapter " + (i + 1) + " from separator, length: " + part.length());
+        return chapter.getContent();
+    }
+
+    private void showSearchDialog() {
+        View dialogView = getLayoutInflater().inflate(R.layout.dialog_book_search, null);
+        TextInputEditText edtSearch = dialogView.findViewById(R.id.edtBookSearch);
+        TextView tvStatus = dialogView.findViewById(R.id.tvSearchStatus);
+        ListView lvResults = dialogView.findViewById(R.id.lvSearchResults);
+        List<BookTextIndex.Hit> shownHits = new ArrayList<>();
+        ArrayAdapter<CharSequence> resultAdapter = new ArrayAdapter<>(this,
+                android.R.layout.simple_list_item_1, new ArrayList<>());
+        lvResults.setAdapter(resultAdapter);
+
+        AlertDialog dialog = new AlertDialog.Builder(this)
+                .setView(dialogView)
+                .setNegativeButton("Đóng", (d, which) -> d.dismiss())
+                .create();
+        lvResults.setOnItemClickListener((parent, view, position, id) -> {
+            dialog.dismiss();
+            openSearchHit(shownHits.get(position));
+        });
+        edtSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                lastSearchQuery = s.toString().trim();
+                if (pendingSearch != null) {
+                    searchHandler.removeCallbacks(pendingSearch);
                 }
+                String query = lastSearchQuery;
+                pendingSearch = () -> runSearch(query, dialog, tvStatus, resultAdapter, shownHits);
+                searchHandler.postDelayed(pendingSearch, BookSearchPipeline.DEBOUNCE_MS);
             }
-        }
-        
-        // If separator splitting didn't work or produced too few chapters, split by length
-        if (chapters.size() <= 1) {
-            Log.d(TAG, "Separator splitting didn't work well, splitting by length");
-            chapters.clear();
-            
-            // Split by approximate length (e.g., every 3000-4000 characters)
-            int chapterSize = 3500;
-            int chapterNum = 1;
-            int start = 0;
-            
-            while (start < content.length()) {
-                int end = Math.min(start + chapterSize, content.length());
-                
-                // Try to end at a sentence boundary (period, exclamation, question mark)
-                if (end < content.length()) {
-                    int lastPeriod = content.lastIndexOf('.', end);
-                    int lastExclamation = content.lastIndexOf('!', end);
-                    int lastQuestion = content.lastIndexOf('?', end);
-                    int lastNewline = content.lastIndexOf('\n', end);
-                    
-                    int bestBreak = Math.max(Math.max(lastPeriod, lastExclamation), 
-                                           Math.max(lastQuestion, lastNewline));
-                    
-                    // Only use the break if it's at least 60% of desired size
-                    if (bestBreak > start + chapterSize * 0.6) {
-                        end = bestBreak + 1;
-                    }
+        });
+        dialog.setOnDismissListener(d -> {
+            if (pendingSearch != null) {
+                searchHandler.removeCallbacks(pendingSearch);
+                pendingSearch = null;
+            }
+            searchGeneration++;
+        });
+        // Mở lại hộp tìm kiếm: giữ từ khóa lần trước
+        edtSearch.setText(lastSearchQuery);
+        dialog.show();
+    }
+
+    private void runSearch(String query, AlertDialog dialog, TextView tvStatus,
+                           ArrayAdapter<CharSequence> resultAdapter, List<BookTextIndex.Hit> shownHits) {
+        pendingSearch = null;
+        final int generation = ++searchGeneration;
+        final BookTextIndex target = textIndex;
+        // Bản sao: khi đang tải sách, danh sách chương còn được thêm ở luồng chính
+        final List<ReaderChapter> source = new ArrayList<>(chapters);
+        final ChapterArchive stored = archive;
+        final int chapterCount = chapters.size();
+        searchExecutor.execute(() -> {
+            BookTextIndex.Result result = target.search(query);
+            List<BookTextIndex.Hit> hits = result.getHits().size() > MAX_SEARCH_RESULTS_SHOWN
+                    ? result.getHits().subList(0, MAX_SEARCH_RESULTS_SHOWN)
+                    : result.getHits();
+            List<CharSequence> snippets = buildSnippets(hits, source, stored);
+            runOnUiThread(() -> {
+                if (isDestroyed() || generation != searchGeneration || !dialog.isShowing()) {
+                    return;
                 }
-                
-                String chapterContent = content.substring(start, end).trim();
-                if (!chapterContent.isEmpty() && chapterContent.length() > 100) {
-                    chapters.add(new Chapter("Chương " + chapterNum, chapterContent, chapterNum));
-                    Log.d(TAG, "Added chapter " + chapterNum + " (length: " + chapterContent.length() + ")");
-                    chapterNum++;
+                shownHits.clear();
+                shownHits.addAll(hits);
+                resultAdapter.clear();
+                resultAdapter.addAll(snippets);
+                String status = query.isEmpty() ? "" : result.getTotalCount() + " kết quả";
+                if (result.getTotalCount() > hits.size()) {
+                    status += ", hiển thị " + hits.size() + " kết quả đầu";
                 }
-                start = end;
-                
-                // Safety check to avoid infinite loop
-                if (start >= content.length()) {
-                    break;
+                if (!query.isEmpty() && result.getIndexedChapterCount() < chapterCount) {
+                    status += " (đã tìm trong " + result.getIndexedChapterCount() + "/" + chapterCount + " chương)";
                 }
-            }
-            
-            Log.d(TAG, "Split by length into " + chapters.size() + " chapters");
-        }
-        
-        // ALWAYS force split into multiple chapters if content is long enough
-        Log.d(TAG, "Current chapters size: " + chapters.size() + ", content length: " + content.length());
-        
-        if (content.length() > 1500) {
-            // ALWAYS split if we have 0 or 1 chapters
-            if (chapters.size() <= 1) {
-                Log.d(TAG, "FORCE SPLITTING: Content length " + content.length() + ", current chapters: " + chapters.size());
-                chapters.clear();
-                
-                // Calculate optimal number of chapters (aim for 2000-3000 chars per chapter)
-                int targetChapterSize = 2500;
-                int partCount = Math.max(2, (int) Math.ceil((double) content.length() / targetChapterSize));
-                partCount = Math.min(partCount, 10); // Max 10 chapters
-                
-                Log.d(TAG, "Calculated: splitting into " + partCount + " chapters (target size: " + targetChapterSize + ")");
-                int partSize = content.length() / partCount;
-                
-                for (int i = 0; i < partCount; i++) {
-                    int start = i * partSize;
-                    int end = (i == partCount - 1) ? content.length() : (i + 1) * partSize;
-                    
-                    // Try to break at sentence boundary for better readability
-                    if (i < partCount - 1 && end < content.length()) {
-                        // Look for sentence endings within reasonable range
-                        int searchStart = Math.max(start, end - partSize / 3);
-                        int lastPeriod = content.lastIndexOf('.', end);
-                        int lastExclamation = content.lastIndexOf('!', end);
-                        int lastQuestion = content.lastIndexOf('?', end);
-                        int lastNewline = content.lastIndexOf('\n', end);
-                        
-                        int bestBreak = Math.max(Math.max(lastPeriod, lastExclamation), 
-                                               Math.max(lastQuestion, lastNewline));
-                        
-                        // Use the break if it's reasonable
-                        if (bestBreak > searchStart) {
-                            end = bestBreak + 1;
-                            Log.d(TAG, "Chapter " + (i + 1) + " break at position " + end + " (sentence boundary)");
-                        }
-                    }
-                    
-                    String chapterContent = content.substring(start, end).trim();
-                    if (!chapterContent.isEmpty()) {
-                        chapters.add(new Chapter("Chương " + (i + 1), chapterContent, i + 1));
-                        Log.d(TAG, "✓ Created chapter " + (i + 1) + ": length=" + chapterContent.length() + 
-                              ", start=" + start + ", end=" + end);
-                    } else {
-                        Log.w(TAG, "⚠ Skipped empty chapter " + (i + 1));
-                    }
+                tvStatus.setText(status);
+            });
+        });
+    }
+
+    // Mỗi chương chỉ đọc một lần cho cả danh sách kết quả
+    private static List<CharSequence> buildSnippets(List<BookTextIndex.Hit> hits, List<ReaderChapter> source,
+                                                    ChapterArchive stored) {
+        Map<Integer, CharSequence> texts = new HashMap<>();
+        List<CharSequence> snippets = new ArrayList<>(hits.size());
+        for (BookTextIndex.Hit hit : hits) {
+            ReaderChapter chapter = source.get(hit.getChapterIndex());
+            SpannableStringBuilder snippet = new SpannableStringBuilder(chapter.getTitle());
+            try {
+                CharSequence text = texts.get(hit.getChapterIndex());
+                if (text == null) {
+                    text = chapterText(chapter, stored, hit.getChapterIndex());
+                    texts.put(hit.getChapterIndex(), text);
                 }
-                Log.d(TAG, "✓✓✓ FORCE SPLIT COMPLETE: " + chapters.size() + " chapters created");
-            } else {
-                Log.d(TAG, "Pattern matching found " + chapters.size() + " chapters, keeping them");
+                int start = Math.max(0, hit.getOffset() - SNIPPET_CONTEXT_CHARS);
+                int end = Math.min(text.length(), hit.getOffset() + hit.getLength() + SNIPPET_CONTEXT_CHARS);
+                snippet.append('\n').append(start > 0 ? "…" : "");
+                int matchStart = snippet.length() + hit.getOffset() - start;
+                snippet.append(text.subSequence(start, end).toString().replace('\n', ' '));
+                snippet.setSpan(new StyleSpan(Typeface.BOLD), matchStart, matchStart + hit.getLength(),
+                        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                if (end < text.length()) {
+                    snippet.append('…');
+                }
+            } catch (IOException | UncheckedIOException e) {
+                AppLog.w(TAG, "No snippet for chapter {}: {}", hit.getChapterIndex(), e.getMessage());
             }
-        } else {
-            Log.d(TAG, "Content too short (" + content.length() + "), keeping as single chapter");
+            snippets.add(snippet);
         }
-        
-        // Last resort: treat as single chapter only if content is very short
-        if (chapters.isEmpty()) {
-            chapters.add(new Chapter("Nội dung", content, 1));
-            Log.d(TAG, "Added as single chapter (last resort, content too short: " + content.length() + ")");
+        return snippets;
+    }
+
+    private void openSearchHit(BookTextIndex.Hit hit) {
+        if (hit.getChapterIndex() >= chapters.size()) {
+            return;
         }
-        
-        // Final validation
-        Log.d(TAG, "=== parseChaptersBySeparator END: " + chapters.size() + " chapters ===");
-        if (chapters.size() == 1 && content.length() > 1500) {
-            Log.e(TAG, "❌ ERROR: Only one chapter but content is long (" + content.length() + ")! This should not happen.");
+        currentChapterIndex = hit.getChapterIndex();
+        if (pagedMode) {
+            pageFlipController.openChapter(currentChapterIndex, hit.getOffset());
+        } else {
+            displayChapter(currentChapterIndex, hit.getOffset(), 0);
         }
     }
 
     private void displayChapter(int index) {
+        displayChapter(index, 0, 0);
+    }
+
+    /**
+     * Shows chapter {@code index} in scroll mode, at char {@code offset} of the chapter
+     * placed {@code pixelOffset} below the top.
+     */
+    private void displayChapter(int index, int offset, int pixelOffset) {
         if (chapters.isEmpty()) {
-            Log.e(TAG, "No chapters to display");
+            AppLog.e(TAG, "No chapters to display");
             showError("Không có chương nào để hiển thị");
             return;
         }
-        
+
         if (index < 0 || index >= chapters.size()) {
-            Log.e(TAG, "Invalid chapter index: " + index + ", total chapters: " + chapters.size());
+            AppLog.e(TAG, "Invalid chapter index: {}, total chapters: {}", index, chapters.size());
             index = 0; // Default to first chapter
         }
 
-        Chapter chapter = chapters.get(index);
-        Log.d(TAG, "Displaying chapter " + (index + 1) + "/" + chapters.size() + ": " + chapter.title);
-        
-        // Display chapter title
-        tvChapterTitle.setText(chapter.title);
-        tvChapterTitle.setVisibility(View.VISIBLE);
-        
-        // Display ONLY this chapter's content
-        tvContent.setText(chapter.content);
-        
-        // Update chapter info
-        tvChapterInfo.setText(String.format("Chương %d / %d", index + 1, chapters.size()));
-        tvChapterInfo.setVisibility(View.VISIBLE);
-        
-        // Update navigation buttons
-        btnPreviousChapter.setVisibility(index > 0 ? View.VISIBLE : View.GONE);
-        btnNextChapter.setVisibility(index < chapters.size() - 1 ? View.VISIBLE : View.GONE);
-        layoutChapterNavigation.setVisibility(View.VISIBLE);
-        
+        final ReaderChapter chapter = chapters.get(index);
+        final int chapterIndex = index;
+        final int request = ++chapterRequest;
+        if (chapterSource != null) {
+            chapterSource.prefetchAround(index);
+        }
+        keepResident(index);
+        // Tách đoạn ở luồng nền; bố cục chữ của từng đoạn do ParagraphAdapter tính trước
+        parseExecutor.execute(() -> {
+            List<CharSequence> paragraphs;
+            int[] paragraphOffsets;
+            try {
+                // Chương được đọc từ đĩa hoặc tải về ở lần truy cập đầu tiên
+                CharSequence content = chapter.getContent();
+                paragraphs = ParagraphSplitter.split(content);
+                paragraphOffsets = ParagraphSplitter.offsets(content, paragraphs);
+            } catch (UncheckedIOException e) {
+                AppLog.e(TAG, "Cannot load chapter " + chapterIndex, e);
+                runOnUiThread(() -> {
+                    if (request == chapterRequest) {
+                        onChapterLoadFailed();
+                    }
+                });
+                return;
+            }
+            runOnUiThread(() -> {
+                // Chương đọc trực tuyến được đưa vào chỉ mục khi đã tải về
+                indexChapter(chapterIndex);
+                if (!isDestroyed() && request == chapterRequest && !pagedMode) {
+                    showChapter(chapterIndex, chapter, paragraphs, paragraphOffsets, offset, pixelOffset);
+                }
+            });
+        });
+    }
+
+    private void onChapterLoadFailed() {
+        if (isDestroyed()) {
+            return;
+        }
+        if (chapterSource != null) {
+            // Lỗi mạng khi đọc trực tuyến: cho phép thử lại chương đó
+            showError("Không thể tải chương. Chạm để thử lại");
+            tvError.setOnClickListener(v -> {
+                tvError.setOnClickListener(null);
+                tvError.setVisibility(View.GONE);
+                displayChapter(currentChapterIndex);
+            });
+            return;
+        }
+        // Bản lưu offline bị hỏng: xóa để lần mở sau tải lại
+        offlineBookStore.delete(bookId);
+        showError("Dữ liệu sách bị lỗi, vui lòng mở lại sách để tải lại");
+    }
+
+    private void showChapter(int index, ReaderChapter chapter, List<CharSequence> paragraphs,
+                             int[] paragraphOffsets, int offset, int pixelOffset) {
+        if (AppLog.isLoggable(AppLog.DEBUG)) {
+            AppLog.d(TAG, "Displaying chapter " + (index + 1) + "/" + chapters.size() + ": " + chapter.getTitle()
+                    + " (" + paragraphs.size() + " paragraphs)");
+        }
+        paragraphAdapter.submitChapter(chapter.getTitle(), paragraphs,
+                String.format("Chương %d / %d", index + 1, chapters.size()),
+                index > 0, index < chapters.size() - 1);
+
         // Update toolbar title
         if (getSupportActionBar() != null) {
-            getSupportActionBar().setTitle(chapter.title);
+            getSupportActionBar().setTitle(chapter.getTitle());
         }
-        
+
         tvError.setVisibility(View.GONE);
-        scrollView.setVisibility(View.VISIBLE);
-        
-        // Scroll to top
-        scrollToTop();
+        rvChapterContent.setVisibility(View.VISIBLE);
+        shownChapterIndex = index;
+        currentParagraphOffsets = paragraphOffsets;
+        scrollToOffset(paragraphOffsets, offset, pixelOffset);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        parseExecutor.shutdownNow();
+        indexExecutor.shutdownNow();
+        searchExecutor.shutdownNow();
+        if (pendingSearch != null) {
+            searchHandler.removeCallbacks(pendingSearch);
+        }
+        if (openCallback != null) {
+            // Việc tải vẫn tiếp tục để lần sau mở ngay
+            offlineBookStore.cancel(bookId, openCallback);
+        }
+        if (paragraphAdapter != null) {
+            paragraphAdapter.shutdown();
+        }
+        if (pageFlipController != null) {
+            pageFlipController.shutdown();
+        }
+        if (chapterSource != null) {
+            chapterSource.shutdown();
+        }
     }
 
     private void showLoading(boolean show) {
         progressBar.setVisibility(show ? View.VISIBLE : View.GONE);
-        scrollView.setVisibility(show ? View.GONE : View.VISIBLE);
+        rvChapterContent.setVisibility(show || pagedMode ? View.GONE : View.VISIBLE);
+        pageView.setVisibility(!show && pagedMode ? View.VISIBLE : View.GONE);
+        tvPageInfo.setVisibility(!show && pagedMode ? View.VISIBLE : View.GONE);
         if (show) {
             tvError.setVisibility(View.GONE);
-            layoutChapterNavigation.setVisibility(View.GONE);
         }
     }
 
     private void showError(String message) {
         tvError.setText(message);
         tvError.setVisibility(View.VISIBLE);
-        scrollView.setVisibility(View.GONE);
-        layoutChapterNavigation.setVisibility(View.GONE);
+        rvChapterContent.setVisibility(View.GONE);
+        pageView.setVisibility(View.GONE);
+        tvPageInfo.setVisibility(View.GONE);
     }
 
     private String getAuthHeader() {
@@ -3,7 +3,6 @@ package quynh.ph59304.bansach;
 import android.content.Intent;
 import android.os.Bundle;
 import android.text.TextUtils;
-import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 import android.widget.ImageButton;
@@ -26,20 +25,18 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import com.google.gson.reflect.TypeToken;
-
 import quynh.ph59304.bansach.api.ApiService;
 import quynh.ph59304.bansach.api.RetrofitClient;
+import quynh.ph59304.bansach.logging.AppLog;
 import quynh.ph59304.bansach.models.ApiResponse;
 import quynh.ph59304.bansach.models.CartResponse;
 import quynh.ph59304.bansach.models.Order;
+import quynh.ph59304.bansach.models.OrderCreateResponse;
 import quynh.ph59304.bansach.models.PromotionInfo;
 import quynh.ph59304.bansach.models.PromotionListResponse;
 import quynh.ph59304.bansach.models.PromotionPreviewResponse;
+import quynh.ph59304.bansach.repository.BookInfoRepository;
 import quynh.ph59304.bansach.utils.SharedPreferencesManager;
-import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -222,20 +219,20 @@ public class CheckoutActivity extends AppCompatActivity {
         tvPromotionEmpty.setVisibility(View.GONE);
         chipPromotionGroup.removeAllViews();
         
-        Log.d(TAG, "Loading promotions...");
+        AppLog.d(TAG, "Loading promotions...");
         Call<PromotionListResponse> call = apiService.getAvailablePromotions(authHeader);
         call.enqueue(new Callback<PromotionListResponse>() {
             @Override
             public void onResponse(Call<PromotionListResponse> call, Response<PromotionListResponse> response) {
                 promotionLoading.setVisibility(View.GONE);
                 
-                Log.d(TAG, "Promotions response code: " + response.code());
-                Log.d(TAG, "Promotions response body: " + (response.body() != null ? "not null" : "null"));
+                AppLog.d(TAG, "Promotions response code: {}", response.code());
+                AppLog.d(TAG, "Promotions response body: {}", response.body() != null ? "not null" : "null");
                 
                 if (response.isSuccessful() && response.body() != null) {
                     PromotionListResponse promotionResponse = response.body();
-                    Log.d(TAG, "Promotion response success: " + promotionResponse.isSuccess());
-                    Log.d(TAG, "Promotions list: " + (promotionResponse.getPromotions() != null ? promotionResponse.getPromotions().size() : "null"));
+                    AppLog.d(TAG, "Promotion response success: {}, promotions: {}", promotionResponse.isSuccess(),
+                            promotionResponse.getPromotions() != null ? promotionResponse.getPromotions().size() : "null");
                     
                     // Try to get promotions even if success is false or null
                     List<PromotionInfo> promotions = promotionResponse.getPromotions();
@@ -246,22 +243,22 @@ public class CheckoutActivity extends AppCompatActivity {
                         try {
                             if (response.errorBody() != null) {
                                 String errorBody = response.errorBody().string();
-                                Log.e(TAG, "Error body: " + errorBody);
+                                AppLog.e(TAG, "Error body: {}", errorBody);
                             }
                         } catch (IOException e) {
-                            Log.e(TAG, "Error reading error body", e);
+                            AppLog.e(TAG, "Error reading error body", e);
                         }
                     }
                     
                     if (promotions != null && !promotions.isEmpty()) {
                         tvPromotionEmpty.setVisibility(View.GONE);
                         chipPromotionGroup.setVisibility(View.VISIBLE);
-                        Log.d(TAG, "Displaying " + promotions.size() + " promotions");
+                        AppLog.d(TAG, "Displaying {} promotions", promotions.size());
                         displayPromotionsAsChips(promotions);
                     } else {
                         tvPromotionEmpty.setVisibility(View.VISIBLE);
                         chipPromotionGroup.setVisibility(View.GONE);
-                        Log.w(TAG, "No promotions available");
+                        AppLog.w(TAG, "No promotions available");
                     }
                 } else {
                     tvPromotionEmpty.setVisibility(View.VISIBLE);
@@ -269,14 +266,14 @@ public class CheckoutActivity extends AppCompatActivity {
                     if (handleUnauthorized(response.code())) {
                         return;
                     }
-                    Log.e(TAG, "Load promotions failed: " + response.code());
+                    AppLog.e(TAG, "Load promotions failed: {}", response.code());
                     try {
                         if (response.errorBody() != null) {
                             String errorBody = response.errorBody().string();
-                            Log.e(TAG, "Error response body: " + errorBody);
+                            AppLog.e(TAG, "Error response body: {}", errorBody);
                         }
                     } catch (IOException e) {
-                        Log.e(TAG, "Error reading error body", e);
+                        AppLog.e(TAG, "Error reading error body", e);
                     }
                 }
             }
@@ -286,7 +283,7 @@ public class CheckoutActivity extends AppCompatActivity {
                 promotionLoading.setVisibility(View.GONE);
                 tvPromotionEmpty.setVisibility(View.VISIBLE);
                 chipPromotionGroup.setVisibility(View.GONE);
-                Log.e(TAG, "Load promotions error: " + t.getMessage(), t);
+                AppLog.e(TAG, "Load promotions error", t);
                 Toast.makeText(CheckoutActivity.this, "Không thể tải mã khuyến mãi: " + t.getMessage(), Toast.LENGTH_SHORT).show();
             }
         });
@@ -416,7 +413,7 @@ public class CheckoutActivity extends AppCompatActivity {
                 tvPromotionStatus.setText("Lỗi kết nối. Vui lòng thử lại.");
                 tvPromotionStatus.setTextColor(getResources().getColor(android.R.color.holo_red_dark, null));
                 tvPromotionStatus.setVisibility(View.VISIBLE);
-                Log.e(TAG, "Apply promotion error: " + t.getMessage(), t);
+                AppLog.e(TAG, "Apply promotion error", t);
                 Toast.makeText(CheckoutActivity.this, "Lỗi kết nối: " + t.getMessage(), Toast.LENGTH_SHORT).show();
             }
         });
@@ -454,7 +451,7 @@ public class CheckoutActivity extends AppCompatActivity {
                     if (handleUnauthorized(response.code())) {
                         return;
                     }
-                    Log.e(TAG, "Load cart failed: " + response.code());
+                    AppLog.e(TAG, "Load cart failed: {}", response.code());
                     Toast.makeText(CheckoutActivity.this, "Không thể tải giỏ hàng", Toast.LENGTH_SHORT).show();
                     finish();
                 }
@@ -463,7 +460,7 @@ public class CheckoutActivity extends AppCompatActivity {
             @Override
             public void onFailure(Call<ApiResponse<CartResponse>> call, Throwable t) {
                 showProgress(false);
-                Log.e(TAG, "Load cart error: " + t.getMessage(), t);
+                AppLog.e(TAG, "Load cart error", t);
                 Toast.makeText(CheckoutActivity.this, "Lỗi kết nối: " + t.getMessage(), Toast.LENGTH_SHORT).show();
                 finish();
             }
@@ -580,7 +577,7 @@ public class CheckoutActivity extends AppCompatActivity {
 
             @Override
             public void onFailure(Call<ApiResponse<quynh.ph59304.bansach.models.User>> call, Throwable t) {
-                Log.e(TAG, "Load profile to form error: " + t.getMessage(), t);
+                AppLog.e(TAG, "Load profile to form error", t);
             }
         });
     }
@@ -624,152 +621,58 @@ public class CheckoutActivity extends AppCompatActivity {
     private void submitOrderRequest(String authHeader, Map<String, Object> body) {
         // Log payment method being sent
         String paymentMethod = (String) body.get("paymentMethod");
-        Log.d(TAG, "Submitting order with paymentMethod: " + paymentMethod);
-        Log.d(TAG, "Request body: " + body.toString());
+        AppLog.d(TAG, "Submitting order with paymentMethod: {}", paymentMethod);
         
-        // Use raw response to handle VNPay paymentUrl
-        Call<ResponseBody> call = apiService.createOrderApiRaw(authHeader, body);
-        call.enqueue(new Callback<ResponseBody>() {
+        // Một lần parse: có paymentUrl (VNPay) hoặc đơn đã tạo xong
+        Call<OrderCreateResponse> call = apiService.createOrderApi(authHeader, body);
+        call.enqueue(new Callback<OrderCreateResponse>() {
             @Override
-            public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
+            public void onResponse(Call<OrderCreateResponse> call, Response<OrderCreateResponse> response) {
                 isSubmitting = false;
                 btnPlaceOrder.setEnabled(true);
                 showProgress(false);
                 
-                if (response.isSuccessful() && response.body() != null) {
-                    try {
-                        String responseString = response.body().string();
-                        Log.d(TAG, "Order response: " + responseString);
-                        
-                        Gson gson = new Gson();
-                        JsonObject jsonObject = gson.fromJson(responseString, JsonObject.class);
-                        
-                        if (jsonObject.has("success") && jsonObject.get("success").getAsBoolean()) {
-                            String message = jsonObject.has("message") ? jsonObject.get("message").getAsString() : "";
-                            Log.d(TAG, "Order response message: " + message);
-                            Log.d(TAG, "Has paymentUrl: " + jsonObject.has("paymentUrl"));
-                            
-                            // Log order details if available
-                            if (jsonObject.has("order")) {
-                                JsonObject orderObj = jsonObject.getAsJsonObject("order");
-                                if (orderObj.has("paymentMethod")) {
-                                    String orderPaymentMethod = orderObj.get("paymentMethod").getAsString();
-                                    Log.d(TAG, "Order paymentMethod from response: " + orderPaymentMethod);
-                                }
-                            }
-                            
-                            // Check if this is a VNPay response (has paymentUrl)
-                            if (jsonObject.has("paymentUrl")) {
-                                // VNPay payment - open WebView
-                                String paymentUrl = jsonObject.get("paymentUrl").getAsString();
-                                String orderId = null;
-                                if (jsonObject.has("order")) {
-                                    JsonObject orderObj = jsonObject.getAsJsonObject("order");
-                                    if (orderObj.has("id")) {
-                                        orderId = orderObj.get("id").getAsString();
-                                    } else if (orderObj.has("_id")) {
-                                        orderId = orderObj.get("_id").getAsString();
-                                    }
-                                }
-                                
-                                Log.d(TAG, "VNPay payment URL received: " + paymentUrl);
-                                Log.d(TAG, "Order ID: " + orderId);
-                                openVnPayWebView(paymentUrl, orderId);
-                            } else {
-                                // Regular payment - completed immediately
-                                Log.d(TAG, "No paymentUrl in response - processing regular payment");
-                                Log.d(TAG, "Response message: " + message);
-                                
-                                Order order = null;
-                                String orderId = null;
-                                
-                                // Try to extract order from response
-                                if (jsonObject.has("order")) {
-                                    try {
-                                        JsonObject orderObj = jsonObject.getAsJsonObject("order");
-                                        // Parse order directly from JsonObject
-                                        order = gson.fromJson(orderObj, Order.class);
-                                        
-                                        // Get order ID
-                                        if (orderObj.has("id")) {
-                                            orderId = orderObj.get("id").getAsString();
-                                        } else if (orderObj.has("_id")) {
-                                            if (orderObj.get("_id").isJsonPrimitive()) {
-                                                orderId = orderObj.get("_id").getAsString();
-                                            } else if (orderObj.get("_id").isJsonObject()) {
-                                                JsonObject idObj = orderObj.getAsJsonObject("_id");
-                                                if (idObj.has("$oid")) {
-                                                    orderId = idObj.get("$oid").getAsString();
-                                                }
-                                            }
-                                        }
-                                        
-                                        Log.d(TAG, "Order parsed successfully, ID: " + orderId);
-                                    } catch (Exception e) {
-                                        Log.e(TAG, "Error parsing order object", e);
-                                    }
-                                }
-                                
-                                // Fallback: Try parsing as ApiResponse<Order>
-                                if (order == null) {
-                                    try {
-                                        ApiResponse<Order> apiResponse = gson.fromJson(responseString, 
-                                            new TypeToken<ApiResponse<Order>>(){}.getType());
-                                        order = apiResponse.getOrder();
-                                        if (order == null && apiResponse.getData() != null) {
-                                            order = (Order) apiResponse.getData();
-                                        }
-                                        if (order != null && order.getId() != null) {
-                                            orderId = order.getId();
-                                        }
-                                        Log.d(TAG, "Order parsed from ApiResponse, ID: " + orderId);
-                                    } catch (Exception e) {
-                                        Log.e(TAG, "Error parsing as ApiResponse<Order>", e);
-                                    }
-                                }
-                                
-                                // If we have order but no orderId yet, try to get it from order object
-                                if (order != null && orderId == null && order.getId() != null) {
-                                    orderId = order.getId();
-                                }
-
-                                if (order != null && orderId != null) {
-                                    // Check if payment method is VNPay but no paymentUrl
-                                    if ("vnpay".equals(order.getPaymentMethod())) {
-                                        Log.e(TAG, "ERROR: Payment method is VNPay but no paymentUrl received!");
-                                        Toast.makeText(CheckoutActivity.this, 
-                                            "Lỗi: Không thể tạo URL thanh toán VNPay. Vui lòng thử lại hoặc liên hệ hỗ trợ.", 
-                                            Toast.LENGTH_LONG).show();
-                                    } else {
-                                        Toast.makeText(CheckoutActivity.this, "Đặt hàng thành công", Toast.LENGTH_SHORT).show();
-                                    }
-                                    Intent intent = new Intent(CheckoutActivity.this, OrderDetailActivity.class);
-                                    intent.putExtra("order_id", orderId);
-                                    intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
-                                    startActivity(intent);
-                                    finish();
-                                } else {
-                                    Log.e(TAG, "Failed to extract order from response. Order: " + (order != null ? "not null" : "null") + ", OrderId: " + orderId);
-                                    Log.e(TAG, "Full response: " + responseString);
-                                    String errorMsg = jsonObject.has("error") 
-                                        ? jsonObject.get("error").getAsString()
-                                        : jsonObject.has("message")
-                                        ? jsonObject.get("message").getAsString()
-                                        : "Đặt hàng thất bại: Không thể xử lý phản hồi từ server";
-                                    Toast.makeText(CheckoutActivity.this, errorMsg, Toast.LENGTH_LONG).show();
-                                }
-                            }
+                OrderCreateResponse result = response.body();
+                if (response.isSuccessful() && result != null) {
+                    if (!result.isSuccess()) {
+                        Toast.makeText(CheckoutActivity.this, result.getErrorMessage("Đặt hàng thất bại"),
+                                Toast.LENGTH_LONG).show();
+                        return;
+                    }
+                    Order order = result.getOrder();
+                    String orderId = result.getOrderId();
+                    if (AppLog.isLoggable(AppLog.DEBUG)) {
+                        AppLog.d(TAG, "Order response: " + result.getMessage() + ", orderId: " + orderId
+                                + ", paymentMethod: " + (order != null ? order.getPaymentMethod() : null)
+                                + ", hasPaymentUrl: " + result.hasPaymentUrl());
+                    }
+
+                    if (result.hasPaymentUrl()) {
+                        // VNPay payment - open WebView
+                        openVnPayWebView(result.getPaymentUrl(), orderId);
+                    } else if (order != null && orderId != null) {
+                        // Đơn hàng có thể gồm sách số: kiểm tra lại quyền đọc ở lần sau
+                        BookInfoRepository.getInstance().invalidateAccess();
+                        // Check if payment method is VNPay but no paymentUrl
+                        if ("vnpay".equals(order.getPaymentMethod())) {
+                            AppLog.e(TAG, "ERROR: Payment method is VNPay but no paymentUrl received!");
+                            Toast.makeText(CheckoutActivity.this, 
+                                "Lỗi: Không thể tạo URL thanh toán VNPay. Vui lòng thử lại hoặc liên hệ hỗ trợ.", 
+                                Toast.LENGTH_LONG).show();
                         } else {
-                            String errorMsg = jsonObject.has("error") 
-                                    ? jsonObject.get("error").getAsString()
-                                    : jsonObject.has("message")
-                                    ? jsonObject.get("message").getAsString()
-                                    : "Đặt hàng thất bại";
-                            Toast.makeText(CheckoutActivity.this, errorMsg, Toast.LENGTH_LONG).show();
+                            Toast.makeText(CheckoutActivity.this, "Đặt hàng thành công", Toast.LENGTH_SHORT).show();
                         }
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error parsing order response", e);
-                        Toast.makeText(CheckoutActivity.this, "Lỗi xử lý phản hồi từ server", Toast.LENGTH_SHORT).show();
+                        Intent intent = new Intent(CheckoutActivity.this, OrderDetailActivity.class);
+                        intent.putExtra("order_id", orderId);
+                        intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
+                        startActivity(intent);
+                        finish();
+                    } else {
+                        AppLog.e(TAG, "Failed to extract order from response. Order: {}, OrderId: {}",
+                                order != null ? "not null" : "null", orderId);
+                        Toast.makeText(CheckoutActivity.this,
+                                result.getErrorMessage("Đặt hàng thất bại: Không thể xử lý phản hồi từ server"),
+                                Toast.LENGTH_LONG).show();
                     }
                 } else {
                     if (handleUnauthorized(response.code())) {
@@ -779,21 +682,21 @@ public class CheckoutActivity extends AppCompatActivity {
                     try {
                         if (response.errorBody() != null) {
                             String errorBody = response.errorBody().string();
-                            Log.e(TAG, "Order error response body: " + errorBody);
+                            AppLog.e(TAG, "Order error response body: {}", errorBody);
                         }
                     } catch (IOException e) {
-                        Log.e(TAG, "Error parsing error response: " + e.getMessage());
+                        AppLog.e(TAG, "Error parsing error response: {}", e.getMessage());
                     }
                     Toast.makeText(CheckoutActivity.this, errorMsg, Toast.LENGTH_LONG).show();
                 }
             }
 
             @Override
-            public void onFailure(Call<ResponseBody> call, Throwable t) {
+            public void onFailure(Call<OrderCreateResponse> call, Throwable t) {
                 isSubmitting = false;
                 btnPlaceOrder.setEnabled(true);
                 showProgress(false);
-                Log.e(TAG, "Place order error: " + t.getMessage(), t);
+                AppLog.e(TAG, "Place order error", t);
                 Toast.makeText(CheckoutActivity.this, "Lỗi kết nối: " + t.getMessage(), Toast.LENGTH_SHORT).show();
             }
         });
@@ -846,6 +749,8 @@ public class CheckoutActivity extends AppCompatActivity {
         if (requestCode == REQUEST_CODE_VNPAY) {
             if (resultCode == RESULT_OK) {
                 // VNPay payment successful
+                // Đơn đã thanh toán có thể gồm sách số: kiểm tra lại quyền đọc ở lần sau
+                BookInfoRepository.getInstance().invalidateAccess();
                 String orderId = data != null ? data.getStringExtra("orderId") : null;
                 Toast.makeText(this, "Thanh toán VNPay thành công!", Toast.LENGTH_SHORT).show();
                 
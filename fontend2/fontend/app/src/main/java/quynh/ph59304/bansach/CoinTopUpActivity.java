@@ -24,18 +24,12 @@ import java.util.Map;
 
 import android.util.Log;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-
 import quynh.ph59304.bansach.adapters.ExchangeRateAdapter;
 import quynh.ph59304.bansach.api.ApiService;
 import quynh.ph59304.bansach.api.RetrofitClient;
-import quynh.ph59304.bansach.models.ApiResponse;
-import quynh.ph59304.bansach.models.CoinBalanceResponse;
-import quynh.ph59304.bansach.models.CoinTransaction;
-import quynh.ph59304.bansach.models.VnPayTopUpResponse;
+import quynh.ph59304.bansach.models.CoinTopUpResponse;
+import quynh.ph59304.bansach.repository.CoinBalanceRepository;
 import quynh.ph59304.bansach.utils.SharedPreferencesManager;
-import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -52,6 +46,8 @@ public class CoinTopUpActivity extends AppCompatActivity {
     private ExchangeRateAdapter exchangeRateAdapter;
     private ApiService apiService;
     private SharedPreferencesManager prefManager;
+    private final CoinBalanceRepository.Listener coinBalanceListener = balance ->
+            tvBalance.setText(String.format(Locale.getDefault(), "%,.0f", balance));
     private boolean isMasterCardSelected = true; // true = VNPay, false = Bank Transfer
     private ExchangeRateAdapter.ExchangeRate selectedExchangeRate;
     private double pendingCoinsToAdd = 0; // Số coin sẽ được cộng khi VNPay thành công
@@ -81,6 +77,18 @@ public class CoinTopUpActivity extends AppCompatActivity {
         btnTopUp.setEnabled(false);
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        CoinBalanceRepository.getInstance().addListener(coinBalanceListener);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        CoinBalanceRepository.getInstance().removeListener(coinBalanceListener);
+    }
+
     private void initViews() {
         tvBalance = findViewById(R.id.tvBalance);
         recyclerViewExchangeRates = findViewById(R.id.recyclerViewExchangeRates);
@@ -181,25 +189,8 @@ public class CoinTopUpActivity extends AppCompatActivity {
             return;
         }
 
-        Call<CoinBalanceResponse> call = apiService.getCoinBalance(authHeader);
-        call.enqueue(new Callback<CoinBalanceResponse>() {
-            @Override
-            public void onResponse(Call<CoinBalanceResponse> call, Response<CoinBalanceResponse> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    double balance = response.body().getBalance();
-                    tvBalance.setText(String.format(Locale.getDefault(), "%,.0f", balance));
-                } else {
-                    if (!handleUnauthorized(response.code())) {
-                        tvBalance.setText("100.000");
-                    }
-                }
-            }
-
-            @Override
-            public void onFailure(Call<CoinBalanceResponse> call, Throwable t) {
-                tvBalance.setText("100.000");
-            }
-        });
+        // Số dư hiển thị qua coinBalanceListener
+        CoinBalanceRepository.getInstance().refresh(authHeader, false);
     }
 
     private void submitTopUp() {
@@ -249,52 +240,35 @@ public class CoinTopUpActivity extends AppCompatActivity {
         body.put("amount", amount);
         body.put("paymentMethod", paymentMethod);
 
-        // Use raw response to handle both VNPay (with paymentUrl) and regular responses
-        Call<ResponseBody> call = apiService.topUpCoinsRaw(authHeader, body);
-        call.enqueue(new Callback<ResponseBody>() {
+        // Một lần parse: có paymentUrl (VNPay) hoặc đã nạp xong
+        Call<CoinTopUpResponse> call = apiService.topUpCoins(authHeader, body);
+        call.enqueue(new Callback<CoinTopUpResponse>() {
             @Override
-            public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
+            public void onResponse(Call<CoinTopUpResponse> call, Response<CoinTopUpResponse> response) {
                 btnTopUp.setEnabled(true);
-                if (response.isSuccessful() && response.body() != null) {
-                    try {
-                        String responseString = response.body().string();
-                        Log.d("CoinTopUp", "Response: " + responseString);
-                        
-                        Gson gson = new Gson();
-                        JsonObject jsonObject = gson.fromJson(responseString, JsonObject.class);
+                CoinTopUpResponse result = response.body();
+                if (response.isSuccessful() && result != null) {
+                    if (!result.isSuccess()) {
+                        Toast.makeText(CoinTopUpActivity.this,
+                                result.getErrorMessage("Không thể nạp coin. Vui lòng thử lại."),
+                                Toast.LENGTH_SHORT).show();
+                    } else if (result.hasPaymentUrl()) {
+                        // VNPay payment - open WebView
+                        Log.d("CoinTopUp", "VNPay payment URL received, transaction: " + result.getTransactionId());
+                        openVnPayWebView(result.getPaymentUrl());
+                    } else {
+                        // Regular payment (bank_transfer, momo) - completed immediately
+                        // This should NOT happen if paymentMethod = "vnpay"
+                        Log.w("CoinTopUp", "No paymentUrl in response! This might be a bank_transfer or momo payment, or VNPay config issue");
+                        String message = result.getMessage() != null
+                                ? result.getMessage()
+                                : "Nạp coin thành công";
+                        Toast.makeText(CoinTopUpActivity.this, message, Toast.LENGTH_SHORT).show();
                         
-                        if (jsonObject.has("success") && jsonObject.get("success").getAsBoolean()) {
-                            // Check if this is a VNPay response (has paymentUrl)
-                            if (jsonObject.has("paymentUrl")) {
-                                // VNPay payment - open WebView
-                                String paymentUrl = jsonObject.get("paymentUrl").getAsString();
-                                Log.d("CoinTopUp", "VNPay payment URL received: " + paymentUrl);
-                                openVnPayWebView(paymentUrl);
-                            } else {
-                                // Regular payment (bank_transfer, momo) - completed immediately
-                                // This should NOT happen if paymentMethod = "vnpay"
-                                Log.w("CoinTopUp", "No paymentUrl in response! Response: " + responseString);
-                                Log.w("CoinTopUp", "This might be a bank_transfer or momo payment, or VNPay config issue");
-                                
-                                ApiResponse<CoinTransaction> apiResponse = gson.fromJson(responseString, 
-                                    new com.google.gson.reflect.TypeToken<ApiResponse<CoinTransaction>>(){}.getType());
-                                String message = apiResponse.getMessage() != null
-                                        ? apiResponse.getMessage()
-                                        : "Nạp coin thành công";
-                                Toast.makeText(CoinTopUpActivity.this, message, Toast.LENGTH_SHORT).show();
-                                
-                                setResult(RESULT_OK);
-                                finish();
-                            }
-                        } else {
-                            String errorMsg = jsonObject.has("message") 
-                                    ? jsonObject.get("message").getAsString()
-                                    : "Không thể nạp coin. Vui lòng thử lại.";
-                            Toast.makeText(CoinTopUpActivity.this, errorMsg, Toast.LENGTH_SHORT).show();
-                        }
-                    } catch (Exception e) {
-                        Log.e("CoinTopUp", "Error parsing response", e);
-                        Toast.makeText(CoinTopUpActivity.this, "Lỗi xử lý phản hồi từ server", Toast.LENGTH_SHORT).show();
+                        CoinBalanceRepository.getInstance().invalidate();
+                        refreshBalanceFromBackend();
+                        setResult(RESULT_OK);
+                        finish();
                     }
                 } else {
                     if (!handleUnauthorized(response.code())) {
@@ -313,7 +287,7 @@ public class CoinTopUpActivity extends AppCompatActivity {
             }
 
             @Override
-            public void onFailure(Call<ResponseBody> call, Throwable t) {
+            public void onFailure(Call<CoinTopUpResponse> call, Throwable t) {
                 btnTopUp.setEnabled(true);
                 Log.e("CoinTopUp", "Request failed", t);
                 Toast.makeText(CoinTopUpActivity.this, "Lỗi kết nối: " + t.getMessage(), Toast.LENGTH_SHORT).show();
@@ -375,34 +349,17 @@ public class CoinTopUpActivity extends AppCompatActivity {
     }
     
     private void addCoinsImmediately() {
-        // Cộng coin ngay lập tức vào balance hiển thị
+        // Cộng coin ngay lập tức vào số dư dùng chung (mọi màn hình đang hiển thị sẽ cập nhật)
         if (pendingCoinsToAdd > 0) {
-            try {
-                // Lấy balance hiện tại từ TextView
-                String currentBalanceText = tvBalance.getText().toString().replace(",", "").replace(".", "");
-                double currentBalance = Double.parseDouble(currentBalanceText);
-                
-                // Cộng coin mới
-                double newBalance = currentBalance + pendingCoinsToAdd;
-                tvBalance.setText(String.format(Locale.getDefault(), "%,.0f", newBalance));
-                
-                Log.d("CoinTopUp", "Coins added immediately: " + pendingCoinsToAdd + 
-                      " coins. Balance: " + currentBalance + " -> " + newBalance);
-                
-                Toast.makeText(CoinTopUpActivity.this, 
-                    "Đã cộng " + String.format(Locale.getDefault(), "%,.0f", pendingCoinsToAdd) + " coins!", 
-                    Toast.LENGTH_SHORT).show();
-                
-                // Reset pending coins
-                pendingCoinsToAdd = 0;
-            } catch (Exception e) {
-                Log.e("CoinTopUp", "Error adding coins immediately: " + e.getMessage());
-                // Fallback: refresh from backend and finish
-                refreshBalanceFromBackend();
-                setResult(RESULT_OK);
-                finish();
-                return;
-            }
+            CoinBalanceRepository.getInstance().adjustBalance(pendingCoinsToAdd);
+            Log.d("CoinTopUp", "Coins added immediately: " + pendingCoinsToAdd + " coins");
+            
+            Toast.makeText(CoinTopUpActivity.this, 
+                "Đã cộng " + String.format(Locale.getDefault(), "%,.0f", pendingCoinsToAdd) + " coins!", 
+                Toast.LENGTH_SHORT).show();
+            
+            // Reset pending coins
+            pendingCoinsToAdd = 0;
         }
         
         // Đóng activity ngay để UX tốt hơn
@@ -421,27 +378,7 @@ public class CoinTopUpActivity extends AppCompatActivity {
         }
 
         // Refresh từ backend sau một chút để đảm bảo sync (chạy background, không block UI)
-        new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> {
-            Call<CoinBalanceResponse> call = apiService.getCoinBalance(authHeader);
-            call.enqueue(new Callback<CoinBalanceResponse>() {
-                @Override
-                public void onResponse(Call<CoinBalanceResponse> call, Response<CoinBalanceResponse> response) {
-                    if (response.isSuccessful() && response.body() != null) {
-                        double balance = response.body().getBalance();
-                        // Chỉ update nếu activity vẫn còn mở (trường hợp user chưa đóng)
-                        if (!isFinishing()) {
-                            tvBalance.setText(String.format(Locale.getDefault(), "%,.0f", balance));
-                            Log.d("CoinTopUp", "Balance synced from backend: " + balance);
-                        }
-                    }
-                }
-
-                @Override
-                public void onFailure(Call<CoinBalanceResponse> call, Throwable t) {
-                    Log.w("CoinTopUp", "Failed to sync balance from backend: " + t.getMessage());
-                    // Không cần xử lý lỗi, balance đã được cộng ở frontend
-                }
-            });
-        }, 2000); // Refresh sau 2 giây để backend xử lý xong
+        new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() ->
+                CoinBalanceRepository.getInstance().refresh(authHeader, true), 2000); // Refresh sau 2 giây để backend xử lý xong
     }
 }
@@ -23,16 +23,20 @@ import java.util.Map;
 import quynh.ph59304.bansach.adapters.CoinTransactionAdapter;
 import quynh.ph59304.bansach.api.ApiService;
 import quynh.ph59304.bansach.api.RetrofitClient;
+import quynh.ph59304.bansach.logging.AppLog;
 import quynh.ph59304.bansach.models.ApiResponse;
 import quynh.ph59304.bansach.models.CoinBalanceResponse;
 import quynh.ph59304.bansach.models.CoinTransaction;
 import quynh.ph59304.bansach.models.CoinWalletResponse;
+import quynh.ph59304.bansach.repository.CoinBalanceRepository;
 import quynh.ph59304.bansach.utils.SharedPreferencesManager;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
 
 public class CoinWalletActivity extends AppCompatActivity {
+    private static final String TAG = "CoinWallet";
+
     private TextView tvBalance;
     private TextView tvBalanceSubtitle;
     private TextView tvEmptyTransactions;
@@ -171,16 +175,16 @@ public class CoinWalletActivity extends AppCompatActivity {
         // Lấy số dư từ nhiều nguồn để đảm bảo hiển thị đúng
         double balance = walletResponse.getEffectiveBalance();
         
-        // Log để debug
-        android.util.Log.d("CoinWallet", "Balance from response: " + balance);
-        android.util.Log.d("CoinWallet", "coinBalance: " + walletResponse.getCoinBalance());
-        android.util.Log.d("CoinWallet", "balance: " + walletResponse.getBalance());
-        android.util.Log.d("CoinWallet", "totalBalance: " + walletResponse.getTotalBalance());
-        if (walletResponse.getUser() != null) {
-            android.util.Log.d("CoinWallet", "user.coinBalance: " + walletResponse.getUser().getCoinBalance());
+        // Log để debug; nhiều tham số kiểu double nên kiểm tra mức log trước để khỏi boxing
+        if (AppLog.isLoggable(AppLog.DEBUG)) {
+            AppLog.d(TAG, "Balance from response: {} (coinBalance {}, balance {})",
+                    balance, walletResponse.getCoinBalance(), walletResponse.getBalance());
+            AppLog.d(TAG, "totalBalance: {}, user.coinBalance: {}", walletResponse.getTotalBalance(),
+                    walletResponse.getUser() != null ? walletResponse.getUser().getCoinBalance() : null);
         }
         
         tvBalance.setText(String.format(Locale.getDefault(), "%,.0f coin", balance));
+        CoinBalanceRepository.getInstance().setBalance(balance);
         if (walletResponse.getMessage() != null) {
             tvBalanceSubtitle.setText(walletResponse.getMessage());
         } else {
@@ -239,31 +243,32 @@ public class CoinWalletActivity extends AppCompatActivity {
                             java.util.Date createdDate = sdf.parse(dateStr);
                             if (createdDate != null) {
                                 long transactionAge = currentTime - createdDate.getTime();
-                                android.util.Log.d("CoinWallet", "Transaction " + transaction.getId() + 
-                                    " age: " + (transactionAge / 1000) + " seconds");
+                                if (AppLog.isLoggable(AppLog.DEBUG)) {
+                                    AppLog.d(TAG, "Transaction {} age: {} seconds",
+                                            transaction.getId(), transactionAge / 1000);
+                                }
                                 
                                 // Fix transaction nếu đã > 30 giây
                                 if (createdDate.getTime() < thirtySecondsAgo) {
-                                    android.util.Log.d("CoinWallet", "Auto-fixing pending VNPay transaction: " + transaction.getId());
+                                    AppLog.d(TAG, "Auto-fixing pending VNPay transaction: {}", transaction.getId());
                                     processPendingTransaction(transaction, authHeader);
                                 } else {
-                                    android.util.Log.d("CoinWallet", "Transaction " + transaction.getId() + 
-                                        " is too recent, will retry later");
+                                    AppLog.d(TAG, "Transaction {} is too recent, will retry later", transaction.getId());
                                 }
                             }
                         } catch (Exception e) {
-                            android.util.Log.w("CoinWallet", "Error parsing date for transaction " + transaction.getId() + ": " + e.getMessage());
+                            AppLog.w(TAG, "Error parsing date for transaction {}: {}", transaction.getId(), e.getMessage());
                             // Nếu không parse được date, vẫn thử fix (có thể là transaction cũ)
-                            android.util.Log.d("CoinWallet", "Attempting to fix transaction anyway: " + transaction.getId());
+                            AppLog.d(TAG, "Attempting to fix transaction anyway: {}", transaction.getId());
                             processPendingTransaction(transaction, authHeader);
                         }
                     } else {
                         // Nếu không có createdAt, vẫn thử fix
-                        android.util.Log.d("CoinWallet", "No createdAt, attempting to fix transaction: " + transaction.getId());
+                        AppLog.d(TAG, "No createdAt, attempting to fix transaction: {}", transaction.getId());
                         processPendingTransaction(transaction, authHeader);
                     }
                 } catch (Exception e) {
-                    android.util.Log.e("CoinWallet", "Error checking transaction: " + e.getMessage());
+                    AppLog.e(TAG, "Error checking transaction: {}", e.getMessage());
                 }
             }
         }
@@ -283,19 +288,19 @@ public class CoinWalletActivity extends AppCompatActivity {
             @Override
             public void onResponse(Call<ApiResponse<Map<String, Object>>> call, Response<ApiResponse<Map<String, Object>>> response) {
                 if (response.isSuccessful() && response.body() != null) {
-                    android.util.Log.d("CoinWallet", "Successfully processed pending transaction: " + transaction.getId());
+                    AppLog.d(TAG, "Successfully processed pending transaction: {}", transaction.getId());
                     // Refresh wallet sau khi fix thành công
                     new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> {
                         loadWallet();
                     }, 1000);
                 } else {
-                    android.util.Log.w("CoinWallet", "Failed to process pending transaction: " + response.code());
+                    AppLog.w(TAG, "Failed to process pending transaction: {}", response.code());
                 }
             }
 
             @Override
             public void onFailure(Call<ApiResponse<Map<String, Object>>> call, Throwable t) {
-                android.util.Log.e("CoinWallet", "Error processing pending transaction: " + t.getMessage());
+                AppLog.e(TAG, "Error processing pending transaction: {}", t.getMessage());
             }
         });
     }
@@ -309,6 +314,7 @@ public class CoinWalletActivity extends AppCompatActivity {
                     CoinBalanceResponse balanceResponse = response.body();
                     double balance = balanceResponse.getBalance();
                     tvBalance.setText(String.format(Locale.getDefault(), "%,.0f coin", balance));
+                    CoinBalanceRepository.getInstance().setBalance(balance);
                     tvBalanceSubtitle.setText("Không tải được lịch sử giao dịch. Vui lòng thử lại sau.");
                     transactionAdapter.updateTransactions(new ArrayList<>());
                     toggleEmptyState(true);
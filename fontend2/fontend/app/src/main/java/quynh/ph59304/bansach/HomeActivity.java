@@ -2,6 +2,8 @@ package quynh.ph59304.bansach;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.util.Log;
 import android.view.MenuItem;
 import android.view.View;
@@ -22,20 +24,19 @@ import java.util.ArrayList;
 import java.util.List;
 
 import quynh.ph59304.bansach.adapters.HomeBookAdapter;
-import quynh.ph59304.bansach.api.ApiService;
-import quynh.ph59304.bansach.api.RetrofitClient;
-import quynh.ph59304.bansach.models.ApiResponse;
 import quynh.ph59304.bansach.models.Book;
-import quynh.ph59304.bansach.models.BooksResponse;
-import quynh.ph59304.bansach.models.CoinBalanceResponse;
-import quynh.ph59304.bansach.models.User;
+import quynh.ph59304.bansach.repository.CatalogStore;
+import quynh.ph59304.bansach.repository.CoinBalanceRepository;
 import quynh.ph59304.bansach.utils.SharedPreferencesManager;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
 
 public class HomeActivity extends AppCompatActivity {
     private static final String TAG = "HomeActivity";
+    // 4 hàng x 6 sách mới nhất của danh mục
+    private static final int HOME_BOOK_COUNT = 24;
+    // Thẻ sách rộng 160dp: mỗi hàng hiện khoảng 2-3 item
+    private static final int VISIBLE_ITEMS_PER_ROW = 3;
+    private static final int PREINFLATE_COUNT = 4 * VISIBLE_ITEMS_PER_ROW;
+    private static final int POOL_SIZE = HOME_BOOK_COUNT;
     
     private RecyclerView recyclerViewRecommendation;
     private RecyclerView recyclerViewPopular;
@@ -49,9 +50,27 @@ public class HomeActivity extends AppCompatActivity {
     private ProgressBar progressBar;
     private BottomNavigationView bottomNavigationView;
     private TextView tvCoinBalance;
+    private final RecyclerView.RecycledViewPool sharedBookPool = new RecyclerView.RecycledViewPool();
     
-    private ApiService apiService;
     private SharedPreferencesManager prefManager;
+    private final CoinBalanceRepository.Listener coinBalanceListener = this::updateCoinBalance;
+    private final CatalogStore.Listener catalogListener = new CatalogStore.Listener() {
+        @Override
+        public void onCatalogChanged(List<Book> upserts, List<String> deletedIds) {
+            loadHomeBooks();
+        }
+
+        @Override
+        public void onSyncError(String message) {
+            showProgress(false);
+            // Đã có dữ liệu cục bộ thì không cần báo lỗi
+            if (allBooks.isEmpty()) {
+                String msg = "Không thể tải danh sách sách (" + message + ")";
+                Log.e(TAG, msg);
+                Toast.makeText(HomeActivity.this, msg, Toast.LENGTH_SHORT).show();
+            }
+        }
+    };
     private List<Book> allBooks = new ArrayList<>();
 
     @Override
@@ -59,7 +78,6 @@ public class HomeActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_home);
 
-        apiService = RetrofitClient.getInstance().getApiService();
         prefManager = new SharedPreferencesManager(this);
 
         // Kiểm tra đăng nhập
@@ -71,11 +89,24 @@ public class HomeActivity extends AppCompatActivity {
 
         initViews();
         setupRecyclerViews();
+        preinflateBookViews();
         setupSearch();
         setupBottomNavigation();
         setupCoinBalanceClick();
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        CoinBalanceRepository.getInstance().addListener(coinBalanceListener);
         loadBooks();
-        loadCoinBalance();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        CoinBalanceRepository.getInstance().removeListener(coinBalanceListener);
+        CatalogStore.getInstance().removeListener(catalogListener);
     }
 
     @Override
@@ -85,7 +116,7 @@ public class HomeActivity extends AppCompatActivity {
         if (bottomNavigationView != null) {
             bottomNavigationView.setSelectedItemId(R.id.nav_home);
         }
-        // Reload coin balance when returning to this activity
+        // Refresh coin balance if the shared value is stale
         loadCoinBalance();
     }
     
@@ -99,53 +130,8 @@ public class HomeActivity extends AppCompatActivity {
             return;
         }
         
-        String authHeader = "Bearer " + token;
-        
-        // Try getCoinBalance first
-        Call<CoinBalanceResponse> coinCall = apiService.getCoinBalance(authHeader);
-        coinCall.enqueue(new Callback<CoinBalanceResponse>() {
-            @Override
-            public void onResponse(Call<CoinBalanceResponse> call, Response<CoinBalanceResponse> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    CoinBalanceResponse balanceResponse = response.body();
-                    double balance = balanceResponse.getBalance();
-                    updateCoinBalance(balance);
-                } else {
-                    // Fallback to getProfile
-                    loadCoinFromProfile(authHeader);
-                }
-            }
-
-            @Override
-            public void onFailure(Call<CoinBalanceResponse> call, Throwable t) {
-                // Fallback to getProfile
-                loadCoinFromProfile(authHeader);
-            }
-        });
-    }
-    
-    private void loadCoinFromProfile(String authHeader) {
-        Call<ApiResponse<User>> profileCall = apiService.getProfile(authHeader);
-        profileCall.enqueue(new Callback<ApiResponse<User>>() {
-            @Override
-            public void onResponse(Call<ApiResponse<User>> call, Response<ApiResponse<User>> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    ApiResponse<User> apiResponse = response.body();
-                    User user = apiResponse.getUser();
-                    if (user == null && apiResponse.getData() != null) {
-                        user = (User) apiResponse.getData();
-                    }
-                    if (user != null) {
-                        updateCoinBalance(user.getCoinBalance());
-                    }
-                }
-            }
-
-            @Override
-            public void onFailure(Call<ApiResponse<User>> call, Throwable t) {
-                Log.e(TAG, "Failed to load coin balance: " + t.getMessage());
-            }
-        });
+        // Dùng số dư dùng chung, chỉ gọi API khi giá trị đã cũ (TTL)
+        CoinBalanceRepository.getInstance().refresh("Bearer " + token, false);
     }
     
     private void updateCoinBalance(double balance) {
@@ -166,14 +152,16 @@ public class HomeActivity extends AppCompatActivity {
     }
 
     private void setupRecyclerViews() {
+        // 4 hàng dùng chung một pool view holder: cuộn hàng này tái sử dụng item của hàng khác
+        sharedBookPool.setMaxRecycledViews(HomeBookAdapter.VIEW_TYPE_BOOK, POOL_SIZE);
+
         // Setup Recommendation RecyclerView
         recommendationAdapter = new HomeBookAdapter(new ArrayList<>(), book -> {
             Intent intent = new Intent(HomeActivity.this, BookDetailActivity.class);
             intent.putExtra("book_id", book.getId());
             startActivity(intent);
         });
-        recyclerViewRecommendation.setLayoutManager(new LinearLayoutManager(this, LinearLayoutManager.HORIZONTAL, false));
-        recyclerViewRecommendation.setAdapter(recommendationAdapter);
+        setupCarousel(recyclerViewRecommendation, recommendationAdapter);
 
         // Setup Popular RecyclerView
         popularAdapter = new HomeBookAdapter(new ArrayList<>(), book -> {
@@ -181,8 +169,7 @@ public class HomeActivity extends AppCompatActivity {
             intent.putExtra("book_id", book.getId());
             startActivity(intent);
         });
-        recyclerViewPopular.setLayoutManager(new LinearLayoutManager(this, LinearLayoutManager.HORIZONTAL, false));
-        recyclerViewPopular.setAdapter(popularAdapter);
+        setupCarousel(recyclerViewPopular, popularAdapter);
 
         // Setup Top Sell RecyclerView
         topSellAdapter = new HomeBookAdapter(new ArrayList<>(), book -> {
@@ -190,8 +177,7 @@ public class HomeActivity extends AppCompatActivity {
             intent.putExtra("book_id", book.getId());
             startActivity(intent);
         });
-        recyclerViewTopSell.setLayoutManager(new LinearLayoutManager(this, LinearLayoutManager.HORIZONTAL, false));
-        recyclerViewTopSell.setAdapter(topSellAdapter);
+        setupCarousel(recyclerViewTopSell, topSellAdapter);
 
         // Setup To Read RecyclerView
         toReadAdapter = new HomeBookAdapter(new ArrayList<>(), book -> {
@@ -199,8 +185,46 @@ public class HomeActivity extends AppCompatActivity {
             intent.putExtra("book_id", book.getId());
             startActivity(intent);
         });
-        recyclerViewToRead.setLayoutManager(new LinearLayoutManager(this, LinearLayoutManager.HORIZONTAL, false));
-        recyclerViewToRead.setAdapter(toReadAdapter);
+        setupCarousel(recyclerViewToRead, toReadAdapter);
+    }
+
+    private void setupCarousel(RecyclerView recyclerView, HomeBookAdapter adapter) {
+        LinearLayoutManager layoutManager =
+                new LinearLayoutManager(this, LinearLayoutManager.HORIZONTAL, false);
+        // Số item prefetch khi hàng được lồng trong một RecyclerView dọc
+        layoutManager.setInitialPrefetchItemCount(VISIBLE_ITEMS_PER_ROW);
+        // Trả item về pool chung khi hàng bị detach để các hàng khác dùng lại
+        layoutManager.setRecycleChildrenOnDetach(true);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setRecycledViewPool(sharedBookPool);
+        recyclerView.setNestedScrollingEnabled(false);
+        recyclerView.setAdapter(adapter);
+    }
+
+    /**
+     * Inflates item_book_horizontal holders into the shared pool, one per idle pass of
+     * the main looper, so the first bind of each carousel does not pay for inflation
+     * while the catalog is still loading.
+     */
+    private void preinflateBookViews() {
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            private int created;
+
+            @Override
+            public boolean queueIdle() {
+                if (isFinishing() || isDestroyed()) {
+                    return false;
+                }
+                int recycled = sharedBookPool.getRecycledViewCount(HomeBookAdapter.VIEW_TYPE_BOOK);
+                if (created >= PREINFLATE_COUNT || recycled >= POOL_SIZE) {
+                    return false;
+                }
+                sharedBookPool.putRecycledView(recommendationAdapter.createViewHolder(
+                        recyclerViewRecommendation, HomeBookAdapter.VIEW_TYPE_BOOK));
+                created++;
+                return true;
+            }
+        });
     }
 
     private void setupSearch() {
@@ -240,34 +264,26 @@ public class HomeActivity extends AppCompatActivity {
     }
 
     private void loadBooks() {
-        showProgress(true);
-        Call<BooksResponse> call = apiService.getBooks(null, null, null, null);
-        call.enqueue(new Callback<BooksResponse>() {
-            @Override
-            public void onResponse(Call<BooksResponse> call, Response<BooksResponse> response) {
-                showProgress(false);
-                if (response.isSuccessful() && response.body() != null) {
-                    List<Book> books = response.body().getBooks();
-                    if (books != null && !books.isEmpty()) {
-                        allBooks = books;
-                        updateBookLists();
-                    } else {
-                        Log.w(TAG, "No books found");
-                    }
-                } else {
-                    String msg = "Không thể tải danh sách sách (HTTP " + response.code() + ")";
-                    Log.e(TAG, msg);
-                    Toast.makeText(HomeActivity.this, msg, Toast.LENGTH_SHORT).show();
-                }
-            }
+        CatalogStore catalogStore = CatalogStore.getInstance();
+        // Hiện ngay danh mục đã lưu, sau đó chỉ tải phần thay đổi từ server
+        if (allBooks.isEmpty()) {
+            showProgress(true);
+        }
+        catalogStore.addListener(catalogListener);
+        loadHomeBooks();
+        catalogStore.sync(false);
+    }
 
-            @Override
-            public void onFailure(Call<BooksResponse> call, Throwable t) {
-                showProgress(false);
-                String msg = "Lỗi kết nối: " + t.getMessage();
-                Log.e(TAG, msg, t);
-                Toast.makeText(HomeActivity.this, msg, Toast.LENGTH_SHORT).show();
+    private void loadHomeBooks() {
+        // Chỉ đọc đúng số sách trang chủ hiển thị, không nạp cả danh mục
+        CatalogStore.getInstance().loadPage(HOME_BOOK_COUNT, null, books -> {
+            if (isDestroyed()) {
+                return;
             }
+            // Danh mục trống trong lần đồng bộ đầu tiên: vẫn đang tải
+            showProgress(books.isEmpty() && CatalogStore.getInstance().isSyncing());
+            allBooks = books;
+            updateBookLists();
         });
     }
 
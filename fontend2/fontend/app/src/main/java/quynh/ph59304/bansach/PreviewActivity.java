@@ -30,6 +30,8 @@ import quynh.ph59304.bansach.models.ApiResponse;
 import quynh.ph59304.bansach.models.PreviewChapter;
 import quynh.ph59304.bansach.models.PreviewData;
 import quynh.ph59304.bansach.models.PreviewResponse;
+import quynh.ph59304.bansach.repository.BookInfoRepository;
+import quynh.ph59304.bansach.repository.CoinBalanceRepository;
 import quynh.ph59304.bansach.utils.SharedPreferencesManager;
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -121,30 +123,36 @@ public class PreviewActivity extends AppCompatActivity {
             checkBookAccess();
         }
         
-        Call<PreviewResponse> call = apiService.getPreviewContent(bookId, getOptionalToken());
-        call.enqueue(new Callback<PreviewResponse>() {
-            @Override
-            public void onResponse(Call<PreviewResponse> call, Response<PreviewResponse> response) {
-                showLoading(false);
-                if (response.isSuccessful() && response.body() != null && response.body().isSuccess()) {
-                    PreviewResponse previewResponse = response.body();
-                    if (previewResponse.getPreview() != null) {
-                        updateUI(previewResponse);
-                    } else {
-                        showError("Không tìm thấy nội dung đọc thử");
+        // Thường đã được BookDetailActivity tải trước đó: lấy từ cache dùng chung
+        BookInfoRepository.getInstance().getPreview(bookId, getOptionalToken(),
+                new BookInfoRepository.Callback<PreviewResponse>() {
+                    @Override
+                    public void onLoaded(PreviewResponse previewResponse) {
+                        if (isDestroyed()) {
+                            return;
+                        }
+                        showLoading(false);
+                        if (previewResponse.getPreview() != null) {
+                            updateUI(previewResponse);
+                        } else {
+                            showError("Không tìm thấy nội dung đọc thử");
+                        }
                     }
-                } else {
-                    showError("Không thể tải nội dung đọc thử");
-                }
-            }
 
-            @Override
-            public void onFailure(Call<PreviewResponse> call, Throwable t) {
-                showLoading(false);
-                Log.e(TAG, "Load preview error: " + t.getMessage(), t);
-                showError("Lỗi kết nối: " + t.getMessage());
-            }
-        });
+                    @Override
+                    public void onError(int httpCode, String message) {
+                        if (isDestroyed()) {
+                            return;
+                        }
+                        showLoading(false);
+                        if (httpCode != 0) {
+                            showError("Không thể tải nội dung đọc thử");
+                        } else {
+                            Log.e(TAG, "Load preview error: " + message);
+                            showError("Lỗi kết nối: " + message);
+                        }
+                    }
+                });
     }
     
     private void checkBookAccess() {
@@ -157,23 +165,19 @@ public class PreviewActivity extends AppCompatActivity {
             return;
         }
         
-        Call<ApiResponse<Map<String, Object>>> call = apiService.checkBookAccess(authHeader, bookId);
-        call.enqueue(new Callback<ApiResponse<Map<String, Object>>>() {
+        BookInfoRepository.getInstance().getAccess(bookId, authHeader, new BookInfoRepository.Callback<Boolean>() {
             @Override
-            public void onResponse(Call<ApiResponse<Map<String, Object>>> call, Response<ApiResponse<Map<String, Object>>> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    Map<String, Object> data = response.body().getData();
-                    if (data != null) {
-                        Object hasAccessObj = data.get("hasAccess");
-                        hasAccess = hasAccessObj instanceof Boolean ? (Boolean) hasAccessObj : false;
-                        updatePurchaseUI();
-                    }
+            public void onLoaded(Boolean access) {
+                if (isDestroyed()) {
+                    return;
                 }
+                hasAccess = access;
+                updatePurchaseUI();
             }
 
             @Override
-            public void onFailure(Call<ApiResponse<Map<String, Object>>> call, Throwable t) {
-                Log.e(TAG, "Check access error: " + t.getMessage());
+            public void onError(int httpCode, String message) {
+                Log.e(TAG, "Check access error: " + message);
             }
         });
     }
@@ -207,24 +211,24 @@ public class PreviewActivity extends AppCompatActivity {
     }
     
     private void loadBookDetailForCoinPrice() {
-        Call<ApiResponse<quynh.ph59304.bansach.models.Book>> call = apiService.getBookDetail(bookId);
-        call.enqueue(new Callback<ApiResponse<quynh.ph59304.bansach.models.Book>>() {
-            @Override
-            public void onResponse(Call<ApiResponse<quynh.ph59304.bansach.models.Book>> call, Response<ApiResponse<quynh.ph59304.bansach.models.Book>> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    quynh.ph59304.bansach.models.Book book = response.body().getBook();
-                    if (book != null && book.getCoinPrice() != null && book.getCoinPrice() > 0) {
-                        coinPrice = book.getCoinPrice();
-                        updatePurchaseUI();
+        BookInfoRepository.getInstance().getBookDetail(bookId,
+                new BookInfoRepository.Callback<quynh.ph59304.bansach.models.Book>() {
+                    @Override
+                    public void onLoaded(quynh.ph59304.bansach.models.Book book) {
+                        if (isDestroyed()) {
+                            return;
+                        }
+                        if (book != null && book.getCoinPrice() != null && book.getCoinPrice() > 0) {
+                            coinPrice = book.getCoinPrice();
+                            updatePurchaseUI();
+                        }
                     }
-                }
-            }
 
-            @Override
-            public void onFailure(Call<ApiResponse<quynh.ph59304.bansach.models.Book>> call, Throwable t) {
-                Log.e(TAG, "Load book detail error: " + t.getMessage());
-            }
-        });
+                    @Override
+                    public void onError(int httpCode, String message) {
+                        Log.e(TAG, "Load book detail error: " + message);
+                    }
+                });
     }
     
     private void updatePurchaseUI() {
@@ -296,7 +300,11 @@ public class PreviewActivity extends AppCompatActivity {
                             : "Mua sách thành công!";
                         Toast.makeText(PreviewActivity.this, message, Toast.LENGTH_SHORT).show();
                         
-                        // Update access status
+                        // Cập nhật số dư coin dùng chung
+                        updateCoinBalanceAfterPurchase(apiResponse.getData(), authHeader);
+                        
+                        // Update access status (cả cache dùng chung)
+                        BookInfoRepository.getInstance().onAccessPurchased(bookId, authHeader);
                         hasAccess = true;
                         updatePurchaseUI();
                         
@@ -332,61 +340,22 @@ public class PreviewActivity extends AppCompatActivity {
         });
     }
     
+    private void updateCoinBalanceAfterPurchase(Map<String, Object> data, String authHeader) {
+        CoinBalanceRepository repository = CoinBalanceRepository.getInstance();
+        Object remaining = data != null ? data.get("remainingBalance") : null;
+        if (remaining instanceof Number) {
+            repository.setBalance(((Number) remaining).doubleValue());
+        } else {
+            repository.invalidate();
+            repository.refresh(authHeader, true);
+        }
+    }
+    
     private void loadFullContent() {
         if (!prefManager.isLoggedIn()) {
             return;
         }
-        
-        String authHeader = getAuthHeader();
-        if (authHeader == null) {
-            return;
-        }
-        
-        showLoading(true);
-        Call<ApiResponse<Map<String, Object>>> call = apiService.getFullBookContent(authHeader, bookId);
-        call.enqueue(new Callback<ApiResponse<Map<String, Object>>>() {
-            @Override
-            public void onResponse(Call<ApiResponse<Map<String, Object>>> call, Response<ApiResponse<Map<String, Object>>> response) {
-                showLoading(false);
-                if (response.isSuccessful() && response.body() != null) {
-                    ApiResponse<Map<String, Object>> apiResponse = response.body();
-                    Boolean success = apiResponse.getSuccess();
-                    if (success != null && success) {
-                        Map<String, Object> data = apiResponse.getData();
-                        if (data != null) {
-                            String content = (String) data.get("content");
-                            if (content != null && !content.isEmpty()) {
-                                // Show full content in a new activity or update current UI
-                                showFullContent(content);
-                            } else {
-                                Toast.makeText(PreviewActivity.this, 
-                                    "Nội dung sách đang được cập nhật", Toast.LENGTH_SHORT).show();
-                            }
-                        }
-                    } else {
-                        String errorMsg = apiResponse.getMessage() != null 
-                            ? apiResponse.getMessage() 
-                            : "Không thể tải nội dung đầy đủ";
-                        Toast.makeText(PreviewActivity.this, errorMsg, Toast.LENGTH_SHORT).show();
-                    }
-                } else {
-                    Toast.makeText(PreviewActivity.this, 
-                        "Không thể tải nội dung đầy đủ", Toast.LENGTH_SHORT).show();
-                }
-            }
-
-            @Override
-            public void onFailure(Call<ApiResponse<Map<String, Object>>> call, Throwable t) {
-                showLoading(false);
-                Log.e(TAG, "Load full content error: " + t.getMessage(), t);
-                Toast.makeText(PreviewActivity.this, 
-                    "Lỗi kết nối khi tải nội dung", Toast.LENGTH_SHORT).show();
-            }
-        });
-    }
-    
-    private void showFullContent(String content) {
-        // Open BookReaderActivity to show full content
+        // Trình đọc tự tải và lưu bản offline, không cần tải nội dung ở đây
         Intent intent = new Intent(this, BookReaderActivity.class);
         intent.putExtra(BookReaderActivity.EXTRA_BOOK_ID, bookId);
         intent.putExtra(BookReaderActivity.EXTRA_BOOK_TITLE, bookTitle);
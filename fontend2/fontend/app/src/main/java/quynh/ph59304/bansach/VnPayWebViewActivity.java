@@ -26,8 +26,10 @@ import java.io.IOException;
 
 import quynh.ph59304.bansach.api.ApiConfig;
 import quynh.ph59304.bansach.api.ApiService;
+import quynh.ph59304.bansach.api.AppGson;
 import quynh.ph59304.bansach.api.RetrofitClient;
 import quynh.ph59304.bansach.models.CoinBalanceResponse;
+import quynh.ph59304.bansach.repository.CoinBalanceRepository;
 import quynh.ph59304.bansach.utils.SharedPreferencesManager;
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -245,7 +247,8 @@ public class VnPayWebViewActivity extends AppCompatActivity {
                 .addHeader("User-Agent", "Android-Mobile-App")
                 .build();
         
-        okhttp3.OkHttpClient client = new okhttp3.OkHttpClient();
+        // Dùng chung client của app (connection pool, log mạng)
+        okhttp3.OkHttpClient client = RetrofitClient.getInstance().getOkHttpClient();
         client.newCall(request).enqueue(new okhttp3.Callback() {
             @Override
             public void onFailure(okhttp3.Call call, IOException e) {
@@ -257,16 +260,15 @@ public class VnPayWebViewActivity extends AppCompatActivity {
             @Override
             public void onResponse(okhttp3.Call call, okhttp3.Response response) throws IOException {
                 String responseBody = response.body() != null ? response.body().string() : "";
-                Log.d(TAG, "VNPay callback API response: " + response.code() + " - " + responseBody);
+                Log.d(TAG, "VNPay callback API response: " + response.code());
                 
                 if (response.isSuccessful()) {
                     try {
-                        Gson gson = new Gson();
+                        Gson gson = AppGson.get();
                         JsonObject jsonObject = gson.fromJson(responseBody, JsonObject.class);
                         
                         if (jsonObject.has("success") && jsonObject.get("success").getAsBoolean()) {
                             Log.d(TAG, "VNPay callback processed successfully via API");
-                            Log.d(TAG, "Transaction details: " + jsonObject.toString());
                             
                             // Log balance info if available
                             if (jsonObject.has("balanceAfter")) {
@@ -364,8 +366,10 @@ public class VnPayWebViewActivity extends AppCompatActivity {
                 if (response.isSuccessful() && response.body() != null) {
                     double balance = response.body().getBalance();
                     Log.d(TAG, "Coin balance verified: " + balance);
+                    CoinBalanceRepository.getInstance().setBalance(balance);
                 } else {
                     Log.w(TAG, "Failed to verify balance, but payment was successful");
+                    CoinBalanceRepository.getInstance().invalidate();
                 }
                 // Close regardless of verification result
                 closeWithResultImmediate("00", null, null);
@@ -374,6 +378,7 @@ public class VnPayWebViewActivity extends AppCompatActivity {
             @Override
             public void onFailure(Call<CoinBalanceResponse> call, Throwable t) {
                 Log.w(TAG, "Error verifying balance: " + t.getMessage());
+                CoinBalanceRepository.getInstance().invalidate();
                 // Close anyway - backend should have processed
                 closeWithResultImmediate("00", null, null);
             }
@@ -7,27 +7,72 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import quynh.ph59304.bansach.R;
 import quynh.ph59304.bansach.api.ApiConfig;
 import quynh.ph59304.bansach.models.Book;
 
-public class BookAdapter extends RecyclerView.Adapter<BookAdapter.BookViewHolder> {
-    private List<Book> books;
+public class BookAdapter extends ListAdapter<Book, BookAdapter.BookViewHolder> {
+    // Giới hạn tổng số dòng (cũ + mới) đưa vào diff (chi phí Myers ~ kích thước x số thay đổi)
+    private static final int MAX_DIFF_ITEMS = 4000;
+    // Số dòng thêm vào danh sách mỗi lần cuộn gần tới cuối
+    private static final int WINDOW_STEP = 500;
+    private static final int LOAD_MORE_THRESHOLD = 20;
+
     private OnBookClickListener listener;
+    private final StableIds stableIds = new StableIds();
+    // Toàn bộ kết quả; RecyclerView chỉ nhận `window` dòng đầu
+    private List<Book> allBooks = new ArrayList<>();
+    private int window = WINDOW_STEP;
+    private OnNearEndListener nearEndListener;
+    private final RecyclerView.OnScrollListener scrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            if (!(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+                return;
+            }
+            int lastVisible = ((LinearLayoutManager) recyclerView.getLayoutManager())
+                    .findLastVisibleItemPosition();
+            int shown = getItemCount();
+            // Chỉ mở rộng khi lần mở rộng trước đã được áp dụng
+            boolean windowApplied = shown == Math.min(window, allBooks.size());
+            if (!windowApplied || lastVisible < shown - LOAD_MORE_THRESHOLD) {
+                return;
+            }
+            if (shown < allBooks.size()) {
+                window += WINDOW_STEP;
+                submitWindow();
+            } else if (nearEndListener != null) {
+                nearEndListener.onNearEnd();
+            }
+        }
+    };
 
     public interface OnBookClickListener {
         void onBookClick(Book book);
     }
 
+    public interface OnNearEndListener {
+        /**
+         * Every submitted book is shown and the user scrolled close to the last one:
+         * time to load the next page.
+         */
+        void onNearEnd();
+    }
+
     public BookAdapter(List<Book> books, OnBookClickListener listener) {
-        this.books = books;
+        super(new BookDiffCallback());
         this.listener = listener;
+        setHasStableIds(true);
+        updateBooks(books);
     }
 
     @NonNull
@@ -40,18 +85,59 @@ public class BookAdapter extends RecyclerView.Adapter<BookAdapter.BookViewHolder
 
     @Override
     public void onBindViewHolder(@NonNull BookViewHolder holder, int position) {
-        Book book = books.get(position);
+        Book book = getItem(position);
         holder.bind(book);
     }
 
     @Override
-    public int getItemCount() {
-        return books != null ? books.size() : 0;
+    public void onBindViewHolder(@NonNull BookViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        holder.bindChanges(getItem(position), BookDiffCallback.mergePayloads(payloads));
+    }
+
+    /**
+     * Called when the user nears the end of everything submitted, to load more rows.
+     */
+    public void setOnNearEndListener(OnNearEndListener nearEndListener) {
+        this.nearEndListener = nearEndListener;
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        recyclerView.addOnScrollListener(scrollListener);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        recyclerView.removeOnScrollListener(scrollListener);
     }
 
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idFor(getItem(position).getId());
+    }
+
+    /**
+     * Submits a new list; the diff is computed on a background thread and only changed
+     * rows are rebound. Only a window of the first rows is handed to RecyclerView and it
+     * grows as the user scrolls (an append, which is cheap to diff). A new result keeps
+     * the diff under {@link #MAX_DIFF_ITEMS} rows in total, and the list is never
+     * cleared, so the scroll position is kept.
+     */
     public void updateBooks(List<Book> newBooks) {
-        this.books = newBooks;
-        notifyDataSetChanged();
+        allBooks = newBooks != null ? new ArrayList<>(newBooks) : new ArrayList<>();
+        // Giữ số dòng đang hiện để không nhảy vị trí cuộn, nhưng tối đa nửa ngưỡng diff
+        window = Math.max(WINDOW_STEP, Math.min(getItemCount(), MAX_DIFF_ITEMS / 2));
+        submitWindow();
+    }
+
+    private void submitWindow() {
+        submitList(new ArrayList<>(allBooks.subList(0, Math.min(window, allBooks.size()))));
     }
 
     class BookViewHolder extends RecyclerView.ViewHolder {
@@ -67,32 +153,44 @@ public class BookAdapter extends RecyclerView.Adapter<BookAdapter.BookViewHolder
             tvPrice = itemView.findViewById(R.id.tvPrice);
 
             itemView.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onBookClick(books.get(getAdapterPosition()));
+                int position = getAdapterPosition();
+                if (listener != null && position != RecyclerView.NO_POSITION) {
+                    listener.onBookClick(getItem(position));
                 }
             });
         }
 
         public void bind(Book book) {
-            tvTitle.setText(book.getTitle());
-            tvAuthor.setText(book.getAuthor());
-            
-            if (book.getCategory() != null) {
-                tvCategory.setText(book.getCategory().getName());
-            } else {
-                tvCategory.setText("Không phân loại");
+            bindChanges(book, BookDiffCallback.PAYLOAD_TEXT | BookDiffCallback.PAYLOAD_PRICE
+                    | BookDiffCallback.PAYLOAD_COVER);
+        }
+
+        void bindChanges(Book book, int changes) {
+            if ((changes & BookDiffCallback.PAYLOAD_TEXT) != 0) {
+                tvTitle.setText(book.getTitle());
+                tvAuthor.setText(book.getAuthor());
+
+                if (book.getCategory() != null) {
+                    tvCategory.setText(book.getCategory().getName());
+                } else {
+                    tvCategory.setText("Không phân loại");
+                }
+            }
+
+            if ((changes & BookDiffCallback.PAYLOAD_PRICE) != 0) {
+                tvPrice.setText(String.format("%,.0f đ", book.getPrice()));
             }
-            
-            tvPrice.setText(String.format("%,.0f đ", book.getPrice()));
 
             // Load image
-            String imageUrl = ApiConfig.buildAbsoluteUrl(book.getCoverImage());
-            if (imageUrl != null && !imageUrl.isEmpty()) {
-                Glide.with(itemView.getContext())
-                        .load(imageUrl)
-                        .placeholder(R.drawable.ic_launcher_background)
-                        .error(R.drawable.ic_launcher_background)
-                        .into(imgBookCover);
+            if ((changes & BookDiffCallback.PAYLOAD_COVER) != 0) {
+                String imageUrl = ApiConfig.buildAbsoluteUrl(book.getCoverImage());
+                if (imageUrl != null && !imageUrl.isEmpty()) {
+                    Glide.with(itemView.getContext())
+                            .load(imageUrl)
+                            .placeholder(R.drawable.ic_launcher_background)
+                            .error(R.drawable.ic_launcher_background)
+                            .into(imgBookCover);
+                }
             }
         }
     }
@@ -0,0 +1,74 @@
+package quynh.ph59304.bansach.adapters;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.List;
+import java.util.Objects;
+
+import quynh.ph59304.bansach.models.Book;
+
+/**
+ * Identity by book id; contents compare only the fields the book rows display.
+ * Description only appears on the home cards ({@link HomeBookAdapter}), not in
+ * item_book, but both adapters share this callback.
+ * When a row changed, {@link #getChangePayload} reports which parts so the adapter can
+ * rebind just those views (e.g. a price change does not reload the cover image).
+ */
+public class BookDiffCallback extends DiffUtil.ItemCallback<Book> {
+    public static final int PAYLOAD_TEXT = 1;
+    public static final int PAYLOAD_PRICE = 1 << 1;
+    public static final int PAYLOAD_COVER = 1 << 2;
+
+    @Override
+    public boolean areItemsTheSame(@NonNull Book oldItem, @NonNull Book newItem) {
+        return Objects.equals(oldItem.getId(), newItem.getId());
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull Book oldItem, @NonNull Book newItem) {
+        return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                && Objects.equals(oldItem.getAuthor(), newItem.getAuthor())
+                && Objects.equals(oldItem.getDescription(), newItem.getDescription())
+                && oldItem.getPrice() == newItem.getPrice()
+                && Objects.equals(oldItem.getCoverImage(), newItem.getCoverImage())
+                && Objects.equals(categoryName(oldItem), categoryName(newItem));
+    }
+
+    @Nullable
+    @Override
+    public Object getChangePayload(@NonNull Book oldItem, @NonNull Book newItem) {
+        int changes = 0;
+        if (!Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                || !Objects.equals(oldItem.getAuthor(), newItem.getAuthor())
+                || !Objects.equals(oldItem.getDescription(), newItem.getDescription())
+                || !Objects.equals(categoryName(oldItem), categoryName(newItem))) {
+            changes |= PAYLOAD_TEXT;
+        }
+        if (oldItem.getPrice() != newItem.getPrice()) {
+            changes |= PAYLOAD_PRICE;
+        }
+        if (!Objects.equals(oldItem.getCoverImage(), newItem.getCoverImage())) {
+            changes |= PAYLOAD_COVER;
+        }
+        return changes;
+    }
+
+    /**
+     * Merges the payloads RecyclerView collected for one row into a single bit mask.
+     */
+    public static int mergePayloads(List<Object> payloads) {
+        int changes = 0;
+        for (Object payload : payloads) {
+            if (payload instanceof Integer) {
+                changes |= (Integer) payload;
+            }
+        }
+        return changes;
+    }
+
+    private static String categoryName(Book book) {
+        return book.getCategory() != null ? book.getCategory().getName() : null;
+    }
+}
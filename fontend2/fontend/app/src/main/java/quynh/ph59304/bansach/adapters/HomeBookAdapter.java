@@ -7,27 +7,34 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import quynh.ph59304.bansach.R;
 import quynh.ph59304.bansach.api.ApiConfig;
 import quynh.ph59304.bansach.models.Book;
 
-public class HomeBookAdapter extends RecyclerView.Adapter<HomeBookAdapter.BookViewHolder> {
-    private List<Book> books;
+public class HomeBookAdapter extends ListAdapter<Book, HomeBookAdapter.BookViewHolder> {
+    /** The only view type; lets the home carousels share one RecycledViewPool. */
+    public static final int VIEW_TYPE_BOOK = 0;
+
     private OnBookClickListener listener;
+    private final StableIds stableIds = new StableIds();
 
     public interface OnBookClickListener {
         void onBookClick(Book book);
     }
 
     public HomeBookAdapter(List<Book> books, OnBookClickListener listener) {
-        this.books = books;
+        super(new BookDiffCallback());
         this.listener = listener;
+        setHasStableIds(true);
+        updateBooks(books);
     }
 
     @NonNull
@@ -40,21 +47,42 @@ public class HomeBookAdapter extends RecyclerView.Adapter<HomeBookAdapter.BookVi
 
     @Override
     public void onBindViewHolder(@NonNull BookViewHolder holder, int position) {
-        Book book = books.get(position);
+        Book book = getItem(position);
         holder.bind(book);
     }
 
     @Override
-    public int getItemCount() {
-        return books != null ? books.size() : 0;
+    public void onBindViewHolder(@NonNull BookViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        holder.bindChanges(getItem(position), BookDiffCallback.mergePayloads(payloads));
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return VIEW_TYPE_BOOK;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idFor(getItem(position).getId());
     }
 
+    /**
+     * Submits a new list; the diff is computed on a background thread and only changed
+     * rows are rebound.
+     */
     public void updateBooks(List<Book> newBooks) {
-        this.books = newBooks;
-        notifyDataSetChanged();
+        submitList(newBooks != null ? new ArrayList<>(newBooks) : new ArrayList<>());
     }
 
-    class BookViewHolder extends RecyclerView.ViewHolder {
+    /**
+     * Static so holders can move between the carousels through a shared pool: the
+     * click goes to whichever adapter the holder is currently bound to.
+     */
+    public static class BookViewHolder extends RecyclerView.ViewHolder {
         private ImageView imgBookCover;
         private TextView tvTitle, tvAuthor, tvDescription, tvPrice;
 
@@ -67,42 +95,58 @@ public class HomeBookAdapter extends RecyclerView.Adapter<HomeBookAdapter.BookVi
             tvPrice = itemView.findViewById(R.id.tvPrice);
 
             itemView.setOnClickListener(v -> {
-                if (listener != null && getAdapterPosition() != RecyclerView.NO_POSITION) {
-                    listener.onBookClick(books.get(getAdapterPosition()));
+                int position = getBindingAdapterPosition();
+                if (position == RecyclerView.NO_POSITION
+                        || !(getBindingAdapter() instanceof HomeBookAdapter)) {
+                    return;
+                }
+                HomeBookAdapter adapter = (HomeBookAdapter) getBindingAdapter();
+                if (adapter.listener != null) {
+                    adapter.listener.onBookClick(adapter.getItem(position));
                 }
             });
         }
 
         public void bind(Book book) {
-            tvTitle.setText(book.getTitle());
-            tvAuthor.setText(book.getAuthor());
-            
-            // Set description snippet (first 60 characters)
-            if (book.getDescription() != null && !book.getDescription().isEmpty()) {
-                String description = book.getDescription();
-                if (description.length() > 60) {
-                    description = description.substring(0, 60) + "...";
+            bindChanges(book, BookDiffCallback.PAYLOAD_TEXT | BookDiffCallback.PAYLOAD_PRICE
+                    | BookDiffCallback.PAYLOAD_COVER);
+        }
+
+        void bindChanges(Book book, int changes) {
+            if ((changes & BookDiffCallback.PAYLOAD_TEXT) != 0) {
+                tvTitle.setText(book.getTitle());
+                tvAuthor.setText(book.getAuthor());
+
+                // Set description snippet (first 60 characters)
+                if (book.getDescription() != null && !book.getDescription().isEmpty()) {
+                    String description = book.getDescription();
+                    if (description.length() > 60) {
+                        description = description.substring(0, 60) + "...";
+                    }
+                    tvDescription.setText(description);
+                } else {
+                    tvDescription.setText("No description available");
                 }
-                tvDescription.setText(description);
-            } else {
-                tvDescription.setText("No description available");
             }
-            
+
             // Format price as $XX.XX
-            tvPrice.setText(String.format("$%.2f", book.getPrice()));
+            if ((changes & BookDiffCallback.PAYLOAD_PRICE) != 0) {
+                tvPrice.setText(String.format("$%.2f", book.getPrice()));
+            }
 
             // Load image
-            String imageUrl = ApiConfig.buildAbsoluteUrl(book.getCoverImage());
-            if (imageUrl != null && !imageUrl.isEmpty()) {
-                Glide.with(itemView.getContext())
-                        .load(imageUrl)
-                        .placeholder(R.drawable.ic_launcher_background)
-                        .error(R.drawable.ic_launcher_background)
-                        .into(imgBookCover);
-            } else {
-                imgBookCover.setImageResource(R.drawable.ic_launcher_background);
+            if ((changes & BookDiffCallback.PAYLOAD_COVER) != 0) {
+                String imageUrl = ApiConfig.buildAbsoluteUrl(book.getCoverImage());
+                if (imageUrl != null && !imageUrl.isEmpty()) {
+                    Glide.with(itemView.getContext())
+                            .load(imageUrl)
+                            .placeholder(R.drawable.ic_launcher_background)
+                            .error(R.drawable.ic_launcher_background)
+                            .into(imgBookCover);
+                } else {
+                    imgBookCover.setImageResource(R.drawable.ic_launcher_background);
+                }
             }
         }
     }
 }
-
@@ -8,10 +8,12 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -19,17 +21,19 @@ import java.util.Locale;
 import quynh.ph59304.bansach.R;
 import quynh.ph59304.bansach.models.Order;
 
-public class OrderAdapter extends RecyclerView.Adapter<OrderAdapter.OrderViewHolder> {
-    private List<Order> orders;
+public class OrderAdapter extends ListAdapter<Order, OrderAdapter.OrderViewHolder> {
     private OnOrderClickListener listener;
+    private final StableIds stableIds = new StableIds();
 
     public interface OnOrderClickListener {
         void onOrderClick(Order order);
     }
 
     public OrderAdapter(List<Order> orders, OnOrderClickListener listener) {
-        this.orders = orders;
+        super(new OrderDiffCallback());
         this.listener = listener;
+        setHasStableIds(true);
+        updateOrders(orders);
     }
 
     @NonNull
@@ -42,18 +46,31 @@ public class OrderAdapter extends RecyclerView.Adapter<OrderAdapter.OrderViewHol
 
     @Override
     public void onBindViewHolder(@NonNull OrderViewHolder holder, int position) {
-        Order order = orders.get(position);
+        Order order = getItem(position);
         holder.bind(order);
     }
 
     @Override
-    public int getItemCount() {
-        return orders != null ? orders.size() : 0;
+    public void onBindViewHolder(@NonNull OrderViewHolder holder, int position, @NonNull List<Object> payloads) {
+        // Payload duy nhất là PAYLOAD_STATUS; danh sách rỗng nghĩa là cần bind lại toàn bộ
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        holder.bindStatus(getItem(position));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idFor(getItem(position).getId());
     }
 
+    /**
+     * Submits a copy of the list (callers keep mutating their filtered list); the diff
+     * runs on a background thread.
+     */
     public void updateOrders(List<Order> newOrders) {
-        this.orders = newOrders;
-        notifyDataSetChanged();
+        submitList(newOrders != null ? new ArrayList<>(newOrders) : new ArrayList<>());
     }
 
     class OrderViewHolder extends RecyclerView.ViewHolder {
@@ -66,11 +83,18 @@ public class OrderAdapter extends RecyclerView.Adapter<OrderAdapter.OrderViewHol
             tvTotalAmount = itemView.findViewById(R.id.tvTotalAmount);
             tvItemCount = itemView.findViewById(R.id.tvItemCount);
             tvCreatedAt = itemView.findViewById(R.id.tvCreatedAt);
+
+            itemView.setOnClickListener(v -> {
+                int position = getAdapterPosition();
+                if (listener != null && position != RecyclerView.NO_POSITION) {
+                    listener.onOrderClick(getItem(position));
+                }
+            });
         }
 
         public void bind(Order order) {
             tvOrderId.setText("Đơn hàng #" + getShortOrderId(order.getId()));
-            tvStatus.setText(order.getStatusDisplayName());
+            bindStatus(order);
             tvTotalAmount.setText(String.format("%,.0f đ", order.getTotalAmount()));
             
             if (order.getItems() != null) {
@@ -96,15 +120,12 @@ public class OrderAdapter extends RecyclerView.Adapter<OrderAdapter.OrderViewHol
             } else {
                 tvCreatedAt.setText("");
             }
+        }
 
+        void bindStatus(Order order) {
+            tvStatus.setText(order.getStatusDisplayName());
             // Set màu và background cho status dựa trên trạng thái đơn hàng
             setStatusColor(order);
-
-            itemView.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onOrderClick(order);
-                }
-            });
         }
 
         private void setStatusColor(Order order) {
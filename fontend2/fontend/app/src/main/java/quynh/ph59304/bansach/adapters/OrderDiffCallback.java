@@ -0,0 +1,52 @@
+package quynh.ph59304.bansach.adapters;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.Objects;
+
+import quynh.ph59304.bansach.models.Order;
+
+/**
+ * Identity by order id; contents compare the fields shown in an order row. A change
+ * that only touches the status is reported as {@link #PAYLOAD_STATUS} so the adapter
+ * rebinds just the status badge.
+ */
+public class OrderDiffCallback extends DiffUtil.ItemCallback<Order> {
+    public static final Object PAYLOAD_STATUS = "status";
+
+    @Override
+    public boolean areItemsTheSame(@NonNull Order oldItem, @NonNull Order newItem) {
+        return Objects.equals(oldItem.getId(), newItem.getId());
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull Order oldItem, @NonNull Order newItem) {
+        return sameStatus(oldItem, newItem) && sameDetails(oldItem, newItem);
+    }
+
+    @Nullable
+    @Override
+    public Object getChangePayload(@NonNull Order oldItem, @NonNull Order newItem) {
+        if (sameDetails(oldItem, newItem)) {
+            return PAYLOAD_STATUS;
+        }
+        return null; // rebind toàn bộ
+    }
+
+    private static boolean sameStatus(Order oldItem, Order newItem) {
+        return Objects.equals(oldItem.getStatus(), newItem.getStatus())
+                && Objects.equals(oldItem.getOrderStatus(), newItem.getOrderStatus());
+    }
+
+    private static boolean sameDetails(Order oldItem, Order newItem) {
+        return oldItem.getTotalAmount() == newItem.getTotalAmount()
+                && itemCount(oldItem) == itemCount(newItem)
+                && Objects.equals(oldItem.getCreatedAt(), newItem.getCreatedAt());
+    }
+
+    private static int itemCount(Order order) {
+        return order.getItems() != null ? order.getItems().size() : 0;
+    }
+}
@@ -0,0 +1,27 @@
+package quynh.ph59304.bansach.adapters;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps server ids (Mongo ObjectId strings) to RecyclerView stable ids. Unlike
+ * String.hashCode() two different ids never share a number.
+ */
+class StableIds {
+    private final Map<String, Long> ids = new HashMap<>();
+    private long next = 1;
+
+    long idFor(String key) {
+        if (key == null) {
+            return RecyclerView.NO_ID;
+        }
+        Long id = ids.get(key);
+        if (id == null) {
+            id = next++;
+            ids.put(key, id);
+        }
+        return id;
+    }
+}
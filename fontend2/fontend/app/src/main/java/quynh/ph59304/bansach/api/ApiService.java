@@ -5,16 +5,20 @@ import java.util.Map;
 
 import quynh.ph59304.bansach.models.ApiResponse;
 import quynh.ph59304.bansach.models.Book;
+import quynh.ph59304.bansach.models.BookChangesResponse;
 import quynh.ph59304.bansach.models.BooksResponse;
 import quynh.ph59304.bansach.models.CartItem;
 import quynh.ph59304.bansach.models.CartResponse;
 import quynh.ph59304.bansach.models.CategoriesResponse;
+import quynh.ph59304.bansach.models.ChapterIndexResponse;
+import quynh.ph59304.bansach.models.ChapterTextResponse;
 import quynh.ph59304.bansach.models.Category;
 import quynh.ph59304.bansach.models.CoinBalanceResponse;
 import quynh.ph59304.bansach.models.CoinHistoryResponse;
-import quynh.ph59304.bansach.models.CoinTransaction;
+import quynh.ph59304.bansach.models.CoinTopUpResponse;
 import quynh.ph59304.bansach.models.CoinWalletResponse;
 import quynh.ph59304.bansach.models.Order;
+import quynh.ph59304.bansach.models.OrderCreateResponse;
 import quynh.ph59304.bansach.models.OrdersResponse;
 import quynh.ph59304.bansach.models.PreviewResponse;
 import quynh.ph59304.bansach.models.PromotionListResponse;
@@ -35,6 +39,7 @@ import retrofit2.http.PUT;
 import retrofit2.http.Part;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 import okhttp3.ResponseBody;
 
 public interface ApiService {
@@ -89,6 +94,14 @@ public interface ApiService {
             @Query("maxPrice") Double maxPrice
     );
 
+    // Delta sync: books changed after `since` (<updatedAt>_<id>), plus ids deleted after `deletedSince`
+    @GET("api/books/changes")
+    Call<BookChangesResponse> getBookChanges(
+            @Query("since") String since,
+            @Query("deletedSince") String deletedSince,
+            @Query("limit") int limit
+    );
+
     @GET("api/books/{id}")
     Call<ApiResponse<Book>> getBookDetail(@Path("id") String id);
 
@@ -152,14 +165,9 @@ public interface ApiService {
     );
 
     // Orders
+    // Có paymentUrl khi thanh toán VNPay, nếu không thì đơn đã tạo xong
     @POST("api/orders")
-    Call<ResponseBody> createOrderApiRaw(
-            @Header("Authorization") String token,
-            @Body Map<String, Object> body
-    );
-
-    @POST("api/orders")
-    Call<ApiResponse<Order>> createOrderApi(
+    Call<OrderCreateResponse> createOrderApi(
             @Header("Authorization") String token,
             @Body Map<String, Object> body
     );
@@ -223,14 +231,9 @@ public interface ApiService {
             @Query("type") String type
     );
 
+    // Có paymentUrl khi thanh toán VNPay, nếu không thì đã nạp xong
     @POST("coins/topup")
-    Call<ResponseBody> topUpCoinsRaw(
-            @Header("Authorization") String token,
-            @Body Map<String, Object> body
-    );
-
-    @POST("coins/topup")
-    Call<ApiResponse<CoinTransaction>> topUpCoins(
+    Call<CoinTopUpResponse> topUpCoins(
             @Header("Authorization") String token,
             @Body Map<String, Object> body
     );
@@ -291,4 +294,37 @@ public interface ApiService {
             @Header("Authorization") String token,
             @Path("bookId") String bookId
     );
+
+    // Mục lục (không kèm nội dung) để đọc theo từng chương
+    @GET("access/api/books/{bookId}/chapters")
+    Call<ApiResponse<ChapterIndexResponse>> getChapterIndex(
+            @Header("Authorization") String token,
+            @Path("bookId") String bookId
+    );
+
+    // index: vị trí chương trong mục lục
+    @GET("access/api/books/{bookId}/chapters/{index}")
+    Call<ApiResponse<ChapterTextResponse>> getChapterText(
+            @Header("Authorization") String token,
+            @Path("bookId") String bookId,
+            @Path("index") int index
+    );
+
+    // Đọc dần bằng BookContentStreamParser; includeContent=false: không kèm nội dung file
+    @Streaming
+    @GET("access/api/books/{bookId}/content")
+    Call<ResponseBody> streamBookContent(
+            @Header("Authorization") String token,
+            @Path("bookId") String bookId,
+            @Query("includeContent") boolean includeContent
+    );
+
+    // File nội dung gốc; range "bytes=N-" để tải tiếp phần còn thiếu
+    @Streaming
+    @GET("access/api/books/{bookId}/content/file")
+    Call<ResponseBody> downloadBookContentFile(
+            @Header("Authorization") String token,
+            @Path("bookId") String bookId,
+            @Header("Range") String range
+    );
 }
@@ -0,0 +1,24 @@
+package quynh.ph59304.bansach.api;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * The app's single Gson: lenient (the backend does not always send strict JSON) and
+ * accepting bare-id references ({@link ReferenceTypeAdapterFactory}). Models are read by
+ * Gson's reflective adapter. Used by Retrofit and everywhere JSON is parsed by hand, so
+ * adapters are built only once. Gson is thread-safe.
+ */
+public final class AppGson {
+    private static final Gson GSON = new GsonBuilder()
+            .setLenient()
+            .registerTypeAdapterFactory(new ReferenceTypeAdapterFactory())
+            .create();
+
+    private AppGson() {
+    }
+
+    public static Gson get() {
+        return GSON;
+    }
+}
@@ -0,0 +1,211 @@
+package quynh.ph59304.bansach.api;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import quynh.ph59304.bansach.reader.ReaderChapter;
+
+/**
+ * Reads the response of GET access/api/books/{bookId}/content token by token instead
+ * of binding it to a {@code Map}: every element of data.chapters is handed to the
+ * {@link Listener} as soon as it has been read, and only the small fields are kept.
+ * Unknown fields are skipped without being built.
+ */
+public final class BookContentStreamParser {
+
+    public interface Listener {
+        void onChapter(ReaderChapter chapter) throws IOException;
+    }
+
+    /** Everything in the response except the chapters. */
+    public static final class Result {
+        private boolean success;
+        private String message;
+        private String content;
+        private boolean hasFile;
+        private long contentLength = -1;
+        private String contentSha256;
+        private String contentVersion;
+        private int chapterCount;
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        /** Full text when the server included it, otherwise null or empty. */
+        public String getContent() {
+            return content;
+        }
+
+        /** True when the raw file can be downloaded from the content/file endpoint. */
+        public boolean hasFile() {
+            return hasFile;
+        }
+
+        /** Size of the content file in bytes, -1 when unknown. */
+        public long getContentLength() {
+            return contentLength;
+        }
+
+        public String getContentSha256() {
+            return contentSha256;
+        }
+
+        /** Changes whenever the file or the chapters change on the server. */
+        public String getContentVersion() {
+            return contentVersion;
+        }
+
+        public int getChapterCount() {
+            return chapterCount;
+        }
+    }
+
+    private BookContentStreamParser() {
+    }
+
+    public static Result parse(Reader source, Listener listener) throws IOException {
+        Result result = new Result();
+        JsonReader reader = new JsonReader(source);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "success":
+                    result.success = nextBoolean(reader);
+                    break;
+                case "message":
+                    result.message = nextString(reader);
+                    break;
+                case "data":
+                    if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                        readData(reader, result, listener);
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return result;
+    }
+
+    private static void readData(JsonReader reader, Result result, Listener listener) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "content":
+                    result.content = nextString(reader);
+                    break;
+                case "chapters":
+                    if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        readChapters(reader, result, listener);
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case "hasFile":
+                    result.hasFile = nextBoolean(reader);
+                    break;
+                case "contentLength":
+                    if (reader.peek() == JsonToken.NUMBER) {
+                        result.contentLength = reader.nextLong();
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case "contentSha256":
+                    result.contentSha256 = nextString(reader);
+                    break;
+                case "contentVersion":
+                    result.contentVersion = nextString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+    }
+
+    private static void readChapters(JsonReader reader, Result result, Listener listener) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            String title = null;
+            String content = null;
+            int chapterNumber = -1;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "title":
+                        String value = nextString(reader);
+                        if (value != null) {
+                            title = value;
+                        }
+                        break;
+                    case "chapterTitle":
+                        String fallback = nextString(reader);
+                        if (title == null) {
+                            title = fallback;
+                        }
+                        break;
+                    case "content":
+                        content = nextString(reader);
+                        break;
+                    case "chapterNumber":
+                    case "number":
+                        if (reader.peek() == JsonToken.NUMBER && chapterNumber < 0) {
+                            chapterNumber = (int) reader.nextDouble();
+                        } else {
+                            reader.skipValue();
+                        }
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+            result.chapterCount++;
+            if (chapterNumber < 0) {
+                chapterNumber = result.chapterCount;
+            }
+            listener.onChapter(new ReaderChapter(
+                    title != null ? title : "Chương " + chapterNumber,
+                    content != null ? content : "",
+                    chapterNumber));
+        }
+        reader.endArray();
+    }
+
+    // null hoặc kiểu khác -> null
+    private static String nextString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private static boolean nextBoolean(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.BOOLEAN) {
+            return reader.nextBoolean();
+        }
+        reader.skipValue();
+        return false;
+    }
+}
@@ -0,0 +1,247 @@
+package quynh.ph59304.bansach.api;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+/**
+ * Single-flight layer around {@link ApiService}: when several screens enqueue the
+ * same GET (same response type, URL and Authorization header) while one is still
+ * in flight, only the first goes to the network and its result is fanned out to
+ * every caller.
+ *
+ * Typical case is getCoinBalance, which Home, BookDetail, CoinWallet, CoinTopUp and
+ * VnPayWebView all fire on start/resume. Non-GET calls and synchronous
+ * {@link Call#execute()} are passed through untouched.
+ */
+public final class CoalescingCallAdapterFactory extends CallAdapter.Factory {
+    private final Object lock = new Object();
+    private final Map<String, InFlight<?>> inFlight = new HashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /** Number of enqueued calls that joined an already running request. */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /** Number of enqueued GET calls that had to start a network request. */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public CallAdapter<?, ?> get(@NonNull Type returnType, @NonNull Annotation[] annotations,
+                                 @NonNull Retrofit retrofit) {
+        if (getRawType(returnType) != Call.class) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        final CallAdapter<Object, Call<Object>> delegate =
+                (CallAdapter<Object, Call<Object>>) retrofit.nextCallAdapter(this, returnType, annotations);
+        return new CallAdapter<Object, Call<Object>>() {
+            @Override
+            public Type responseType() {
+                return delegate.responseType();
+            }
+
+            @Override
+            public Call<Object> adapt(@NonNull Call<Object> call) {
+                return new CoalescingCall<>(delegate.adapt(call), delegate.responseType());
+            }
+        };
+    }
+
+    private static final class Waiter<T> {
+        final CoalescingCall<T> call;
+        final Callback<T> callback;
+
+        Waiter(CoalescingCall<T> call, Callback<T> callback) {
+            this.call = call;
+            this.callback = callback;
+        }
+    }
+
+    private static final class InFlight<T> {
+        final Call<T> networkCall;
+        final List<Waiter<T>> waiters = new ArrayList<>();
+
+        InFlight(Call<T> networkCall) {
+            this.networkCall = networkCall;
+        }
+    }
+
+    private final class CoalescingCall<T> implements Call<T> {
+        private final Call<T> delegate;
+        private final Type responseType;
+        private volatile boolean canceled;
+        private volatile boolean executed;
+        private String key;
+
+        CoalescingCall(Call<T> delegate, Type responseType) {
+            this.delegate = delegate;
+            this.responseType = responseType;
+        }
+
+        @Override
+        public void enqueue(@NonNull Callback<T> callback) {
+            Request request = delegate.request();
+            if (!"GET".equals(request.method())) {
+                executed = true;
+                delegate.enqueue(callback);
+                return;
+            }
+
+            key = responseType + " " + request.url() + " " + request.header("Authorization");
+            InFlight<T> flight;
+            synchronized (lock) {
+                if (executed) {
+                    throw new IllegalStateException("Already executed.");
+                }
+                executed = true;
+                @SuppressWarnings("unchecked")
+                InFlight<T> existing = (InFlight<T>) inFlight.get(key);
+                if (existing != null) {
+                    existing.waiters.add(new Waiter<>(this, callback));
+                    hitCount.incrementAndGet();
+                    return;
+                }
+                flight = new InFlight<>(delegate);
+                flight.waiters.add(new Waiter<>(this, callback));
+                inFlight.put(key, flight);
+                missCount.incrementAndGet();
+            }
+
+            final InFlight<T> leader = flight;
+            final String flightKey = key;
+            delegate.enqueue(new Callback<T>() {
+                @Override
+                public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+                    List<Waiter<T>> waiters = complete(flightKey, leader);
+                    byte[] errorBytes = null;
+                    if (!response.isSuccessful() && response.errorBody() != null && waiters.size() > 1) {
+                        // errorBody can only be read once, give every caller its own copy
+                        try {
+                            errorBytes = response.errorBody().bytes();
+                        } catch (IOException e) {
+                            errorBytes = new byte[0];
+                        }
+                    }
+                    for (Waiter<T> waiter : waiters) {
+                        if (waiter.call.isCanceled()) {
+                            continue;
+                        }
+                        Response<T> copy = response;
+                        if (errorBytes != null) {
+                            copy = Response.error(
+                                    ResponseBody.create(errorBytes, response.errorBody().contentType()),
+                                    response.raw());
+                        }
+                        waiter.callback.onResponse(waiter.call, copy);
+                    }
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                    for (Waiter<T> waiter : complete(flightKey, leader)) {
+                        if (!waiter.call.isCanceled()) {
+                            waiter.callback.onFailure(waiter.call, t);
+                        }
+                    }
+                }
+            });
+        }
+
+        private List<Waiter<T>> complete(String flightKey, InFlight<T> flight) {
+            synchronized (lock) {
+                if (inFlight.get(flightKey) == flight) {
+                    inFlight.remove(flightKey);
+                }
+                return new ArrayList<>(flight.waiters);
+            }
+        }
+
+        @NonNull
+        @Override
+        public Response<T> execute() throws IOException {
+            executed = true;
+            return delegate.execute();
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return executed || delegate.isExecuted();
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+            if (key == null) {
+                delegate.cancel();
+                return;
+            }
+            Call<T> toCancel = null;
+            synchronized (lock) {
+                @SuppressWarnings("unchecked")
+                InFlight<T> flight = (InFlight<T>) inFlight.get(key);
+                if (flight == null) {
+                    return;
+                }
+                boolean allCanceled = true;
+                for (Waiter<T> waiter : flight.waiters) {
+                    if (!waiter.call.canceled) {
+                        allCanceled = false;
+                        break;
+                    }
+                }
+                // Only abort the shared request when nobody is waiting for it anymore
+                if (allCanceled) {
+                    inFlight.remove(key);
+                    toCancel = flight.networkCall;
+                }
+            }
+            if (toCancel != null) {
+                toCancel.cancel();
+            }
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @NonNull
+        @Override
+        public Call<T> clone() {
+            return new CoalescingCall<>(delegate.clone(), responseType);
+        }
+
+        @NonNull
+        @Override
+        public Request request() {
+            return delegate.request();
+        }
+
+        @NonNull
+        @Override
+        public Timeout timeout() {
+            return delegate.timeout();
+        }
+    }
+}
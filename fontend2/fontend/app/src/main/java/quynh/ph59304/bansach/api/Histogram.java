@@ -0,0 +1,120 @@
+package quynh.ph59304.bansach.api;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram over fixed bucket bounds: recording is a short scan and two
+ * atomic adds, and memory does not grow with the number of values. Percentiles are
+ * reported as the upper bound of the bucket they fall in (the max for the last one).
+ */
+final class Histogram {
+    /** Upper bounds in ms, for phase durations from a LAN-local DNS hit to a slow 3G download. */
+    static final long[] LATENCY_MS_BOUNDS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10_000, 30_000};
+    /** Upper bounds in bytes, from a 304 to a whole book. */
+    static final long[] SIZE_BYTES_BOUNDS = {
+            256, 1024, 4 * 1024, 16 * 1024, 64 * 1024, 256 * 1024, 1024 * 1024, 4 * 1024 * 1024,
+            16 * 1024 * 1024};
+
+    private final long[] bounds;
+    /** One count per bound plus one for values above the last bound. */
+    private final AtomicLongArray counts;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    Histogram(long[] bounds) {
+        this.bounds = bounds;
+        this.counts = new AtomicLongArray(bounds.length + 1);
+    }
+
+    static Histogram latencyMs() {
+        return new Histogram(LATENCY_MS_BOUNDS);
+    }
+
+    static Histogram sizeBytes() {
+        return new Histogram(SIZE_BYTES_BOUNDS);
+    }
+
+    /**
+     * Negative values mean "did not happen" and are ignored.
+     */
+    void record(long value) {
+        if (value < 0) {
+            return;
+        }
+        int bucket = 0;
+        while (bucket < bounds.length && value > bounds[bucket]) {
+            bucket++;
+        }
+        counts.incrementAndGet(bucket);
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long seen = max.get();
+        while (value > seen && !max.compareAndSet(seen, value)) {
+            seen = max.get();
+        }
+    }
+
+    long getCount() {
+        return count.get();
+    }
+
+    long getSum() {
+        return sum.get();
+    }
+
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param fraction e.g. 0.9 for p90
+     * @return the upper bound of the bucket holding that fraction of the values,
+     * 0 when nothing was recorded
+     */
+    long percentile(double fraction) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(bounds[i], max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Writes {@code {"count", "sum", "max", "p50", "p90", "p99", "bounds", "counts"}};
+     * {@code counts} has one more entry than {@code bounds}, for values above the last.
+     */
+    void writeTo(JsonWriter out) throws IOException {
+        out.beginObject();
+        out.name("count").value(count.get());
+        out.name("sum").value(sum.get());
+        out.name("max").value(max.get());
+        out.name("p50").value(percentile(0.5));
+        out.name("p90").value(percentile(0.9));
+        out.name("p99").value(percentile(0.99));
+        out.name("bounds").beginArray();
+        for (long bound : bounds) {
+            out.value(bound);
+        }
+        out.endArray();
+        out.name("counts").beginArray();
+        for (int i = 0; i < counts.length(); i++) {
+            out.value(counts.get(i));
+        }
+        out.endArray();
+        out.endObject();
+    }
+}
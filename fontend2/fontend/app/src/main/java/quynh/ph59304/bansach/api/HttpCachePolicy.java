@@ -0,0 +1,96 @@
+package quynh.ph59304.bansach.api;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Per-endpoint freshness rules for the OkHttp disk cache.
+ *
+ * The backend (Express) already sends an ETag for every JSON response but no
+ * Cache-Control header, so without this interceptor OkHttp would either keep
+ * nothing or revalidate on every call. Installed as a network interceptor it:
+ * - gives catalog endpoints a short max-age so repeated screen opens are served
+ *   straight from disk, and afterwards revalidated with If-None-Match /
+ *   If-Modified-Since (a 304 costs a few hundred bytes instead of the full JSON);
+ * - marks every other response as no-store so user-specific data (cart, coins,
+ *   book content...) never lands in the shared cache directory.
+ *
+ * Add new cacheable endpoints to {@link #RULES} only.
+ */
+public final class HttpCachePolicy implements Interceptor {
+    /** Size of the on-disk HTTP cache, see {@link RetrofitClient#init}. */
+    public static final long CACHE_SIZE_BYTES = 10L * 1024 * 1024;
+    public static final String CACHE_DIR_NAME = "http_cache";
+
+    private static final List<Rule> RULES = new ArrayList<>();
+
+    static {
+        // Danh sách sách: thay đổi khi admin thêm/sửa sách
+        RULES.add(new Rule("^/api/books$", 60));
+        // Thể loại gần như không đổi
+        RULES.add(new Rule("^/api/categories$", 60 * 60));
+        // Chi tiết một cuốn sách (không áp dụng cho /preview, /reviews... và /changes)
+        RULES.add(new Rule("^/api/books/(?!changes$)[^/]+$", 5 * 60));
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+
+        if (!"GET".equals(request.method())) {
+            return response;
+        }
+
+        Rule rule = findRule(request.url().encodedPath());
+        if (rule == null) {
+            return response.newBuilder()
+                    .header("Cache-Control", "no-store")
+                    .build();
+        }
+
+        // Respect explicit directives from the server if it ever starts sending them
+        if (response.header("Cache-Control") != null) {
+            return response;
+        }
+
+        return response.newBuilder()
+                .removeHeader("Pragma")
+                .header("Cache-Control", "private, max-age=" + rule.maxAgeSeconds)
+                .build();
+    }
+
+    /**
+     * Returns the freshness lifetime (seconds) configured for a path, or -1 if the
+     * path is not cacheable.
+     */
+    public static int maxAgeFor(String encodedPath) {
+        Rule rule = findRule(encodedPath);
+        return rule != null ? rule.maxAgeSeconds : -1;
+    }
+
+    private static Rule findRule(String encodedPath) {
+        for (Rule rule : RULES) {
+            if (rule.pattern.matcher(encodedPath).matches()) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private static final class Rule {
+        final Pattern pattern;
+        final int maxAgeSeconds;
+
+        Rule(String regex, int maxAgeSeconds) {
+            this.pattern = Pattern.compile(regex);
+            this.maxAgeSeconds = maxAgeSeconds;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package quynh.ph59304.bansach.api;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import quynh.ph59304.bansach.logging.LogEntry;
+
+/**
+ * One HTTP exchange as captured by {@link NetworkLogInterceptor}: the raw values are
+ * filled in on the network thread, and the text (header redaction, body decoding,
+ * masking of passwords and tokens) is only built by {@link #format()} on the log
+ * writer thread.
+ */
+final class NetworkLogEntry implements LogEntry {
+    static final String TAG = "Network";
+    static final String REDACTED = "<redacted>";
+
+    // android.util.Log.DEBUG / WARN, để lớp này không phụ thuộc Android
+    private static final int PRIORITY_DEBUG = 3;
+    private static final int PRIORITY_WARN = 5;
+
+    private static final Pattern SECRET_FIELDS = Pattern.compile(
+            "(\"(?:password|newPassword|currentPassword|oldPassword|confirmPassword|token)\"\\s*:\\s*)\"[^\"]*\"");
+
+    private final String method;
+    private final String url;
+
+    private String[] requestHeaders;
+    private Body requestBody;
+
+    private int code = -1;
+    private String message;
+    private boolean fromCache;
+    private long tookMs;
+    private long responseLength = -1;
+    private String[] responseHeaders;
+    private Body responseBody;
+    private String failure;
+
+    NetworkLogEntry(String method, String url) {
+        this.method = method;
+        this.url = url;
+    }
+
+    /**
+     * @param namesAndValues name, value, name, value, ...
+     */
+    void setRequestHeaders(String[] namesAndValues) {
+        requestHeaders = namesAndValues;
+    }
+
+    void setRequestBody(Body body) {
+        requestBody = body;
+    }
+
+    void setResponse(int code, String message, boolean fromCache, long tookMs, long contentLength) {
+        this.code = code;
+        this.message = message;
+        this.fromCache = fromCache;
+        this.tookMs = tookMs;
+        this.responseLength = contentLength;
+    }
+
+    void setResponseHeaders(String[] namesAndValues) {
+        responseHeaders = namesAndValues;
+    }
+
+    void setResponseBody(Body body) {
+        responseBody = body;
+    }
+
+    void setFailure(String failure, long tookMs) {
+        this.failure = failure;
+        this.tookMs = tookMs;
+    }
+
+    @Override
+    public int getPriority() {
+        return failure != null || code >= 400 ? PRIORITY_WARN : PRIORITY_DEBUG;
+    }
+
+    @Override
+    public String getTag() {
+        return TAG;
+    }
+
+    @Override
+    public String format() {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("--> ").append(method).append(' ').append(url);
+        appendHeaders(sb, requestHeaders);
+        appendBody(sb, requestBody);
+        sb.append("\n<-- ");
+        if (failure != null) {
+            sb.append("FAILED ").append(failure).append(" (").append(tookMs).append(" ms)");
+            return sb.toString();
+        }
+        sb.append(code);
+        if (message != null && !message.isEmpty()) {
+            sb.append(' ').append(message);
+        }
+        sb.append(" (").append(tookMs).append(" ms");
+        if (responseLength >= 0) {
+            sb.append(", ").append(formatSize(responseLength));
+        }
+        if (fromCache) {
+            sb.append(", cache");
+        }
+        sb.append(')');
+        appendHeaders(sb, responseHeaders);
+        appendBody(sb, responseBody);
+        return sb.toString();
+    }
+
+    private static void appendHeaders(StringBuilder sb, String[] namesAndValues) {
+        if (namesAndValues == null) {
+            return;
+        }
+        for (int i = 0; i + 1 < namesAndValues.length; i += 2) {
+            String name = namesAndValues[i];
+            sb.append('\n').append(name).append(": ")
+                    .append(isSecretHeader(name) ? REDACTED : namesAndValues[i + 1]);
+        }
+    }
+
+    private static void appendBody(StringBuilder sb, Body body) {
+        if (body == null) {
+            return;
+        }
+        sb.append('\n');
+        if (body.bytes == null) {
+            sb.append("(").append(body.contentType != null ? body.contentType : "binary").append(" body");
+            if (body.totalLength >= 0) {
+                sb.append(", ").append(formatSize(body.totalLength));
+            }
+            sb.append(')');
+            return;
+        }
+        String text = new String(body.bytes, body.charset);
+        sb.append(SECRET_FIELDS.matcher(text).replaceAll("$1\"" + REDACTED + "\""));
+        if (body.truncated) {
+            sb.append("…(truncated");
+            if (body.totalLength >= 0) {
+                sb.append(", ").append(formatSize(body.totalLength)).append(" total");
+            }
+            sb.append(')');
+        }
+    }
+
+    static boolean isSecretHeader(String name) {
+        return "Authorization".equalsIgnoreCase(name)
+                || "Cookie".equalsIgnoreCase(name)
+                || "Set-Cookie".equalsIgnoreCase(name);
+    }
+
+    static String formatSize(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format(Locale.US, "%.1f KB", bytes / 1024.0);
+        }
+        return String.format(Locale.US, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    /**
+     * The captured start of a body.
+     */
+    static final class Body {
+        /** The first bytes of a text body, or null when it was not captured (binary). */
+        final byte[] bytes;
+        final Charset charset;
+        /** Full length in bytes, -1 if unknown. */
+        final long totalLength;
+        /** Whether the body is longer than {@link #bytes}. */
+        final boolean truncated;
+        final String contentType;
+
+        private Body(byte[] bytes, Charset charset, long totalLength, boolean truncated, String contentType) {
+            this.bytes = bytes;
+            this.charset = charset != null ? charset : StandardCharsets.UTF_8;
+            this.totalLength = totalLength;
+            this.truncated = truncated;
+            this.contentType = contentType;
+        }
+
+        static Body text(byte[] bytes, Charset charset, long totalLength, boolean truncated) {
+            return new Body(bytes, charset, totalLength, truncated, null);
+        }
+
+        static Body omitted(String contentType, long totalLength) {
+            return new Body(null, null, totalLength, false, contentType);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package quynh.ph59304.bansach.api;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import quynh.ph59304.bansach.logging.AsyncLogWriter;
+
+/**
+ * Replacement for OkHttp's HttpLoggingInterceptor that stays cheap on the network
+ * thread: it only copies the values of each call into a {@link NetworkLogEntry} and
+ * queues it on an {@link AsyncLogWriter}, which formats and writes it in the background.
+ *
+ * Bodies are logged at {@link NetworkLogLevel#BODY} only, only when they are text,
+ * and only their first {@code maxBodyBytes}: the response body is peeked, never
+ * buffered whole, so book downloads still stream. Credentials are redacted.
+ */
+public final class NetworkLogInterceptor implements Interceptor {
+    /** Body bytes logged per request and per response by default. */
+    public static final int DEFAULT_MAX_BODY_BYTES = 4 * 1024;
+
+    private final NetworkLogLevel level;
+    private final int maxBodyBytes;
+    private final AsyncLogWriter writer;
+
+    public NetworkLogInterceptor(NetworkLogLevel level, int maxBodyBytes, AsyncLogWriter writer) {
+        this.level = level;
+        this.maxBodyBytes = maxBodyBytes;
+        this.writer = writer;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        if (level == NetworkLogLevel.NONE) {
+            return chain.proceed(request);
+        }
+        NetworkLogEntry entry = new NetworkLogEntry(request.method(), request.url().toString());
+        if (level.logsHeaders()) {
+            entry.setRequestHeaders(namesAndValues(request.headers()));
+        }
+        if (level.logsBodies() && request.body() != null) {
+            entry.setRequestBody(captureRequestBody(request.body()));
+        }
+
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            entry.setFailure(e.toString(), elapsedMs(start));
+            writer.enqueue(entry);
+            throw e;
+        }
+
+        ResponseBody body = response.body();
+        entry.setResponse(response.code(), response.message(),
+                response.networkResponse() == null && response.cacheResponse() != null,
+                elapsedMs(start), body != null ? body.contentLength() : -1);
+        if (level.logsHeaders()) {
+            entry.setResponseHeaders(namesAndValues(response.headers()));
+        }
+        if (level.logsBodies() && body != null) {
+            entry.setResponseBody(captureResponseBody(response, body));
+        }
+        writer.enqueue(entry);
+        return response;
+    }
+
+    private NetworkLogEntry.Body captureRequestBody(RequestBody body) throws IOException {
+        MediaType type = body.contentType();
+        long length = body.contentLength();
+        if (!isText(type) || body.isOneShot() || body.isDuplex()) {
+            return NetworkLogEntry.Body.omitted(type != null ? type.toString() : null, length);
+        }
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        long total = buffer.size();
+        byte[] bytes = buffer.readByteArray(Math.min(total, maxBodyBytes));
+        return NetworkLogEntry.Body.text(bytes, charset(type), total, total > bytes.length);
+    }
+
+    private NetworkLogEntry.Body captureResponseBody(Response response, ResponseBody body) throws IOException {
+        MediaType type = body.contentType();
+        long length = body.contentLength();
+        if (!isText(type)) {
+            return NetworkLogEntry.Body.omitted(type != null ? type.toString() : null, length);
+        }
+        // Chỉ đọc trước tối đa maxBodyBytes + 1 byte, phần còn lại vẫn được stream bình thường
+        byte[] peeked = response.peekBody(maxBodyBytes + 1L).bytes();
+        boolean truncated = peeked.length > maxBodyBytes;
+        byte[] bytes = truncated ? Arrays.copyOf(peeked, maxBodyBytes) : peeked;
+        return NetworkLogEntry.Body.text(bytes, charset(type), length, truncated);
+    }
+
+    private static boolean isText(MediaType type) {
+        if (type == null) {
+            return false;
+        }
+        String subtype = type.subtype();
+        return "text".equals(type.type())
+                || subtype.contains("json")
+                || subtype.contains("xml")
+                || subtype.equals("x-www-form-urlencoded");
+    }
+
+    private static Charset charset(MediaType type) {
+        return type != null ? type.charset(null) : null;
+    }
+
+    private static String[] namesAndValues(Headers headers) {
+        String[] values = new String[headers.size() * 2];
+        for (int i = 0; i < headers.size(); i++) {
+            values[2 * i] = headers.name(i);
+            values[2 * i + 1] = headers.value(i);
+        }
+        return values;
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,38 @@
+package quynh.ph59304.bansach.api;
+
+/**
+ * How much {@link NetworkLogInterceptor} records per call. Set per build type through
+ * {@code BuildConfig.NETWORK_LOG_LEVEL}.
+ */
+public enum NetworkLogLevel {
+    /** Nothing; the interceptor is not installed. */
+    NONE,
+    /** Method, URL, status, duration and size. */
+    BASIC,
+    /** BASIC plus request and response headers (credentials redacted). */
+    HEADERS,
+    /** HEADERS plus the start of text bodies, up to the configured size. */
+    BODY;
+
+    /**
+     * @return the level named {@code value} (case-insensitive), NONE if unknown
+     */
+    public static NetworkLogLevel parse(String value) {
+        if (value != null) {
+            for (NetworkLogLevel level : values()) {
+                if (level.name().equalsIgnoreCase(value.trim())) {
+                    return level;
+                }
+            }
+        }
+        return NONE;
+    }
+
+    public boolean logsHeaders() {
+        return compareTo(HEADERS) >= 0;
+    }
+
+    public boolean logsBodies() {
+        return this == BODY;
+    }
+}
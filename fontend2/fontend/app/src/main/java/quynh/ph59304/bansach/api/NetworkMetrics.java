@@ -0,0 +1,201 @@
+package quynh.ph59304.bansach.api;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Per-endpoint latency and payload metrics for every call made through
+ * {@link RetrofitClient}, fed by {@link NetworkMetricsListener}. Calls are grouped by
+ * method and endpoint template ({@code GET api/books/{id}}), and each phase goes into
+ * a fixed-bucket {@link Histogram}, so memory stays flat however long the app runs:
+ * - dnsMs, connectMs (includes TLS), tlsMs: only for calls that opened a connection;
+ * - ttfbMs: from the request being sent to the first response byte;
+ * - bodyReadMs: reading the response body, which for streamed responses includes the
+ *   time the caller spent parsing it;
+ * - totalMs, requestBytes and responseBytes (as sent over the wire, before gzip is
+ *   undone).
+ *
+ * {@link #toJson()} exports a snapshot for analysis. Values are read without a lock,
+ * so a snapshot taken while calls finish may be off by those calls.
+ */
+public final class NetworkMetrics {
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+            "\\d+|[0-9a-fA-F]{24}|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+
+    private final ConcurrentHashMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private volatile long sinceMs = System.currentTimeMillis();
+
+    void record(String endpoint, CallTiming timing) {
+        Endpoint metrics = endpoints.get(endpoint);
+        if (metrics == null) {
+            metrics = endpoints.computeIfAbsent(endpoint, key -> new Endpoint());
+        }
+        metrics.record(timing);
+    }
+
+    /**
+     * Drops everything recorded so far.
+     */
+    public void reset() {
+        endpoints.clear();
+        sinceMs = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the current snapshot as JSON, endpoints sorted by name
+     */
+    public String toJson() {
+        StringWriter out = new StringWriter();
+        try {
+            writeSnapshot(out);
+        } catch (IOException e) {
+            // StringWriter không ném IOException
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes {@code {"since", "capturedAt", "endpoints": {"GET api/books/{id}": {...}}}};
+     * see {@link Histogram#writeTo} for the layout of each phase.
+     */
+    public void writeSnapshot(Writer writer) throws IOException {
+        JsonWriter out = new JsonWriter(writer);
+        out.beginObject();
+        out.name("since").value(sinceMs);
+        out.name("capturedAt").value(System.currentTimeMillis());
+        out.name("endpoints").beginObject();
+        for (Map.Entry<String, Endpoint> entry : new TreeMap<>(endpoints).entrySet()) {
+            out.name(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+        out.endObject();
+        out.endObject();
+        out.flush();
+    }
+
+    /**
+     * Template for a URL path that was not made from an {@link ApiService} annotation:
+     * numeric ids, Mongo ObjectIds and UUIDs become {@code {id}}.
+     */
+    static String templateOf(String encodedPath) {
+        String[] segments = encodedPath.split("/");
+        StringBuilder sb = new StringBuilder(encodedPath.length());
+        for (String segment : segments) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append('/');
+            }
+            sb.append(ID_SEGMENT.matcher(segment).matches() ? "{id}" : segment);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * What one call measured, in nanoseconds and bytes; -1 for phases that did not
+     * happen (no new connection, served from cache, failed before a response).
+     */
+    static final class CallTiming {
+        long dnsNanos = -1;
+        long connectNanos = -1;
+        long tlsNanos = -1;
+        long ttfbNanos = -1;
+        long bodyReadNanos = -1;
+        long totalNanos = -1;
+        long requestBytes = -1;
+        long responseBytes = -1;
+        boolean failed;
+        boolean canceled;
+        boolean cacheHit;
+        boolean conditionalCacheHit;
+
+        /**
+         * Adds {@code delta} to a value that may still be -1: redirects and retries
+         * go through the same phases again.
+         */
+        static long plus(long value, long delta) {
+            return value < 0 ? delta : value + delta;
+        }
+    }
+
+    private static final class Endpoint {
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong canceled = new AtomicLong();
+        private final AtomicLong cacheHits = new AtomicLong();
+        private final AtomicLong conditionalCacheHits = new AtomicLong();
+        private final Histogram dnsMs = Histogram.latencyMs();
+        private final Histogram connectMs = Histogram.latencyMs();
+        private final Histogram tlsMs = Histogram.latencyMs();
+        private final Histogram ttfbMs = Histogram.latencyMs();
+        private final Histogram bodyReadMs = Histogram.latencyMs();
+        private final Histogram totalMs = Histogram.latencyMs();
+        private final Histogram requestBytes = Histogram.sizeBytes();
+        private final Histogram responseBytes = Histogram.sizeBytes();
+
+        void record(CallTiming timing) {
+            calls.incrementAndGet();
+            if (timing.canceled) {
+                canceled.incrementAndGet();
+            } else if (timing.failed) {
+                failures.incrementAndGet();
+            }
+            if (timing.cacheHit) {
+                cacheHits.incrementAndGet();
+            }
+            if (timing.conditionalCacheHit) {
+                conditionalCacheHits.incrementAndGet();
+            }
+            dnsMs.record(toMs(timing.dnsNanos));
+            connectMs.record(toMs(timing.connectNanos));
+            tlsMs.record(toMs(timing.tlsNanos));
+            ttfbMs.record(toMs(timing.ttfbNanos));
+            bodyReadMs.record(toMs(timing.bodyReadNanos));
+            totalMs.record(toMs(timing.totalNanos));
+            requestBytes.record(timing.requestBytes);
+            responseBytes.record(timing.responseBytes);
+        }
+
+        void writeTo(JsonWriter out) throws IOException {
+            out.beginObject();
+            out.name("calls").value(calls.get());
+            out.name("failures").value(failures.get());
+            out.name("canceled").value(canceled.get());
+            out.name("cacheHits").value(cacheHits.get());
+            out.name("conditionalCacheHits").value(conditionalCacheHits.get());
+            writeHistogram(out, "dnsMs", dnsMs);
+            writeHistogram(out, "connectMs", connectMs);
+            writeHistogram(out, "tlsMs", tlsMs);
+            writeHistogram(out, "ttfbMs", ttfbMs);
+            writeHistogram(out, "bodyReadMs", bodyReadMs);
+            writeHistogram(out, "totalMs", totalMs);
+            writeHistogram(out, "requestBytes", requestBytes);
+            writeHistogram(out, "responseBytes", responseBytes);
+            out.endObject();
+        }
+
+        private static void writeHistogram(JsonWriter out, String name, Histogram histogram) throws IOException {
+            // Bỏ các pha chưa từng xảy ra (vd. TLS khi backend chạy http) cho snapshot gọn
+            if (histogram.getCount() == 0) {
+                return;
+            }
+            out.name(name);
+            histogram.writeTo(out);
+        }
+
+        private static long toMs(long nanos) {
+            return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package quynh.ph59304.bansach.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import retrofit2.Invocation;
+import retrofit2.http.DELETE;
+import retrofit2.http.GET;
+import retrofit2.http.HEAD;
+import retrofit2.http.HTTP;
+import retrofit2.http.OPTIONS;
+import retrofit2.http.PATCH;
+import retrofit2.http.POST;
+import retrofit2.http.PUT;
+
+/**
+ * Times the phases of one OkHttp call and hands them to {@link NetworkMetrics} when the
+ * call ends. OkHttp delivers the events of a call one after another, so the fields need
+ * no synchronization; each event costs a {@link System#nanoTime()} and a field write.
+ *
+ * The endpoint is the path of the {@link ApiService} annotation Retrofit tags the
+ * request with ({@code api/books/{id}}); other calls fall back to
+ * {@link NetworkMetrics#templateOf}.
+ */
+final class NetworkMetricsListener extends EventListener {
+    // Đường dẫn mẫu theo từng method của ApiService, "" nếu không có annotation
+    private static final ConcurrentHashMap<Method, String> TEMPLATES = new ConcurrentHashMap<>();
+
+    private final NetworkMetrics metrics;
+    private final String endpoint;
+    private final NetworkMetrics.CallTiming timing = new NetworkMetrics.CallTiming();
+
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long secureConnectStart;
+    private long requestSent;
+    private long responseBodyStart;
+
+    private NetworkMetricsListener(NetworkMetrics metrics, String endpoint) {
+        this.metrics = metrics;
+        this.endpoint = endpoint;
+    }
+
+    static EventListener.Factory factory(NetworkMetrics metrics) {
+        return call -> new NetworkMetricsListener(metrics, endpointOf(call.request()));
+    }
+
+    static String endpointOf(Request request) {
+        Invocation invocation = request.tag(Invocation.class);
+        String template = invocation != null
+                ? TEMPLATES.computeIfAbsent(invocation.method(), NetworkMetricsListener::annotatedPath)
+                : "";
+        if (template.isEmpty()) {
+            template = NetworkMetrics.templateOf(request.url().encodedPath());
+        }
+        return request.method() + " " + template;
+    }
+
+    private static String annotatedPath(Method method) {
+        for (Annotation annotation : method.getAnnotations()) {
+            String path = null;
+            if (annotation instanceof GET) {
+                path = ((GET) annotation).value();
+            } else if (annotation instanceof POST) {
+                path = ((POST) annotation).value();
+            } else if (annotation instanceof PUT) {
+                path = ((PUT) annotation).value();
+            } else if (annotation instanceof DELETE) {
+                path = ((DELETE) annotation).value();
+            } else if (annotation instanceof PATCH) {
+                path = ((PATCH) annotation).value();
+            } else if (annotation instanceof HEAD) {
+                path = ((HEAD) annotation).value();
+            } else if (annotation instanceof OPTIONS) {
+                path = ((OPTIONS) annotation).value();
+            } else if (annotation instanceof HTTP) {
+                path = ((HTTP) annotation).path();
+            }
+            if (path != null) {
+                // Bỏ query cố định và dấu "/" đầu để khớp với templateOf
+                int query = path.indexOf('?');
+                if (query >= 0) {
+                    path = path.substring(0, query);
+                }
+                return path.startsWith("/") ? path.substring(1) : path;
+            }
+        }
+        return "";
+    }
+
+    @Override
+    public void callStart(@NonNull Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(@NonNull Call call, @NonNull String domainName,
+                       @NonNull List<InetAddress> inetAddressList) {
+        timing.dnsNanos = NetworkMetrics.CallTiming.plus(timing.dnsNanos, System.nanoTime() - dnsStart);
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                             @NonNull Proxy proxy) {
+        connectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectStart(@NonNull Call call) {
+        secureConnectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(@NonNull Call call, @Nullable Handshake handshake) {
+        timing.tlsNanos = NetworkMetrics.CallTiming.plus(timing.tlsNanos,
+                System.nanoTime() - secureConnectStart);
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                           @NonNull Proxy proxy, @Nullable Protocol protocol) {
+        timing.connectNanos = NetworkMetrics.CallTiming.plus(timing.connectNanos,
+                System.nanoTime() - connectStart);
+    }
+
+    @Override
+    public void connectFailed(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                              @NonNull Proxy proxy, @Nullable Protocol protocol, @NonNull IOException ioe) {
+        // Thời gian thử kết nối thất bại vẫn là thời gian người dùng phải chờ
+        timing.connectNanos = NetworkMetrics.CallTiming.plus(timing.connectNanos,
+                System.nanoTime() - connectStart);
+    }
+
+    @Override
+    public void requestHeadersEnd(@NonNull Call call, @NonNull Request request) {
+        requestSent = System.nanoTime();
+    }
+
+    @Override
+    public void requestBodyEnd(@NonNull Call call, long byteCount) {
+        requestSent = System.nanoTime();
+        timing.requestBytes = NetworkMetrics.CallTiming.plus(timing.requestBytes, byteCount);
+    }
+
+    @Override
+    public void responseHeadersStart(@NonNull Call call) {
+        if (requestSent != 0) {
+            timing.ttfbNanos = NetworkMetrics.CallTiming.plus(timing.ttfbNanos, System.nanoTime() - requestSent);
+        }
+    }
+
+    @Override
+    public void responseBodyStart(@NonNull Call call) {
+        responseBodyStart = System.nanoTime();
+    }
+
+    @Override
+    public void responseBodyEnd(@NonNull Call call, long byteCount) {
+        timing.bodyReadNanos = NetworkMetrics.CallTiming.plus(timing.bodyReadNanos,
+                System.nanoTime() - responseBodyStart);
+        timing.responseBytes = NetworkMetrics.CallTiming.plus(timing.responseBytes, byteCount);
+    }
+
+    @Override
+    public void cacheHit(@NonNull Call call, @NonNull Response response) {
+        timing.cacheHit = true;
+    }
+
+    @Override
+    public void cacheConditionalHit(@NonNull Call call, @NonNull Response cachedResponse) {
+        timing.conditionalCacheHit = true;
+    }
+
+    @Override
+    public void callEnd(@NonNull Call call) {
+        finish();
+    }
+
+    @Override
+    public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+        timing.failed = true;
+        timing.canceled = call.isCanceled();
+        finish();
+    }
+
+    private void finish() {
+        timing.totalNanos = System.nanoTime() - callStart;
+        metrics.record(endpoint, timing);
+    }
+}
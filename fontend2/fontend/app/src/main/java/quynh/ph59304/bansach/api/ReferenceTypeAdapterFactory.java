@@ -0,0 +1,65 @@
+package quynh.ph59304.bansach.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import quynh.ph59304.bansach.models.Book;
+import quynh.ph59304.bansach.models.Category;
+import quynh.ph59304.bansach.models.CoinTransaction;
+import quynh.ph59304.bansach.models.Order;
+import quynh.ph59304.bansach.models.ReviewUser;
+import quynh.ph59304.bansach.models.User;
+
+/**
+ * Lets a model arrive as the bare id string of an unpopulated reference
+ * ({@code "book": "65f1..."} instead of {@code "book": {...}}); it is read as the model
+ * with only its id set. Objects are left to Gson's reflective adapter.
+ */
+final class ReferenceTypeAdapterFactory implements TypeAdapterFactory {
+    // Tên thuộc tính id trong JSON của từng model
+    private static final Map<Class<?>, String> ID_PROPERTY = new HashMap<>();
+
+    static {
+        ID_PROPERTY.put(Book.class, "_id");
+        ID_PROPERTY.put(Category.class, "_id");
+        ID_PROPERTY.put(User.class, "_id");
+        ID_PROPERTY.put(Order.class, "_id");
+        ID_PROPERTY.put(CoinTransaction.class, "_id");
+        ID_PROPERTY.put(ReviewUser.class, "id");
+    }
+
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        String idProperty = ID_PROPERTY.get(type.getRawType());
+        if (idProperty == null) {
+            return null;
+        }
+        TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+        return new TypeAdapter<T>() {
+            @Override
+            public T read(JsonReader in) throws IOException {
+                if (in.peek() != JsonToken.STRING) {
+                    return delegate.read(in);
+                }
+                JsonObject reference = new JsonObject();
+                reference.addProperty(idProperty, in.nextString());
+                return delegate.fromJsonTree(reference);
+            }
+
+            @Override
+            public void write(JsonWriter out, T value) throws IOException {
+                delegate.write(out, value);
+            }
+        };
+    }
+}
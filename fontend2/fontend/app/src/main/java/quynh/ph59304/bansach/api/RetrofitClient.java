@@ -1,29 +1,33 @@
 package quynh.ph59304.bansach.api;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import android.content.Context;
 
+import java.io.File;
 import java.net.CookieManager;
 import java.net.CookiePolicy;
 
+import okhttp3.Cache;
 import okhttp3.OkHttpClient;
 import okhttp3.JavaNetCookieJar;
 import okhttp3.Interceptor;
 import okhttp3.Request;
 import okhttp3.Response;
-import okhttp3.logging.HttpLoggingInterceptor;
 import java.util.concurrent.TimeUnit;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
+import quynh.ph59304.bansach.BuildConfig;
+import quynh.ph59304.bansach.logging.AsyncLogWriter;
 
 public class RetrofitClient {
     private static RetrofitClient instance;
+    private static File httpCacheDir;
     private ApiService apiService;
+    private OkHttpClient okHttpClient;
+    private Cache httpCache;
+    private final NetworkMetrics networkMetrics = new NetworkMetrics();
+    private final CoalescingCallAdapterFactory requestCoalescer = new CoalescingCallAdapterFactory();
 
     private RetrofitClient() {
-        HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
-        logging.setLevel(HttpLoggingInterceptor.Level.BODY);
-
         // Cookie jar to persist session cookies (Passport session)
         CookieManager cookieManager = new CookieManager();
         cookieManager.setCookiePolicy(CookiePolicy.ACCEPT_ALL);
@@ -37,29 +41,53 @@ public class RetrofitClient {
             return chain.proceed(request);
         };
 
-        OkHttpClient okHttpClient = new OkHttpClient.Builder()
+        OkHttpClient.Builder clientBuilder = new OkHttpClient.Builder()
                 .connectTimeout(30, TimeUnit.SECONDS) // Timeout khi kết nối
                 .readTimeout(60, TimeUnit.SECONDS)    // Timeout khi đọc response
                 .writeTimeout(60, TimeUnit.SECONDS)  // Timeout khi gửi request
                 .cookieJar(new JavaNetCookieJar(cookieManager))
                 .addInterceptor(acceptJsonInterceptor)
-                .addInterceptor(logging)
-                .build();
+                // Thời gian từng pha và dung lượng theo endpoint, xem getNetworkMetrics()
+                .eventListenerFactory(NetworkMetricsListener.factory(networkMetrics));
 
-        // Cấu hình Gson với lenient mode để xử lý response không chuẩn
-        Gson gson = new GsonBuilder()
-                .setLenient()
-                .create();
+        // Mức log theo build type (debug: BODY, release: NONE), ghi log ở luồng nền
+        NetworkLogLevel logLevel = NetworkLogLevel.parse(BuildConfig.NETWORK_LOG_LEVEL);
+        if (logLevel != NetworkLogLevel.NONE) {
+            clientBuilder.addInterceptor(new NetworkLogInterceptor(logLevel,
+                    NetworkLogInterceptor.DEFAULT_MAX_BODY_BYTES, AsyncLogWriter.shared()));
+        }
+
+        // Disk cache + ETag revalidation for catalog endpoints (see HttpCachePolicy)
+        if (httpCacheDir != null) {
+            httpCache = new Cache(httpCacheDir, HttpCachePolicy.CACHE_SIZE_BYTES);
+            clientBuilder.cache(httpCache)
+                    .addNetworkInterceptor(new HttpCachePolicy());
+        }
+
+        okHttpClient = clientBuilder.build();
 
         Retrofit retrofit = new Retrofit.Builder()
                 .baseUrl(ApiConfig.getBaseUrl())
                 .client(okHttpClient)
-                .addConverterFactory(GsonConverterFactory.create(gson))
+                // Gộp các GET giống nhau đang chạy song song thành 1 request
+                .addCallAdapterFactory(requestCoalescer)
+                .addConverterFactory(GsonConverterFactory.create(AppGson.get()))
                 .build();
 
         apiService = retrofit.create(ApiService.class);
     }
 
+    /**
+     * Must be called once from {@link quynh.ph59304.bansach.BanSachApplication} before the
+     * first {@link #getInstance()} so the HTTP cache can live in the app cache directory.
+     */
+    public static synchronized void init(Context context) {
+        if (httpCacheDir == null) {
+            httpCacheDir = new File(context.getApplicationContext().getCacheDir(),
+                    HttpCachePolicy.CACHE_DIR_NAME);
+        }
+    }
+
     public static synchronized RetrofitClient getInstance() {
         if (instance == null) {
             instance = new RetrofitClient();
@@ -71,6 +99,36 @@ public class RetrofitClient {
         return apiService;
     }
 
+    /**
+     * The app's OkHttp client, for the few calls made outside {@link ApiService}; shares
+     * its connection pool, cookies and network logging.
+     */
+    public OkHttpClient getOkHttpClient() {
+        return okHttpClient;
+    }
+
+    /**
+     * The on-disk HTTP cache, or null when {@link #init(Context)} was not called.
+     */
+    public Cache getHttpCache() {
+        return httpCache;
+    }
+
+    /**
+     * Single-flight layer for duplicate in-flight GETs; exposes hit/miss counters.
+     */
+    public CoalescingCallAdapterFactory getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    /**
+     * Per-endpoint latency and payload histograms of every call made through
+     * {@link #getOkHttpClient()}; {@link NetworkMetrics#toJson()} exports them.
+     */
+    public NetworkMetrics getNetworkMetrics() {
+        return networkMetrics;
+    }
+
     public static String getBaseUrl() {
         return ApiConfig.getBaseUrl();
     }
@@ -0,0 +1,304 @@
+package quynh.ph59304.bansach.logging;
+
+import java.util.function.Supplier;
+
+import quynh.ph59304.bansach.BuildConfig;
+
+/**
+ * App-wide logging facade. A disabled call costs one comparison and allocates nothing,
+ * as long as the message is a constant, a {@code "{}"} pattern with at most three
+ * arguments (primitive {@code long} and {@code double} overloads avoid boxing), or a
+ * {@link Supplier} that captures nothing; concatenating the message at the call site
+ * defeats this.
+ *
+ * Levels below {@link #MIN_LEVEL} ({@code BuildConfig.LOG_LEVEL}) are compiled out: the
+ * check folds to a constant, and with minification on R8 also drops the calls below
+ * WARN in release builds (see proguard-rules.pro). Enabled records go through
+ * {@link AsyncLogWriter#shared()}, so the pattern is only filled in on the writer
+ * thread. Arguments other than strings, boxed primitives and enums are turned into
+ * text on the calling thread, since they may change before the writer gets to them;
+ * a {@link Supplier} is also called on the calling thread.
+ */
+public final class AppLog {
+    // Trùng với android.util.Log, để lớp này không phụ thuộc Android
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+
+    /** Lowest level compiled into this build. */
+    public static final int MIN_LEVEL = BuildConfig.LOG_LEVEL;
+
+    private static volatile int threshold = MIN_LEVEL;
+    private static volatile AsyncLogWriter writer;
+
+    private AppLog() {
+    }
+
+    /**
+     * @return whether a record at {@code level} would be written
+     */
+    public static boolean isLoggable(int level) {
+        return level >= MIN_LEVEL && level >= threshold;
+    }
+
+    /**
+     * Raises (or lowers, down to {@link #MIN_LEVEL}) the level at runtime.
+     */
+    static void setThreshold(int level) {
+        threshold = Math.max(level, MIN_LEVEL);
+    }
+
+    /**
+     * Sends records to {@code target} instead of the shared writer; null restores it.
+     */
+    static void setWriter(AsyncLogWriter target) {
+        writer = target;
+    }
+
+    // VERBOSE
+
+    public static void v(String tag, String message) {
+        if (isLoggable(VERBOSE)) {
+            log(VERBOSE, tag, message, null, null);
+        }
+    }
+
+    public static void v(String tag, Supplier<String> message) {
+        if (isLoggable(VERBOSE)) {
+            log(VERBOSE, tag, message.get(), null, null);
+        }
+    }
+
+    public static void v(String tag, String pattern, Object arg) {
+        if (isLoggable(VERBOSE)) {
+            log(VERBOSE, tag, pattern, new Object[]{arg}, null);
+        }
+    }
+
+    public static void v(String tag, String pattern, Object arg1, Object arg2) {
+        if (isLoggable(VERBOSE)) {
+            log(VERBOSE, tag, pattern, new Object[]{arg1, arg2}, null);
+        }
+    }
+
+    public static void v(String tag, String pattern, Object arg1, Object arg2, Object arg3) {
+        if (isLoggable(VERBOSE)) {
+            log(VERBOSE, tag, pattern, new Object[]{arg1, arg2, arg3}, null);
+        }
+    }
+
+    public static void v(String tag, String pattern, long arg) {
+        if (isLoggable(VERBOSE)) {
+            log(VERBOSE, tag, pattern, new Object[]{arg}, null);
+        }
+    }
+
+    public static void v(String tag, String pattern, double arg) {
+        if (isLoggable(VERBOSE)) {
+            log(VERBOSE, tag, pattern, new Object[]{arg}, null);
+        }
+    }
+
+    // DEBUG
+
+    public static void d(String tag, String message) {
+        if (isLoggable(DEBUG)) {
+            log(DEBUG, tag, message, null, null);
+        }
+    }
+
+    public static void d(String tag, Supplier<String> message) {
+        if (isLoggable(DEBUG)) {
+            log(DEBUG, tag, message.get(), null, null);
+        }
+    }
+
+    public static void d(String tag, String pattern, Object arg) {
+        if (isLoggable(DEBUG)) {
+            log(DEBUG, tag, pattern, new Object[]{arg}, null);
+        }
+    }
+
+    public static void d(String tag, String pattern, Object arg1, Object arg2) {
+        if (isLoggable(DEBUG)) {
+            log(DEBUG, tag, pattern, new Object[]{arg1, arg2}, null);
+        }
+    }
+
+    public static void d(String tag, String pattern, Object arg1, Object arg2, Object arg3) {
+        if (isLoggable(DEBUG)) {
+            log(DEBUG, tag, pattern, new Object[]{arg1, arg2, arg3}, null);
+        }
+    }
+
+    public static void d(String tag, String pattern, long arg) {
+        if (isLoggable(DEBUG)) {
+            log(DEBUG, tag, pattern, new Object[]{arg}, null);
+        }
+    }
+
+    public static void d(String tag, String pattern, double arg) {
+        if (isLoggable(DEBUG)) {
+            log(DEBUG, tag, pattern, new Object[]{arg}, null);
+        }
+    }
+
+    // INFO
+
+    public static void i(String tag, String message) {
+        if (isLoggable(INFO)) {
+            log(INFO, tag, message, null, null);
+        }
+    }
+
+    public static void i(String tag, Supplier<String> message) {
+        if (isLoggable(INFO)) {
+            log(INFO, tag, message.get(), null, null);
+        }
+    }
+
+    public static void i(String tag, String pattern, Object arg) {
+        if (isLoggable(INFO)) {
+            log(INFO, tag, pattern, new Object[]{arg}, null);
+        }
+    }
+
+    public static void i(String tag, String pattern, Object arg1, Object arg2) {
+        if (isLoggable(INFO)) {
+            log(INFO, tag, pattern, new Object[]{arg1, arg2}, null);
+        }
+    }
+
+    public static void i(String tag, String pattern, Object arg1, Object arg2, Object arg3) {
+        if (isLoggable(INFO)) {
+            log(INFO, tag, pattern, new Object[]{arg1, arg2, arg3}, null);
+        }
+    }
+
+    public static void i(String tag, String pattern, long arg) {
+        if (isLoggable(INFO)) {
+            log(INFO, tag, pattern, new Object[]{arg}, null);
+        }
+    }
+
+    public static void i(String tag, String pattern, double arg) {
+        if (isLoggable(INFO)) {
+            log(INFO, tag, pattern, new Object[]{arg}, null);
+        }
+    }
+
+    // WARN
+
+    public static void w(String tag, String message) {
+        if (isLoggable(WARN)) {
+            log(WARN, tag, message, null, null);
+        }
+    }
+
+    public static void w(String tag, String message, Throwable error) {
+        if (isLoggable(WARN)) {
+            log(WARN, tag, message, null, error);
+        }
+    }
+
+    public static void w(String tag, Supplier<String> message) {
+        if (isLoggable(WARN)) {
+            log(WARN, tag, message.get(), null, null);
+        }
+    }
+
+    public static void w(String tag, String pattern, Object arg) {
+        if (isLoggable(WARN)) {
+            log(WARN, tag, pattern, new Object[]{arg}, null);
+        }
+    }
+
+    public static void w(String tag, String pattern, Object arg1, Object arg2) {
+        if (isLoggable(WARN)) {
+            log(WARN, tag, pattern, new Object[]{arg1, arg2}, null);
+        }
+    }
+
+    public static void w(String tag, String pattern, Object arg1, Object arg2, Object arg3) {
+        if (isLoggable(WARN)) {
+            log(WARN, tag, pattern, new Object[]{arg1, arg2, arg3}, null);
+        }
+    }
+
+    public static void w(String tag, String pattern, long arg) {
+        if (isLoggable(WARN)) {
+            log(WARN, tag, pattern, new Object[]{arg}, null);
+        }
+    }
+
+    // ERROR
+
+    public static void e(String tag, String message) {
+        if (isLoggable(ERROR)) {
+            log(ERROR, tag, message, null, null);
+        }
+    }
+
+    public static void e(String tag, String message, Throwable error) {
+        if (isLoggable(ERROR)) {
+            log(ERROR, tag, message, null, error);
+        }
+    }
+
+    public static void e(String tag, Supplier<String> message) {
+        if (isLoggable(ERROR)) {
+            log(ERROR, tag, message.get(), null, null);
+        }
+    }
+
+    public static void e(String tag, String pattern, Object arg) {
+        if (isLoggable(ERROR)) {
+            log(ERROR, tag, pattern, new Object[]{arg}, null);
+        }
+    }
+
+    public static void e(String tag, String pattern, Object arg1, Object arg2) {
+        if (isLoggable(ERROR)) {
+            log(ERROR, tag, pattern, new Object[]{arg1, arg2}, null);
+        }
+    }
+
+    public static void e(String tag, String pattern, Object arg1, Object arg2, Object arg3) {
+        if (isLoggable(ERROR)) {
+            log(ERROR, tag, pattern, new Object[]{arg1, arg2, arg3}, null);
+        }
+    }
+
+    public static void e(String tag, String pattern, long arg) {
+        if (isLoggable(ERROR)) {
+            log(ERROR, tag, pattern, new Object[]{arg}, null);
+        }
+    }
+
+    private static void log(int priority, String tag, String pattern, Object[] args, Throwable error) {
+        if (args != null) {
+            for (int i = 0; i < args.length; i++) {
+                if (!isImmutable(args[i])) {
+                    args[i] = String.valueOf(args[i]);
+                }
+            }
+        }
+        AsyncLogWriter target = writer;
+        (target != null ? target : AsyncLogWriter.shared())
+                .enqueue(new AppLogEntry(priority, tag, pattern, args, error));
+    }
+
+    private static boolean isImmutable(Object value) {
+        return value == null
+                || value instanceof String
+                || value instanceof Integer
+                || value instanceof Long
+                || value instanceof Double
+                || value instanceof Float
+                || value instanceof Boolean
+                || value instanceof Character
+                || value instanceof Enum;
+    }
+}
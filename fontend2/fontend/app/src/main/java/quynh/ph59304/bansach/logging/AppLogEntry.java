@@ -0,0 +1,70 @@
+package quynh.ph59304.bansach.logging;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * A record logged through {@link AppLog}: the {@code "{}"} pattern is filled in and the
+ * stack trace printed only by {@link #format()}, on the writer thread.
+ */
+final class AppLogEntry implements LogEntry {
+    private static final String PLACEHOLDER = "{}";
+
+    private final int priority;
+    private final String tag;
+    private final String pattern;
+    private final Object[] args;
+    private final Throwable error;
+
+    AppLogEntry(int priority, String tag, String pattern, Object[] args, Throwable error) {
+        this.priority = priority;
+        this.tag = tag;
+        this.pattern = pattern;
+        this.args = args;
+        this.error = error;
+    }
+
+    @Override
+    public int getPriority() {
+        return priority;
+    }
+
+    @Override
+    public String getTag() {
+        return tag;
+    }
+
+    @Override
+    public String format() {
+        String message = args == null ? String.valueOf(pattern) : fill(pattern, args);
+        if (error == null) {
+            return message;
+        }
+        StringWriter trace = new StringWriter(256);
+        PrintWriter writer = new PrintWriter(trace);
+        error.printStackTrace(writer);
+        writer.flush();
+        return message + '\n' + trace;
+    }
+
+    /**
+     * Replaces each {@code "{}"} in {@code pattern} with the next argument; placeholders
+     * without an argument are kept, arguments without a placeholder are ignored.
+     */
+    static String fill(String pattern, Object[] args) {
+        if (pattern == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(pattern.length() + 16 * args.length);
+        int from = 0;
+        for (Object arg : args) {
+            int at = pattern.indexOf(PLACEHOLDER, from);
+            if (at < 0) {
+                break;
+            }
+            sb.append(pattern, from, at).append(arg);
+            from = at + PLACEHOLDER.length();
+        }
+        return sb.append(pattern, from, pattern.length()).toString();
+    }
+}
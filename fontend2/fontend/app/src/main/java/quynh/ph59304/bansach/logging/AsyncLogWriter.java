@@ -0,0 +1,115 @@
+package quynh.ph59304.bansach.logging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves log formatting and output off the threads that log: {@link #enqueue} only
+ * puts the record in a {@link LogRingBuffer}, and a daemon thread (started on the
+ * first record) formats and writes it to the {@link LogSink}. The writer thread checks
+ * the buffer every {@link #IDLE_PARK_MS} ms when idle, so logging never wakes it.
+ *
+ * Records beyond the buffer capacity are dropped rather than blocking; the number
+ * dropped is reported in the next written line.
+ */
+public final class AsyncLogWriter {
+    public static final int DEFAULT_CAPACITY = 1024;
+    static final long IDLE_PARK_MS = 50;
+
+    private static AsyncLogWriter shared;
+
+    private final LogRingBuffer<LogEntry> buffer;
+    private final LogSink sink;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private volatile Thread thread;
+    private long droppedReported;
+
+    public AsyncLogWriter(int capacity, LogSink sink) {
+        this.buffer = new LogRingBuffer<>(capacity);
+        this.sink = sink;
+    }
+
+    /**
+     * The app-wide writer to logcat.
+     */
+    public static synchronized AsyncLogWriter shared() {
+        if (shared == null) {
+            shared = new AsyncLogWriter(DEFAULT_CAPACITY, new LogcatSink());
+        }
+        return shared;
+    }
+
+    /**
+     * @return false if the buffer was full and the record was dropped
+     */
+    public boolean enqueue(LogEntry entry) {
+        if (!started.get() && started.compareAndSet(false, true)) {
+            Thread writer = new Thread(this::run, "log-writer");
+            writer.setDaemon(true);
+            writer.setPriority(Thread.MIN_PRIORITY);
+            thread = writer;
+            writer.start();
+        }
+        if (!buffer.offer(entry)) {
+            return false;
+        }
+        accepted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Waits until every record enqueued so far has been written (e.g. in tests or
+     * before the process goes away).
+     *
+     * @return false if that did not happen within the timeout
+     */
+    public boolean flush(long timeoutMs) {
+        long target = accepted.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (written.get() < target) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread writer = thread;
+            if (writer != null) {
+                LockSupport.unpark(writer);
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    public long getDroppedCount() {
+        return buffer.getDroppedCount();
+    }
+
+    private void run() {
+        while (true) {
+            LogEntry entry = buffer.poll();
+            if (entry == null) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(IDLE_PARK_MS));
+                continue;
+            }
+            write(entry);
+            written.incrementAndGet();
+        }
+    }
+
+    private void write(LogEntry entry) {
+        try {
+            String message = entry.format();
+            long dropped = buffer.getDroppedCount();
+            if (dropped != droppedReported) {
+                message = message + " [" + (dropped - droppedReported) + " log records dropped]";
+                droppedReported = dropped;
+            }
+            sink.write(entry.getPriority(), entry.getTag(), message);
+        } catch (RuntimeException e) {
+            // Lỗi khi định dạng một bản ghi không được làm dừng luồng ghi log
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package quynh.ph59304.bansach.logging;
+
+/**
+ * A record queued on an {@link AsyncLogWriter}. The message is only built by
+ * {@link #format()} on the writer thread, so the logging thread just stores the raw
+ * values.
+ */
+public interface LogEntry {
+    /** An {@code android.util.Log} priority, e.g. {@code Log.DEBUG}. */
+    int getPriority();
+
+    String getTag();
+
+    String format();
+}
@@ -0,0 +1,85 @@
+package quynh.ph59304.bansach.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for log records: any number of threads may {@link #offer},
+ * one thread {@link #poll}s. Each slot carries a sequence number telling whether it
+ * is free for the producer of a given position or filled for the consumer, so neither
+ * side ever blocks.
+ *
+ * When the buffer is full the record is dropped and counted instead of waiting: a
+ * slow log writer must never stall the thread that logs.
+ */
+public final class LogRingBuffer<T> {
+    private final int mask;
+    private final AtomicReferenceArray<T> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    // Chỉ luồng đọc dùng
+    private long head;
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = size - 1;
+        slots = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return false if the buffer was full and the record was dropped
+     */
+    public boolean offer(T record) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, record);
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            // diff > 0: luồng khác vừa lấy vị trí này, thử lại
+        }
+    }
+
+    /**
+     * Takes the oldest record; must only be called from the consumer thread.
+     *
+     * @return null if the buffer is empty
+     */
+    public T poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        T record = slots.get(index);
+        slots.lazySet(index, null);
+        sequences.lazySet(index, head + mask + 1);
+        head++;
+        return record;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /** Number of records dropped because the buffer was full. */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,8 @@
+package quynh.ph59304.bansach.logging;
+
+/**
+ * Where an {@link AsyncLogWriter} writes formatted records; called on the writer thread.
+ */
+public interface LogSink {
+    void write(int priority, String tag, String message);
+}
@@ -0,0 +1,22 @@
+package quynh.ph59304.bansach.logging;
+
+import android.util.Log;
+
+/**
+ * Writes to logcat, splitting messages longer than a logcat line can hold.
+ */
+public final class LogcatSink implements LogSink {
+    // logcat cắt dòng ở khoảng 4 KB
+    private static final int MAX_LINE = 4000;
+
+    @Override
+    public void write(int priority, String tag, String message) {
+        if (message.length() <= MAX_LINE) {
+            Log.println(priority, tag, message);
+            return;
+        }
+        for (int start = 0; start < message.length(); start += MAX_LINE) {
+            Log.println(priority, tag, message.substring(start, Math.min(message.length(), start + MAX_LINE)));
+        }
+    }
+}
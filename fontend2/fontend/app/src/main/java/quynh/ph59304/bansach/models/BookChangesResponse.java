@@ -0,0 +1,32 @@
+package quynh.ph59304.bansach.models;
+
+import java.util.List;
+
+// Response of GET api/books/changes (đồng bộ gia tăng danh mục sách)
+public class BookChangesResponse {
+    private List<Book> books;
+    private List<String> deletedIds;
+    private String nextSince;
+    private boolean hasMore;
+    private String serverTime;
+
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    public List<String> getDeletedIds() {
+        return deletedIds;
+    }
+
+    public String getNextSince() {
+        return nextSince;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public String getServerTime() {
+        return serverTime;
+    }
+}
@@ -1,8 +1,10 @@
 package quynh.ph59304.bansach.models;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 
 public class Category {
+    @JsonAdapter(ObjectIdAdapter.class)
     @SerializedName("_id")
     private String id;
     private String name;
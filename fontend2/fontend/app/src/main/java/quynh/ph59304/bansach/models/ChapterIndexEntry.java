@@ -0,0 +1,44 @@
+package quynh.ph59304.bansach.models;
+
+/**
+ * One chapter in the table of contents of a purchased book (no text).
+ */
+public class ChapterIndexEntry {
+    private int index;
+    private int chapterNumber;
+    private String title;
+    // Số ký tự của nội dung chương
+    private int length;
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public int getChapterNumber() {
+        return chapterNumber;
+    }
+
+    public void setChapterNumber(int chapterNumber) {
+        this.chapterNumber = chapterNumber;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public void setLength(int length) {
+        this.length = length;
+    }
+}
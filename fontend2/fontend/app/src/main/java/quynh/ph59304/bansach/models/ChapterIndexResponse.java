@@ -0,0 +1,35 @@
+package quynh.ph59304.bansach.models;
+
+import java.util.List;
+
+public class ChapterIndexResponse {
+    // Đổi khi nội dung các chương được sửa
+    private String version;
+    // Phiên bản của cả nội dung (file + chương), giống trường cùng tên của /content
+    private String contentVersion;
+    private List<ChapterIndexEntry> chapters;
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public String getContentVersion() {
+        return contentVersion;
+    }
+
+    public void setContentVersion(String contentVersion) {
+        this.contentVersion = contentVersion;
+    }
+
+    public List<ChapterIndexEntry> getChapters() {
+        return chapters;
+    }
+
+    public void setChapters(List<ChapterIndexEntry> chapters) {
+        this.chapters = chapters;
+    }
+}
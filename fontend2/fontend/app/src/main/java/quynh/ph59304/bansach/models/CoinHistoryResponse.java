@@ -51,6 +51,38 @@ public class CoinHistoryResponse {
         return transactions;
     }
 
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public void setCurrentPage(int currentPage) {
+        this.currentPage = currentPage;
+    }
+
+    public void setTotalPages(int totalPages) {
+        this.totalPages = totalPages;
+    }
+
+    public void setTotalTransactions(int totalTransactions) {
+        this.totalTransactions = totalTransactions;
+    }
+
+    public void setBalance(double balance) {
+        this.balance = balance;
+    }
+
+    public void setCoinBalance(double coinBalance) {
+        this.coinBalance = coinBalance;
+    }
+
+    public void setTransactions(List<CoinTransaction> transactions) {
+        this.transactions = transactions;
+    }
+
     public double getEffectiveBalance() {
         if (coinBalance > 0) {
             return coinBalance;
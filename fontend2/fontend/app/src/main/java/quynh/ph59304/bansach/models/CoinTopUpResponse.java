@@ -0,0 +1,24 @@
+package quynh.ph59304.bansach.models;
+
+/**
+ * Response of {@code POST coins/topup}. With VNPay it carries {@code paymentUrl} and the
+ * pending transaction ids; other methods complete at once and return the transaction
+ * under {@code data}.
+ */
+public class CoinTopUpResponse extends PaymentStartResponse {
+    private String transactionId;
+    private String paymentTransactionId;
+    private CoinTransaction data;
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public String getPaymentTransactionId() {
+        return paymentTransactionId;
+    }
+
+    public CoinTransaction getData() {
+        return data;
+    }
+}
@@ -1,8 +1,10 @@
 package quynh.ph59304.bansach.models;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 
 public class CoinTransaction {
+    @JsonAdapter(ObjectIdAdapter.class)
     @SerializedName(value = "_id", alternate = {"id"})
     private String id;
     @SerializedName(value = "type", alternate = {"transactionType"})
@@ -72,6 +74,58 @@ public class CoinTransaction {
         return paymentTransactionId;
     }
 
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public void setAmount(double amount) {
+        this.amount = amount;
+    }
+
+    public void setRealMoneyAmount(double realMoneyAmount) {
+        this.realMoneyAmount = realMoneyAmount;
+    }
+
+    public void setBalanceBefore(double balanceBefore) {
+        this.balanceBefore = balanceBefore;
+    }
+
+    public void setBalanceAfter(double balanceAfter) {
+        this.balanceAfter = balanceAfter;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public void setPaymentMethod(String paymentMethod) {
+        this.paymentMethod = paymentMethod;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public void setCreatedAt(String createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public void setUpdatedAt(String updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public void setNotes(String notes) {
+        this.notes = notes;
+    }
+
+    public void setPaymentTransactionId(String paymentTransactionId) {
+        this.paymentTransactionId = paymentTransactionId;
+    }
+
     public boolean isCredit() {
         return matchesType("deposit", "bonus", "refund", "admin_bonus");
     }
@@ -1,8 +1,11 @@
 package quynh.ph59304.bansach.models;
 
+import com.google.gson.annotations.JsonAdapter;
+
 import java.util.Map;
 
 public class NotificationInfo {
+    @JsonAdapter(ObjectIdAdapter.class)
     private String id;
     private String type;
     private String title;
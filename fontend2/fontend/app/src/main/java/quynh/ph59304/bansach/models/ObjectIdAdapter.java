@@ -0,0 +1,45 @@
+package quynh.ph59304.bansach.models;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Reads a model id that comes either as a string or as a Mongo extended-JSON object
+ * such as {@code {"$oid": "..."}}; written back as a plain string. Put on id fields
+ * with {@code @JsonAdapter}.
+ */
+public final class ObjectIdAdapter extends TypeAdapter<String> {
+
+    @Override
+    public String read(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token != JsonToken.BEGIN_OBJECT) {
+            // Cùng quy tắc với adapter String của Gson: số cũng đọc thành chuỗi
+            return token == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) : in.nextString();
+        }
+        String id = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("$oid".equals(in.nextName()) && in.peek() == JsonToken.STRING) {
+                id = in.nextString();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return id;
+    }
+
+    @Override
+    public void write(JsonWriter out, String value) throws IOException {
+        out.value(value);
+    }
+}
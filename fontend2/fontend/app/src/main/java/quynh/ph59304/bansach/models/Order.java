@@ -1,9 +1,11 @@
 package quynh.ph59304.bansach.models;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import java.util.List;
 
 public class Order {
+    @JsonAdapter(ObjectIdAdapter.class)
     @SerializedName(value = "_id", alternate = {"id"})
     private String id;
     private User user;
@@ -0,0 +1,22 @@
+package quynh.ph59304.bansach.models;
+
+/**
+ * Response of {@code POST api/orders}. The order comes under {@code order}; older
+ * backends put it under {@code data}.
+ */
+public class OrderCreateResponse extends PaymentStartResponse {
+    private Order order;
+    private Order data;
+
+    public Order getOrder() {
+        return order != null ? order : data;
+    }
+
+    /**
+     * @return the id of the created order, or null if the response has none
+     */
+    public String getOrderId() {
+        Order created = getOrder();
+        return created != null ? created.getId() : null;
+    }
+}
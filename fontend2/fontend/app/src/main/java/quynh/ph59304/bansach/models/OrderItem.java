@@ -1,8 +1,10 @@
 package quynh.ph59304.bansach.models;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 
 public class OrderItem {
+    @JsonAdapter(ObjectIdAdapter.class)
     @SerializedName(value = "_id", alternate = {"id"})
     private String id;
     private Book book;
@@ -0,0 +1,50 @@
+package quynh.ph59304.bansach.models;
+
+/**
+ * Common part of the responses that start a payment (order creation, coin top-up).
+ * The backend answers in one of two shapes: with {@code paymentUrl} when the user still
+ * has to pay on the VNPay page, or without it when the payment is already done
+ * (cash, coin, simulated methods).
+ */
+public abstract class PaymentStartResponse {
+    private Boolean success;
+    private String message;
+    private String error;
+    private String paymentUrl;
+
+    public boolean isSuccess() {
+        return Boolean.TRUE.equals(success);
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public String getPaymentUrl() {
+        return paymentUrl;
+    }
+
+    /**
+     * @return true if the user must be sent to {@link #getPaymentUrl()} to pay
+     */
+    public boolean hasPaymentUrl() {
+        return paymentUrl != null && !paymentUrl.trim().isEmpty();
+    }
+
+    /**
+     * Message to show when the request failed: {@code error}, else {@code message}.
+     */
+    public String getErrorMessage(String fallback) {
+        if (error != null && !error.isEmpty()) {
+            return error;
+        }
+        if (message != null && !message.isEmpty()) {
+            return message;
+        }
+        return fallback;
+    }
+}
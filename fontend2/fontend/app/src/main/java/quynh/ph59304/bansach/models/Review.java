@@ -1,6 +1,9 @@
 package quynh.ph59304.bansach.models;
 
+import com.google.gson.annotations.JsonAdapter;
+
 public class Review {
+    @JsonAdapter(ObjectIdAdapter.class)
     private String id;
     private int rating;
     private String comment;
@@ -0,0 +1,98 @@
+package quynh.ph59304.bansach.reader;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Chapter texts held in memory for a book whose chapters live on disk: the chapter
+ * being read and up to {@code radius} chapters on each side of it. A chapter loaded
+ * outside that window (e.g. a search hit) is kept too until another one is loaded, so
+ * it is not read again on every access.
+ *
+ * Evicted texts stay on disk and are simply read again; the radius can be lowered
+ * when the system is short of memory ({@link #setRadius}), down to 0 (only the current
+ * chapter), or everything can be dropped with {@link #clear()}. Thread-safe.
+ */
+public final class ChapterResidency {
+    /** Chapters kept on each side of the current one by default. */
+    public static final int DEFAULT_RADIUS = 2;
+
+    private final Map<Integer, String> resident = new HashMap<>();
+    private int radius;
+    private int current;
+    // Chương ngoài cửa sổ được tải gần nhất, -1 nếu không có
+    private int outsider = -1;
+
+    public ChapterResidency(int radius) {
+        this.radius = Math.max(0, radius);
+    }
+
+    /**
+     * @return the resident text, or null if the chapter has to be loaded
+     */
+    public synchronized String get(int index) {
+        return resident.get(index);
+    }
+
+    /**
+     * Keeps a text that has just been loaded.
+     */
+    public synchronized void put(int index, String text) {
+        resident.put(index, text);
+        if (!inWindow(index)) {
+            if (outsider >= 0 && outsider != index) {
+                resident.remove(outsider);
+            }
+            outsider = index;
+        }
+    }
+
+    /**
+     * Moves the window to the chapter now being read and drops the texts outside it.
+     */
+    public synchronized void setCurrentChapter(int index) {
+        if (index == current) {
+            return;
+        }
+        current = index;
+        if (outsider == index) {
+            outsider = -1;
+        }
+        evict();
+    }
+
+    public synchronized int getRadius() {
+        return radius;
+    }
+
+    public synchronized void setRadius(int radius) {
+        this.radius = Math.max(0, radius);
+        evict();
+    }
+
+    /** Drops every text, including the current chapter's. */
+    public synchronized void clear() {
+        resident.clear();
+        outsider = -1;
+    }
+
+    public synchronized int size() {
+        return resident.size();
+    }
+
+    private boolean inWindow(int index) {
+        return Math.abs(index - current) <= radius;
+    }
+
+    private void evict() {
+        Iterator<Integer> it = resident.keySet().iterator();
+        while (it.hasNext()) {
+            int index = it.next();
+            if (!inWindow(index)) {
+                it.remove();
+            }
+        }
+        outsider = -1;
+    }
+}
@@ -0,0 +1,407 @@
+package quynh.ph59304.bansach.reader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import quynh.ph59304.bansach.utils.TextFolding;
+
+/**
+ * Splits book text into chapters in one left-to-right pass over its lines.
+ *
+ * A chapter starts at a heading line ("Chương 3: ...", "CHƯƠNG 3", "Chapter 3",
+ * "# Title") and ends at the next heading or at a separator line ("-----", "***",
+ * "====="). Text before the first heading becomes "Mở đầu" when it is substantial.
+ * When the text has no usable structure and is longer than {@link #MIN_SPLIT_LENGTH},
+ * {@link #finish()} cuts it into chapters of about {@link #TARGET_CHAPTER_LENGTH}
+ * chars at paragraph or sentence ends.
+ *
+ * Each char is looked at a bounded number of times, so the cost is linear in the
+ * text length. Results are offsets into the source ({@link ChapterSpan}); nothing is
+ * copied except the short titles.
+ *
+ * The source may keep growing (e.g. a StringBuilder filled by a download):
+ * {@link #advance()} consumes every complete line received so far and reports the
+ * chapters that are final. A single closed chapter is not final, because
+ * {@link #finish()} may still split the text by length; from the second closed chapter
+ * on, every closed chapter is final. Not thread-safe; meant to run on a background thread.
+ */
+public class ChapterSegmenter {
+    /** Shorter texts without headings are shown as a single chapter. */
+    public static final int MIN_SPLIT_LENGTH = 1500;
+    /** Chapter size used when the text has to be split by length. */
+    public static final int TARGET_CHAPTER_LENGTH = 3500;
+
+    // Phần không có tiêu đề ngắn hơn mức này (vd. dòng tên sách/tác giả) bị bỏ qua
+    private static final int MIN_UNTITLED_LENGTH = 50;
+    private static final int MAX_TITLE_LENGTH = 60;
+    private static final int MAX_CHAPTER_DIGITS = 6;
+
+    private static final int LINE_TEXT = 0;
+    private static final int LINE_BLANK = 1;
+    private static final int LINE_SEPARATOR = 2;
+    private static final int LINE_HEADING = 3;
+
+    private final CharSequence text;
+    private final List<ChapterSpan> chapters = new ArrayList<>();
+
+    // Start of the next line to classify
+    private int scanPos;
+    // Chapter currently being collected
+    private int chunkStart;
+    private String chunkTitle;
+    private int chunkNumber = -1;
+    private boolean chunkHasText;
+    private int headingCount;
+    private boolean finished;
+
+    // Set by classifyLine() for heading lines
+    private String headingTitle;
+    private int headingNumber;
+
+    public ChapterSegmenter(CharSequence text) {
+        this.text = text;
+    }
+
+    /**
+     * Segments a complete text.
+     */
+    public static List<ChapterSpan> segment(CharSequence text) {
+        return new ChapterSegmenter(text).finish();
+    }
+
+    /**
+     * Consumes every line that is complete (ends with '\n') in the source so far.
+     *
+     * @return number of chapters that are final, see {@link #getChapters()}
+     */
+    public int advance() {
+        if (finished) {
+            return finalCount();
+        }
+        int length = text.length();
+        while (scanPos < length) {
+            int lineEnd = indexOfNewline(scanPos, length);
+            if (lineEnd < 0) {
+                break; // dòng cuối chưa tải xong
+            }
+            processLine(scanPos, lineEnd);
+            scanPos = lineEnd + 1;
+        }
+        return finalCount();
+    }
+
+    /**
+     * Chapters that are final: all of them after {@link #finish()}, before that the
+     * chapters closed by a following boundary once there are at least two.
+     */
+    public List<ChapterSpan> getChapters() {
+        return Collections.unmodifiableList(chapters.subList(0, finalCount()));
+    }
+
+    private int finalCount() {
+        // Một chương duy nhất còn có thể bị finish() cắt lại theo độ dài
+        return finished || chapters.size() > 1 ? chapters.size() : 0;
+    }
+
+    /**
+     * Treats the source as complete: consumes the last line, closes the last chapter and
+     * applies the length split when no structure was found.
+     */
+    public List<ChapterSpan> finish() {
+        if (!finished) {
+            advance();
+            int length = text.length();
+            if (scanPos < length) {
+                processLine(scanPos, length);
+                scanPos = length;
+            }
+            closeChunk(length, false);
+            finished = true;
+            splitByLengthIfNeeded();
+        }
+        return getChapters();
+    }
+
+    private void processLine(int lineStart, int lineEnd) {
+        int kind = classifyLine(lineStart, lineEnd);
+        if (kind == LINE_TEXT) {
+            chunkHasText = true;
+            return;
+        }
+        if (kind == LINE_BLANK) {
+            return;
+        }
+        int next = Math.min(lineEnd + 1, text.length());
+        if (kind == LINE_HEADING) {
+            headingCount++;
+            if (!chunkHasText && chunkTitle != null) {
+                // Hai tiêu đề liền nhau ("# Tên" rồi "Chương 1: Tên"): giữ tiêu đề đầu
+                if (chunkNumber < 0) {
+                    chunkNumber = headingNumber;
+                }
+                chunkStart = next;
+                return;
+            }
+            closeChunk(lineStart, true);
+            chunkTitle = headingTitle;
+            chunkNumber = headingNumber;
+        } else {
+            closeChunk(lineStart, false);
+            chunkTitle = null;
+            chunkNumber = -1;
+        }
+        chunkStart = next;
+        chunkHasText = false;
+    }
+
+    private void closeChunk(int end, boolean closedByHeading) {
+        int start = chunkStart;
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (start >= end) {
+            return;
+        }
+        String title = chunkTitle;
+        int number = chunkNumber;
+        if (title == null) {
+            if (end - start < MIN_UNTITLED_LENGTH) {
+                return;
+            }
+            if (chapters.isEmpty() && closedByHeading && headingCount == 1) {
+                title = "Mở đầu";
+                number = 0;
+            }
+        }
+        if (number < 0) {
+            number = nextChapterNumber();
+        }
+        if (title == null) {
+            title = "Chương " + number;
+        }
+        chapters.add(new ChapterSpan(title, number, start, end));
+    }
+
+    private int nextChapterNumber() {
+        if (chapters.isEmpty()) {
+            return 1;
+        }
+        return Math.max(1, chapters.get(chapters.size() - 1).getChapterNumber() + 1);
+    }
+
+    private int classifyLine(int lineStart, int lineEnd) {
+        int i = lineStart;
+        while (i < lineEnd && isLineSpace(text.charAt(i))) {
+            i++;
+        }
+        if (i >= lineEnd) {
+            return LINE_BLANK;
+        }
+        char first = text.charAt(i);
+        if (first == '-' || first == '*' || first == '=' || first == '_') {
+            return isSeparator(i, lineEnd) ? LINE_SEPARATOR : LINE_TEXT;
+        }
+        if (first == '#') {
+            return parseMarkdownHeading(i, lineEnd) ? LINE_HEADING : LINE_TEXT;
+        }
+        if (first == 'c' || first == 'C') {
+            return parseChapterHeading(i, lineEnd) ? LINE_HEADING : LINE_TEXT;
+        }
+        return LINE_TEXT;
+    }
+
+    private boolean isSeparator(int from, int lineEnd) {
+        int marks = 0;
+        for (int i = from; i < lineEnd; i++) {
+            char c = text.charAt(i);
+            if (c == '-' || c == '*' || c == '=' || c == '_') {
+                marks++;
+            } else if (!isLineSpace(c)) {
+                return false;
+            }
+        }
+        return marks >= 3;
+    }
+
+    // "# Title" .. "###### Title"
+    private boolean parseMarkdownHeading(int from, int lineEnd) {
+        int i = from;
+        while (i < lineEnd && i - from < 6 && text.charAt(i) == '#') {
+            i++;
+        }
+        if (i >= lineEnd || !isLineSpace(text.charAt(i))) {
+            return false;
+        }
+        String title = cleanTitle(i, lineEnd);
+        if (title.isEmpty()) {
+            return false;
+        }
+        headingTitle = title;
+        headingNumber = -1;
+        return true;
+    }
+
+    // "Chương 12", "CHƯƠNG 12: Tên", "Chapter 3 - Name" (phải có số ngay sau từ khóa)
+    private boolean parseChapterHeading(int from, int lineEnd) {
+        int i = matchKeyword(from, lineEnd, "chuong");
+        if (i < 0) {
+            i = matchKeyword(from, lineEnd, "chapter");
+        }
+        if (i < 0) {
+            return false;
+        }
+        while (i < lineEnd && isLineSpace(text.charAt(i))) {
+            i++;
+        }
+        int digitsStart = i;
+        int number = 0;
+        while (i < lineEnd && i - digitsStart < MAX_CHAPTER_DIGITS && isAsciiDigit(text.charAt(i))) {
+            number = number * 10 + (text.charAt(i) - '0');
+            i++;
+        }
+        if (i == digitsStart) {
+            return false;
+        }
+        if (i < lineEnd) {
+            char after = text.charAt(i);
+            if (Character.isLetterOrDigit(after)) {
+                return false; // "Chương 12a", số quá dài...
+            }
+        }
+        headingTitle = cleanTitle(from, lineEnd);
+        headingNumber = number;
+        return true;
+    }
+
+    private int matchKeyword(int from, int lineEnd, String folded) {
+        int i = from;
+        for (int k = 0; k < folded.length(); k++, i++) {
+            if (i >= lineEnd) {
+                return -1;
+            }
+            char c = text.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                k--; // dấu tổ hợp (NFD) không tính là ký tự
+                continue;
+            }
+            if (TextFolding.fold(c) != folded.charAt(k)) {
+                return -1;
+            }
+        }
+        // Từ khóa phải đứng riêng: "Chươnga" không phải tiêu đề
+        while (i < lineEnd && Character.getType(text.charAt(i)) == Character.NON_SPACING_MARK) {
+            i++;
+        }
+        if (i < lineEnd && Character.isLetter(text.charAt(i))) {
+            return -1;
+        }
+        return i;
+    }
+
+    // Collapses whitespace and caps the length; only heading lines are copied
+    private String cleanTitle(int from, int lineEnd) {
+        StringBuilder title = new StringBuilder(Math.min(lineEnd - from, MAX_TITLE_LENGTH + 3));
+        boolean pendingSpace = false;
+        for (int i = from; i < lineEnd; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = title.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                title.append(' ');
+                pendingSpace = false;
+            }
+            if (title.length() >= MAX_TITLE_LENGTH) {
+                title.append("...");
+                break;
+            }
+            title.append(c);
+        }
+        return title.toString();
+    }
+
+    private void splitByLengthIfNeeded() {
+        if (chapters.size() > 1) {
+            return;
+        }
+        int start;
+        int end;
+        if (chapters.isEmpty()) {
+            start = 0;
+            end = text.length();
+        } else {
+            start = chapters.get(0).getStart();
+            end = chapters.get(0).getEnd();
+        }
+        if (end - start <= MIN_SPLIT_LENGTH) {
+            if (chapters.isEmpty()) {
+                addTrimmed(start, end, "Nội dung", 1);
+            }
+            return;
+        }
+        chapters.clear();
+        int pos = start;
+        while (pos < end) {
+            int cut = end;
+            if (end - pos > TARGET_CHAPTER_LENGTH) {
+                cut = findBreak(pos, pos + TARGET_CHAPTER_LENGTH);
+            }
+            int number = chapters.size() + 1;
+            addTrimmed(pos, cut, "Chương " + number, number);
+            pos = cut;
+        }
+    }
+
+    /**
+     * Best place to cut before {@code limit}: the last paragraph end, else the last
+     * sentence end, looking back at most 40% of a chapter; else {@code limit} itself.
+     */
+    private int findBreak(int chapterStart, int limit) {
+        int floor = chapterStart + TARGET_CHAPTER_LENGTH * 6 / 10;
+        int sentenceEnd = -1;
+        for (int i = limit - 1; i > floor; i--) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                return i + 1;
+            }
+            if (sentenceEnd < 0 && (c == '.' || c == '!' || c == '?' || c == '…')) {
+                sentenceEnd = i + 1;
+            }
+        }
+        return sentenceEnd > 0 ? sentenceEnd : limit;
+    }
+
+    private void addTrimmed(int start, int end, String title, int number) {
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (start < end) {
+            chapters.add(new ChapterSpan(title, number, start, end));
+        }
+    }
+
+    private int indexOfNewline(int from, int length) {
+        for (int i = from; i < length; i++) {
+            if (text.charAt(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isLineSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\u00A0' || c == '\uFEFF';
+    }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,44 @@
+package quynh.ph59304.bansach.reader;
+
+/**
+ * One chapter found by {@link ChapterSegmenter}: a title plus the [start, end) range of
+ * its (trimmed) body in the source text. The body itself is not copied.
+ */
+public final class ChapterSpan {
+    private final String title;
+    private final int chapterNumber;
+    private final int start;
+    private final int end;
+
+    public ChapterSpan(String title, int chapterNumber, int start, int end) {
+        this.title = title;
+        this.chapterNumber = chapterNumber;
+        this.start = start;
+        this.end = end;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getChapterNumber() {
+        return chapterNumber;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public String toString() {
+        return "ChapterSpan{" + title + ", #" + chapterNumber + ", " + start + ".." + end + "}";
+    }
+}
@@ -0,0 +1,198 @@
+package quynh.ph59304.bansach.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the reader's chapter list while the book is still downloading and hands each
+ * chapter to a {@link Sink} as soon as it is final, so the first chapter can be shown
+ * before the rest of the book has arrived.
+ *
+ * Input is the structured "chapters" array of the content endpoint and/or the full
+ * text (as UTF-8 bytes from the content file, or as one string); the whole array must
+ * be added before any text. The array is used when it has at least two chapters,
+ * otherwise the text is segmented by {@link ChapterSegmenter} (a single long array
+ * chapter is segmented too).
+ *
+ * Text chapters are emitted as soon as the segmenter reports them final.
+ * Emitted chapters hold their own copy of the text, so they can be handed to other
+ * threads while the download keeps appending. Not thread-safe.
+ */
+public final class ChapterStreamBuilder {
+    private static final int DECODE_BUFFER_SIZE = 16 * 1024;
+
+    public interface Sink {
+        void onChapter(ReaderChapter chapter) throws IOException;
+    }
+
+    private final Sink sink;
+    private int emitted;
+
+    // Các chương từ mảng "chapters" chưa đủ để quyết định dùng mảng
+    private final List<ReaderChapter> heldArrayChapters = new ArrayList<>();
+    private boolean usingArray;
+
+    private StringBuilder text;
+    private ChapterSegmenter segmenter;
+    private int emittedSpans;
+    private CharsetDecoder decoder;
+    private ByteBuffer undecoded;
+    private CharBuffer decoded;
+
+    public ChapterStreamBuilder(Sink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Adds the next chapter of the structured array.
+     */
+    public void addArrayChapter(ReaderChapter chapter) throws IOException {
+        if (text != null) {
+            throw new IllegalStateException("Array chapters must come before the text");
+        }
+        if (usingArray) {
+            emit(chapter);
+            return;
+        }
+        heldArrayChapters.add(chapter);
+        if (heldArrayChapters.size() >= 2) {
+            usingArray = true;
+            for (ReaderChapter held : heldArrayChapters) {
+                emit(held);
+            }
+            heldArrayChapters.clear();
+        }
+    }
+
+    /**
+     * True once the structured array has been chosen; text appended afterwards is
+     * ignored, so the caller need not download it.
+     */
+    public boolean isUsingArray() {
+        return usingArray;
+    }
+
+    /**
+     * Appends UTF-8 encoded text; a char split across two calls is handled.
+     */
+    public void appendText(byte[] bytes, int offset, int length) throws IOException {
+        if (usingArray) {
+            return;
+        }
+        if (decoder == null) {
+            decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            undecoded = ByteBuffer.allocate(DECODE_BUFFER_SIZE);
+            decoded = CharBuffer.allocate(DECODE_BUFFER_SIZE);
+        }
+        int pos = offset;
+        int end = offset + length;
+        while (pos < end) {
+            int n = Math.min(undecoded.remaining(), end - pos);
+            undecoded.put(bytes, pos, n);
+            pos += n;
+            undecoded.flip();
+            decoder.decode(undecoded, decoded, false);
+            // Byte còn lại là phần đầu của một ký tự chưa nhận đủ
+            undecoded.compact();
+            flushDecoded();
+        }
+        advanceText();
+    }
+
+    /**
+     * Appends already decoded text.
+     */
+    public void appendText(CharSequence chars) throws IOException {
+        if (usingArray) {
+            return;
+        }
+        text().append(chars);
+        advanceText();
+    }
+
+    /**
+     * Ends the input and emits the remaining chapters.
+     *
+     * @return total number of chapters emitted
+     */
+    public int finish() throws IOException {
+        if (usingArray) {
+            return emitted;
+        }
+        if (decoder != null) {
+            undecoded.flip();
+            decoder.decode(undecoded, decoded, true);
+            decoder.flush(decoded);
+            flushDecoded();
+        }
+        boolean useText = text != null
+                && (heldArrayChapters.isEmpty() || text.length() > ChapterSegmenter.MIN_SPLIT_LENGTH);
+        if (useText) {
+            emitSpans(text, segmenter().finish());
+        } else if (heldArrayChapters.size() == 1
+                && heldArrayChapters.get(0).getContent().length() > ChapterSegmenter.MIN_SPLIT_LENGTH) {
+            CharSequence single = heldArrayChapters.get(0).getContent();
+            emitSpans(single, ChapterSegmenter.segment(single));
+        } else {
+            for (ReaderChapter held : heldArrayChapters) {
+                emit(held);
+            }
+        }
+        heldArrayChapters.clear();
+        text = null;
+        segmenter = null;
+        return emitted;
+    }
+
+    private StringBuilder text() {
+        if (text == null) {
+            text = new StringBuilder();
+        }
+        return text;
+    }
+
+    private ChapterSegmenter segmenter() {
+        if (segmenter == null) {
+            segmenter = new ChapterSegmenter(text());
+        }
+        return segmenter;
+    }
+
+    private void flushDecoded() {
+        decoded.flip();
+        text().append(decoded);
+        decoded.clear();
+    }
+
+    private void advanceText() throws IOException {
+        // Một chương mảng ngắn vẫn thắng nếu cả văn bản cũng ngắn: chờ đến khi chắc chắn
+        if (!heldArrayChapters.isEmpty() && text.length() <= ChapterSegmenter.MIN_SPLIT_LENGTH) {
+            return;
+        }
+        if (segmenter().advance() > emittedSpans) {
+            emitSpans(text, segmenter.getChapters());
+        }
+    }
+
+    private void emitSpans(CharSequence source, List<ChapterSpan> spans) throws IOException {
+        for (int i = emittedSpans; i < spans.size(); i++) {
+            ChapterSpan span = spans.get(i);
+            emit(new ReaderChapter(span.getTitle(),
+                    source.subSequence(span.getStart(), span.getEnd()).toString(), span.getChapterNumber()));
+        }
+        emittedSpans = spans.size();
+    }
+
+    private void emit(ReaderChapter chapter) throws IOException {
+        emitted++;
+        sink.onChapter(chapter);
+    }
+}
@@ -0,0 +1,50 @@
+package quynh.ph59304.bansach.reader;
+
+/**
+ * One page produced by {@link Paginator}: the [start, end) range of a chapter plus its
+ * rendered layout.
+ *
+ * @param <L> rendered page, see {@link PageLayouter}
+ */
+public final class Page<L> {
+    private final int chapterIndex;
+    private final int start;
+    private final int end;
+    private final CharSequence text;
+    private final L layout;
+
+    Page(int chapterIndex, int start, int end, CharSequence text, L layout) {
+        this.chapterIndex = chapterIndex;
+        this.start = start;
+        this.end = end;
+        this.text = text;
+        this.layout = layout;
+    }
+
+    public int getChapterIndex() {
+        return chapterIndex;
+    }
+
+    /** Offset in the chapter where the page starts; stable across reflows of this page. */
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    /** Visible text of the page (leading blank lines skipped), copied from the chapter. */
+    public CharSequence getText() {
+        return text;
+    }
+
+    public L getLayout() {
+        return layout;
+    }
+
+    @Override
+    public String toString() {
+        return "Page{chapter " + chapterIndex + ", " + start + ".." + end + "}";
+    }
+}
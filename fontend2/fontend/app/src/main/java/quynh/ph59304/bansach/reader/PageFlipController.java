@@ -0,0 +1,219 @@
+package quynh.ph59304.bansach.reader;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the paginated reading mode: owns a {@link Paginator} on a single worker thread,
+ * flips pages there and hands finished pages to the main thread.
+ *
+ * After every flip the next page is laid out ahead, so the next tap is usually served
+ * from the page cache (the previous page is normally still in it). Changing the font
+ * size or viewport reflows from the page being read ({@link Paginator#reflow}).
+ *
+ * Public methods must be called on the main thread.
+ */
+public class PageFlipController {
+    private static final String TAG = "PageFlipController";
+
+    public interface Listener {
+        /**
+         * A page is ready to be drawn.
+         *
+         * @param hasPrevious false on the first page of the book
+         * @param hasNext     false on the last page of the book
+         */
+        void onPageShown(Page<StaticLayout> page, boolean hasPrevious, boolean hasNext);
+    }
+
+    private final Listener listener;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Chỉ truy cập trên worker
+    private Paginator<StaticLayout> paginator;
+    private Page<StaticLayout> current;
+
+    // Chỉ truy cập trên main thread
+    private List<CharSequence> chapters;
+    private int chapterIndex;
+    private int offset;
+    private TextPaint paint;
+    private float lineSpacingExtra;
+    private int width;
+    private int height;
+
+    public PageFlipController(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the book and the position to open at (a chapter and an offset in it).
+     */
+    public void setChapters(List<CharSequence> chapters, int chapterIndex, int offset) {
+        this.chapters = chapters;
+        this.chapterIndex = chapterIndex;
+        this.offset = offset;
+        final StaticLayoutPageLayouter layouter = newLayouter();
+        final int openChapter = chapterIndex;
+        final int openOffset = offset;
+        execute(() -> {
+            paginator = layouter != null ? new Paginator<>(chapters, layouter) : null;
+            current = null;
+            if (paginator != null) {
+                show(paginator.pageAt(openChapter, openOffset));
+            }
+        });
+    }
+
+    /**
+     * Text paint and spacing; the paint is copied. Reflows from the current page.
+     */
+    public void setTextStyle(TextPaint paint, float lineSpacingExtra) {
+        this.paint = new TextPaint(paint);
+        this.lineSpacingExtra = lineSpacingExtra;
+        reflow();
+    }
+
+    public void setViewport(int width, int height) {
+        if (width == this.width && height == this.height) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+        reflow();
+    }
+
+    public void next() {
+        execute(() -> {
+            if (current != null) {
+                Page<StaticLayout> page = paginator.next(current);
+                if (page != null) {
+                    show(page);
+                }
+            }
+        });
+    }
+
+    public void previous() {
+        execute(() -> {
+            if (current != null) {
+                Page<StaticLayout> page = paginator.previous(current);
+                if (page != null) {
+                    show(page);
+                }
+            }
+        });
+    }
+
+    /**
+     * Jumps to the start of a chapter.
+     */
+    public void openChapter(int index) {
+        openChapter(index, 0);
+    }
+
+    /**
+     * Jumps to the page of a chapter that contains {@code offset}.
+     */
+    public void openChapter(int index, int offset) {
+        chapterIndex = index;
+        this.offset = offset;
+        execute(() -> {
+            if (paginator != null) {
+                show(paginator.pageAt(index, offset));
+            }
+        });
+    }
+
+    /** Chapter of the page on screen (or to be opened). */
+    public int getChapterIndex() {
+        return chapterIndex;
+    }
+
+    /** Offset in its chapter of the page on screen (or to be opened). */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Drops rendered pages except the current one and its neighbours, e.g. when memory
+     * is low.
+     */
+    public void trimMemory() {
+        execute(() -> {
+            if (paginator != null) {
+                paginator.trimCache(3);
+            }
+        });
+    }
+
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private void reflow() {
+        final StaticLayoutPageLayouter layouter = newLayouter();
+        if (layouter == null) {
+            return;
+        }
+        final List<CharSequence> book = chapters;
+        final int fallbackChapter = chapterIndex;
+        final int fallbackOffset = offset;
+        execute(() -> {
+            if (paginator == null) {
+                paginator = new Paginator<>(book, layouter);
+                show(paginator.pageAt(fallbackChapter, fallbackOffset));
+                return;
+            }
+            // Giữ nguyên vị trí đang đọc: trang hiện tại bắt đầu ở cùng chỗ
+            int reflowChapter = current != null ? current.getChapterIndex() : fallbackChapter;
+            int reflowOffset = current != null ? current.getStart() : fallbackOffset;
+            show(paginator.reflow(layouter, reflowChapter, reflowOffset));
+        });
+    }
+
+    // Chương đọc từ bản offline có thể hỏng; không để lỗi làm chết worker
+    private void execute(Runnable task) {
+        worker.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Page task failed: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    // Null until the book, the text style and the viewport are all known
+    private StaticLayoutPageLayouter newLayouter() {
+        if (chapters == null || paint == null || width <= 0 || height <= 0) {
+            return null;
+        }
+        return new StaticLayoutPageLayouter(paint, width, height, lineSpacingExtra);
+    }
+
+    // Runs on the worker
+    private void show(Page<StaticLayout> page) {
+        current = page;
+        final boolean hasPrevious = paginator.hasPrevious(page);
+        final boolean hasNext = paginator.hasNext(page);
+        mainHandler.post(() -> {
+            chapterIndex = page.getChapterIndex();
+            offset = page.getStart();
+            listener.onPageShown(page, hasPrevious, hasNext);
+        });
+        // Dựng trước trang kế để lần lật sau lấy từ cache; trang trước thường vẫn còn trong LRU
+        try {
+            paginator.next(page);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Prefetch failed: " + e.getMessage());
+        }
+    }
+}
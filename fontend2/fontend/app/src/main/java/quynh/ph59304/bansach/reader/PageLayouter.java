@@ -0,0 +1,21 @@
+package quynh.ph59304.bansach.reader;
+
+/**
+ * Measures and lays out pages for {@link Paginator} with one set of text metrics
+ * (font size, viewport). Called on the pagination thread only.
+ *
+ * @param <L> rendered page, e.g. a StaticLayout
+ */
+public interface PageLayouter<L> {
+
+    /**
+     * @return end (exclusive) of the text that fits on one page starting at {@code start};
+     * never past {@code limit}
+     */
+    int fitPage(CharSequence text, int start, int limit);
+
+    /**
+     * Lays out the text of one page for drawing.
+     */
+    L layoutPage(CharSequence pageText);
+}
@@ -0,0 +1,111 @@
+package quynh.ph59304.bansach.reader;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.text.StaticLayout;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Draws one page laid out in the background ({@link StaticLayoutPageLayouter}); no text
+ * measuring happens on the main thread. Tapping the left/right third of the page or
+ * swiping flips pages.
+ */
+public class PageView extends View {
+
+    public interface Listener {
+        void onFlipNext();
+
+        void onFlipPrevious();
+
+        /** Content size (without padding) changed; pages must be laid out again. */
+        void onViewportChanged(int width, int height);
+    }
+
+    private StaticLayout pageLayout;
+    private Listener listener;
+    private final GestureDetector gestureDetector;
+
+    public PageView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(@NonNull MotionEvent e) {
+                return true;
+            }
+
+            @Override
+            public boolean onSingleTapUp(@NonNull MotionEvent e) {
+                if (listener == null) {
+                    return false;
+                }
+                if (e.getX() > getWidth() * 2 / 3f) {
+                    listener.onFlipNext();
+                } else if (e.getX() < getWidth() / 3f) {
+                    listener.onFlipPrevious();
+                }
+                return true;
+            }
+
+            @Override
+            public boolean onFling(@Nullable MotionEvent e1, @NonNull MotionEvent e2, float velocityX, float velocityY) {
+                if (listener == null || Math.abs(velocityX) < Math.abs(velocityY)) {
+                    return false;
+                }
+                if (velocityX < 0) {
+                    listener.onFlipNext();
+                } else {
+                    listener.onFlipPrevious();
+                }
+                return true;
+            }
+        });
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public int getContentWidth() {
+        return getWidth() - getPaddingLeft() - getPaddingRight();
+    }
+
+    public int getContentHeight() {
+        return getHeight() - getPaddingTop() - getPaddingBottom();
+    }
+
+    public void setPageLayout(StaticLayout layout) {
+        pageLayout = layout;
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (listener != null && getContentWidth() > 0 && getContentHeight() > 0) {
+            listener.onViewportChanged(getContentWidth(), getContentHeight());
+        }
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        if (pageLayout == null) {
+            return;
+        }
+        canvas.save();
+        canvas.translate(getPaddingLeft(), getPaddingTop());
+        pageLayout.draw(canvas);
+        canvas.restore();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        return gestureDetector.onTouchEvent(event) || super.onTouchEvent(event);
+    }
+}
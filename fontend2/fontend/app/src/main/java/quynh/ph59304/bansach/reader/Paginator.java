@@ -0,0 +1,215 @@
+package quynh.ph59304.bansach.reader;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Cuts chapters into pages lazily, only around the position being read.
+ *
+ * Pages are found by walking forward: a page starts where the previous one ended, and
+ * {@link PageLayouter#fitPage} says how much text fits. Known page starts are kept per
+ * chapter, so going back is a lookup once the pages were seen. Rendered pages live in
+ * a small LRU ({@link #MAX_CACHED_PAGES}) around the current page; each holds a copy of
+ * its own text, never a view over the chapter.
+ *
+ * When the text metrics change, {@link #reflow} keeps the current page's start as an
+ * "anchor": pages are computed forward from it right away, and the pages before it in
+ * that chapter only when the reader goes back (the last of them may be shorter). Other
+ * chapters are paginated again when they are reached. Nothing is re-paginated up front.
+ *
+ * Not thread-safe; all calls must come from one (background) thread.
+ *
+ * @param <L> rendered page, see {@link PageLayouter}
+ */
+public final class Paginator<L> {
+    /** Rendered pages kept in memory: the current one and a few on each side. */
+    public static final int MAX_CACHED_PAGES = 7;
+
+    private final List<CharSequence> chapters;
+    private PageLayouter<L> layouter;
+
+    // Mỗi chương: các vị trí bắt đầu trang đã biết và các mốc neo (ranh giới cứng)
+    private final List<TreeSet<Integer>> pageStarts = new ArrayList<>();
+    private final List<TreeSet<Integer>> anchors = new ArrayList<>();
+
+    private final LinkedHashMap<Long, Page<L>> cache = new LinkedHashMap<Long, Page<L>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Page<L>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+
+    public Paginator(List<CharSequence> chapters, PageLayouter<L> layouter) {
+        this.chapters = new ArrayList<>(chapters);
+        this.layouter = layouter;
+        for (int i = 0; i < chapters.size(); i++) {
+            pageStarts.add(new TreeSet<>());
+            anchors.add(new TreeSet<>());
+        }
+    }
+
+    public int getChapterCount() {
+        return chapters.size();
+    }
+
+    /**
+     * The page that starts at {@code offset}. An offset that is not a known page start
+     * (e.g. a saved reading position) becomes an anchor.
+     */
+    public Page<L> pageAt(int chapterIndex, int offset) {
+        CharSequence text = chapters.get(chapterIndex);
+        offset = Math.max(0, Math.min(offset, text.length()));
+        if (offset > 0 && offset < text.length() && !pageStarts.get(chapterIndex).contains(offset)) {
+            addAnchor(chapterIndex, offset);
+        }
+        return page(chapterIndex, offset);
+    }
+
+    /**
+     * Switches to new text metrics and returns the page that now starts at
+     * {@code offset}. Only that page is laid out here.
+     */
+    public Page<L> reflow(PageLayouter<L> newLayouter, int chapterIndex, int offset) {
+        layouter = newLayouter;
+        cache.clear();
+        for (int i = 0; i < chapters.size(); i++) {
+            pageStarts.get(i).clear();
+            anchors.get(i).clear();
+        }
+        return pageAt(chapterIndex, offset);
+    }
+
+    /**
+     * @return the following page, or null after the last page of the book
+     */
+    public Page<L> next(Page<L> page) {
+        int chapterIndex = page.getChapterIndex();
+        if (page.getEnd() < chapters.get(chapterIndex).length()) {
+            return page(chapterIndex, page.getEnd());
+        }
+        if (chapterIndex + 1 < chapters.size()) {
+            return page(chapterIndex + 1, 0);
+        }
+        return null;
+    }
+
+    public boolean hasNext(Page<L> page) {
+        return page.getEnd() < chapters.get(page.getChapterIndex()).length()
+                || page.getChapterIndex() + 1 < chapters.size();
+    }
+
+    public boolean hasPrevious(Page<L> page) {
+        return page.getStart() > 0 || page.getChapterIndex() > 0;
+    }
+
+    /**
+     * @return the preceding page, or null before the first page of the book
+     */
+    public Page<L> previous(Page<L> page) {
+        int chapterIndex = page.getChapterIndex();
+        int start = page.getStart();
+        if (start > 0) {
+            Integer segmentStart = anchors.get(chapterIndex).floor(start);
+            if (segmentStart == null || segmentStart != start) {
+                // Các trang trong cùng đoạn đã được đi qua theo chiều tới nên đã biết
+                Integer previousStart = pageStarts.get(chapterIndex).lower(start);
+                if (previousStart != null) {
+                    return page(chapterIndex, previousStart);
+                }
+            }
+            return lastPageBefore(chapterIndex, start);
+        }
+        if (chapterIndex > 0) {
+            return lastPageBefore(chapterIndex - 1, chapters.get(chapterIndex - 1).length());
+        }
+        return null;
+    }
+
+    /**
+     * Drops rendered pages that are far from the reader (e.g. when memory is low);
+     * known page starts are kept.
+     */
+    public void trimCache(int keep) {
+        while (cache.size() > keep) {
+            Long eldest = cache.keySet().iterator().next();
+            cache.remove(eldest);
+        }
+    }
+
+    // Last page of the segment ending at segmentEnd (an anchor or the chapter end)
+    private Page<L> lastPageBefore(int chapterIndex, int segmentEnd) {
+        Integer anchor = anchors.get(chapterIndex).lower(segmentEnd);
+        int segmentStart = anchor != null ? anchor : 0;
+        Integer known = pageStarts.get(chapterIndex).lower(segmentEnd);
+        int start = known != null && known >= segmentStart ? known : segmentStart;
+        while (true) {
+            int end = fit(chapterIndex, start);
+            if (end >= segmentEnd) {
+                return page(chapterIndex, start);
+            }
+            start = end;
+        }
+    }
+
+    private Page<L> page(int chapterIndex, int start) {
+        long key = ((long) chapterIndex << 32) | start;
+        Page<L> page = cache.get(key);
+        if (page == null) {
+            int end = fit(chapterIndex, start);
+            CharSequence text = chapters.get(chapterIndex);
+            int visibleStart = skipBlank(text, start, end);
+            // Chép chữ của trang: chương chỉ được giữ yếu và có thể phải đọc lại từ đĩa/mạng,
+            // việc đó không được xảy ra khi trang được vẽ trên main thread
+            String pageText = new TextSlice(text, visibleStart, end).toString();
+            page = new Page<>(chapterIndex, start, end, pageText, layouter.layoutPage(pageText));
+            cache.put(key, page);
+        }
+        return page;
+    }
+
+    // End of the page starting at start; records it as a known page start
+    private int fit(int chapterIndex, int start) {
+        CharSequence text = chapters.get(chapterIndex);
+        Integer nextAnchor = anchors.get(chapterIndex).higher(start);
+        int limit = nextAnchor != null ? nextAnchor : text.length();
+        pageStarts.get(chapterIndex).add(start);
+        if (start >= limit) {
+            return limit;
+        }
+        int visibleStart = skipBlank(text, start, limit);
+        if (visibleStart >= limit) {
+            return limit;
+        }
+        int end = layouter.fitPage(text, visibleStart, limit);
+        // Luôn tiến ít nhất một ký tự để không lặp vô hạn
+        end = Math.max(visibleStart + 1, Math.min(end, limit));
+        if (skipBlank(text, end, limit) >= limit) {
+            end = limit; // phần còn lại chỉ là khoảng trắng
+        }
+        if (end < text.length()) {
+            pageStarts.get(chapterIndex).add(end);
+        }
+        return end;
+    }
+
+    private void addAnchor(int chapterIndex, int offset) {
+        TreeSet<Integer> chapterAnchors = anchors.get(chapterIndex);
+        Integer nextAnchor = chapterAnchors.higher(offset);
+        int segmentEnd = nextAnchor != null ? nextAnchor : chapters.get(chapterIndex).length();
+        // Các trang đã tính sau mốc mới thuộc chuỗi cũ vắt qua mốc: bỏ
+        pageStarts.get(chapterIndex).subSet(offset, false, segmentEnd, false).clear();
+        chapterAnchors.add(offset);
+        pageStarts.get(chapterIndex).add(offset);
+        cache.keySet().removeIf(key -> (int) (key >>> 32) == chapterIndex);
+    }
+
+    private static int skipBlank(CharSequence text, int from, int limit) {
+        while (from < limit && Character.isWhitespace(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+}
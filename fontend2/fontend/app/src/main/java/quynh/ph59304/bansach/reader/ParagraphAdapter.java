@@ -0,0 +1,249 @@
+package quynh.ph59304.bansach.reader;
+
+import android.content.Context;
+import android.util.LruCache;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.widget.AppCompatTextView;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.material.button.MaterialButton;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import quynh.ph59304.bansach.R;
+
+/**
+ * Shows one chapter as a list: title, one item per paragraph, then the chapter
+ * navigation.
+ *
+ * Only the paragraphs RecyclerView binds (visible ones plus its prefetch) are laid out,
+ * and that text layout ({@link PrecomputedTextCompat}) is computed on a background
+ * thread. Binding hands the TextView a future, which it only waits for at measure time;
+ * the first screen of a new chapter is started as soon as it is submitted. Finished
+ * layouts are kept in a small LRU so scrolling back does not measure text again.
+ */
+public class ParagraphAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+    private static final int VIEW_TYPE_TITLE = 0;
+    private static final int VIEW_TYPE_PARAGRAPH = 1;
+    private static final int VIEW_TYPE_FOOTER = 2;
+
+    /** Paragraphs laid out ahead when a chapter is submitted, about one screen. */
+    public static final int WARM_UP_COUNT = 8;
+    private static final int LAYOUT_CACHE_SIZE = 64;
+
+    public interface NavigationListener {
+        void onPreviousChapter();
+
+        void onNextChapter();
+    }
+
+    private final NavigationListener navigationListener;
+    private final ExecutorService layoutExecutor = Executors.newSingleThreadExecutor();
+    // Params phải khớp với TextView hiển thị, lấy từ chính layout item_reader_paragraph
+    private final PrecomputedTextCompat.Params textParams;
+
+    // lock bảo vệ layouts, pending và generation (luồng layout ghi, main thread đọc)
+    private final Object lock = new Object();
+    private final LruCache<Integer, PrecomputedTextCompat> layouts = new LruCache<>(LAYOUT_CACHE_SIZE);
+    private final Map<Integer, FutureTask<PrecomputedTextCompat>> pending = new HashMap<>();
+    private int generation;
+
+    private String title;
+    private List<CharSequence> paragraphs = Collections.emptyList();
+    private String chapterInfo;
+    private boolean hasPrevious;
+    private boolean hasNext;
+
+    public ParagraphAdapter(Context context, NavigationListener navigationListener) {
+        this.navigationListener = navigationListener;
+        TextView template = (TextView) LayoutInflater.from(context)
+                .inflate(R.layout.item_reader_paragraph, null, false);
+        this.textParams = TextViewCompat.getTextMetricsParams(template);
+    }
+
+    /**
+     * Replaces the displayed chapter. Must be called on the main thread.
+     *
+     * @param paragraphs chapter text split by {@link ParagraphSplitter}
+     */
+    public void submitChapter(String title, List<CharSequence> paragraphs, String chapterInfo,
+                              boolean hasPrevious, boolean hasNext) {
+        synchronized (lock) {
+            generation++;
+            // Bố cục của chương cũ không còn dùng được
+            for (FutureTask<PrecomputedTextCompat> task : pending.values()) {
+                task.cancel(false);
+            }
+            pending.clear();
+            layouts.evictAll();
+        }
+        this.title = title;
+        this.paragraphs = new ArrayList<>(paragraphs);
+        this.chapterInfo = chapterInfo;
+        this.hasPrevious = hasPrevious;
+        this.hasNext = hasNext;
+        for (int i = 0; i < Math.min(WARM_UP_COUNT, this.paragraphs.size()); i++) {
+            layoutAsync(i);
+        }
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Updates the footer of the displayed chapter, e.g. when more chapters of a book
+     * that is still downloading have arrived. Must be called on the main thread.
+     */
+    public void updateNavigation(String chapterInfo, boolean hasPrevious, boolean hasNext) {
+        this.chapterInfo = chapterInfo;
+        this.hasPrevious = hasPrevious;
+        this.hasNext = hasNext;
+        if (getItemCount() > 0) {
+            notifyItemChanged(getItemCount() - 1);
+        }
+    }
+
+    /**
+     * Drops the cached paragraph layouts (they are computed again when bound), e.g. when
+     * memory is low.
+     */
+    public void trimMemory() {
+        synchronized (lock) {
+            layouts.evictAll();
+        }
+    }
+
+    /**
+     * Stops the layout thread. Call from the activity's onDestroy.
+     */
+    public void shutdown() {
+        layoutExecutor.shutdownNow();
+    }
+
+    @Override
+    public int getItemCount() {
+        return title == null ? 0 : paragraphs.size() + 2;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        if (position == 0) {
+            return VIEW_TYPE_TITLE;
+        }
+        return position <= paragraphs.size() ? VIEW_TYPE_PARAGRAPH : VIEW_TYPE_FOOTER;
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        if (viewType == VIEW_TYPE_TITLE) {
+            return new TitleViewHolder(inflater.inflate(R.layout.item_reader_chapter_title, parent, false));
+        }
+        if (viewType == VIEW_TYPE_FOOTER) {
+            return new FooterViewHolder(inflater.inflate(R.layout.item_reader_chapter_footer, parent, false),
+                    navigationListener);
+        }
+        return new ParagraphViewHolder(inflater.inflate(R.layout.item_reader_paragraph, parent, false));
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        if (holder instanceof TitleViewHolder) {
+            ((TitleViewHolder) holder).tvChapterTitle.setText(title);
+        } else if (holder instanceof FooterViewHolder) {
+            ((FooterViewHolder) holder).bind(chapterInfo, hasPrevious, hasNext);
+        } else {
+            bindParagraph((ParagraphViewHolder) holder, position - 1);
+        }
+    }
+
+    private void bindParagraph(ParagraphViewHolder holder, int index) {
+        PrecomputedTextCompat ready;
+        synchronized (lock) {
+            ready = layouts.get(index);
+        }
+        if (ready != null) {
+            TextViewCompat.setPrecomputedText(holder.tvParagraph, ready);
+        } else {
+            // TextView chỉ chờ kết quả khi đo (onMeasure); thường đã xong nhờ prefetch
+            holder.tvParagraph.setTextFuture(layoutAsync(index));
+        }
+    }
+
+    private Future<PrecomputedTextCompat> layoutAsync(int index) {
+        synchronized (lock) {
+            FutureTask<PrecomputedTextCompat> running = pending.get(index);
+            if (running != null) {
+                return running;
+            }
+            final int requestGeneration = generation;
+            final CharSequence text = paragraphs.get(index);
+            FutureTask<PrecomputedTextCompat> task = new FutureTask<>(() -> {
+                PrecomputedTextCompat layout = PrecomputedTextCompat.create(text, textParams);
+                synchronized (lock) {
+                    if (requestGeneration == generation) {
+                        layouts.put(index, layout);
+                        pending.remove(index);
+                    }
+                }
+                return layout;
+            });
+            pending.put(index, task);
+            layoutExecutor.execute(task);
+            return task;
+        }
+    }
+
+    static class TitleViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvChapterTitle;
+
+        TitleViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvChapterTitle = itemView.findViewById(R.id.tvChapterTitle);
+        }
+    }
+
+    static class ParagraphViewHolder extends RecyclerView.ViewHolder {
+        final AppCompatTextView tvParagraph;
+
+        ParagraphViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvParagraph = (AppCompatTextView) itemView;
+        }
+    }
+
+    static class FooterViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvChapterInfo;
+        final MaterialButton btnPreviousChapter;
+        final MaterialButton btnNextChapter;
+
+        FooterViewHolder(@NonNull View itemView, NavigationListener listener) {
+            super(itemView);
+            tvChapterInfo = itemView.findViewById(R.id.tvChapterInfo);
+            btnPreviousChapter = itemView.findViewById(R.id.btnPreviousChapter);
+            btnNextChapter = itemView.findViewById(R.id.btnNextChapter);
+            btnPreviousChapter.setOnClickListener(v -> listener.onPreviousChapter());
+            btnNextChapter.setOnClickListener(v -> listener.onNextChapter());
+        }
+
+        void bind(String chapterInfo, boolean hasPrevious, boolean hasNext) {
+            tvChapterInfo.setText(chapterInfo);
+            btnPreviousChapter.setVisibility(hasPrevious ? View.VISIBLE : View.GONE);
+            btnNextChapter.setVisibility(hasNext ? View.VISIBLE : View.GONE);
+        }
+    }
+}
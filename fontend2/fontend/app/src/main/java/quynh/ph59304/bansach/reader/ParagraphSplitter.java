@@ -0,0 +1,120 @@
+package quynh.ph59304.bansach.reader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a chapter into paragraphs for the paragraph reader ({@link ParagraphAdapter}).
+ *
+ * Paragraphs are separated by blank lines; single line breaks stay inside the paragraph.
+ * Paragraphs longer than {@link #MAX_PARAGRAPH_LENGTH} (e.g. a chapter without blank
+ * lines) are cut at a line end, sentence end or space so one item never costs as much
+ * to lay out as the whole chapter. Results are {@link TextSlice} views over the chapter;
+ * the text is not copied. Linear in the chapter length.
+ */
+public final class ParagraphSplitter {
+    /** Upper bound for one paragraph item, in chars. */
+    public static final int MAX_PARAGRAPH_LENGTH = 2000;
+
+    private ParagraphSplitter() {
+    }
+
+    public static List<CharSequence> split(CharSequence text) {
+        List<CharSequence> paragraphs = new ArrayList<>();
+        int length = text.length();
+        int paragraphStart = -1;
+        int paragraphEnd = -1;
+        int lineStart = 0;
+        while (lineStart <= length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && text.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (isBlank(text, lineStart, lineEnd)) {
+                if (paragraphStart >= 0) {
+                    emit(text, paragraphStart, paragraphEnd, paragraphs);
+                    paragraphStart = -1;
+                }
+            } else {
+                if (paragraphStart < 0) {
+                    paragraphStart = lineStart;
+                }
+                paragraphEnd = lineEnd;
+            }
+            lineStart = lineEnd + 1;
+        }
+        if (paragraphStart >= 0) {
+            emit(text, paragraphStart, paragraphEnd, paragraphs);
+        }
+        return paragraphs;
+    }
+
+    /**
+     * Offset in {@code text} of the first char of each paragraph returned by
+     * {@link #split(CharSequence)} for the same text, e.g. to save and restore the
+     * reading position.
+     */
+    public static int[] offsets(CharSequence text, List<CharSequence> paragraphs) {
+        int base = text instanceof TextSlice ? ((TextSlice) text).sourceStart() : 0;
+        int[] offsets = new int[paragraphs.size()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = ((TextSlice) paragraphs.get(i)).sourceStart() - base;
+        }
+        return offsets;
+    }
+
+    private static void emit(CharSequence text, int start, int end, List<CharSequence> out) {
+        while (end - start > MAX_PARAGRAPH_LENGTH) {
+            int cut = findBreak(text, start, start + MAX_PARAGRAPH_LENGTH);
+            addTrimmed(text, start, cut, out);
+            start = cut;
+        }
+        addTrimmed(text, start, end, out);
+    }
+
+    /**
+     * Last line end before {@code limit}, else last sentence end, else last space, looking
+     * back at most 40% of {@link #MAX_PARAGRAPH_LENGTH}; else {@code limit} itself.
+     */
+    private static int findBreak(CharSequence text, int start, int limit) {
+        int floor = start + MAX_PARAGRAPH_LENGTH * 6 / 10;
+        int sentenceEnd = -1;
+        int space = -1;
+        for (int i = limit - 1; i > floor; i--) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                return i + 1;
+            }
+            if (sentenceEnd < 0 && (c == '.' || c == '!' || c == '?' || c == '…')) {
+                sentenceEnd = i + 1;
+            } else if (space < 0 && c == ' ') {
+                space = i + 1;
+            }
+        }
+        if (sentenceEnd > 0) {
+            return sentenceEnd;
+        }
+        return space > 0 ? space : limit;
+    }
+
+    private static void addTrimmed(CharSequence text, int start, int end, List<CharSequence> out) {
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (start < end) {
+            out.add(new TextSlice(text, start, end));
+        }
+    }
+
+    private static boolean isBlank(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,30 @@
+package quynh.ph59304.bansach.reader;
+
+/**
+ * A chapter as shown by the reader. The content is usually a view over the book text
+ * ({@link TextSlice}) or a chapter read lazily from the offline store; it is copied
+ * only for the part that is on screen.
+ */
+public final class ReaderChapter {
+    private final String title;
+    private final CharSequence content;
+    private final int chapterNumber;
+
+    public ReaderChapter(String title, CharSequence content, int chapterNumber) {
+        this.title = title;
+        this.content = content;
+        this.chapterNumber = chapterNumber;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public CharSequence getContent() {
+        return content;
+    }
+
+    public int getChapterNumber() {
+        return chapterNumber;
+    }
+}
@@ -0,0 +1,75 @@
+package quynh.ph59304.bansach.reader;
+
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+
+/**
+ * {@link PageLayouter} backed by {@link StaticLayout}, for one font size and viewport.
+ *
+ * Page breaks are found on a window of the chapter (see {@link WindowedPageLayouter}).
+ * Safe to use off the main thread: the paint is copied and not shared with any view.
+ */
+public final class StaticLayoutPageLayouter extends WindowedPageLayouter<StaticLayout> {
+    private final TextPaint paint;
+    private final int width;
+    private final float lineSpacingExtra;
+
+    public StaticLayoutPageLayouter(TextPaint paint, int width, int height, float lineSpacingExtra) {
+        super(height, estimatePageChars(paint, width, height, lineSpacingExtra));
+        this.paint = new TextPaint(paint);
+        this.width = Math.max(1, width);
+        this.lineSpacingExtra = lineSpacingExtra;
+    }
+
+    private static int estimatePageChars(TextPaint paint, int width, int height, float lineSpacingExtra) {
+        float lineHeight = paint.getFontSpacing() + lineSpacingExtra;
+        float charsPerLine = Math.max(1, width) / Math.max(1f, paint.getTextSize() * 0.45f);
+        float lines = Math.max(1, height) / Math.max(1f, lineHeight);
+        return (int) (charsPerLine * lines);
+    }
+
+    public float getTextSize() {
+        return paint.getTextSize();
+    }
+
+    @Override
+    protected Lines layoutWindow(CharSequence text, int start, int end) {
+        // StaticLayout dựng từ (text, start, end) trả về vị trí dòng theo toàn bộ text
+        StaticLayout layout = build(text, start, end);
+        return new Lines() {
+            @Override
+            public int getLineCount() {
+                return layout.getLineCount();
+            }
+
+            @Override
+            public int getLineForVertical(int vertical) {
+                return layout.getLineForVertical(vertical);
+            }
+
+            @Override
+            public int getLineBottom(int line) {
+                return layout.getLineBottom(line);
+            }
+
+            @Override
+            public int getLineEnd(int line) {
+                return layout.getLineEnd(line);
+            }
+        };
+    }
+
+    @Override
+    public StaticLayout layoutPage(CharSequence pageText) {
+        return build(pageText, 0, pageText.length());
+    }
+
+    private StaticLayout build(CharSequence text, int start, int end) {
+        return StaticLayout.Builder.obtain(text, start, end, paint, width)
+                .setAlignment(Layout.Alignment.ALIGN_NORMAL)
+                .setLineSpacing(lineSpacingExtra, 1f)
+                .setIncludePad(false)
+                .build();
+    }
+}
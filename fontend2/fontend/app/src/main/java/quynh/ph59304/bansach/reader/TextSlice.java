@@ -0,0 +1,74 @@
+package quynh.ph59304.bansach.reader;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A read-only window [start, end) over a larger text, without copying it.
+ *
+ * The reader keeps the downloaded book as one String and every chapter as a slice of
+ * it, so opening a book costs one copy of its text instead of two. Only
+ * {@link #toString()} copies, and it is meant for the chapter that is on screen.
+ */
+public final class TextSlice implements CharSequence {
+    private final CharSequence source;
+    private final int start;
+    private final int end;
+
+    public TextSlice(CharSequence source, int start, int end) {
+        if (start < 0 || end < start || end > source.length()) {
+            throw new IndexOutOfBoundsException("start=" + start + ", end=" + end
+                    + ", length=" + source.length());
+        }
+        // Lát cắt của lát cắt vẫn trỏ thẳng vào văn bản gốc
+        if (source instanceof TextSlice) {
+            TextSlice parent = (TextSlice) source;
+            this.source = parent.source;
+            this.start = parent.start + start;
+            this.end = parent.start + end;
+        } else {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    // Vị trí bắt đầu trong văn bản gốc
+    int sourceStart() {
+        return start;
+    }
+
+    public static TextSlice of(CharSequence text) {
+        return text instanceof TextSlice ? (TextSlice) text : new TextSlice(text, 0, text.length());
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException("index=" + index + ", length=" + length());
+        }
+        return source.charAt(start + index);
+    }
+
+    @NonNull
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        return new TextSlice(this, from, to);
+    }
+
+    /**
+     * Copies the slice; use only for text that is about to be displayed.
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        if (source instanceof String) {
+            return ((String) source).substring(start, end);
+        }
+        return source.subSequence(start, end).toString();
+    }
+}
@@ -0,0 +1,63 @@
+package quynh.ph59304.bansach.reader;
+
+/**
+ * Page breaking shared by the layouters: to find where a page ends only a window of
+ * text a bit larger than one page is laid out, never the rest of the chapter, and the
+ * window grows until the page is filled or the limit is reached.
+ *
+ * @param <L> rendered page, see {@link PageLayouter}
+ */
+public abstract class WindowedPageLayouter<L> implements PageLayouter<L> {
+    private final int height;
+    // Ước lượng số ký tự một trang, dùng để chọn cửa sổ văn bản cần dựng
+    private final int estimatedPageChars;
+
+    protected WindowedPageLayouter(int height, int estimatedPageChars) {
+        this.height = Math.max(1, height);
+        this.estimatedPageChars = Math.max(64, estimatedPageChars);
+    }
+
+    /**
+     * Lines of {@code text} between {@code start} and {@code end} laid out as on a page.
+     */
+    protected abstract Lines layoutWindow(CharSequence text, int start, int end);
+
+    @Override
+    public int fitPage(CharSequence text, int start, int limit) {
+        int window = Math.min(limit - start, estimatedPageChars * 3 / 2);
+        while (true) {
+            int windowEnd = start + window;
+            Lines lines = layoutWindow(text, start, windowEnd);
+            int lineCount = lines.getLineCount();
+            int lastLine = lines.getLineForVertical(height);
+            if (lines.getLineBottom(lastLine) > height) {
+                lastLine--;
+            }
+            // Dòng cuối của cửa sổ có thể bị cắt giữa chừng: chỉ tin khi còn dòng sau nó
+            boolean windowFilled = lastLine < lineCount - 1;
+            if (windowFilled || windowEnd >= limit) {
+                if (lastLine < 0) {
+                    lastLine = 0; // chữ lớn hơn trang: vẫn hiện một dòng
+                }
+                // Vị trí cuối dòng đã tính theo toàn bộ text, không cộng thêm start
+                return lines.getLineEnd(lastLine);
+            }
+            window = Math.min(limit - start, window * 2);
+        }
+    }
+
+    /**
+     * Line metrics of a laid-out window, as {@code android.text.Layout} reports them.
+     */
+    protected interface Lines {
+        int getLineCount();
+
+        int getLineForVertical(int vertical);
+
+        /** Bottom of {@code line} in pixels from the top of the page. */
+        int getLineBottom(int line);
+
+        /** End (exclusive) of {@code line} as an offset into the whole text, not the window. */
+        int getLineEnd(int line);
+    }
+}
@@ -0,0 +1,264 @@
+package quynh.ph59304.bansach.repository;
+
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import quynh.ph59304.bansach.api.ApiService;
+import quynh.ph59304.bansach.api.RetrofitClient;
+import quynh.ph59304.bansach.models.ApiResponse;
+import quynh.ph59304.bansach.models.Book;
+import quynh.ph59304.bansach.models.PreviewResponse;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * App-wide per-book cache of what BookDetailActivity and PreviewActivity both show:
+ * the book detail, the preview chapters and whether the user may read the full book.
+ *
+ * Each value is fetched once and served from memory while it is younger than its TTL,
+ * so opening the preview right after the detail page needs no request. Concurrent
+ * requests for the same value and Authorization header share one call. Preview and
+ * access are user-specific and are only reused for the same Authorization header.
+ * Every stored value bumps the entry's version, and a response is only stored if no
+ * value was stored since its request started, so a slow fetch never overwrites a
+ * newer answer. Buying a book updates the
+ * access entry ({@link #onAccessPurchased}); an order marks all access entries stale
+ * ({@link #invalidateAccess()}).
+ *
+ * Must be used from the main thread; callbacks are delivered there.
+ */
+public final class BookInfoRepository {
+    /** How long a book detail is reused (same as its HTTP cache max-age). */
+    public static final long DETAIL_TTL_MS = 5 * 60_000;
+    /** How long preview chapters are reused. */
+    public static final long PREVIEW_TTL_MS = 10 * 60_000;
+    /** How long an access check is reused. */
+    public static final long ACCESS_TTL_MS = 60_000;
+
+    public interface Callback<T> {
+        void onLoaded(T value);
+
+        /**
+         * @param httpCode HTTP status when the server answered with an error, 0 when
+         *                 the request failed (e.g. no connection)
+         */
+        void onError(int httpCode, String message);
+    }
+
+    private interface Extractor<R, T> {
+        /** @return the value, or null if the response carries none */
+        T extract(R body);
+    }
+
+    private static BookInfoRepository instance;
+
+    private final Map<String, Entry<Book>> details = new HashMap<>();
+    private final Map<String, Entry<PreviewResponse>> previews = new HashMap<>();
+    private final Map<String, Entry<Boolean>> access = new HashMap<>();
+
+    private BookInfoRepository() {
+    }
+
+    public static synchronized BookInfoRepository getInstance() {
+        if (instance == null) {
+            instance = new BookInfoRepository();
+        }
+        return instance;
+    }
+
+    /**
+     * Book detail; a missing book is delivered as {@code null} and not cached.
+     */
+    public void getBookDetail(String bookId, Callback<Book> callback) {
+        ApiService apiService = RetrofitClient.getInstance().getApiService();
+        load(details, bookId, null, DETAIL_TTL_MS, true, callback,
+                () -> apiService.getBookDetail(bookId), ApiResponse::getBook);
+    }
+
+    /**
+     * Preview chapters. A response without {@code success} is reported as an error.
+     */
+    public void getPreview(String bookId, String authHeader, Callback<PreviewResponse> callback) {
+        ApiService apiService = RetrofitClient.getInstance().getApiService();
+        load(previews, bookId, authHeader, PREVIEW_TTL_MS, false, callback,
+                () -> apiService.getPreviewContent(bookId, authHeader),
+                body -> body.isSuccess() ? body : null);
+    }
+
+    /**
+     * Whether the signed-in user may read the whole book.
+     */
+    public void getAccess(String bookId, String authHeader, Callback<Boolean> callback) {
+        ApiService apiService = RetrofitClient.getInstance().getApiService();
+        load(access, bookId, authHeader, ACCESS_TTL_MS, false, callback,
+                () -> apiService.checkBookAccess(authHeader, bookId),
+                body -> {
+                    Map<String, Object> data = body.getData();
+                    if (data == null) {
+                        return null;
+                    }
+                    Object hasAccess = data.get("hasAccess");
+                    return hasAccess instanceof Boolean ? (Boolean) hasAccess : Boolean.FALSE;
+                });
+    }
+
+    /**
+     * Loads the access entry ahead of time (e.g. on the detail page, for the preview).
+     */
+    public void prefetchAccess(String bookId, String authHeader) {
+        getAccess(bookId, authHeader, new Callback<Boolean>() {
+            @Override
+            public void onLoaded(Boolean value) {
+            }
+
+            @Override
+            public void onError(int httpCode, String message) {
+            }
+        });
+    }
+
+    /**
+     * The user has just bought the book: access is granted right away and the preview
+     * is fetched again (the server may return more of it).
+     */
+    public void onAccessPurchased(String bookId, String authHeader) {
+        Entry<Boolean> entry = access.get(bookId);
+        if (entry == null) {
+            entry = new Entry<>();
+            access.put(bookId, entry);
+        }
+        entry.set(Boolean.TRUE, authHeader);
+        previews.remove(bookId);
+    }
+
+    /** Marks every access entry stale, e.g. after an order that may include books. */
+    public void invalidateAccess() {
+        for (Entry<Boolean> entry : access.values()) {
+            entry.invalidate();
+        }
+    }
+
+    /** Drops everything, e.g. on logout. */
+    public void clear() {
+        details.clear();
+        previews.clear();
+        access.clear();
+    }
+
+    /**
+     * @param allowEmpty deliver a response without value as {@code null} (not cached)
+     *                   instead of as an error
+     */
+    private <R, T> void load(Map<String, Entry<T>> cache, String bookId, String authHeader, long ttlMs,
+                             boolean allowEmpty, Callback<T> callback, Supplier<Call<R>> call,
+                             Extractor<R, T> extractor) {
+        Entry<T> entry = cache.get(bookId);
+        if (entry == null) {
+            entry = new Entry<>();
+            cache.put(bookId, entry);
+        }
+        if (entry.isFresh(authHeader, ttlMs)) {
+            callback.onLoaded(entry.value);
+            return;
+        }
+        Request<T> running = entry.inFlight.get(authHeader);
+        if (running != null) {
+            running.waiting.add(callback);
+            return;
+        }
+        final Entry<T> target = entry;
+        final String requestAuth = authHeader;
+        final Request<T> request = new Request<>(entry.version);
+        request.waiting.add(callback);
+        entry.inFlight.put(authHeader, request);
+        call.get().enqueue(new retrofit2.Callback<R>() {
+            @Override
+            public void onResponse(Call<R> call, Response<R> response) {
+                R body = response.body();
+                if (!response.isSuccessful() || body == null) {
+                    target.fail(request, requestAuth, response.code(), "HTTP " + response.code());
+                    return;
+                }
+                T value = extractor.extract(body);
+                if (value == null && !allowEmpty) {
+                    target.fail(request, requestAuth, response.code(), "Empty response");
+                    return;
+                }
+                target.complete(request, value, requestAuth);
+            }
+
+            @Override
+            public void onFailure(Call<R> call, Throwable t) {
+                target.fail(request, requestAuth, 0,
+                        t.getMessage() != null ? t.getMessage() : t.getClass().getSimpleName());
+            }
+        });
+    }
+
+    /** One call in flight for an entry and an Authorization header. */
+    private static final class Request<T> {
+        // Phiên bản của entry lúc bắt đầu gọi: đã có giá trị mới hơn thì không ghi đè
+        final int startVersion;
+        final List<Callback<T>> waiting = new ArrayList<>();
+
+        Request(int startVersion) {
+            this.startVersion = startVersion;
+        }
+    }
+
+    private static final class Entry<T> {
+        T value;
+        String authHeader;
+        long fetchedAtMs;
+        // Tăng mỗi lần lưu giá trị hoặc đánh dấu cũ
+        int version;
+        // Mỗi Authorization header có lượt gọi và hàng chờ riêng
+        final Map<String, Request<T>> inFlight = new HashMap<>();
+
+        boolean isFresh(String auth, long ttlMs) {
+            return fetchedAtMs > 0 && Objects.equals(authHeader, auth)
+                    && SystemClock.elapsedRealtime() - fetchedAtMs < ttlMs;
+        }
+
+        void set(T newValue, String auth) {
+            value = newValue;
+            authHeader = auth;
+            fetchedAtMs = SystemClock.elapsedRealtime();
+            version++;
+        }
+
+        void invalidate() {
+            fetchedAtMs = 0;
+            version++;
+        }
+
+        void complete(Request<T> request, T newValue, String auth) {
+            inFlight.remove(auth, request);
+            T delivered = newValue;
+            if (request.startVersion == version) {
+                if (newValue != null) {
+                    set(newValue, auth);
+                }
+            } else if (fetchedAtMs > 0 && Objects.equals(authHeader, auth)) {
+                // Đã có giá trị mới hơn cho cùng người dùng (vd. vừa mua): trả giá trị đó
+                delivered = value;
+            }
+            for (Callback<T> callback : request.waiting) {
+                callback.onLoaded(delivered);
+            }
+        }
+
+        void fail(Request<T> request, String auth, int httpCode, String message) {
+            inFlight.remove(auth, request);
+            for (Callback<T> callback : request.waiting) {
+                callback.onError(httpCode, message);
+            }
+        }
+    }
+}
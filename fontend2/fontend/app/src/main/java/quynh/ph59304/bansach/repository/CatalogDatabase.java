@@ -0,0 +1,151 @@
+package quynh.ph59304.bansach.repository;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.google.gson.Gson;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import quynh.ph59304.bansach.api.AppGson;
+import quynh.ph59304.bansach.models.Book;
+
+/**
+ * SQLite copy of the book catalog used by {@link CatalogStore}.
+ *
+ * Each book is stored as its JSON (the same shape the API returns), keyed by id, next
+ * to its createdAt so screens can read just the rows they show, newest first, through
+ * an index. The sync watermarks live in the same database and are written in the same
+ * transaction as the rows they describe, so an interrupted sync simply resumes from
+ * the last applied page.
+ *
+ * Not thread-safe by itself; {@link CatalogStore} only touches it from its executor.
+ */
+class CatalogDatabase extends SQLiteOpenHelper {
+    private static final String DB_NAME = "catalog.db";
+    private static final int DB_VERSION = 3;
+
+    private static final String TABLE_BOOKS = "books";
+    private static final String TABLE_SYNC_STATE = "sync_state";
+
+    static final String STATE_BOOKS_SINCE = "books_since";
+    static final String STATE_DELETED_SINCE = "deleted_since";
+
+    private final Gson gson = AppGson.get();
+
+    CatalogDatabase(Context context) {
+        super(context.getApplicationContext(), DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_BOOKS + " ("
+                + "id TEXT PRIMARY KEY, "
+                + "created_at TEXT, "
+                + "json TEXT NOT NULL)");
+        // Cùng thứ tự sort {createdAt: -1, _id: -1} của server
+        db.execSQL("CREATE INDEX books_newest ON " + TABLE_BOOKS + " (created_at DESC, id DESC)");
+        db.execSQL("CREATE TABLE " + TABLE_SYNC_STATE + " ("
+                + "key TEXT PRIMARY KEY, "
+                + "value TEXT)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Chỉ là bản sao của server: xóa và đồng bộ lại từ đầu
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_BOOKS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SYNC_STATE);
+        onCreate(db);
+    }
+
+    /**
+     * Reads one page of books, newest first (same order as api/books), through the
+     * (created_at, id) index: only the rows of the page are read, however far into the
+     * catalog it is.
+     *
+     * @param after last book of the previous page, null for the first page
+     */
+    List<Book> readPage(int limit, Book after) {
+        String selection = null;
+        String[] args = null;
+        if (after != null) {
+            // Keyset: (created_at, id) < (của sách cuối trang trước); dạng này dùng được index
+            String createdAt = createdAtKey(after);
+            selection = "created_at <= ? AND (created_at < ? OR id < ?)";
+            args = new String[]{createdAt, createdAt, after.getId()};
+        }
+        List<Book> books = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE_BOOKS, new String[]{"json"},
+                selection, args, null, null, "created_at DESC, id DESC", String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                Book book = gson.fromJson(cursor.getString(0), Book.class);
+                if (book != null && book.getId() != null) {
+                    books.add(book);
+                }
+            }
+        }
+        return books;
+    }
+
+    boolean isEmpty() {
+        return DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE_BOOKS) == 0;
+    }
+
+    String getState(String key) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_SYNC_STATE, new String[]{"value"},
+                "key = ?", new String[]{key}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    /**
+     * Applies one page of changes and moves the watermarks in a single transaction.
+     * A null watermark leaves the stored value untouched.
+     */
+    void applyChanges(List<Book> upserts, List<String> deletedIds, String booksSince, String deletedSince) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (Book book : upserts) {
+                if (book.getId() == null) {
+                    continue;
+                }
+                values.clear();
+                values.put("id", book.getId());
+                values.put("created_at", createdAtKey(book));
+                values.put("json", gson.toJson(book));
+                db.insertWithOnConflict(TABLE_BOOKS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            for (String id : deletedIds) {
+                db.delete(TABLE_BOOKS, "id = ?", new String[]{id});
+            }
+            if (booksSince != null) {
+                putState(db, STATE_BOOKS_SINCE, booksSince);
+            }
+            if (deletedSince != null) {
+                putState(db, STATE_DELETED_SINCE, deletedSince);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Không lưu NULL: chuỗi rỗng vẫn xếp sau cùng và so sánh được trong keyset
+    private static String createdAtKey(Book book) {
+        return book.getCreatedAt() != null ? book.getCreatedAt() : "";
+    }
+
+    private static void putState(SQLiteDatabase db, String key, String value) {
+        ContentValues values = new ContentValues();
+        values.put("key", key);
+        values.put("value", value);
+        db.insertWithOnConflict(TABLE_SYNC_STATE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+}
@@ -0,0 +1,231 @@
+package quynh.ph59304.bansach.repository;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import quynh.ph59304.bansach.api.ApiService;
+import quynh.ph59304.bansach.api.RetrofitClient;
+import quynh.ph59304.bansach.models.Book;
+import quynh.ph59304.bansach.models.BookChangesResponse;
+import retrofit2.Response;
+
+/**
+ * Offline-first book catalog.
+ *
+ * The catalog is kept in a local SQLite database ({@link CatalogDatabase}) so screens
+ * can show books immediately, even without network. {@link #sync(boolean)} then pulls
+ * only what changed since the last sync from GET api/books/changes: books whose
+ * updatedAt is past the stored watermark, and tombstones (ids of deleted books).
+ *
+ * The store keeps no books in memory. Screens read the rows they show with
+ * {@link #loadPage}: Home its 24 cards, the book list one page at a time as the user
+ * scrolls, so first paint does not depend on the size of the catalog. Only the book
+ * list's search index holds the whole catalog, and only once the user searches or
+ * filters.
+ *
+ * Each sync page written to the database is passed to listeners as a delta (the books
+ * it added or updated and the ids it deleted), so an in-memory index can be patched
+ * instead of rebuilt. Callbacks run on the main thread; database and network work runs
+ * on a single background thread.
+ */
+public final class CatalogStore {
+    private static final String TAG = "CatalogStore";
+    /** A sync is skipped if the previous successful one is younger than this. */
+    public static final long SYNC_TTL_MS = 60_000;
+    private static final int SYNC_PAGE_SIZE = 200;
+
+    /** Newest first, same as the server's sort {createdAt: -1, _id: -1} and {@link #loadPage}. */
+    public static final Comparator<Book> NEWEST_FIRST = (a, b) -> {
+        int byDate = compareNullable(b.getCreatedAt(), a.getCreatedAt());
+        return byDate != 0 ? byDate : compareNullable(b.getId(), a.getId());
+    };
+
+    public interface Listener {
+        /**
+         * One batch of changes was written to the store. Both lists may be empty (a sync
+         * found an empty catalog on the server).
+         *
+         * @param upserts    books added or updated
+         * @param deletedIds ids of books removed
+         */
+        void onCatalogChanged(List<Book> upserts, List<String> deletedIds);
+
+        void onSyncError(String message);
+    }
+
+    public interface BooksCallback {
+        void onBooks(List<Book> books);
+    }
+
+    private static Context appContext;
+    private static CatalogStore instance;
+
+    private final CatalogDatabase database;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new ArrayList<>();
+
+    // Chỉ truy cập trên main thread
+    private boolean syncing;
+    private long syncedAtMs;
+
+    private CatalogStore(Context context) {
+        database = new CatalogDatabase(context);
+    }
+
+    /**
+     * Must be called once from {@link quynh.ph59304.bansach.BanSachApplication}.
+     */
+    public static synchronized void init(Context context) {
+        if (appContext == null) {
+            appContext = context.getApplicationContext();
+        }
+    }
+
+    public static synchronized CatalogStore getInstance() {
+        if (instance == null) {
+            if (appContext == null) {
+                throw new IllegalStateException("CatalogStore.init() was not called");
+            }
+            instance = new CatalogStore(appContext);
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a listener for changes written from now on; read what is already stored
+     * with {@link #loadPage}. Must be called on the main thread.
+     */
+    public void addListener(Listener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Reads one page of stored books, newest first (same order as api/books), and delivers
+     * it on the main thread. A page shorter than {@code limit} is the last one. Must be
+     * called on the main thread.
+     *
+     * @param after last book of the previous page, null for the first page
+     */
+    public void loadPage(int limit, Book after, BooksCallback callback) {
+        executor.execute(() -> {
+            List<Book> books = Collections.unmodifiableList(database.readPage(limit, after));
+            mainHandler.post(() -> callback.onBooks(books));
+        });
+    }
+
+    public boolean isSyncing() {
+        return syncing;
+    }
+
+    /**
+     * Fetches changes from the backend. Must be called on the main thread.
+     *
+     * @param force ignore {@link #SYNC_TTL_MS} (e.g. pull-to-refresh)
+     */
+    public void sync(boolean force) {
+        if (syncing) {
+            return;
+        }
+        if (!force && syncedAtMs > 0 && SystemClock.elapsedRealtime() - syncedAtMs < SYNC_TTL_MS) {
+            return;
+        }
+        syncing = true;
+        executor.execute(() -> {
+            String error = null;
+            boolean changed = false;
+            try {
+                changed = runSync();
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Catalog sync failed: " + e.getMessage(), e);
+                error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            }
+            final String message = error;
+            // Server cũng trống: vẫn báo để màn hình tắt trạng thái đang tải
+            final boolean notifyEmpty = error == null && !changed && database.isEmpty();
+            mainHandler.post(() -> {
+                syncing = false;
+                if (message == null) {
+                    syncedAtMs = SystemClock.elapsedRealtime();
+                    if (notifyEmpty) {
+                        notifyChanged(Collections.emptyList(), Collections.emptyList());
+                    }
+                } else {
+                    for (Listener listener : new ArrayList<>(listeners)) {
+                        listener.onSyncError(message);
+                    }
+                }
+            });
+        });
+    }
+
+    // Runs on the executor; returns true if anything was added or removed
+    private boolean runSync() throws IOException {
+        ApiService apiService = RetrofitClient.getInstance().getApiService();
+        String since = database.getState(CatalogDatabase.STATE_BOOKS_SINCE);
+        String deletedSince = database.getState(CatalogDatabase.STATE_DELETED_SINCE);
+        boolean firstPage = true;
+        boolean changed = false;
+
+        while (true) {
+            // Tombstone chỉ cần hỏi ở trang đầu; lần đồng bộ đầu tiên thì chưa có gì để xóa
+            String askDeletedSince = firstPage && deletedSince != null ? deletedSince : null;
+            Response<BookChangesResponse> response =
+                    apiService.getBookChanges(since, askDeletedSince, SYNC_PAGE_SIZE).execute();
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new IOException("HTTP " + response.code() + " - " + response.message());
+            }
+            BookChangesResponse body = response.body();
+            List<Book> upserts = body.getBooks() != null ? body.getBooks() : new ArrayList<>();
+            List<String> deletedIds = body.getDeletedIds() != null ? body.getDeletedIds() : new ArrayList<>();
+
+            database.applyChanges(upserts, deletedIds, body.getNextSince(),
+                    firstPage ? body.getServerTime() : null);
+            if (!upserts.isEmpty() || !deletedIds.isEmpty()) {
+                changed = true;
+                // Báo từng trang ngay khi đã ghi: lần đầu màn hình hiện được trang đầu sớm
+                List<Book> pageUpserts = Collections.unmodifiableList(upserts);
+                List<String> pageDeletedIds = Collections.unmodifiableList(deletedIds);
+                mainHandler.post(() -> notifyChanged(pageUpserts, pageDeletedIds));
+            }
+
+            since = body.getNextSince();
+            firstPage = false;
+            if (!body.hasMore() || since == null) {
+                break;
+            }
+        }
+
+        return changed;
+    }
+
+    private void notifyChanged(List<Book> upserts, List<String> deletedIds) {
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onCatalogChanged(upserts, deletedIds);
+        }
+    }
+
+    private static int compareNullable(String a, String b) {
+        if (a == null) {
+            return b == null ? 0 : -1;
+        }
+        return b == null ? 1 : a.compareTo(b);
+    }
+}
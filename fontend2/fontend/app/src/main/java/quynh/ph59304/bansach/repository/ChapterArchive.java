@@ -0,0 +1,409 @@
+package quynh.ph59304.bansach.repository;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import quynh.ph59304.bansach.reader.ChapterResidency;
+import quynh.ph59304.bansach.reader.ReaderChapter;
+
+/**
+ * On-disk format of a downloaded book: one deflate-compressed chunk per chapter in
+ * {@value #DATA_FILE} and an index ({@value #INDEX_FILE}) with, per chapter, the title,
+ * the chunk position and a CRC32 of the text.
+ *
+ * Opening a book reads only the index; a chapter is read with one positional read of
+ * its chunk when it is displayed ({@link #readChapter}) and checked against its CRC.
+ * The index is written last and carries its own CRC, so a book whose download or write
+ * was interrupted simply has no (valid) index and is treated as not downloaded.
+ *
+ * Chapters read through {@link #toReaderChapters()} stay in memory only while they are
+ * near the chapter being read ({@link #getResidency()}); the others are read again from
+ * disk when needed.
+ */
+public final class ChapterArchive {
+    static final String DATA_FILE = "chapters.dat";
+    static final String INDEX_FILE = "index.dat";
+    private static final int MAGIC = 0x42534348; // "BSCH"
+    private static final int VERSION = 1;
+
+    /** Index entry of one chapter. */
+    public static final class Entry {
+        private final String title;
+        private final int chapterNumber;
+        private final long offset;
+        private final int compressedLength;
+        private final int byteLength;
+        private final int charLength;
+        private final long crc;
+
+        Entry(String title, int chapterNumber, long offset, int compressedLength,
+              int byteLength, int charLength, long crc) {
+            this.title = title;
+            this.chapterNumber = chapterNumber;
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.byteLength = byteLength;
+            this.charLength = charLength;
+            this.crc = crc;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public int getChapterNumber() {
+            return chapterNumber;
+        }
+
+        public int getCharLength() {
+            return charLength;
+        }
+
+        public int getCompressedLength() {
+            return compressedLength;
+        }
+    }
+
+    private final File dataFile;
+    private final String contentHash;
+    private final List<Entry> entries;
+    private final ChapterResidency residency = new ChapterResidency(ChapterResidency.DEFAULT_RADIUS);
+
+    private ChapterArchive(File dataFile, String contentHash, List<Entry> entries) {
+        this.dataFile = dataFile;
+        this.contentHash = contentHash;
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Writes the chapters of a book into {@code dir}, replacing what was there.
+     *
+     * @param contentHash version of the source content (e.g. its SHA-256)
+     */
+    public static ChapterArchive write(File dir, List<ReaderChapter> chapters, String contentHash) throws IOException {
+        try (Writer writer = newWriter(dir)) {
+            for (ReaderChapter chapter : chapters) {
+                writer.append(chapter);
+            }
+            return writer.commit(contentHash);
+        }
+    }
+
+    /**
+     * Starts writing a book into {@code dir} chapter by chapter, e.g. while it is being
+     * downloaded. Nothing in {@code dir} changes until {@link Writer#commit}.
+     */
+    public static Writer newWriter(File dir) throws IOException {
+        return new Writer(dir);
+    }
+
+    /**
+     * Appends compressed chapters to a temporary data file; {@link #commit} writes the
+     * index and swaps both files in. Closing without committing discards the files.
+     */
+    public static final class Writer implements Closeable {
+        private final File dir;
+        private final File dataTmp;
+        private final File indexTmp;
+        private final FileOutputStream out;
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private final byte[] buffer = new byte[64 * 1024];
+        private final List<Entry> entries = new ArrayList<>();
+        private long offset;
+        private boolean closed;
+
+        private Writer(File dir) throws IOException {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create " + dir);
+            }
+            this.dir = dir;
+            this.dataTmp = new File(dir, DATA_FILE + ".tmp");
+            this.indexTmp = new File(dir, INDEX_FILE + ".tmp");
+            this.out = new FileOutputStream(dataTmp);
+        }
+
+        public void append(ReaderChapter chapter) throws IOException {
+            String text = chapter.getContent().toString();
+            byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+            CRC32 crc = new CRC32();
+            crc.update(raw, 0, raw.length);
+
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            int compressed = 0;
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+                compressed += n;
+            }
+            entries.add(new Entry(chapter.getTitle(), chapter.getChapterNumber(), offset,
+                    compressed, raw.length, text.length(), crc.getValue()));
+            offset += compressed;
+        }
+
+        public int getChapterCount() {
+            return entries.size();
+        }
+
+        /**
+         * Makes the written chapters the book in {@code dir}.
+         *
+         * @param contentHash version of the source content (e.g. its SHA-256)
+         */
+        public ChapterArchive commit(String contentHash) throws IOException {
+            out.getFD().sync();
+            out.close();
+            deflater.end();
+            closed = true;
+
+            try (FileOutputStream indexOut = new FileOutputStream(indexTmp)) {
+                indexOut.write(encodeIndex(contentHash, entries));
+                indexOut.getFD().sync();
+            }
+
+            // Bỏ index cũ trước: không bao giờ có index trỏ vào file dữ liệu khác
+            File index = new File(dir, INDEX_FILE);
+            File data = new File(dir, DATA_FILE);
+            if (index.exists() && !index.delete()) {
+                throw new IOException("Cannot replace " + index);
+            }
+            if (!dataTmp.renameTo(data) || !indexTmp.renameTo(index)) {
+                throw new IOException("Cannot commit archive in " + dir);
+            }
+            return new ChapterArchive(data, contentHash, entries);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            deflater.end();
+            out.close();
+            dataTmp.delete();
+            indexTmp.delete();
+        }
+    }
+
+    /**
+     * @return the archive in {@code dir}, or null if there is no complete one
+     * @throws IOException if the index exists but is damaged
+     */
+    public static ChapterArchive open(File dir) throws IOException {
+        File index = new File(dir, INDEX_FILE);
+        File data = new File(dir, DATA_FILE);
+        if (!index.isFile() || !data.isFile()) {
+            return null;
+        }
+        byte[] bytes = Files.readAllBytes(index.toPath());
+        if (bytes.length < 8) {
+            throw new IOException("Index too short");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        long storedCrc = ByteBuffer.wrap(bytes, bytes.length - 8, 8).getLong();
+        if (crc.getValue() != storedCrc) {
+            throw new IOException("Index checksum mismatch");
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 8));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Unknown index format");
+        }
+        String contentHash = in.readUTF();
+        int count = in.readInt();
+        long dataLength = data.length();
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Entry entry = new Entry(in.readUTF(), in.readInt(), in.readLong(), in.readInt(),
+                    in.readInt(), in.readInt(), in.readLong());
+            if (entry.offset + entry.compressedLength > dataLength) {
+                throw new IOException("Chapter " + i + " is past the end of the data file");
+            }
+            entries.add(entry);
+        }
+        return new ChapterArchive(data, contentHash, entries);
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /** Which chapter texts of {@link #toReaderChapters()} are kept in memory. */
+    public ChapterResidency getResidency() {
+        return residency;
+    }
+
+    /**
+     * Reads, inflates and verifies one chapter. Safe to call from any thread.
+     */
+    public String readChapter(int index) throws IOException {
+        Entry entry = entries.get(index);
+        ByteBuffer compressed = ByteBuffer.allocate(entry.compressedLength);
+        try (FileChannel channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ)) {
+            long position = entry.offset;
+            while (compressed.hasRemaining()) {
+                int n = channel.read(compressed, position);
+                if (n < 0) {
+                    throw new IOException("Unexpected end of data in chapter " + index);
+                }
+                position += n;
+            }
+        }
+
+        byte[] raw = new byte[entry.byteLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array(), 0, entry.compressedLength);
+            int total = 0;
+            while (total < raw.length) {
+                int n = inflater.inflate(raw, total, raw.length - total);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                total += n;
+            }
+            if (total != raw.length || !inflater.finished()) {
+                throw new IOException("Chapter " + index + " has the wrong length");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Chapter " + index + " is corrupted", e);
+        } finally {
+            inflater.end();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(raw, 0, raw.length);
+        if (crc.getValue() != entry.crc) {
+            throw new IOException("Chapter " + index + " checksum mismatch");
+        }
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reader chapters whose content is read from disk on first access (typically on the
+     * reader's background threads); titles and lengths come from the index.
+     */
+    public List<ReaderChapter> toReaderChapters() {
+        List<ReaderChapter> chapters = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            chapters.add(new ReaderChapter(entry.title, new LazyChapterText(this, i), entry.chapterNumber));
+        }
+        return chapters;
+    }
+
+    private static byte[] encodeIndex(String contentHash, List<Entry> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(contentHash != null ? contentHash : "");
+        out.writeInt(entries.size());
+        for (Entry entry : entries) {
+            out.writeUTF(entry.title);
+            out.writeInt(entry.chapterNumber);
+            out.writeLong(entry.offset);
+            out.writeInt(entry.compressedLength);
+            out.writeInt(entry.byteLength);
+            out.writeInt(entry.charLength);
+            out.writeLong(entry.crc);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Chapter text loaded from the archive when first read; its length is known from
+     * the index without loading it. The loaded text is held by the archive's
+     * {@link ChapterResidency} and only weakly here, so chapters far from the reader can
+     * be collected. A damaged chunk surfaces as an {@link UncheckedIOException}.
+     */
+    static final class LazyChapterText implements CharSequence {
+        private final ChapterArchive archive;
+        private final int index;
+        // volatile: đọc nhanh không cần khóa khi chữ vẫn còn trong bộ nhớ
+        private volatile WeakReference<String> text = new WeakReference<>(null);
+
+        LazyChapterText(ChapterArchive archive, int index) {
+            this.archive = archive;
+            this.index = index;
+        }
+
+        private String text() {
+            String loaded = text.get();
+            if (loaded != null) {
+                return loaded;
+            }
+            synchronized (this) {
+                loaded = text.get();
+                if (loaded == null) {
+                    loaded = archive.residency.get(index);
+                }
+                if (loaded == null) {
+                    try {
+                        loaded = archive.readChapter(index);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    archive.residency.put(index, loaded);
+                }
+                text = new WeakReference<>(loaded);
+                return loaded;
+            }
+        }
+
+        @Override
+        public int length() {
+            return archive.entries.get(index).charLength;
+        }
+
+        @Override
+        public char charAt(int i) {
+            return text().charAt(i);
+        }
+
+        @NonNull
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text().subSequence(start, end);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return text();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package quynh.ph59304.bansach.repository;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Disk cache for chapters read online: {dir}/{bookId}/{version}_{index}.txt, at most
+ * {@code maxBytes} in total across books. The least recently read chapters are deleted
+ * first; when a book's chapters change version, its older files are dropped on the next
+ * write. Thread-safe.
+ */
+final class ChapterDiskCache {
+    private final File dir;
+    private final long maxBytes;
+    // Thứ tự truy cập, cũ nhất trước; khởi tạo từ thời điểm sửa file
+    private final LinkedHashMap<File, Long> files = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+    private boolean loaded;
+
+    ChapterDiskCache(File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the cached text, or null if it is not cached
+     */
+    synchronized String get(String bookId, String version, int index) {
+        load();
+        File file = fileFor(bookId, version, index);
+        if (files.get(file) == null) {
+            return null;
+        }
+        try {
+            String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            file.setLastModified(System.currentTimeMillis());
+            return text;
+        } catch (IOException e) {
+            forget(file);
+            file.delete();
+            return null;
+        }
+    }
+
+    synchronized void put(String bookId, String version, int index, String text) throws IOException {
+        load();
+        File bookDir = new File(dir, safeName(bookId));
+        if (!bookDir.isDirectory() && !bookDir.mkdirs()) {
+            throw new IOException("Cannot create " + bookDir);
+        }
+        dropOtherVersions(bookDir, safeName(version));
+
+        File file = fileFor(bookId, version, index);
+        File tmp = new File(bookDir, file.getName() + ".tmp");
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(bytes);
+        }
+        forget(file);
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Cannot write " + file);
+        }
+        files.put(file, (long) bytes.length);
+        totalBytes += bytes.length;
+        trim();
+    }
+
+    synchronized long getTotalBytes() {
+        load();
+        return totalBytes;
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<File, Long>> it = files.entrySet().iterator();
+        // Giữ lại ít nhất file vừa ghi
+        while (totalBytes > maxBytes && files.size() > 1 && it.hasNext()) {
+            Map.Entry<File, Long> eldest = it.next();
+            eldest.getKey().delete();
+            totalBytes -= eldest.getValue();
+            it.remove();
+        }
+    }
+
+    private void dropOtherVersions(File bookDir, String version) {
+        File[] existing = bookDir.listFiles();
+        if (existing == null) {
+            return;
+        }
+        String prefix = version + "_";
+        for (File file : existing) {
+            if (!file.getName().startsWith(prefix)) {
+                forget(file);
+                file.delete();
+            }
+        }
+    }
+
+    private void forget(File file) {
+        Long size = files.remove(file);
+        if (size != null) {
+            totalBytes -= size;
+        }
+    }
+
+    // Lần dùng đầu tiên: đọc các file có sẵn, sắp theo thời điểm đọc gần nhất
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        List<File> found = new ArrayList<>();
+        File[] books = dir.listFiles();
+        if (books != null) {
+            for (File book : books) {
+                File[] chapters = book.listFiles();
+                if (chapters == null) {
+                    continue;
+                }
+                for (File chapter : chapters) {
+                    if (chapter.getName().endsWith(".tmp")) {
+                        chapter.delete();
+                    } else {
+                        found.add(chapter);
+                    }
+                }
+            }
+        }
+        found.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : found) {
+            files.put(file, file.length());
+            totalBytes += file.length();
+        }
+    }
+
+    private File fileFor(String bookId, String version, int index) {
+        return new File(new File(dir, safeName(bookId)), safeName(version) + "_" + index + ".txt");
+    }
+
+    private static String safeName(String name) {
+        return name.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+}
@@ -0,0 +1,250 @@
+package quynh.ph59304.bansach.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import quynh.ph59304.bansach.api.ApiService;
+import quynh.ph59304.bansach.api.RetrofitClient;
+import quynh.ph59304.bansach.models.ApiResponse;
+import quynh.ph59304.bansach.models.CoinBalanceResponse;
+import quynh.ph59304.bansach.models.User;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * App-wide store for the user's coin balance.
+ *
+ * Screens observe the last known value instead of each running their own
+ * getCoinBalance -> getProfile fallback chain. {@link #refresh(String, boolean)} only
+ * hits the network when the cached value is older than {@link #TTL_MS}; purchases,
+ * top-ups and VNPay callbacks push new values with {@link #setBalance(double)} /
+ * {@link #adjustBalance(double)} or mark it stale with {@link #invalidate()}.
+ *
+ * Every value pushed from outside, an invalidation or {@link #clear()} starts a new
+ * generation; a fetch started in an older generation is dropped when it completes, so
+ * it can never overwrite a newer value or leak the previous account's balance after
+ * logout.
+ *
+ * All listener callbacks are delivered on the main thread.
+ */
+public final class CoinBalanceRepository {
+    private static final String TAG = "CoinBalanceRepository";
+    /** How long a fetched balance is considered fresh. */
+    public static final long TTL_MS = 30_000;
+    private static final int NO_REQUEST = -1;
+
+    public interface Listener {
+        void onBalanceChanged(double balance);
+    }
+
+    private static CoinBalanceRepository instance;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new ArrayList<>();
+    private Double balance;
+    private long fetchedAtMs;
+    // Chỉ truy cập trên main thread
+    private int generation;
+    private int loadingGeneration = NO_REQUEST;
+
+    private CoinBalanceRepository() {
+    }
+
+    public static synchronized CoinBalanceRepository getInstance() {
+        if (instance == null) {
+            instance = new CoinBalanceRepository();
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a listener and immediately delivers the cached balance, if any.
+     * Call {@link #removeListener(Listener)} from the matching lifecycle callback.
+     */
+    public void addListener(Listener listener) {
+        runOnMain(() -> {
+            if (!listeners.contains(listener)) {
+                listeners.add(listener);
+            }
+            if (balance != null) {
+                listener.onBalanceChanged(balance);
+            }
+        });
+    }
+
+    public void removeListener(Listener listener) {
+        runOnMain(() -> listeners.remove(listener));
+    }
+
+    /**
+     * Last known balance, or null if it was never loaded.
+     */
+    public Double getCachedBalance() {
+        return balance;
+    }
+
+    public boolean isFresh() {
+        return balance != null && fetchedAtMs > 0
+                && SystemClock.elapsedRealtime() - fetchedAtMs < TTL_MS;
+    }
+
+    /**
+     * Fetches the balance from the backend unless the cached value is still fresh.
+     *
+     * @param force ignore the TTL (e.g. pull-to-refresh, after a payment); a fetch
+     *              already running is dropped and a new one is started
+     */
+    public void refresh(String authHeader, boolean force) {
+        if (authHeader == null) {
+            return;
+        }
+        runOnMain(() -> {
+            if (force) {
+                // Lượt tải đang chạy có thể bắt đầu trước lần mua: bỏ kết quả của nó
+                generation++;
+            } else if (isFresh() || loadingGeneration == generation) {
+                return;
+            }
+            final int requestGeneration = generation;
+            loadingGeneration = requestGeneration;
+            ApiService apiService = RetrofitClient.getInstance().getApiService();
+            apiService.getCoinBalance(authHeader).enqueue(new Callback<CoinBalanceResponse>() {
+                @Override
+                public void onResponse(Call<CoinBalanceResponse> call, Response<CoinBalanceResponse> response) {
+                    if (requestGeneration != generation) {
+                        return;
+                    }
+                    if (response.isSuccessful() && response.body() != null) {
+                        publishFetched(response.body().getBalance());
+                    } else {
+                        // Fallback to getProfile
+                        loadFromProfile(apiService, authHeader, requestGeneration);
+                    }
+                }
+
+                @Override
+                public void onFailure(Call<CoinBalanceResponse> call, Throwable t) {
+                    if (requestGeneration != generation) {
+                        return;
+                    }
+                    // Fallback to getProfile
+                    loadFromProfile(apiService, authHeader, requestGeneration);
+                }
+            });
+        });
+    }
+
+    private void loadFromProfile(ApiService apiService, String authHeader, int requestGeneration) {
+        apiService.getProfile(authHeader).enqueue(new Callback<ApiResponse<User>>() {
+            @Override
+            public void onResponse(Call<ApiResponse<User>> call, Response<ApiResponse<User>> response) {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loadingGeneration = NO_REQUEST;
+                if (response.isSuccessful() && response.body() != null) {
+                    ApiResponse<User> apiResponse = response.body();
+                    User user = apiResponse.getUser();
+                    if (user == null && apiResponse.getData() != null) {
+                        user = apiResponse.getData();
+                    }
+                    if (user != null) {
+                        publishFetched(user.getCoinBalance());
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(Call<ApiResponse<User>> call, Throwable t) {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loadingGeneration = NO_REQUEST;
+                Log.e(TAG, "Failed to load coin balance: " + t.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Publishes an authoritative balance (from a wallet/balance response or a
+     * purchase result) and restarts the TTL.
+     */
+    public void setBalance(double newBalance) {
+        runOnMain(() -> {
+            generation++;
+            loadingGeneration = NO_REQUEST;
+            balance = newBalance;
+            fetchedAtMs = SystemClock.elapsedRealtime();
+            notifyListeners();
+        });
+    }
+
+    // Main thread, only for a fetch of the current generation
+    private void publishFetched(double fetchedBalance) {
+        loadingGeneration = NO_REQUEST;
+        balance = fetchedBalance;
+        fetchedAtMs = SystemClock.elapsedRealtime();
+        notifyListeners();
+    }
+
+    /**
+     * Optimistically applies a delta (e.g. coins just topped up) and marks the value
+     * stale so the next {@link #refresh} confirms it with the backend.
+     */
+    public void adjustBalance(double delta) {
+        runOnMain(() -> {
+            generation++;
+            loadingGeneration = NO_REQUEST;
+            balance = (balance != null ? balance : 0) + delta;
+            fetchedAtMs = 0;
+            notifyListeners();
+        });
+    }
+
+    /**
+     * Marks the cached balance stale; listeners keep the old value until the next refresh.
+     */
+    public void invalidate() {
+        runOnMain(() -> {
+            generation++;
+            loadingGeneration = NO_REQUEST;
+            fetchedAtMs = 0;
+        });
+    }
+
+    /**
+     * Drops the cached balance, e.g. on logout. A fetch still running for the previous
+     * account is ignored when it completes.
+     */
+    public void clear() {
+        runOnMain(() -> {
+            generation++;
+            loadingGeneration = NO_REQUEST;
+            balance = null;
+            fetchedAtMs = 0;
+        });
+    }
+
+    private void notifyListeners() {
+        if (balance == null) {
+            return;
+        }
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onBalanceChanged(balance);
+        }
+    }
+
+    private void runOnMain(Runnable action) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            action.run();
+        } else {
+            mainHandler.post(action);
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package quynh.ph59304.bansach.repository;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import quynh.ph59304.bansach.api.ApiService;
+import quynh.ph59304.bansach.api.BookContentStreamParser;
+import quynh.ph59304.bansach.api.RetrofitClient;
+import quynh.ph59304.bansach.models.ApiResponse;
+import quynh.ph59304.bansach.models.ChapterIndexResponse;
+import quynh.ph59304.bansach.reader.ChapterStreamBuilder;
+import quynh.ph59304.bansach.reader.ReaderChapter;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Offline library of purchased books.
+ *
+ * A book is downloaded once and kept under files/books/{bookId}/ as a
+ * {@link ChapterArchive}; opening it again reads only the index, and the reader loads
+ * single chapters from disk when they are displayed.
+ *
+ * Books with a content file are fetched from GET access/api/books/{id}/content/file
+ * into a partial file. If the download is interrupted, the next attempt asks only for
+ * the missing bytes (HTTP Range), provided the server still reports the same SHA-256;
+ * the finished file must match that SHA-256 before the book is committed. Books
+ * without a file are built from the structured chapters of the content endpoint.
+ *
+ * Both responses are read as streams: chapters are split off while bytes arrive
+ * ({@link ChapterStreamBuilder}), appended to the archive and also passed to
+ * {@link Callback#onChapter}, so the reader can show the first chapter long before the
+ * whole book is on disk.
+ *
+ * The archive is tagged with the server's content version. {@link #checkForUpdate}
+ * compares it in the background with the current one; a book found outdated is
+ * downloaded again the next time it is opened, and the old copy is kept until the new
+ * one is complete (or used when the download fails).
+ *
+ * Callbacks run on the main thread; disk and network work on one background thread.
+ */
+public final class OfflineBookStore {
+    private static final String TAG = "OfflineBookStore";
+    private static final String BOOKS_DIR = "books";
+    private static final String DOWNLOAD_DIR = "download";
+    private static final String PART_FILE = "content.part";
+    private static final String PART_HASH_FILE = "content.sha256";
+    // Có file này: server đã có nội dung mới hơn bản đã tải
+    private static final String STALE_FILE = "stale";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long PROGRESS_STEP_BYTES = 256 * 1024;
+
+    public interface UpdateCallback {
+        /** The server has newer content than the downloaded copy. */
+        void onUpdateAvailable();
+    }
+
+    public interface Callback {
+        void onProgress(long downloadedBytes, long totalBytes);
+
+        /**
+         * A chapter of a book that is still downloading, in order ({@code index} 0, 1...).
+         * Not called when the book was already downloaded.
+         */
+        void onChapter(int index, ReaderChapter chapter);
+
+        void onOpened(ChapterArchive archive);
+
+        /**
+         * @param httpCode HTTP status when the server refused (e.g. 403), 0 otherwise
+         */
+        void onError(int httpCode, String message);
+    }
+
+    private static Context appContext;
+    private static OfflineBookStore instance;
+
+    private final File rootDir;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Chỉ truy cập trên main thread
+    private final Map<String, List<Callback>> pending = new HashMap<>();
+
+    private OfflineBookStore(Context context) {
+        rootDir = new File(context.getFilesDir(), BOOKS_DIR);
+    }
+
+    /**
+     * Must be called once from {@link quynh.ph59304.bansach.BanSachApplication}.
+     */
+    public static synchronized void init(Context context) {
+        if (appContext == null) {
+            appContext = context.getApplicationContext();
+        }
+    }
+
+    public static synchronized OfflineBookStore getInstance() {
+        if (instance == null) {
+            if (appContext == null) {
+                throw new IllegalStateException("OfflineBookStore.init() was not called");
+            }
+            instance = new OfflineBookStore(appContext);
+        }
+        return instance;
+    }
+
+    /**
+     * Opens a downloaded book, downloading (or resuming) it first when needed. Several
+     * callers for the same book share one download. Must be called on the main thread.
+     */
+    public void open(String authHeader, String bookId, Callback callback) {
+        List<Callback> callbacks = pending.get(bookId);
+        if (callbacks != null) {
+            callbacks.add(callback);
+            return;
+        }
+        callbacks = new ArrayList<>();
+        callbacks.add(callback);
+        pending.put(bookId, callbacks);
+        executor.execute(() -> {
+            try {
+                ChapterArchive local = openLocal(bookId);
+                File stale = new File(bookDir(bookId), STALE_FILE);
+                ChapterArchive archive = local;
+                if (local == null || stale.exists()) {
+                    try {
+                        archive = download(authHeader, bookId);
+                        stale.delete();
+                    } catch (IOException | RuntimeException e) {
+                        if (local == null) {
+                            throw e;
+                        }
+                        // Không tải được bản mới (vd. mất mạng): vẫn đọc bản cũ
+                        Log.w(TAG, "Update of " + bookId + " failed, using the old copy: " + e.getMessage());
+                    }
+                }
+                final ChapterArchive result = archive;
+                mainHandler.post(() -> {
+                    for (Callback waiting : finish(bookId)) {
+                        waiting.onOpened(result);
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Cannot open book " + bookId + ": " + e.getMessage(), e);
+                final int code = e instanceof HttpStatusException ? ((HttpStatusException) e).code : 0;
+                final String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                mainHandler.post(() -> {
+                    for (Callback waiting : finish(bookId)) {
+                        waiting.onError(code, message);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * True when the book has been downloaded completely (cheap file check).
+     */
+    public boolean isDownloaded(String bookId) {
+        return new File(bookDir(bookId), ChapterArchive.INDEX_FILE).isFile();
+    }
+
+    /**
+     * Asks the server for the current content version of a downloaded book (the light
+     * chapter index request) and marks the copy outdated when it differs from
+     * {@code archive}. The callback runs on the main thread, only if there is an update.
+     */
+    public void checkForUpdate(String authHeader, String bookId, ChapterArchive archive, UpdateCallback callback) {
+        ApiService apiService = RetrofitClient.getInstance().getApiService();
+        apiService.getChapterIndex(authHeader, bookId).enqueue(new retrofit2.Callback<ApiResponse<ChapterIndexResponse>>() {
+            @Override
+            public void onResponse(Call<ApiResponse<ChapterIndexResponse>> call,
+                                   Response<ApiResponse<ChapterIndexResponse>> response) {
+                ApiResponse<ChapterIndexResponse> body = response.body();
+                String current = body != null && body.getData() != null ? body.getData().getContentVersion() : null;
+                if (current == null || current.equals(archive.getContentHash())) {
+                    return;
+                }
+                executor.execute(() -> {
+                    try {
+                        Files.write(new File(bookDir(bookId), STALE_FILE).toPath(),
+                                current.getBytes(StandardCharsets.UTF_8));
+                    } catch (IOException e) {
+                        Log.w(TAG, "Cannot mark " + bookId + " outdated: " + e.getMessage());
+                    }
+                });
+                callback.onUpdateAvailable();
+            }
+
+            @Override
+            public void onFailure(Call<ApiResponse<ChapterIndexResponse>> call, Throwable t) {
+                // Không có mạng: dùng bản đã tải, kiểm tra lại lần sau
+                Log.d(TAG, "Update check failed: " + t.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Stops delivering results to {@code callback} (e.g. the screen was closed). The
+     * download itself continues so the book is available next time.
+     */
+    public void cancel(String bookId, Callback callback) {
+        List<Callback> callbacks = pending.get(bookId);
+        if (callbacks != null) {
+            callbacks.remove(callback);
+        }
+    }
+
+    /**
+     * Removes a downloaded book, e.g. when one of its chapters turned out damaged.
+     */
+    public void delete(String bookId) {
+        executor.execute(() -> deleteRecursively(bookDir(bookId)));
+    }
+
+    private List<Callback> finish(String bookId) {
+        List<Callback> callbacks = pending.remove(bookId);
+        return callbacks != null ? callbacks : new ArrayList<>();
+    }
+
+    private File bookDir(String bookId) {
+        // bookId là ObjectId (hex), nhưng vẫn lọc để không thoát ra ngoài thư mục
+        return new File(rootDir, bookId.replaceAll("[^A-Za-z0-9_-]", "_"));
+    }
+
+    // Runs on the executor
+    private ChapterArchive openLocal(String bookId) {
+        File dir = bookDir(bookId);
+        try {
+            return ChapterArchive.open(dir);
+        } catch (IOException e) {
+            Log.w(TAG, "Damaged offline copy of " + bookId + ", downloading again: " + e.getMessage());
+            new File(dir, ChapterArchive.INDEX_FILE).delete();
+            return null;
+        }
+    }
+
+    // Runs on the executor
+    private ChapterArchive download(String authHeader, String bookId) throws IOException {
+        ApiService apiService = RetrofitClient.getInstance().getApiService();
+        File dir = bookDir(bookId);
+        MessageDigest chapterDigest = newSha256();
+        try (ChapterArchive.Writer writer = ChapterArchive.newWriter(dir)) {
+            ChapterStreamBuilder builder = new ChapterStreamBuilder(chapter -> {
+                writer.append(chapter);
+                updateDigest(chapterDigest, chapter);
+                postChapter(bookId, writer.getChapterCount() - 1, chapter);
+            });
+
+            Response<ResponseBody> response = apiService.streamBookContent(authHeader, bookId, false).execute();
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                if (response.errorBody() != null) {
+                    response.errorBody().close();
+                }
+                throw new HttpStatusException(response.code(), "HTTP " + response.code() + " - " + response.message());
+            }
+            BookContentStreamParser.Result info;
+            try (Reader reader = body.charStream()) {
+                info = BookContentStreamParser.parse(reader, builder::addArrayChapter);
+            }
+            if (!info.isSuccess()) {
+                throw new HttpStatusException(response.code(),
+                        info.getMessage() != null ? info.getMessage() : "Không thể tải nội dung sách");
+            }
+
+            // Phiên bản từ server để so sánh khi kiểm tra cập nhật; server cũ thì dùng hash
+            String contentHash = info.getContentVersion();
+            if (builder.isUsingArray()) {
+                // Đã có đủ chương từ mảng: không cần tải file nội dung
+            } else if (info.hasFile() && info.getContentSha256() != null && info.getContentLength() >= 0) {
+                fetchContentFile(apiService, authHeader, bookId, dir,
+                        info.getContentSha256(), info.getContentLength(), builder);
+                if (contentHash == null) {
+                    contentHash = info.getContentSha256();
+                }
+            } else if (info.getContent() != null) {
+                builder.appendText(info.getContent());
+            }
+            if (builder.finish() == 0) {
+                throw new IOException("Nội dung sách đang được cập nhật");
+            }
+            if (contentHash == null) {
+                contentHash = toHex(chapterDigest.digest());
+            }
+            ChapterArchive archive = writer.commit(contentHash);
+            deleteRecursively(new File(dir, DOWNLOAD_DIR));
+            return archive;
+        }
+    }
+
+    /**
+     * Downloads the content file, resuming a previous partial download of the same
+     * version, feeds it to {@code builder} as it arrives and verifies its SHA-256.
+     */
+    private void fetchContentFile(ApiService apiService, String authHeader, String bookId, File dir,
+                                  String sha256, long totalBytes, ChapterStreamBuilder builder) throws IOException {
+        File downloadDir = new File(dir, DOWNLOAD_DIR);
+        if (!downloadDir.isDirectory() && !downloadDir.mkdirs()) {
+            throw new IOException("Cannot create " + downloadDir);
+        }
+        File part = new File(downloadDir, PART_FILE);
+        File partHash = new File(downloadDir, PART_HASH_FILE);
+
+        // Phần đã tải chỉ dùng tiếp được nếu file trên server vẫn là phiên bản đó
+        String partVersion = partHash.isFile()
+                ? new String(Files.readAllBytes(partHash.toPath()), StandardCharsets.UTF_8).trim()
+                : null;
+        if (!sha256.equalsIgnoreCase(partVersion) || part.length() > totalBytes) {
+            part.delete();
+            Files.write(partHash.toPath(), sha256.getBytes(StandardCharsets.UTF_8));
+        }
+
+        MessageDigest digest = newSha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long have = 0;
+        if (part.isFile()) {
+            // Phần đã có trên đĩa đi qua bộ tách chương trước: các chương đầu hiện ngay
+            try (InputStream in = new FileInputStream(part)) {
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, n);
+                    builder.appendText(buffer, 0, n);
+                    have += n;
+                }
+            }
+        }
+
+        if (have < totalBytes) {
+            String range = have > 0 ? "bytes=" + have + "-" : null;
+            Response<ResponseBody> response = apiService.downloadBookContentFile(authHeader, bookId, range).execute();
+            if (response.code() == 416) {
+                part.delete();
+                throw new IOException("Download range rejected, restarting next time");
+            }
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new HttpStatusException(response.code(), "HTTP " + response.code() + " - " + response.message());
+            }
+            String serverHash = response.headers().get("X-Content-SHA256");
+            if (serverHash != null && !serverHash.equalsIgnoreCase(sha256)) {
+                part.delete();
+                throw new IOException("Content changed during download");
+            }
+            // 206: server gửi tiếp phần còn thiếu; 200: gửi lại từ đầu, bỏ qua phần đã có
+            long skip = response.code() == 206 ? 0 : have;
+            try (InputStream in = body.byteStream();
+                 FileOutputStream out = new FileOutputStream(part, true)) {
+                long reported = have;
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    int from = 0;
+                    if (skip > 0) {
+                        from = (int) Math.min(skip, n);
+                        skip -= from;
+                    }
+                    if (from == n) {
+                        continue;
+                    }
+                    out.write(buffer, from, n - from);
+                    digest.update(buffer, from, n - from);
+                    builder.appendText(buffer, from, n - from);
+                    have += n - from;
+                    if (have - reported >= PROGRESS_STEP_BYTES) {
+                        reported = have;
+                        postProgress(bookId, have, totalBytes);
+                    }
+                }
+                out.getFD().sync();
+            }
+            postProgress(bookId, have, totalBytes);
+        }
+
+        if (have != totalBytes) {
+            throw new IOException("Incomplete download: " + have + " of " + totalBytes + " bytes");
+        }
+        if (!toHex(digest.digest()).equalsIgnoreCase(sha256)) {
+            part.delete();
+            throw new IOException("Integrity check failed for downloaded content");
+        }
+    }
+
+    private void postChapter(String bookId, int index, ReaderChapter chapter) {
+        mainHandler.post(() -> {
+            List<Callback> callbacks = pending.get(bookId);
+            if (callbacks != null) {
+                for (Callback callback : new ArrayList<>(callbacks)) {
+                    callback.onChapter(index, chapter);
+                }
+            }
+        });
+    }
+
+    private void postProgress(String bookId, long downloaded, long total) {
+        mainHandler.post(() -> {
+            List<Callback> callbacks = pending.get(bookId);
+            if (callbacks != null) {
+                for (Callback callback : new ArrayList<>(callbacks)) {
+                    callback.onProgress(downloaded, total);
+                }
+            }
+        });
+    }
+
+    private static void updateDigest(MessageDigest digest, ReaderChapter chapter) {
+        digest.update(chapter.getTitle().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(chapter.getContent().toString().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static final class HttpStatusException extends IOException {
+        final int code;
+
+        HttpStatusException(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+    }
+}
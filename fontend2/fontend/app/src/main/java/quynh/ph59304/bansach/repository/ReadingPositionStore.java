@@ -0,0 +1,82 @@
+package quynh.ph59304.bansach.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Last reading position of each book (chapter, char offset in the chapter and the
+ * scroll offset of that line), so reopening a book continues where the reader stopped.
+ *
+ * A position remembers the content version it was saved for: after the book changed on
+ * the server only its chapter is still meaningful ({@link Position#getOffsetFor}).
+ */
+public class ReadingPositionStore {
+    private static final String PREF_NAME = "reading_positions";
+
+    public static final class Position {
+        private final String contentVersion;
+        private final int chapterIndex;
+        private final int offset;
+        private final int pixelOffset;
+
+        public Position(String contentVersion, int chapterIndex, int offset, int pixelOffset) {
+            this.contentVersion = contentVersion != null ? contentVersion : "";
+            this.chapterIndex = chapterIndex;
+            this.offset = offset;
+            this.pixelOffset = pixelOffset;
+        }
+
+        public int getChapterIndex() {
+            return chapterIndex;
+        }
+
+        /**
+         * Char offset in the chapter, or 0 when the position was saved for other content.
+         */
+        public int getOffsetFor(String version) {
+            return contentVersion.equals(version) ? offset : 0;
+        }
+
+        /**
+         * Distance of the saved line from the top of the screen, 0 for other content.
+         */
+        public int getPixelOffsetFor(String version) {
+            return contentVersion.equals(version) ? pixelOffset : 0;
+        }
+    }
+
+    private final SharedPreferences pref;
+
+    public ReadingPositionStore(Context context) {
+        pref = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * @return the saved position, or null if the book was never opened
+     */
+    public Position get(String bookId) {
+        String value = pref.getString(bookId, null);
+        if (value == null) {
+            return null;
+        }
+        // "phiên bản|chương|vị trí|pixel"
+        String[] parts = value.split("\\|", -1);
+        if (parts.length != 4) {
+            return null;
+        }
+        try {
+            return new Position(parts[0], Integer.parseInt(parts[1]),
+                    Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public void save(String bookId, Position position) {
+        String version = position.contentVersion.replace('|', '_');
+        pref.edit()
+                .putString(bookId, version + "|" + position.chapterIndex + "|"
+                        + position.offset + "|" + position.pixelOffset)
+                .apply();
+    }
+}
@@ -0,0 +1,457 @@
+package quynh.ph59304.bansach.repository;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import quynh.ph59304.bansach.api.ApiService;
+import quynh.ph59304.bansach.api.AppGson;
+import quynh.ph59304.bansach.api.RetrofitClient;
+import quynh.ph59304.bansach.models.ApiResponse;
+import quynh.ph59304.bansach.models.ChapterIndexEntry;
+import quynh.ph59304.bansach.models.ChapterIndexResponse;
+import quynh.ph59304.bansach.models.ChapterTextResponse;
+import quynh.ph59304.bansach.reader.ReaderChapter;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Chapters of a book read online, one request per chapter.
+ *
+ * The table of contents (GET access/api/books/{id}/chapters) gives titles and lengths,
+ * so the reader can be set up without any chapter text. A chapter's text is fetched
+ * (GET .../chapters/{index}) the first time the reader touches it, on the reader's
+ * background thread; {@link #prefetchAround(int)} loads the neighbours of the chapter
+ * being read ahead of time. Texts are kept in a small in-memory LRU
+ * ({@link #MEMORY_CACHE_CHARS}) and a shared disk cache ({@link #DISK_CACHE_BYTES}).
+ *
+ * A chapter requested twice at the same time (e.g. by the prefetch and by the reader)
+ * is fetched once.
+ *
+ * The table of contents is saved per book, so a book opened before is set up from disk
+ * at once (and can be read offline from the chapter cache); the server's copy is then
+ * checked in the background and reported through {@link IndexCallback#onIndexChanged}
+ * when the chapters changed. A chapter whose text turns out longer or shorter than the
+ * saved table of contents says is never cut or padded: its real length is recorded and
+ * the listener set with {@link #setOnLengthsChanged} rebuilds the reader chapters.
+ */
+public final class RemoteChapterSource {
+    private static final String TAG = "RemoteChapterSource";
+    private static final String CACHE_DIR = "chapters";
+    private static final String INDEX_DIR = "chapter_index";
+    /** Upper bound for chapter text held in memory (chars). */
+    public static final int MEMORY_CACHE_CHARS = 512 * 1024;
+    /** Upper bound for chapter text kept on disk for all books (bytes). */
+    public static final long DISK_CACHE_BYTES = 20L * 1024 * 1024;
+
+    public interface IndexCallback {
+        void onLoaded(RemoteChapterSource source);
+
+        /** The server's table of contents differs from the saved one given to onLoaded. */
+        void onIndexChanged(RemoteChapterSource newer);
+
+        /**
+         * @param httpCode HTTP status when the server refused (e.g. 403), 0 otherwise
+         */
+        void onError(int httpCode, String message);
+    }
+
+    private static ChapterDiskCache diskCache;
+    private static final ExecutorService indexExecutor = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final Gson gson = AppGson.get();
+
+    private final ApiService apiService;
+    private final String authHeader;
+    private final String bookId;
+    private final String version;
+    private final List<ChapterIndexEntry> entries;
+    private final ChapterDiskCache disk;
+    private final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor();
+    private final Map<Integer, FutureTask<String>> inFlight = new ConcurrentHashMap<>();
+    // Độ dài từng chương: theo mục lục, sửa lại khi nội dung tải về dài/ngắn hơn
+    private final AtomicIntegerArray lengths;
+    private final AtomicBoolean lengthsChangePending = new AtomicBoolean();
+    private volatile Runnable onLengthsChanged;
+
+    // lock: memory và memoryChars
+    private final LinkedHashMap<Integer, String> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private int memoryChars;
+    private int memoryLimit = MEMORY_CACHE_CHARS;
+
+    private RemoteChapterSource(ApiService apiService, ChapterDiskCache disk, String authHeader,
+                                String bookId, ChapterIndexResponse index) {
+        this.apiService = apiService;
+        this.disk = disk;
+        this.authHeader = authHeader;
+        this.bookId = bookId;
+        this.version = index.getVersion() != null ? index.getVersion() : "0";
+        this.entries = index.getChapters() != null
+                ? new ArrayList<>(index.getChapters())
+                : Collections.emptyList();
+        this.lengths = new AtomicIntegerArray(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            lengths.set(i, entries.get(i).getLength());
+        }
+    }
+
+    /**
+     * Loads the table of contents: the saved copy first when there is one, then the
+     * server's. Callbacks run on the main thread.
+     */
+    public static void loadIndex(Context context, String authHeader, String bookId, IndexCallback callback) {
+        Context appContext = context.getApplicationContext();
+        ApiService apiService = RetrofitClient.getInstance().getApiService();
+        ChapterDiskCache disk = diskCache(appContext);
+        File indexFile = new File(new File(appContext.getFilesDir(), INDEX_DIR),
+                bookId.replaceAll("[^A-Za-z0-9_-]", "_") + ".json");
+        indexExecutor.execute(() -> {
+            ChapterIndexResponse saved = readIndex(indexFile);
+            mainHandler.post(() -> {
+                RemoteChapterSource cached = saved != null
+                        ? new RemoteChapterSource(apiService, disk, authHeader, bookId, saved)
+                        : null;
+                if (cached != null) {
+                    callback.onLoaded(cached);
+                }
+                fetchIndex(apiService, disk, authHeader, bookId, indexFile, cached, callback);
+            });
+        });
+    }
+
+    private static void fetchIndex(ApiService apiService, ChapterDiskCache disk, String authHeader, String bookId,
+                                   File indexFile, RemoteChapterSource cached, IndexCallback callback) {
+        apiService.getChapterIndex(authHeader, bookId).enqueue(new Callback<ApiResponse<ChapterIndexResponse>>() {
+            @Override
+            public void onResponse(Call<ApiResponse<ChapterIndexResponse>> call,
+                                   Response<ApiResponse<ChapterIndexResponse>> response) {
+                ApiResponse<ChapterIndexResponse> body = response.body();
+                if (!response.isSuccessful() || body == null || body.getData() == null
+                        || !Boolean.TRUE.equals(body.getSuccess())) {
+                    int code = response.isSuccessful() ? 0 : response.code();
+                    // Đã mở từ bản lưu: chỉ báo lỗi khi mất quyền đọc
+                    if (cached == null || code == 401 || code == 403) {
+                        String message = body != null && body.getMessage() != null
+                                ? body.getMessage()
+                                : "HTTP " + response.code();
+                        callback.onError(code, message);
+                    }
+                    return;
+                }
+                ChapterIndexResponse index = body.getData();
+                indexExecutor.execute(() -> writeIndex(indexFile, index));
+                RemoteChapterSource fresh = new RemoteChapterSource(apiService, disk, authHeader, bookId, index);
+                if (cached == null) {
+                    callback.onLoaded(fresh);
+                } else if (!cached.version.equals(fresh.version)
+                        || cached.getChapterCount() != fresh.getChapterCount()) {
+                    callback.onIndexChanged(fresh);
+                }
+            }
+
+            @Override
+            public void onFailure(Call<ApiResponse<ChapterIndexResponse>> call, Throwable t) {
+                if (cached == null) {
+                    callback.onError(0, t.getMessage() != null ? t.getMessage() : t.getClass().getSimpleName());
+                }
+            }
+        });
+    }
+
+    private static ChapterIndexResponse readIndex(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            ChapterIndexResponse index = gson.fromJson(json, ChapterIndexResponse.class);
+            return index != null && index.getChapters() != null ? index : null;
+        } catch (IOException | JsonParseException e) {
+            Log.w(TAG, "Ignoring saved chapter index " + file + ": " + e.getMessage());
+            file.delete();
+            return null;
+        }
+    }
+
+    private static void writeIndex(File file, ChapterIndexResponse index) {
+        File dir = file.getParentFile();
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create " + dir);
+            }
+            Files.write(tmp.toPath(), gson.toJson(index).getBytes(StandardCharsets.UTF_8));
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Cannot replace " + file);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot save chapter index: " + e.getMessage());
+            tmp.delete();
+        }
+    }
+
+    private static synchronized ChapterDiskCache diskCache(Context context) {
+        if (diskCache == null) {
+            diskCache = new ChapterDiskCache(new File(context.getApplicationContext().getCacheDir(), CACHE_DIR),
+                    DISK_CACHE_BYTES);
+        }
+        return diskCache;
+    }
+
+    /** Version of the chapters; changes when they are edited on the server. */
+    public String getVersion() {
+        return version;
+    }
+
+    public int getChapterCount() {
+        return entries.size();
+    }
+
+    /**
+     * Reader chapters whose text is fetched on first access; titles and lengths come
+     * from the table of contents. A failed fetch surfaces as an
+     * {@link UncheckedIOException}.
+     */
+    public List<ReaderChapter> toReaderChapters() {
+        lengthsChangePending.set(false);
+        List<ReaderChapter> chapters = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            ChapterIndexEntry entry = entries.get(i);
+            String title = entry.getTitle() != null ? entry.getTitle() : "Chương " + entry.getChapterNumber();
+            chapters.add(new ReaderChapter(title, new RemoteChapterText(this, i, lengths.get(i)),
+                    entry.getChapterNumber()));
+        }
+        return chapters;
+    }
+
+    /**
+     * Called on the main thread when a chapter's text did not have the length the table
+     * of contents gave; that chapter then fails to load until the reader chapters are
+     * rebuilt with {@link #toReaderChapters()}, which uses the real lengths.
+     */
+    public void setOnLengthsChanged(Runnable listener) {
+        onLengthsChanged = listener;
+    }
+
+    private void onLengthMismatch(int index, int actualLength) {
+        lengths.set(index, actualLength);
+        Runnable listener = onLengthsChanged;
+        // Nhiều luồng cùng gặp (đọc, lập chỉ mục): chỉ báo một lần cho tới khi dựng lại
+        if (listener != null && lengthsChangePending.compareAndSet(false, true)) {
+            mainHandler.post(listener);
+        }
+    }
+
+    /**
+     * Starts loading the chapters before and after {@code index} in the background.
+     */
+    public void prefetchAround(int index) {
+        prefetch(index + 1);
+        prefetch(index - 1);
+    }
+
+    /**
+     * Lowers (or restores) the memory held for chapter texts; chapters over the limit are
+     * read again from the disk cache. The chapter used last is always kept.
+     */
+    public void setMemoryLimit(int maxChars) {
+        synchronized (memory) {
+            memoryLimit = maxChars;
+            trimMemoryCache();
+        }
+    }
+
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    /**
+     * Text of chapter {@code index}: from memory, disk or the network. Blocks; call on a
+     * background thread.
+     */
+    public String getChapter(int index) throws IOException {
+        String cached = memoryGet(index);
+        if (cached != null) {
+            return cached;
+        }
+        FutureTask<String> task = new FutureTask<>(() -> fetch(index));
+        FutureTask<String> running = inFlight.putIfAbsent(index, task);
+        if (running == null) {
+            running = task;
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(index, task);
+            }
+        }
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading chapter " + index);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private void prefetch(int index) {
+        if (index < 0 || index >= entries.size() || memoryGet(index) != null || inFlight.containsKey(index)) {
+            return;
+        }
+        prefetchExecutor.execute(() -> {
+            try {
+                getChapter(index);
+            } catch (IOException | RuntimeException e) {
+                // Không sao: chương sẽ được tải lại khi người dùng mở tới
+                Log.w(TAG, "Prefetch of chapter " + index + " failed: " + e.getMessage());
+            }
+        });
+    }
+
+    private String fetch(int index) throws IOException {
+        String text = disk.get(bookId, version, index);
+        if (text == null) {
+            Response<ApiResponse<ChapterTextResponse>> response =
+                    apiService.getChapterText(authHeader, bookId, index).execute();
+            ApiResponse<ChapterTextResponse> body = response.body();
+            if (!response.isSuccessful() || body == null || body.getData() == null) {
+                throw new IOException("HTTP " + response.code() + " - " + response.message());
+            }
+            text = body.getData().getContent() != null ? body.getData().getContent() : "";
+            // Chương đã đổi so với mục lục thì không lưu: độ dài có thể khác
+            if (version.equals(body.getData().getVersion())) {
+                try {
+                    disk.put(bookId, version, index, text);
+                } catch (IOException e) {
+                    Log.w(TAG, "Cannot cache chapter " + index + ": " + e.getMessage());
+                }
+            }
+        }
+        memoryPut(index, text);
+        return text;
+    }
+
+    private String memoryGet(int index) {
+        synchronized (memory) {
+            return memory.get(index);
+        }
+    }
+
+    private void memoryPut(int index, String text) {
+        synchronized (memory) {
+            String previous = memory.put(index, text);
+            if (previous != null) {
+                memoryChars -= previous.length();
+            }
+            memoryChars += text.length();
+            trimMemoryCache();
+        }
+    }
+
+    // Gọi khi đang giữ khóa memory
+    private void trimMemoryCache() {
+        Iterator<Map.Entry<Integer, String>> it = memory.entrySet().iterator();
+        // Luôn giữ chương vừa tải
+        while (memoryChars > memoryLimit && memory.size() > 1 && it.hasNext()) {
+            Map.Entry<Integer, String> eldest = it.next();
+            memoryChars -= eldest.getValue().length();
+            it.remove();
+        }
+    }
+
+    /**
+     * Chapter text fetched on first read. Its length is the one in the table of
+     * contents; a text of another length is not served (see
+     * {@link #setOnLengthsChanged}). The text is only weakly held here: the source's LRU
+     * decides how long it stays in memory, and a collected text is simply loaded again.
+     */
+    static final class RemoteChapterText implements CharSequence {
+        private final RemoteChapterSource source;
+        private final int index;
+        private final int length;
+        private volatile WeakReference<String> text = new WeakReference<>(null);
+
+        RemoteChapterText(RemoteChapterSource source, int index, int length) {
+            this.source = source;
+            this.index = index;
+            this.length = length;
+        }
+
+        private String text() {
+            String loaded = text.get();
+            if (loaded != null) {
+                return loaded;
+            }
+            try {
+                loaded = source.getChapter(index);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (loaded.length() != length) {
+                // Mục lục cũ hơn nội dung: không cắt/đệm, báo để dựng lại chương với độ dài thật
+                source.onLengthMismatch(index, loaded.length());
+                throw new UncheckedIOException(new IOException("Chapter " + index + " has "
+                        + loaded.length() + " chars, the table of contents says " + length));
+            }
+            text = new WeakReference<>(loaded);
+            return loaded;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int i) {
+            return text().charAt(i);
+        }
+
+        @NonNull
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text().subSequence(start, end);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return text();
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package quynh.ph59304.bansach.search;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import quynh.ph59304.bansach.models.Book;
+import quynh.ph59304.bansach.utils.TextFolding;
+
+/**
+ * In-memory inverted index over book title, author and category name.
+ *
+ * Terms are diacritic-folded ({@link TextFolding}) and kept in a sorted map so every
+ * query token is matched as a prefix ("chu" finds "Chương"). Books can be added in
+ * batches as catalog pages arrive and patched with {@link #update} as the catalog
+ * changes; re-adding a book with the same id replaces it. Results keep the order in
+ * which books were added, or the order given to the constructor.
+ *
+ * Methods are synchronized: indexing is meant to run on a background thread while
+ * queries may come from any thread.
+ */
+public class BookSearchIndex {
+    // Thứ tự kết quả; null = thứ tự thêm vào
+    private final Comparator<? super Book> order;
+    private final List<Book> docs = new ArrayList<>();
+    private final List<String[]> docTerms = new ArrayList<>();
+    private final Map<String, Integer> docIdByBookId = new HashMap<>();
+    private final BitSet removed = new BitSet();
+    private final TreeMap<String, IntList> postings = new TreeMap<>();
+    // Docs per first letter of any term: 1-char queries (the first keystroke) hit the most
+    // terms, so they are answered from these bitsets instead of walking the postings.
+    private final Map<Character, BitSet> firstCharDocs = new HashMap<>();
+
+    // Dưới ngưỡng này, lọc lại bằng cách so từng tài liệu thay vì tra postings
+    private static final int VERIFY_THRESHOLD = 2000;
+
+    // Kết quả truy vấn trước: gõ thêm ký tự chỉ cần lọc lại tập này
+    private String lastQuery;
+    private BitSet lastResult;
+
+    public BookSearchIndex() {
+        this(null);
+    }
+
+    /**
+     * @param order result order; books updated later are added at the end, so without an
+     *              order they would move to the end of the results
+     */
+    public BookSearchIndex(Comparator<? super Book> order) {
+        this.order = order;
+    }
+
+    public synchronized int size() {
+        return docIdByBookId.size();
+    }
+
+    public synchronized void clear() {
+        docs.clear();
+        docTerms.clear();
+        docIdByBookId.clear();
+        removed.clear();
+        postings.clear();
+        firstCharDocs.clear();
+        invalidateLastQuery();
+    }
+
+    public synchronized void addAll(List<Book> books) {
+        if (books == null) {
+            return;
+        }
+        for (Book book : books) {
+            add(book);
+        }
+    }
+
+    public synchronized void add(Book book) {
+        if (book == null) {
+            return;
+        }
+        if (book.getId() != null) {
+            Integer previous = docIdByBookId.get(book.getId());
+            if (previous != null) {
+                removed.set(previous);
+            }
+        }
+        int docId = docs.size();
+        docs.add(book);
+
+        List<String> tokens = new ArrayList<>();
+        tokens.addAll(TextFolding.tokenize(book.getTitle()));
+        tokens.addAll(TextFolding.tokenize(book.getAuthor()));
+        if (book.getCategory() != null) {
+            tokens.addAll(TextFolding.tokenize(book.getCategory().getName()));
+        }
+        String[] terms = tokens.toArray(new String[0]);
+        docTerms.add(terms);
+        for (String term : terms) {
+            IntList list = postings.get(term);
+            if (list == null) {
+                list = new IntList();
+                postings.put(term, list);
+            }
+            list.addIfLast(docId);
+            BitSet firstChar = firstCharDocs.get(term.charAt(0));
+            if (firstChar == null) {
+                firstChar = new BitSet();
+                firstCharDocs.put(term.charAt(0), firstChar);
+            }
+            firstChar.set(docId);
+        }
+        if (book.getId() != null) {
+            docIdByBookId.put(book.getId(), docId);
+        }
+        invalidateLastQuery();
+    }
+
+    /**
+     * Applies one catalog change at once, so a query sees either none or all of it.
+     */
+    public synchronized void update(List<Book> upserts, List<String> deletedIds) {
+        if (deletedIds != null) {
+            for (String bookId : deletedIds) {
+                remove(bookId);
+            }
+        }
+        addAll(upserts);
+    }
+
+    public synchronized void remove(String bookId) {
+        Integer docId = docIdByBookId.remove(bookId);
+        if (docId != null) {
+            removed.set(docId);
+            invalidateLastQuery();
+        }
+    }
+
+    /**
+     * Returns the books whose title/author/category contain a word starting with every
+     * token of {@code query}, optionally limited to one category. An empty query
+     * returns every book (of that category).
+     */
+    public synchronized List<Book> search(String query, String categoryId) {
+        List<String> tokens = TextFolding.tokenize(query);
+        BitSet matches = tokens.isEmpty() ? allDocs() : match(tokens);
+
+        List<Book> result = new ArrayList<>(matches.cardinality());
+        for (int docId = matches.nextSetBit(0); docId >= 0; docId = matches.nextSetBit(docId + 1)) {
+            Book book = docs.get(docId);
+            if (categoryId == null
+                    || (book.getCategory() != null && categoryId.equals(book.getCategory().getId()))) {
+                result.add(book);
+            }
+        }
+        if (order != null) {
+            // Gần như đã đúng thứ tự (chỉ sách vừa cập nhật lệch): TimSort gần tuyến tính
+            result.sort(order);
+        }
+        return result;
+    }
+
+    private BitSet match(List<String> tokens) {
+        String normalized = String.join(" ", tokens);
+        BitSet result;
+        if (lastQuery != null && normalized.startsWith(lastQuery)) {
+            // Refinement of the previous query: the answer is a subset of the previous hits
+            result = (BitSet) lastResult.clone();
+            int candidates = result.cardinality();
+            if (candidates <= VERIFY_THRESHOLD) {
+                for (int docId = result.nextSetBit(0); docId >= 0; docId = result.nextSetBit(docId + 1)) {
+                    if (!docMatchesAll(docTerms.get(docId), tokens)) {
+                        result.clear(docId);
+                    }
+                }
+            } else {
+                // Many candidates: intersect with every token whose text changed ("ab c" ->
+                // "ab cd e" narrows both "cd" and "e"); unchanged tokens already hold
+                String[] previous = lastQuery.split(" ");
+                for (int i = 0; i < tokens.size() && !result.isEmpty(); i++) {
+                    String token = tokens.get(i);
+                    if (i >= previous.length || !token.equals(previous[i])) {
+                        result.and(docsWithPrefix(token));
+                    }
+                }
+            }
+        } else {
+            result = null;
+            for (String token : tokens) {
+                BitSet tokenDocs = docsWithPrefix(token);
+                if (result == null) {
+                    result = tokenDocs;
+                } else {
+                    result.and(tokenDocs);
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            result.andNot(removed);
+        }
+        lastQuery = normalized;
+        lastResult = result;
+        return (BitSet) result.clone();
+    }
+
+    private BitSet docsWithPrefix(String prefix) {
+        if (prefix.length() == 1) {
+            BitSet firstChar = firstCharDocs.get(prefix.charAt(0));
+            return firstChar != null ? (BitSet) firstChar.clone() : new BitSet();
+        }
+        BitSet bits = new BitSet(docs.size());
+        SortedMap<String, IntList> range = postings.subMap(prefix, prefix + Character.MAX_VALUE);
+        for (IntList list : range.values()) {
+            for (int i = 0; i < list.size; i++) {
+                bits.set(list.values[i]);
+            }
+        }
+        return bits;
+    }
+
+    private static boolean docMatchesAll(String[] terms, List<String> tokens) {
+        for (String token : tokens) {
+            boolean found = false;
+            for (String term : terms) {
+                if (term.startsWith(token)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private BitSet allDocs() {
+        BitSet bits = new BitSet(docs.size());
+        bits.set(0, docs.size());
+        bits.andNot(removed);
+        return bits;
+    }
+
+    private void invalidateLastQuery() {
+        lastQuery = null;
+        lastResult = null;
+    }
+
+    /** Growable int array; doc ids are appended in increasing order. */
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void addIfLast(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return; // same term twice in one book
+            }
+            if (size == values.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(values, 0, grown, 0, size);
+                values = grown;
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package quynh.ph59304.bansach.search;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import quynh.ph59304.bansach.models.Book;
+
+/**
+ * Runs catalog searches off the UI thread.
+ *
+ * Keystrokes are debounced by {@link #DEBOUNCE_MS}; each query runs on a background
+ * executor against {@link BookSearchIndex}. A newer {@link #submit} cancels the
+ * pending or running query, and results of a stale query are never delivered. The
+ * listener is called on the main thread; diffing against the shown list is left to
+ * the adapter (ListAdapter diffs on its own background thread).
+ */
+public class BookSearchPipeline {
+    public static final long DEBOUNCE_MS = 150;
+
+    public interface Listener {
+        void onResults(List<Book> books);
+    }
+
+    private final BookSearchIndex index;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private List<Book> displayed = new ArrayList<>();
+    private Runnable pendingSubmit;
+    private Future<?> running;
+    private volatile int generation;
+
+    public BookSearchPipeline(BookSearchIndex index, Listener listener) {
+        this.index = index;
+        this.listener = listener;
+    }
+
+    /**
+     * Schedules a search. Must be called on the main thread.
+     *
+     * @param debounce wait {@link #DEBOUNCE_MS} for more input (typing); false runs it
+     *                 right away (filter change, new page indexed)
+     */
+    public void submit(String query, String categoryId, boolean debounce) {
+        final int token = ++generation;
+        if (pendingSubmit != null) {
+            mainHandler.removeCallbacks(pendingSubmit);
+        }
+        if (running != null) {
+            running.cancel(true);
+            running = null;
+        }
+        pendingSubmit = () -> {
+            pendingSubmit = null;
+            running = executor.submit(() -> {
+                List<Book> result = index.search(query, categoryId);
+                if (token != generation || Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                mainHandler.post(() -> {
+                    if (token != generation) {
+                        return;
+                    }
+                    running = null;
+                    displayed = result;
+                    listener.onResults(result);
+                });
+            });
+        };
+        if (debounce) {
+            mainHandler.postDelayed(pendingSubmit, DEBOUNCE_MS);
+        } else {
+            pendingSubmit.run();
+        }
+    }
+
+    /**
+     * The list delivered by the last {@link Listener#onResults} call.
+     */
+    public List<Book> getDisplayed() {
+        return displayed;
+    }
+
+    /**
+     * Drops the pending or running query; its results are never delivered. Must be
+     * called on the main thread.
+     */
+    public void cancel() {
+        generation++;
+        if (pendingSubmit != null) {
+            mainHandler.removeCallbacks(pendingSubmit);
+            pendingSubmit = null;
+        }
+        if (running != null) {
+            running.cancel(true);
+            running = null;
+        }
+    }
+
+    public void shutdown() {
+        generation++;
+        if (pendingSubmit != null) {
+            mainHandler.removeCallbacks(pendingSubmit);
+            pendingSubmit = null;
+        }
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,270 @@
+package quynh.ph59304.bansach.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import quynh.ph59304.bansach.utils.TextFolding;
+
+/**
+ * Word index over the text of one book, for searching inside the reader.
+ *
+ * Chapters are added one at a time, in any order, as they become available; a query
+ * only sees the chapters added so far ({@link #getIndexedChapterCount()}). Words are
+ * diacritic-folded ({@link TextFolding}), so "chuong mot" finds "Chương Một". A query
+ * of several words matches them as a phrase: every word but the last must match a whole
+ * word, the last one may be a prefix of the word (the reader is still typing it).
+ *
+ * The index keeps no text, only the term and position of every word (about 16 bytes
+ * per word), so a query never scans the chapters: it walks the postings of the first
+ * query word and checks the words that follow it.
+ *
+ * Methods are synchronized: chapters are added on a background thread while queries
+ * may come from any thread.
+ */
+public class BookTextIndex {
+    /** Hits returned by one query at most; {@link Result#getTotalCount()} counts all. */
+    public static final int MAX_HITS = 500;
+
+    /** A match: chars [offset, offset + length) of chapter {@code chapterIndex}. */
+    public static final class Hit {
+        private final int chapterIndex;
+        private final int offset;
+        private final int length;
+
+        Hit(int chapterIndex, int offset, int length) {
+            this.chapterIndex = chapterIndex;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public int getChapterIndex() {
+            return chapterIndex;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        public int getLength() {
+            return length;
+        }
+    }
+
+    public static final class Result {
+        private final List<Hit> hits;
+        private final int totalCount;
+        private final int indexedChapterCount;
+
+        Result(List<Hit> hits, int totalCount, int indexedChapterCount) {
+            this.hits = hits;
+            this.totalCount = totalCount;
+            this.indexedChapterCount = indexedChapterCount;
+        }
+
+        /** The first {@link #MAX_HITS} matches in reading order. */
+        public List<Hit> getHits() {
+            return hits;
+        }
+
+        public int getTotalCount() {
+            return totalCount;
+        }
+
+        /** Chapters that had been indexed when the query ran. */
+        public int getIndexedChapterCount() {
+            return indexedChapterCount;
+        }
+    }
+
+    // Từ điển: từ đã bỏ dấu -> id; sắp xếp để tra theo tiền tố
+    private final TreeMap<String, Integer> termIds = new TreeMap<>();
+    private final List<IntList> postings = new ArrayList<>();
+
+    // Mỗi từ trong sách (theo thứ tự thêm vào): id của từ, vị trí bắt đầu và kết thúc
+    private final IntList wordTerms = new IntList();
+    private final IntList wordStarts = new IntList();
+    private final IntList wordEnds = new IntList();
+
+    // Mỗi chương đã thêm chiếm một đoạn liên tiếp các từ, bắt đầu ở chapterFirstWord
+    private final IntList chapterIndexes = new IntList();
+    private final IntList chapterFirstWord = new IntList();
+    private final BitSet indexed = new BitSet();
+
+    public synchronized boolean isIndexed(int chapterIndex) {
+        return indexed.get(chapterIndex);
+    }
+
+    public synchronized int getIndexedChapterCount() {
+        return chapterIndexes.size;
+    }
+
+    /**
+     * Indexes the text of a chapter; a chapter already indexed is ignored. Tokenizing is
+     * done before taking the lock so queries are not held up by it.
+     */
+    public void addChapter(int chapterIndex, CharSequence text) {
+        if (isIndexed(chapterIndex)) {
+            return;
+        }
+        List<String> terms = new ArrayList<>();
+        IntList starts = new IntList();
+        IntList ends = new IntList();
+        tokenize(text, terms, starts, ends);
+
+        synchronized (this) {
+            if (indexed.get(chapterIndex)) {
+                return;
+            }
+            indexed.set(chapterIndex);
+            chapterIndexes.add(chapterIndex);
+            chapterFirstWord.add(wordTerms.size);
+            for (int i = 0; i < terms.size(); i++) {
+                String term = terms.get(i);
+                Integer id = termIds.get(term);
+                if (id == null) {
+                    id = postings.size();
+                    termIds.put(term, id);
+                    postings.add(new IntList());
+                }
+                postings.get(id).add(wordTerms.size);
+                wordTerms.add(id);
+                wordStarts.add(starts.values[i]);
+                wordEnds.add(ends.values[i]);
+            }
+        }
+    }
+
+    /**
+     * Finds {@code query} as a phrase in the indexed chapters, in reading order.
+     */
+    public synchronized Result search(String query) {
+        List<String> tokens = TextFolding.tokenize(query);
+        if (tokens.isEmpty()) {
+            return new Result(Collections.emptyList(), 0, chapterIndexes.size);
+        }
+        int last = tokens.size() - 1;
+        int[] exactIds = new int[last];
+        for (int k = 0; k < last; k++) {
+            Integer id = termIds.get(tokens.get(k));
+            if (id == null) {
+                return new Result(Collections.emptyList(), 0, chapterIndexes.size);
+            }
+            exactIds[k] = id;
+        }
+        String prefix = tokens.get(last);
+        SortedMap<String, Integer> prefixTerms = termIds.subMap(prefix, prefix + Character.MAX_VALUE);
+        if (prefixTerms.isEmpty()) {
+            return new Result(Collections.emptyList(), 0, chapterIndexes.size);
+        }
+
+        // Khóa sắp xếp: chương ở 32 bit cao, vị trí từ ở 32 bit thấp
+        long[] found = new long[16];
+        int count = 0;
+        if (last == 0) {
+            for (Integer id : prefixTerms.values()) {
+                IntList list = postings.get(id);
+                for (int i = 0; i < list.size; i++) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    int word = list.values[i];
+                    found[count++] = ((long) chapterIndexes.values[slotOf(word)] << 32) | word;
+                }
+            }
+        } else {
+            BitSet lastIds = new BitSet(postings.size());
+            for (Integer id : prefixTerms.values()) {
+                lastIds.set(id);
+            }
+            IntList first = postings.get(exactIds[0]);
+            for (int i = 0; i < first.size; i++) {
+                int word = first.values[i];
+                int slot = slotOf(word);
+                if (word + last >= slotEnd(slot) || !lastIds.get(wordTerms.values[word + last])) {
+                    continue;
+                }
+                boolean match = true;
+                for (int k = 1; k < last && match; k++) {
+                    match = wordTerms.values[word + k] == exactIds[k];
+                }
+                if (match) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    found[count++] = ((long) chapterIndexes.values[slot] << 32) | word;
+                }
+            }
+        }
+
+        Arrays.sort(found, 0, count);
+        List<Hit> hits = new ArrayList<>(Math.min(count, MAX_HITS));
+        for (int i = 0; i < count && i < MAX_HITS; i++) {
+            int word = (int) found[i];
+            int start = wordStarts.values[word];
+            hits.add(new Hit((int) (found[i] >>> 32), start, wordEnds.values[word + last] - start));
+        }
+        return new Result(hits, count, chapterIndexes.size);
+    }
+
+    // Chương (theo thứ tự thêm) chứa từ thứ word
+    private int slotOf(int word) {
+        int slot = Arrays.binarySearch(chapterFirstWord.values, 0, chapterFirstWord.size, word);
+        if (slot < 0) {
+            slot = -slot - 2;
+        }
+        // Chương rỗng có cùng từ đầu với chương sau: lấy chương cuối cùng
+        while (slot + 1 < chapterFirstWord.size && chapterFirstWord.values[slot + 1] == word) {
+            slot++;
+        }
+        return slot;
+    }
+
+    private int slotEnd(int slot) {
+        return slot + 1 < chapterFirstWord.size ? chapterFirstWord.values[slot + 1] : wordTerms.size;
+    }
+
+    /**
+     * Same words as {@link TextFolding#tokenize}, with the range of each in {@code text}.
+     */
+    private static void tokenize(CharSequence text, List<String> terms, IntList starts, IntList ends) {
+        StringBuilder current = new StringBuilder();
+        int start = -1;
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            if (TextFolding.isWordChar(c)) {
+                if (start < 0) {
+                    start = i;
+                }
+                if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                    current.append(TextFolding.fold(c));
+                }
+            } else if (start >= 0) {
+                if (current.length() > 0) {
+                    terms.add(current.toString());
+                    starts.add(start);
+                    ends.add(i);
+                    current.setLength(0);
+                }
+                start = -1;
+            }
+        }
+    }
+
+    /** Growable int array. */
+    private static final class IntList {
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
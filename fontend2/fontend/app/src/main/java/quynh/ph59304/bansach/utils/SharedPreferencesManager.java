@@ -3,6 +3,9 @@ package quynh.ph59304.bansach.utils;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+import quynh.ph59304.bansach.repository.BookInfoRepository;
+import quynh.ph59304.bansach.repository.CoinBalanceRepository;
+
 public class SharedPreferencesManager {
     private static final String PREF_NAME = "BookStorePrefs";
     private static final String KEY_TOKEN = "token";
@@ -57,6 +60,10 @@ public class SharedPreferencesManager {
     public void clear() {
         editor.clear();
         editor.apply();
+        // Không giữ số dư của tài khoản cũ sau khi đăng xuất
+        CoinBalanceRepository.getInstance().clear();
+        // Quyền đọc và bản xem thử được cache theo tài khoản
+        BookInfoRepository.getInstance().clear();
     }
 
     public boolean isLoggedIn() {
@@ -0,0 +1,97 @@
+package quynh.ph59304.bansach.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accent-insensitive text matching for Vietnamese ("chuong" matches "chương").
+ *
+ * Folding is done one char at a time and never changes the length of the text,
+ * so an offset found in folded text is also valid in the original text.
+ */
+public final class TextFolding {
+    private static final char FIRST_MAPPED = 'À';
+    private static final char LAST_MAPPED = 'ỿ';
+    private static final char[] TABLE = buildTable();
+
+    private TextFolding() {
+    }
+
+    private static char[] buildTable() {
+        char[] table = new char[LAST_MAPPED - FIRST_MAPPED + 1];
+        for (char c = FIRST_MAPPED; c <= LAST_MAPPED; c++) {
+            char folded = Character.toLowerCase(c);
+            String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            if (decomposed.length() > 0 && decomposed.charAt(0) < FIRST_MAPPED) {
+                folded = Character.toLowerCase(decomposed.charAt(0));
+            }
+            table[c - FIRST_MAPPED] = folded;
+        }
+        // đ/Đ không có dạng tách dấu trong Unicode
+        table['Đ' - FIRST_MAPPED] = 'd';
+        table['đ' - FIRST_MAPPED] = 'd';
+        return table;
+    }
+
+    /**
+     * Lowercases a char and strips its diacritics.
+     */
+    public static char fold(char c) {
+        if (c < 128) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        if (c >= FIRST_MAPPED && c <= LAST_MAPPED) {
+            return TABLE[c - FIRST_MAPPED];
+        }
+        return Character.toLowerCase(c);
+    }
+
+    /**
+     * Folds a whole string; the result has exactly the same length.
+     */
+    public static String fold(CharSequence text) {
+        if (text == null) {
+            return "";
+        }
+        char[] out = new char[text.length()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = fold(text.charAt(i));
+        }
+        return new String(out);
+    }
+
+    /**
+     * True for chars that belong to a word. Combining marks (text in NFD form) count as
+     * part of the previous word so they do not split it.
+     */
+    public static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || Character.getType(c) == Character.NON_SPACING_MARK;
+    }
+
+    /**
+     * Splits text into folded word tokens, dropping combining marks.
+     */
+    public static List<String> tokenize(CharSequence text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder current = new StringBuilder();
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (isWordChar(c)) {
+                if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                    current.append(fold(c));
+                }
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,184 @@
+package quynh.ph59304.bansach.api;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Type;
+import java.util.Locale;
+
+import quynh.ph59304.bansach.models.ApiResponse;
+import quynh.ph59304.bansach.models.BooksResponse;
+import quynh.ph59304.bansach.models.CoinHistoryResponse;
+import quynh.ph59304.bansach.models.OrdersResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Not a strict benchmark (no JMH on this project): prints parse throughput and bytes
+ * allocated per response for the shared {@link AppGson} and for a new Gson per response,
+ * as the screens used to do, so the choice of one shared reflective Gson can be re-checked.
+ */
+public class AppGsonBenchmarkTest {
+    private static final Type ORDERS_TYPE = new TypeToken<ApiResponse<OrdersResponse>>() {}.getType();
+
+    private final Gson shared = AppGson.get();
+
+    @Test
+    public void parsesTheSameAsANewGsonPerResponse() {
+        assertSameAsNewGson(catalogPage(40), BooksResponse.class);
+        assertSameAsNewGson(orderList(20), ORDERS_TYPE);
+        assertSameAsNewGson(coinHistoryPage(20), CoinHistoryResponse.class);
+    }
+
+    @Test
+    public void benchmarkAgainstNewGsonPerResponse() {
+        bench("catalog page (40 books)", catalogPage(40), BooksResponse.class);
+        bench("order list (20 orders)", orderList(20), ORDERS_TYPE);
+        bench("coin history page (20)", coinHistoryPage(20), CoinHistoryResponse.class);
+    }
+
+    private void assertSameAsNewGson(String json, Type type) {
+        Gson perResponse = newGson();
+        Object expected = perResponse.fromJson(json, type);
+        Object actual = shared.fromJson(json, type);
+        assertEquals(perResponse.toJson(expected), perResponse.toJson(actual));
+    }
+
+    private void bench(String label, String json, Type type) {
+        // Làm nóng JIT cho cả hai trước khi đo
+        for (int i = 0; i < 3_000; i++) {
+            shared.fromJson(json, type);
+        }
+        for (int i = 0; i < 300; i++) {
+            newGson().fromJson(json, type);
+        }
+        Measurement reused = measure(() -> shared.fromJson(json, type), 3_000);
+        Measurement perResponse = measure(() -> newGson().fromJson(json, type), 300);
+        System.out.println(String.format(Locale.US,
+                "%-24s %6d B | shared: %7.0f resp/s %7d B/resp | new Gson each time: %7.0f resp/s %8d B/resp",
+                label, json.length(), reused.perSecond, reused.bytesPerResponse,
+                perResponse.perSecond, perResponse.bytesPerResponse));
+        if (reused.bytesPerResponse >= 0) {
+            // Gson mới phải dựng lại adapter reflection nên luôn cấp phát nhiều hơn
+            assertTrue(label, reused.bytesPerResponse < perResponse.bytesPerResponse);
+        }
+    }
+
+    /**
+     * The Gson the checkout, top-up and VNPay screens built for each response before AppGson.
+     */
+    private static Gson newGson() {
+        return new Gson();
+    }
+
+    private static Measurement measure(Runnable parse, int runs) {
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            parse.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        return new Measurement(runs * 1e9 / elapsed, allocatedBefore < 0 ? -1 : allocated / runs);
+    }
+
+    /**
+     * Bytes allocated so far by this thread, or -1 when the JVM cannot tell.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static final class Measurement {
+        final double perSecond;
+        final long bytesPerResponse;
+
+        Measurement(double perSecond, long bytesPerResponse) {
+            this.perSecond = perSecond;
+            this.bytesPerResponse = bytesPerResponse;
+        }
+    }
+
+    private static String catalogPage(int count) {
+        StringBuilder sb = new StringBuilder("{\"books\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            appendBook(sb, i);
+        }
+        return sb.append("],\"categories\":[{\"_id\":\"c1\",\"name\":\"Tiểu thuyết\"},")
+                .append("{\"_id\":\"c2\",\"name\":\"Khoa học\"}]}").toString();
+    }
+
+    private static void appendBook(StringBuilder sb, int i) {
+        sb.append("{\"_id\":\"65f1c0a1b2c3d4e5f6a7b").append(100 + i)
+                .append("\",\"title\":\"Cuốn sách số ").append(i)
+                .append("\",\"author\":\"Tác giả ").append(i % 7)
+                .append("\",\"description\":\"Một câu chuyện dài về những con người bình thường trong thành phố.\"")
+                .append(",\"price\":").append(85000 + i * 1000)
+                .append(",\"coinPrice\":").append(i % 3 == 0 ? "null" : String.valueOf(80 + i))
+                .append(",\"category\":{\"_id\":\"c").append(i % 2 + 1).append("\",\"name\":\"Tiểu thuyết\"}")
+                .append(",\"hasPreview\":").append(i % 2 == 0)
+                .append(",\"isDigitalAvailable\":true,\"averageRating\":4.").append(i % 10)
+                .append(",\"totalReviews\":").append(i * 3)
+                .append(",\"coverImage\":\"/uploads/covers/").append(i).append(".jpg\"")
+                .append(",\"stock\":12,\"__v\":0")
+                .append(",\"createdAt\":\"2024-03-01T08:00:00.000Z\",\"updatedAt\":\"2024-04-01T08:00:00.000Z\"}");
+    }
+
+    private static String orderList(int count) {
+        StringBuilder sb = new StringBuilder("{\"success\":true,\"data\":{\"orders\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"_id\":\"o").append(i).append("\",\"user\":{\"_id\":\"u1\",\"username\":\"reader\"},\"items\":[");
+            for (int j = 0; j < 3; j++) {
+                if (j > 0) {
+                    sb.append(',');
+                }
+                sb.append("{\"_id\":\"i").append(i).append('_').append(j).append("\",\"book\":");
+                appendBook(sb, i + j);
+                sb.append(",\"quantity\":").append(j + 1).append(",\"price\":").append(90000 + j).append('}');
+            }
+            sb.append("],\"totalAmount\":270000,\"orderStatus\":\"delivered\",\"status\":\"delivered\"")
+                    .append(",\"shippingAddress\":{\"fullName\":\"Nguyễn Văn A\",\"address\":\"1 Lê Lợi\",")
+                    .append("\"city\":\"Hà Nội\",\"postalCode\":\"100000\",\"phone\":\"0900000000\"}")
+                    .append(",\"paymentMethod\":\"vnpay\",\"paymentStatus\":\"paid\",\"shippingFee\":30000")
+                    .append(",\"subtotal\":270000,\"discountAmount\":").append(i % 2 == 0 ? 0 : 20000)
+                    .append(",\"finalAmount\":280000,\"appliedPromotion\":")
+                    .append(i % 2 == 0 ? "null" : "{\"code\":\"SALE20\",\"discountType\":\"fixed\",\"discountValue\":20000,"
+                            + "\"minimumPurchase\":100000,\"maxUsage\":100,\"currentUsage\":null}")
+                    .append(",\"createdAt\":\"2024-05-01T08:00:00.000Z\",\"updatedAt\":\"2024-05-02T08:00:00.000Z\"}");
+        }
+        return sb.append("]}}").toString();
+    }
+
+    private static String coinHistoryPage(int count) {
+        StringBuilder sb = new StringBuilder("{\"success\":true,\"currentPage\":1,\"totalPages\":5,")
+                .append("\"totalTransactions\":100,\"walletBalance\":1250,\"transactions\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"_id\":\"t").append(i).append("\",\"type\":\"").append(i % 3 == 0 ? "purchase" : "deposit")
+                    .append("\",\"amount\":").append(100 + i)
+                    .append(",\"realMoneyAmount\":").append((100 + i) * 1000)
+                    .append(",\"balanceBefore\":").append(1000 + i)
+                    .append(",\"balanceAfter\":").append(1100 + i * 2)
+                    .append(",\"description\":\"Nạp coin qua VNPay\",\"paymentMethod\":\"vnpay\",\"status\":\"completed\"")
+                    .append(",\"paymentTransactionId\":\"1400").append(i).append('"')
+                    .append(",\"createdAt\":\"2024-05-01T08:00:00.000Z\",\"updatedAt\":\"2024-05-01T08:00:00.000Z\"}");
+        }
+        return sb.append("]}").toString();
+    }
+}
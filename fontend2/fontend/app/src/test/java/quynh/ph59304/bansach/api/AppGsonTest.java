@@ -0,0 +1,87 @@
+package quynh.ph59304.bansach.api;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import quynh.ph59304.bansach.models.ApiResponse;
+import quynh.ph59304.bansach.models.Book;
+import quynh.ph59304.bansach.models.CoinTopUpResponse;
+import quynh.ph59304.bansach.models.CoinTransaction;
+import quynh.ph59304.bansach.models.Order;
+import quynh.ph59304.bansach.models.OrderCreateResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AppGsonTest {
+    private final Gson gson = AppGson.get();
+
+    @Test
+    public void storedBooksReadBackUnchanged() {
+        // CatalogDatabase lưu Book dưới dạng JSON do chính Gson này ghi
+        Book book = gson.fromJson("{\"_id\":{\"$oid\":\"b1\"},\"title\":\"Tắt đèn\",\"price\":85000,"
+                + "\"coinPrice\":null,\"category\":{\"_id\":\"c1\",\"name\":\"Tiểu thuyết\"},"
+                + "\"createdAt\":\"2024-03-01T08:00:00.000Z\"}", Book.class);
+        String stored = gson.toJson(book);
+        assertEquals(stored, gson.toJson(gson.fromJson(stored, Book.class)));
+        assertEquals("b1", gson.fromJson(stored, Book.class).getId());
+        assertEquals("c1", gson.fromJson(stored, Book.class).getCategory().getId());
+    }
+
+    @Test
+    public void acceptsLooseBackendJson() {
+        Book book = gson.fromJson("{\"id\":\"b1\",\"price\":\"12.5\",\"totalReviews\":null,"
+                + "\"hasPreview\":\"true\",\"category\":\"c9\",\"extra\":{\"x\":[1,2]},\"title\":42}", Book.class);
+        assertEquals("b1", book.getId());
+        assertEquals(12.5, book.getPrice(), 0);
+        assertEquals(0, book.getTotalReviews());
+        assertTrue(book.hasPreview());
+        assertEquals("c9", book.getCategory().getId());
+        assertEquals("42", book.getTitle());
+        assertNull(book.getCoinPrice());
+
+        CoinTransaction transaction = gson.fromJson(
+                "{\"transactionType\":\"deposit\",\"moneyAmount\":50000}", CoinTransaction.class);
+        assertEquals("deposit", transaction.getType());
+        assertEquals(50000, transaction.getRealMoneyAmount(), 0);
+
+        Order order = gson.fromJson("{\"_id\":\"o1\",\"user\":\"u1\",\"items\":[{\"book\":\"b2\",\"quantity\":2}]}",
+                Order.class);
+        assertEquals("u1", order.getUser().getId());
+        assertEquals("b2", order.getItems().get(0).getBook().getId());
+
+        ApiResponse<Void> empty = gson.fromJson("{\"success\":false,\"message\":\"x\"}",
+                new TypeToken<ApiResponse<Void>>() {}.getType());
+        assertFalse(empty.getSuccess());
+        assertNull(empty.getData());
+    }
+
+    @Test
+    public void readsBothShapesOfAPaymentStartInOnePass() {
+        OrderCreateResponse vnpay = gson.fromJson("{\"success\":true,\"message\":\"ok\","
+                + "\"order\":{\"_id\":{\"$oid\":\"o7\"},\"paymentMethod\":\"vnpay\"},"
+                + "\"paymentUrl\":\"https://pay.example/vnp?x=1\"}", OrderCreateResponse.class);
+        assertTrue(vnpay.isSuccess());
+        assertTrue(vnpay.hasPaymentUrl());
+        assertEquals("o7", vnpay.getOrderId());
+
+        OrderCreateResponse cash = gson.fromJson("{\"success\":true,\"data\":{\"id\":\"o8\","
+                + "\"paymentMethod\":\"cash\"}}", OrderCreateResponse.class);
+        assertFalse(cash.hasPaymentUrl());
+        assertEquals("o8", cash.getOrderId());
+
+        OrderCreateResponse failed = gson.fromJson("{\"success\":false,\"error\":\"Hết hàng\"}",
+                OrderCreateResponse.class);
+        assertFalse(failed.isSuccess());
+        assertEquals("Hết hàng", failed.getErrorMessage("x"));
+
+        CoinTopUpResponse topUp = gson.fromJson("{\"success\":true,\"data\":{\"_id\":\"t1\","
+                + "\"type\":\"deposit\",\"amount\":100}}", CoinTopUpResponse.class);
+        assertFalse(topUp.hasPaymentUrl());
+        assertEquals(100, topUp.getData().getAmount(), 0);
+    }
+}
@@ -0,0 +1,63 @@
+package quynh.ph59304.bansach.api;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import quynh.ph59304.bansach.reader.ReaderChapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BookContentStreamParserTest {
+
+    @Test
+    public void readsChaptersAndMetadataWithoutBuildingTheRest() throws IOException {
+        String json = "{\"success\":true,\"message\":\"ok\",\"data\":{"
+                + "\"book\":{\"id\":\"b1\",\"title\":\"Sách\",\"tags\":[1,2,{\"x\":null}]},"
+                + "\"content\":\"\","
+                + "\"chapters\":[{\"chapterNumber\":1,\"title\":\"Mở đầu\",\"content\":\"Đoạn một\"},"
+                + "{\"chapterTitle\":\"Phụ\",\"content\":null},"
+                + "{\"number\":7.0,\"title\":null,\"chapterTitle\":\"Bảy\",\"content\":\"x\"}],"
+                + "\"contentPath\":null,\"hasFile\":true,\"contentLength\":12345,"
+                + "\"contentSha256\":\"abc\",\"readingProgress\":null}}";
+        List<ReaderChapter> chapters = new ArrayList<>();
+        BookContentStreamParser.Result result = BookContentStreamParser.parse(new StringReader(json), chapters::add);
+
+        assertTrue(result.isSuccess());
+        assertEquals("ok", result.getMessage());
+        assertEquals("", result.getContent());
+        assertTrue(result.hasFile());
+        assertEquals(12345, result.getContentLength());
+        assertEquals("abc", result.getContentSha256());
+        assertEquals(3, result.getChapterCount());
+
+        assertEquals("Mở đầu", chapters.get(0).getTitle());
+        assertEquals("Đoạn một", chapters.get(0).getContent().toString());
+        assertEquals(1, chapters.get(0).getChapterNumber());
+        assertEquals("Phụ", chapters.get(1).getTitle());
+        assertEquals(2, chapters.get(1).getChapterNumber());
+        assertEquals("", chapters.get(1).getContent().toString());
+        assertEquals("Bảy", chapters.get(2).getTitle());
+        assertEquals(7, chapters.get(2).getChapterNumber());
+    }
+
+    @Test
+    public void errorResponseHasNoData() throws IOException {
+        String json = "{\"success\":false,\"message\":\"Bạn cần mua quyền truy cập để đọc sách này\",\"hasAccess\":false}";
+        List<ReaderChapter> chapters = new ArrayList<>();
+        BookContentStreamParser.Result result = BookContentStreamParser.parse(new StringReader(json), chapters::add);
+
+        assertFalse(result.isSuccess());
+        assertEquals("Bạn cần mua quyền truy cập để đọc sách này", result.getMessage());
+        assertFalse(result.hasFile());
+        assertNull(result.getContentSha256());
+        assertEquals(-1, result.getContentLength());
+        assertTrue(chapters.isEmpty());
+    }
+}
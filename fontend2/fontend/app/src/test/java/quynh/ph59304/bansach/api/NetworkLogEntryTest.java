@@ -0,0 +1,52 @@
+package quynh.ph59304.bansach.api;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NetworkLogEntryTest {
+
+    @Test
+    public void redactsCredentialsInHeadersAndBodies() {
+        NetworkLogEntry entry = new NetworkLogEntry("POST", "http://10.0.2.2:3000/api/auth/login");
+        entry.setRequestHeaders(new String[]{"Authorization", "Bearer abc", "Accept", "application/json"});
+        entry.setRequestBody(NetworkLogEntry.Body.text(
+                "{\"username\":\"an\",\"password\":\"secret\"}".getBytes(StandardCharsets.UTF_8), null, 38, false));
+        entry.setResponse(200, "OK", false, 42, 30);
+        entry.setResponseHeaders(new String[]{"Set-Cookie", "sid=1"});
+        entry.setResponseBody(NetworkLogEntry.Body.text(
+                "{\"token\": \"jwt.value\"}".getBytes(StandardCharsets.UTF_8), null, 22, false));
+
+        String text = entry.format();
+        assertFalse(text.contains("abc"));
+        assertFalse(text.contains("secret"));
+        assertFalse(text.contains("sid=1"));
+        assertFalse(text.contains("jwt.value"));
+        assertTrue(text.contains("\"username\":\"an\""));
+        assertTrue(text.contains("Accept: application/json"));
+        assertTrue(text.contains("<-- 200 OK (42 ms, 30 B)"));
+        assertEquals(3, entry.getPriority());
+    }
+
+    @Test
+    public void marksTruncatedAndBinaryBodies() {
+        NetworkLogEntry entry = new NetworkLogEntry("GET", "http://host/api/books/1/content/stream");
+        entry.setResponse(200, "", true, 5, 3 * 1024 * 1024);
+        entry.setResponseBody(NetworkLogEntry.Body.text(
+                "{\"chapters\":[".getBytes(StandardCharsets.UTF_8), null, 3 * 1024 * 1024, true));
+        String text = entry.format();
+        assertTrue(text.contains("(5 ms, 3.0 MB, cache)"));
+        assertTrue(text.endsWith("{\"chapters\":[…(truncated, 3.0 MB total)"));
+
+        NetworkLogEntry upload = new NetworkLogEntry("POST", "http://host/api/auth/avatar");
+        upload.setRequestBody(NetworkLogEntry.Body.omitted("multipart/form-data", 2048));
+        upload.setFailure("java.net.SocketTimeoutException: timeout", 60_000);
+        assertTrue(upload.format().contains("(multipart/form-data body, 2.0 KB)"));
+        assertTrue(upload.format().endsWith("<-- FAILED java.net.SocketTimeoutException: timeout (60000 ms)"));
+        assertEquals(5, upload.getPriority());
+    }
+}
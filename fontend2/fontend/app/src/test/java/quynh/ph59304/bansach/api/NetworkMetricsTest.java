@@ -0,0 +1,94 @@
+package quynh.ph59304.bansach.api;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NetworkMetricsTest {
+
+    @Test
+    public void histogramBucketsAndPercentiles() {
+        Histogram histogram = Histogram.latencyMs();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(3);
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(150);
+        }
+        histogram.record(45_000);
+        histogram.record(-1);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(90 * 3 + 9 * 150 + 45_000, histogram.getSum());
+        assertEquals(45_000, histogram.getMax());
+        assertEquals(5, histogram.percentile(0.5));
+        assertEquals(5, histogram.percentile(0.9));
+        assertEquals(200, histogram.percentile(0.99));
+        assertEquals(45_000, histogram.percentile(1.0));
+    }
+
+    @Test
+    public void pathsWithoutAnAnnotationAreTemplated() {
+        assertEquals("api/books/{id}", NetworkMetrics.templateOf("/api/books/65a1f0c2e4b0a1b2c3d4e5f6"));
+        assertEquals("access/api/books/{id}/chapters/{id}",
+                NetworkMetrics.templateOf("/access/api/books/65a1f0c2e4b0a1b2c3d4e5f6/chapters/12"));
+        assertEquals("api/books/changes", NetworkMetrics.templateOf("/api/books/changes"));
+        assertEquals("", NetworkMetrics.templateOf("/"));
+    }
+
+    @Test
+    public void snapshotGroupsCallsPerEndpoint() {
+        NetworkMetrics metrics = new NetworkMetrics();
+
+        NetworkMetrics.CallTiming fresh = new NetworkMetrics.CallTiming();
+        fresh.dnsNanos = TimeUnit.MILLISECONDS.toNanos(12);
+        fresh.connectNanos = TimeUnit.MILLISECONDS.toNanos(40);
+        fresh.ttfbNanos = TimeUnit.MILLISECONDS.toNanos(80);
+        fresh.bodyReadNanos = TimeUnit.MILLISECONDS.toNanos(4);
+        fresh.totalNanos = TimeUnit.MILLISECONDS.toNanos(140);
+        fresh.responseBytes = 3_000;
+        metrics.record("GET api/books/{id}", fresh);
+
+        NetworkMetrics.CallTiming cached = new NetworkMetrics.CallTiming();
+        cached.cacheHit = true;
+        cached.totalNanos = TimeUnit.MILLISECONDS.toNanos(1);
+        metrics.record("GET api/books/{id}", cached);
+
+        NetworkMetrics.CallTiming failed = new NetworkMetrics.CallTiming();
+        failed.failed = true;
+        failed.totalNanos = TimeUnit.SECONDS.toNanos(30);
+        metrics.record("POST api/orders", failed);
+
+        JsonObject snapshot = JsonParser.parseString(metrics.toJson()).getAsJsonObject();
+        JsonObject endpoints = snapshot.getAsJsonObject("endpoints");
+        assertEquals(2, endpoints.size());
+
+        JsonObject book = endpoints.getAsJsonObject("GET api/books/{id}");
+        assertEquals(2, book.get("calls").getAsLong());
+        assertEquals(1, book.get("cacheHits").getAsLong());
+        assertEquals(1, book.getAsJsonObject("dnsMs").get("count").getAsLong());
+        assertEquals(12, book.getAsJsonObject("dnsMs").get("max").getAsLong());
+        assertEquals(2, book.getAsJsonObject("totalMs").get("count").getAsLong());
+        assertFalse(book.has("tlsMs"));
+        JsonObject bytes = book.getAsJsonObject("responseBytes");
+        JsonArray counts = bytes.getAsJsonArray("counts");
+        assertEquals(bytes.getAsJsonArray("bounds").size() + 1, counts.size());
+        assertEquals(1, counts.get(2).getAsLong());
+
+        JsonObject order = endpoints.getAsJsonObject("POST api/orders");
+        assertEquals(1, order.get("failures").getAsLong());
+        assertEquals(30_000, order.getAsJsonObject("totalMs").get("p99").getAsLong());
+
+        metrics.reset();
+        assertTrue(JsonParser.parseString(metrics.toJson()).getAsJsonObject()
+                .getAsJsonObject("endpoints").entrySet().isEmpty());
+    }
+}
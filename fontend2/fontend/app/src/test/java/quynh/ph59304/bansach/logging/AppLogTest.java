@@ -0,0 +1,102 @@
+package quynh.ph59304.bansach.logging;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AppLogTest {
+    private static final String TAG = "Test";
+
+    @After
+    public void restore() {
+        AppLog.setThreshold(AppLog.MIN_LEVEL);
+        AppLog.setWriter(null);
+    }
+
+    @Test
+    public void disabledCallsDoNotAllocate() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        AppLog.setWriter(new AsyncLogWriter(16, (priority, tag, message) -> lines.add(message)));
+        AppLog.setThreshold(AppLog.ERROR);
+        String chapterTitle = "Chương 1";
+        Supplier<String> expensive = () -> "never built";
+
+        // Chạy nóng trước để JIT biên dịch rồi mới đo
+        logDisabled(chapterTitle, expensive, 200_000);
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        logDisabled(chapterTitle, expensive, 100_000);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue("disabled log calls allocated " + allocated + " bytes", allocated < 1024);
+        assertTrue(lines.isEmpty());
+    }
+
+    private static void logDisabled(String title, Supplier<String> expensive, int count) {
+        for (int i = 0; i < count; i++) {
+            AppLog.v(TAG, "chapter {}", i);
+            AppLog.d(TAG, "chapter {} of {}", title, TAG);
+            AppLog.d(TAG, "progress {}", i / (double) count);
+            AppLog.i(TAG, expensive);
+            AppLog.w(TAG, "offset {}", (long) i * 31);
+        }
+    }
+
+    @Test
+    public void enabledRecordsAreFormattedOnTheWriterThread() {
+        List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger formattedOnCaller = new AtomicInteger();
+        Thread caller = Thread.currentThread();
+        AsyncLogWriter writer = new AsyncLogWriter(16, (priority, tag, message) -> lines.add(priority + " " + message));
+        AppLog.setWriter(writer);
+
+        Object lazy = new Object() {
+            @Override
+            public String toString() {
+                if (Thread.currentThread() == caller) {
+                    formattedOnCaller.incrementAndGet();
+                }
+                return "value";
+            }
+        };
+        AppLog.e(TAG, "id {} and {} then {}", "b1", 42L, null);
+        AppLog.e(TAG, "mutable {}", lazy);
+        AppLog.e(TAG, "{} extra {}", "only");
+        AppLog.e(TAG, "failed", new IllegalStateException("boom"));
+        assertTrue(writer.flush(5_000));
+
+        assertEquals("6 id b1 and 42 then null", lines.get(0));
+        assertEquals("6 mutable value", lines.get(1));
+        assertEquals("6 only extra {}", lines.get(2));
+        assertTrue(lines.get(3).startsWith("6 failed\njava.lang.IllegalStateException: boom"));
+        // Đối tượng có thể thay đổi được chuyển thành chuỗi ngay trên luồng gọi
+        assertEquals(1, formattedOnCaller.get());
+    }
+
+    @Test
+    public void thresholdNeverGoesBelowTheCompiledMinimum() {
+        AppLog.setThreshold(AppLog.VERBOSE);
+        assertFalse(AppLog.isLoggable(AppLog.MIN_LEVEL - 1));
+        assertTrue(AppLog.isLoggable(AppLog.ERROR));
+
+        AppLog.setThreshold(AppLog.ERROR);
+        assertFalse(AppLog.isLoggable(AppLog.WARN));
+    }
+}
@@ -0,0 +1,128 @@
+package quynh.ph59304.bansach.logging;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LogRingBufferTest {
+
+    @Test
+    public void dropsInsteadOfBlockingWhenFull() {
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(3);
+        assertEquals(4, buffer.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(1, buffer.getDroppedCount());
+
+        assertEquals(Integer.valueOf(0), buffer.poll());
+        assertTrue(buffer.offer(5));
+        for (int expected : new int[]{1, 2, 3, 5}) {
+            assertEquals(Integer.valueOf(expected), buffer.poll());
+        }
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    public void concurrentProducersLoseNothingAndKeepTheirOrder() throws Exception {
+        LogRingBuffer<long[]> buffer = new LogRingBuffer<>(256);
+        int producers = 4;
+        int perProducer = 50_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    // Đầy thì thử lại: ở đây muốn kiểm tra không mất bản ghi nào
+                    while (!buffer.offer(new long[]{producer, i})) {
+                        Thread.yield();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+
+        long[] next = new long[producers];
+        int received = 0;
+        while (received < producers * perProducer) {
+            long[] record = buffer.poll();
+            if (record == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(next[(int) record[0]], record[1]);
+            next[(int) record[0]]++;
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    public void writerFormatsOnItsOwnThreadAndReportsDrops() {
+        List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        AsyncLogWriter writer = new AsyncLogWriter(1024, (priority, tag, message) -> {
+            threads.add(Thread.currentThread().getName());
+            lines.add(tag + ": " + message);
+        });
+        for (int i = 0; i < 10; i++) {
+            assertTrue(writer.enqueue(new TestEntry("line " + i)));
+        }
+        assertTrue(writer.flush(5_000));
+        assertEquals(10, lines.size());
+        assertEquals("Test: line 0", lines.get(0));
+        assertFalse(threads.contains(Thread.currentThread().getName()));
+
+        // Bản ghi lỗi khi định dạng không làm dừng luồng ghi
+        writer.enqueue(new TestEntry(null));
+        writer.enqueue(new TestEntry("after failure"));
+        assertTrue(writer.flush(5_000));
+        assertEquals("Test: after failure", lines.get(lines.size() - 1));
+    }
+
+    private static final class TestEntry implements LogEntry {
+        private final String message;
+
+        TestEntry(String message) {
+            this.message = message;
+        }
+
+        @Override
+        public int getPriority() {
+            return 3;
+        }
+
+        @Override
+        public String getTag() {
+            return "Test";
+        }
+
+        @Override
+        public String format() {
+            if (message == null) {
+                throw new IllegalStateException("broken record");
+            }
+            return message;
+        }
+    }
+}
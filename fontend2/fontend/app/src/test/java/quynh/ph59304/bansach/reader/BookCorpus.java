@@ -0,0 +1,74 @@
+package quynh.ph59304.bansach.reader;
+
+import java.util.Random;
+
+/**
+ * Deterministic synthetic books for reader tests and benchmarks.
+ */
+final class BookCorpus {
+    private static final String[] WORDS = {
+            "Chương", "này", "cũng", "chứa", "đựng", "những", "manh", "mối", "quan", "trọng",
+            "cho", "các", "sự", "kiện", "sắp", "tới", "người", "đọc", "câu", "chuyện",
+            "nhân", "vật", "bước", "ngoặt", "bí", "mật", "thành", "phố", "đêm", "mưa",
+            "the", "story", "continues", "with", "a", "quiet", "morning", "and", "old", "friends"
+    };
+
+    private BookCorpus() {
+    }
+
+    /**
+     * A book in the layout the backend writes to disk: a header, then
+     * "Chương N: title" chapters made of paragraphs, each followed by a dashed line.
+     */
+    static String structuredBook(int chapters, int paragraphsPerChapter, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        sb.append("Tên sách\nTác giả: Ai đó\n").append(repeat('=', 50)).append("\n\n");
+        for (int c = 1; c <= chapters; c++) {
+            sb.append("\n\nChương ").append(c).append(": Tiêu đề ").append(c).append("\n\n");
+            for (int p = 0; p < paragraphsPerChapter; p++) {
+                appendParagraph(sb, random);
+                sb.append("\n\n");
+            }
+            sb.append("\n\n").append(repeat('-', 50)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Plain prose with paragraphs but no headings or separators, about {@code chars} long.
+     */
+    static String plainBook(int chars, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder(chars + 1024);
+        while (sb.length() < chars) {
+            appendParagraph(sb, random);
+            sb.append("\n\n");
+        }
+        return sb.toString();
+    }
+
+    private static void appendParagraph(StringBuilder sb, Random random) {
+        int sentences = 3 + random.nextInt(5);
+        for (int s = 0; s < sentences; s++) {
+            int words = 6 + random.nextInt(14);
+            for (int w = 0; w < words; w++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                if (w == 0) {
+                    sb.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+                } else {
+                    sb.append(' ').append(word);
+                }
+            }
+            sb.append(s % 3 == 2 ? "! " : ". ");
+        }
+    }
+
+    static String repeat(char c, int count) {
+        StringBuilder sb = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package quynh.ph59304.bansach.reader;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ChapterResidencyTest {
+
+    @Test
+    public void keepsOnlyTheWindowAroundTheCurrentChapter() {
+        ChapterResidency residency = new ChapterResidency(1);
+        for (int i = 0; i < 3; i++) {
+            residency.put(i, "chapter " + i);
+        }
+        assertEquals(3, residency.size());
+
+        residency.setCurrentChapter(5);
+        assertEquals(0, residency.size());
+
+        residency.put(4, "chapter 4");
+        residency.put(5, "chapter 5");
+        residency.put(6, "chapter 6");
+        residency.setCurrentChapter(6);
+        assertNull(residency.get(4));
+        assertNotNull(residency.get(5));
+        assertNotNull(residency.get(6));
+    }
+
+    @Test
+    public void keepsOneChapterLoadedOutsideTheWindow() {
+        ChapterResidency residency = new ChapterResidency(0);
+        residency.put(0, "current");
+        // Ví dụ: mở kết quả tìm kiếm ở chương xa
+        residency.put(40, "search hit");
+        residency.put(41, "another hit");
+        assertNotNull(residency.get(0));
+        assertNull(residency.get(40));
+        assertNotNull(residency.get(41));
+
+        residency.setCurrentChapter(41);
+        assertNull(residency.get(0));
+        assertNotNull(residency.get(41));
+    }
+
+    @Test
+    public void shrinkingTheRadiusEvictsAtOnce() {
+        ChapterResidency residency = new ChapterResidency(ChapterResidency.DEFAULT_RADIUS);
+        residency.setCurrentChapter(10);
+        for (int i = 8; i <= 12; i++) {
+            residency.put(i, "chapter " + i);
+        }
+        assertEquals(5, residency.size());
+
+        residency.setRadius(1);
+        assertEquals(3, residency.size());
+        residency.setRadius(0);
+        assertEquals(1, residency.size());
+        assertNotNull(residency.get(10));
+
+        residency.clear();
+        assertEquals(0, residency.size());
+    }
+}
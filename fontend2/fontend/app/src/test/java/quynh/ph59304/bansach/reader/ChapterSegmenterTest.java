@@ -0,0 +1,191 @@
+package quynh.ph59304.bansach.reader;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChapterSegmenterTest {
+
+    private static String body(String text, ChapterSpan span) {
+        return text.substring(span.getStart(), span.getEnd());
+    }
+
+    @Test
+    public void splitsOnChapterHeadingsAndSeparators() {
+        String text = BookCorpus.structuredBook(20, 4, 1);
+        List<ChapterSpan> chapters = ChapterSegmenter.segment(text);
+
+        assertEquals(20, chapters.size());
+        for (int i = 0; i < chapters.size(); i++) {
+            ChapterSpan chapter = chapters.get(i);
+            assertEquals("Chương " + (i + 1) + ": Tiêu đề " + (i + 1), chapter.getTitle());
+            assertEquals(i + 1, chapter.getChapterNumber());
+            String body = body(text, chapter);
+            assertFalse(body.contains("-----"));
+            assertFalse(body.startsWith("Chương " + (i + 1) + ":"));
+            assertEquals(body.trim(), body);
+        }
+    }
+
+    @Test
+    public void mergesMarkdownTitleWithFollowingChapterLine() {
+        // Định dạng dự phòng của backend khi không có file nội dung
+        String text = "# Khởi đầu\n\nChương 1: Khởi đầu\n\nMột đoạn văn đủ dài để làm nội dung của chương đầu tiên.\n\n---\n\n"
+                + "# Gặp gỡ\n\nChương 2: Gặp gỡ\n\nMột đoạn văn khác đủ dài để làm nội dung của chương thứ hai.";
+        List<ChapterSpan> chapters = ChapterSegmenter.segment(text);
+
+        assertEquals(2, chapters.size());
+        assertEquals("Khởi đầu", chapters.get(0).getTitle());
+        assertEquals(1, chapters.get(0).getChapterNumber());
+        assertEquals("Gặp gỡ", chapters.get(1).getTitle());
+        assertEquals(2, chapters.get(1).getChapterNumber());
+        assertTrue(body(text, chapters.get(1)).startsWith("Một đoạn văn khác"));
+    }
+
+    @Test
+    public void headingVariants() {
+        String paragraph = "Nội dung của chương này đủ dài để không bị coi là một dòng tiêu đề lẻ loi.\n";
+        String text = "CHƯƠNG 1\n" + paragraph
+                + "  chapter 2 - The Road\n" + paragraph
+                + "Chương này cũng chứa manh mối nhưng không phải tiêu đề.\n"
+                + "Chuong 3: Không dấu\n" + paragraph
+                + "Chương 12a không phải tiêu đề\n";
+        List<ChapterSpan> chapters = ChapterSegmenter.segment(text);
+
+        assertEquals(3, chapters.size());
+        assertEquals("CHƯƠNG 1", chapters.get(0).getTitle());
+        assertEquals("chapter 2 - The Road", chapters.get(1).getTitle());
+        assertEquals(2, chapters.get(1).getChapterNumber());
+        assertTrue(body(text, chapters.get(1)).contains("Chương này cũng chứa"));
+        assertEquals(3, chapters.get(2).getChapterNumber());
+        assertTrue(body(text, chapters.get(2)).endsWith("Chương 12a không phải tiêu đề"));
+    }
+
+    @Test
+    public void substantialTextBeforeFirstHeadingIsPreface() {
+        String text = "Lời nói đầu của tác giả, đủ dài để được giữ lại như một chương riêng biệt.\n\n"
+                + "Chương 1: Bắt đầu\nNội dung chương một.";
+        List<ChapterSpan> chapters = ChapterSegmenter.segment(text);
+
+        assertEquals(2, chapters.size());
+        assertEquals("Mở đầu", chapters.get(0).getTitle());
+        assertEquals(0, chapters.get(0).getChapterNumber());
+        assertEquals("Chương 1: Bắt đầu", chapters.get(1).getTitle());
+    }
+
+    @Test
+    public void shortUnstructuredTextIsOneChapter() {
+        String text = "  Một cuốn sách rất ngắn.\n";
+        List<ChapterSpan> chapters = ChapterSegmenter.segment(text);
+
+        assertEquals(1, chapters.size());
+        assertEquals("Nội dung", chapters.get(0).getTitle());
+        assertEquals("Một cuốn sách rất ngắn.", body(text, chapters.get(0)));
+    }
+
+    @Test
+    public void longUnstructuredTextIsSplitByLengthWithoutLosingText() {
+        String text = BookCorpus.plainBook(50_000, 2);
+        List<ChapterSpan> chapters = ChapterSegmenter.segment(text);
+
+        assertTrue(chapters.size() >= 50_000 / ChapterSegmenter.TARGET_CHAPTER_LENGTH);
+        int previousEnd = 0;
+        for (int i = 0; i < chapters.size(); i++) {
+            ChapterSpan chapter = chapters.get(i);
+            assertEquals("Chương " + (i + 1), chapter.getTitle());
+            assertTrue(chapter.length() <= ChapterSegmenter.TARGET_CHAPTER_LENGTH);
+            // Only whitespace may fall between two chapters
+            assertEquals("", text.substring(previousEnd, chapter.getStart()).trim());
+            previousEnd = chapter.getEnd();
+            if (i < chapters.size() - 1) {
+                char last = text.charAt(chapter.getEnd() - 1);
+                assertTrue("chapter " + (i + 1) + " ends mid-sentence",
+                        last == '.' || last == '!' || last == '?');
+            }
+        }
+        assertEquals("", text.substring(previousEnd).trim());
+    }
+
+    @Test
+    public void incrementalFeedGivesSameResultAsWholeText() {
+        String text = BookCorpus.structuredBook(30, 5, 3);
+        StringBuilder buffer = new StringBuilder();
+        ChapterSegmenter segmenter = new ChapterSegmenter(buffer);
+        int finalSoFar = 0;
+        for (int pos = 0; pos < text.length(); pos += 777) {
+            buffer.append(text, pos, Math.min(text.length(), pos + 777));
+            int count = segmenter.advance();
+            assertTrue(count >= finalSoFar);
+            finalSoFar = count;
+        }
+        assertTrue("chapters should become final while text is still arriving", finalSoFar >= 29);
+
+        List<ChapterSpan> streamed = segmenter.finish();
+        List<ChapterSpan> whole = ChapterSegmenter.segment(text);
+        assertEquals(whole.size(), streamed.size());
+        for (int i = 0; i < whole.size(); i++) {
+            assertEquals(whole.get(i).getTitle(), streamed.get(i).getTitle());
+            assertEquals(whole.get(i).getStart(), streamed.get(i).getStart());
+            assertEquals(whole.get(i).getEnd(), streamed.get(i).getEnd());
+        }
+    }
+
+    @Test
+    public void singleClosedChapterIsNotFinalUntilFinish() {
+        // Một phần dài đóng bởi dấu phân cách, sau đó chỉ còn một dòng ngắn
+        String text = BookCorpus.plainBook(4 * ChapterSegmenter.TARGET_CHAPTER_LENGTH, 11) + "\n-----\nHết.\n";
+        ChapterSegmenter segmenter = new ChapterSegmenter(text);
+        assertEquals(0, segmenter.advance());
+        assertTrue(segmenter.getChapters().isEmpty());
+
+        List<ChapterSpan> chapters = segmenter.finish();
+        assertTrue(chapters.size() > 1);
+        assertEquals(chapters.size(), segmenter.advance());
+        assertEquals(ChapterSegmenter.segment(text).size(), chapters.size());
+    }
+
+    /**
+     * Benchmark on multi-megabyte books; fails if the cost grows clearly faster than
+     * the text (the old regex parser was quadratic here).
+     */
+    @Test
+    public void segmentationTimeGrowsLinearly() {
+        String structuredSmall = BookCorpus.structuredBook(550, 12, 4);   // ~2 MB
+        String structuredLarge = BookCorpus.structuredBook(2200, 12, 5);  // ~8 MB
+        String plainSmall = BookCorpus.plainBook(2 * 1024 * 1024, 6);
+        String plainLarge = BookCorpus.plainBook(8 * 1024 * 1024, 7);
+
+        long structuredSmallNs = bestOf(structuredSmall);
+        long structuredLargeNs = bestOf(structuredLarge);
+        long plainSmallNs = bestOf(plainSmall);
+        long plainLargeNs = bestOf(plainLarge);
+
+        System.out.println(String.format("ChapterSegmenter: structured %.1f MB %d ms, %.1f MB %d ms;"
+                        + " plain %.1f MB %d ms, %.1f MB %d ms",
+                mb(structuredSmall), structuredSmallNs / 1_000_000, mb(structuredLarge), structuredLargeNs / 1_000_000,
+                mb(plainSmall), plainSmallNs / 1_000_000, mb(plainLarge), plainLargeNs / 1_000_000));
+
+        // 4x the text may cost at most ~10x the time (generous for JIT/GC noise)
+        assertTrue(structuredLargeNs < Math.max(structuredSmallNs, 5_000_000L) * 10);
+        assertTrue(plainLargeNs < Math.max(plainSmallNs, 5_000_000L) * 10);
+        assertEquals(2200, ChapterSegmenter.segment(structuredLarge).size());
+    }
+
+    private static long bestOf(String text) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            ChapterSegmenter.segment(text);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static double mb(String text) {
+        return text.length() / (1024.0 * 1024.0);
+    }
+}
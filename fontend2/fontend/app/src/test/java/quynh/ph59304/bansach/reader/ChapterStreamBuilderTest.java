@@ -0,0 +1,103 @@
+package quynh.ph59304.bansach.reader;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChapterStreamBuilderTest {
+
+    private static List<ChapterSpan> expected(String text) {
+        return ChapterSegmenter.segment(text);
+    }
+
+    private static void assertSameChapters(String text, List<ReaderChapter> actual) {
+        List<ChapterSpan> spans = expected(text);
+        assertEquals(spans.size(), actual.size());
+        for (int i = 0; i < spans.size(); i++) {
+            ChapterSpan span = spans.get(i);
+            assertEquals(span.getTitle(), actual.get(i).getTitle());
+            assertEquals(span.getChapterNumber(), actual.get(i).getChapterNumber());
+            assertEquals(text.substring(span.getStart(), span.getEnd()), actual.get(i).getContent().toString());
+        }
+    }
+
+    @Test
+    public void streamedBytesGiveTheSameChaptersAsTheWholeText() throws IOException {
+        String text = BookCorpus.structuredBook(30, 5, 7);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        List<ReaderChapter> received = new ArrayList<>();
+        List<Integer> bytesFedAtChapter = new ArrayList<>();
+        int[] fed = {0};
+        ChapterStreamBuilder builder = new ChapterStreamBuilder(chapter -> {
+            received.add(chapter);
+            bytesFedAtChapter.add(fed[0]);
+        });
+
+        // Khối 1000 byte cắt ngang các ký tự tiếng Việt nhiều byte
+        for (int pos = 0; pos < bytes.length; pos += 1000) {
+            int n = Math.min(1000, bytes.length - pos);
+            fed[0] = pos + n;
+            builder.appendText(bytes, pos, n);
+        }
+        assertEquals(30, builder.finish());
+
+        assertSameChapters(text, received);
+        assertTrue("first chapter should arrive early", bytesFedAtChapter.get(0) < bytes.length / 5);
+    }
+
+    @Test
+    public void plainTextIsOnlyEmittedAfterItIsComplete() throws IOException {
+        // Không có tiêu đề: chỉ chia theo độ dài khi đã có toàn bộ văn bản
+        String text = BookCorpus.plainBook(12000, 3);
+        List<ReaderChapter> received = new ArrayList<>();
+        ChapterStreamBuilder builder = new ChapterStreamBuilder(received::add);
+        for (int pos = 0; pos < text.length(); pos += 500) {
+            builder.appendText(text.substring(pos, Math.min(text.length(), pos + 500)));
+            assertEquals(0, received.size());
+        }
+        builder.finish();
+        assertSameChapters(text, received);
+        assertTrue(received.size() > 1);
+    }
+
+    @Test
+    public void structuredArrayWinsWhenItHasSeveralChapters() throws IOException {
+        List<ReaderChapter> received = new ArrayList<>();
+        ChapterStreamBuilder builder = new ChapterStreamBuilder(received::add);
+        builder.addArrayChapter(new ReaderChapter("Một", "Nội dung một", 1));
+        assertEquals(0, received.size());
+        builder.addArrayChapter(new ReaderChapter("Hai", "Nội dung hai", 2));
+        assertEquals(2, received.size());
+        assertTrue(builder.isUsingArray());
+        builder.appendText(BookCorpus.structuredBook(5, 3, 1));
+        assertEquals(2, builder.finish());
+        assertEquals("Hai", received.get(1).getTitle());
+    }
+
+    @Test
+    public void singleShortArrayChapterBeatsShortText() throws IOException {
+        List<ReaderChapter> received = new ArrayList<>();
+        ChapterStreamBuilder builder = new ChapterStreamBuilder(received::add);
+        builder.addArrayChapter(new ReaderChapter("Duy nhất", "Nội dung ngắn", 1));
+        builder.appendText("Văn bản ngắn");
+        assertEquals(1, builder.finish());
+        assertEquals("Duy nhất", received.get(0).getTitle());
+    }
+
+    @Test
+    public void singleArrayChapterGivesWayToLongText() throws IOException {
+        String text = BookCorpus.structuredBook(6, 4, 5);
+        List<ReaderChapter> received = new ArrayList<>();
+        ChapterStreamBuilder builder = new ChapterStreamBuilder(received::add);
+        builder.addArrayChapter(new ReaderChapter("Duy nhất", "Nội dung ngắn", 1));
+        builder.appendText(text);
+        builder.finish();
+        assertSameChapters(text, received);
+    }
+}
@@ -0,0 +1,322 @@
+package quynh.ph59304.bansach.reader;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PaginatorTest {
+
+    /** Fixed number of chars per page, cut back to a space; counts its calls. */
+    private static class FakeLayouter implements PageLayouter<String> {
+        final int charsPerPage;
+        int fitCalls;
+        int layoutCalls;
+
+        FakeLayouter(int charsPerPage) {
+            this.charsPerPage = charsPerPage;
+        }
+
+        @Override
+        public int fitPage(CharSequence text, int start, int limit) {
+            fitCalls++;
+            int end = Math.min(limit, start + charsPerPage);
+            if (end < limit) {
+                int space = end;
+                while (space > start && text.charAt(space - 1) != ' ') {
+                    space--;
+                }
+                if (space > start) {
+                    end = space;
+                }
+            }
+            return end;
+        }
+
+        @Override
+        public String layoutPage(CharSequence pageText) {
+            layoutCalls++;
+            return pageText.toString();
+        }
+    }
+
+    /**
+     * Real page breaking ({@link WindowedPageLayouter}) over monospace lines of
+     * {@code lineChars}, wrapped at spaces and newlines. Like StaticLayout, a window
+     * laid out from a non-zero start reports line ends as offsets into the whole text.
+     */
+    private static class LineLayouter extends WindowedPageLayouter<String> {
+        final int lineChars;
+
+        LineLayouter(int lineChars, int linesPerPage) {
+            super(linesPerPage, lineChars * linesPerPage);
+            this.lineChars = lineChars;
+        }
+
+        @Override
+        protected Lines layoutWindow(CharSequence text, int start, int end) {
+            List<Integer> ends = new ArrayList<>();
+            int pos = start;
+            do {
+                int lineEnd = Math.min(end, pos + lineChars);
+                for (int i = pos; i < lineEnd; i++) {
+                    if (text.charAt(i) == '\n') {
+                        lineEnd = i + 1;
+                        break;
+                    }
+                }
+                if (lineEnd < end && text.charAt(lineEnd - 1) != '\n') {
+                    int space = lineEnd;
+                    while (space > pos && text.charAt(space - 1) != ' ') {
+                        space--;
+                    }
+                    if (space > pos) {
+                        lineEnd = space;
+                    }
+                }
+                ends.add(lineEnd);
+                pos = lineEnd;
+            } while (pos < end);
+            return new Lines() {
+                @Override
+                public int getLineCount() {
+                    return ends.size();
+                }
+
+                @Override
+                public int getLineForVertical(int vertical) {
+                    return Math.max(0, Math.min(vertical, ends.size() - 1));
+                }
+
+                @Override
+                public int getLineBottom(int line) {
+                    return line + 1;
+                }
+
+                @Override
+                public int getLineEnd(int line) {
+                    return ends.get(line);
+                }
+            };
+        }
+
+        int lineCount(CharSequence pageText) {
+            return layoutWindow(pageText, 0, pageText.length()).getLineCount();
+        }
+
+        @Override
+        public String layoutPage(CharSequence pageText) {
+            return pageText.toString();
+        }
+    }
+
+    private static List<CharSequence> book(int chapters, int charsPerChapter) {
+        List<CharSequence> result = new ArrayList<>();
+        for (int i = 0; i < chapters; i++) {
+            result.add(BookCorpus.plainBook(charsPerChapter, i).trim());
+        }
+        return result;
+    }
+
+    private static List<Page<String>> readForward(Paginator<String> paginator, Page<String> from) {
+        List<Page<String>> pages = new ArrayList<>();
+        for (Page<String> page = from; page != null; page = paginator.next(page)) {
+            pages.add(page);
+        }
+        return pages;
+    }
+
+    @Test
+    public void pagesCoverEveryChapterContiguously() {
+        List<CharSequence> chapters = book(3, 5000);
+        Paginator<String> paginator = new Paginator<>(chapters, new FakeLayouter(400));
+        List<Page<String>> pages = readForward(paginator, paginator.pageAt(0, 0));
+
+        int chapter = 0;
+        int expectedStart = 0;
+        for (Page<String> page : pages) {
+            if (page.getChapterIndex() != chapter) {
+                assertEquals(chapters.get(chapter).length(), expectedStart);
+                chapter = page.getChapterIndex();
+                expectedStart = 0;
+            }
+            assertEquals(expectedStart, page.getStart());
+            assertTrue(page.getText().length() <= 400);
+            assertEquals(page.getText().toString(), page.getLayout());
+            expectedStart = page.getEnd();
+        }
+        assertEquals(2, chapter);
+        assertEquals(chapters.get(2).length(), expectedStart);
+    }
+
+    @Test
+    public void previousRetracesNextAcrossChapters() {
+        Paginator<String> paginator = new Paginator<>(book(3, 3000), new FakeLayouter(350));
+        List<Page<String>> forward = readForward(paginator, paginator.pageAt(0, 0));
+
+        Page<String> page = forward.get(forward.size() - 1);
+        for (int i = forward.size() - 2; i >= 0; i--) {
+            page = paginator.previous(page);
+            assertEquals(forward.get(i).getChapterIndex(), page.getChapterIndex());
+            assertEquals(forward.get(i).getStart(), page.getStart());
+            assertEquals(forward.get(i).getEnd(), page.getEnd());
+        }
+        assertNull(paginator.previous(page));
+    }
+
+    @Test
+    public void goingBackToAnUnseenChapterFindsItsLastPage() {
+        List<CharSequence> chapters = book(2, 4000);
+        Paginator<String> paginator = new Paginator<>(chapters, new FakeLayouter(500));
+
+        Page<String> last = paginator.previous(paginator.pageAt(1, 0));
+        assertEquals(0, last.getChapterIndex());
+        assertEquals(chapters.get(0).length(), last.getEnd());
+    }
+
+    @Test
+    public void onlyPagesNearTheReaderStayRendered() {
+        FakeLayouter layouter = new FakeLayouter(300);
+        Paginator<String> paginator = new Paginator<>(book(1, 20_000), layouter);
+        Page<String> page = paginator.pageAt(0, 0);
+        for (int i = 0; i < 20; i++) {
+            page = paginator.next(page);
+        }
+        int rendered = layouter.layoutCalls;
+
+        // Lùi trong phạm vi LRU: không phải dựng lại trang
+        for (int i = 0; i < Paginator.MAX_CACHED_PAGES - 1; i++) {
+            page = paginator.previous(page);
+        }
+        assertEquals(rendered, layouter.layoutCalls);
+
+        // Xa hơn: trang đã bị loại khỏi LRU nên được dựng lại, ranh giới trang vẫn nhớ
+        int fits = layouter.fitCalls;
+        paginator.previous(page);
+        assertEquals(rendered + 1, layouter.layoutCalls);
+        assertEquals(fits + 1, layouter.fitCalls);
+    }
+
+    @Test
+    public void reflowStartsAtCurrentPageWithoutRepaginatingTheBook() {
+        List<CharSequence> chapters = book(10, 20_000);
+        Paginator<String> paginator = new Paginator<>(chapters, new FakeLayouter(400));
+        Page<String> page = paginator.pageAt(4, 0);
+        for (int i = 0; i < 15; i++) {
+            page = paginator.next(page);
+        }
+        int anchor = page.getStart();
+
+        // Cỡ chữ lớn hơn: ít chữ mỗi trang hơn
+        FakeLayouter bigger = new FakeLayouter(250);
+        Page<String> current = paginator.reflow(bigger, 4, anchor);
+        Page<String> next = paginator.next(current);
+        assertEquals(anchor, current.getStart());
+        assertEquals(current.getEnd(), next.getStart());
+        assertTrue(current.getText().length() <= 250);
+        assertEquals(2, bigger.fitCalls);
+
+        // Lùi qua mốc neo: phân trang lại phần đầu chương, trang cuối kết thúc đúng tại mốc
+        Page<String> before = paginator.previous(current);
+        assertEquals(anchor, before.getEnd());
+        assertTrue(bigger.fitCalls <= 2 + anchor / 200 + 2);
+        List<Integer> starts = new ArrayList<>();
+        for (Page<String> p = before; p != null && p.getChapterIndex() == 4; p = paginator.previous(p)) {
+            starts.add(0, p.getStart());
+            if (p.getStart() == 0) {
+                break;
+            }
+        }
+        assertEquals(0, (int) starts.get(0));
+
+        // Chương khác chỉ được phân trang khi tới nơi
+        Page<String> nextChapter = paginator.pageAt(5, 0);
+        assertTrue(nextChapter.getText().length() <= 250);
+    }
+
+    @Test
+    public void savedPositionBecomesPageStart() {
+        List<CharSequence> chapters = Arrays.asList(BookCorpus.plainBook(6000, 3).trim());
+        Paginator<String> paginator = new Paginator<>(chapters, new FakeLayouter(500));
+        Page<String> restored = paginator.pageAt(0, 2345);
+
+        assertEquals(2345, restored.getStart());
+        Page<String> before = paginator.previous(restored);
+        assertEquals(2345, before.getEnd());
+        assertEquals(restored.getStart(), paginator.next(before).getStart());
+    }
+
+    @Test
+    public void emptyChapterIsOneEmptyPage() {
+        List<CharSequence> chapters = Arrays.asList("Một chương ngắn.", "", "Chương cuối.");
+        Paginator<String> paginator = new Paginator<>(chapters, new FakeLayouter(100));
+        List<Page<String>> pages = readForward(paginator, paginator.pageAt(0, 0));
+
+        assertEquals(3, pages.size());
+        assertEquals("", pages.get(1).getText().toString());
+        assertEquals(1, paginator.previous(pages.get(2)).getChapterIndex());
+    }
+
+    @Test
+    public void windowLaidOutFromMidChapterKeepsEveryCharacter() {
+        // Chương mở đầu bằng khoảng trắng: cả trang đầu cũng dựng cửa sổ từ vị trí khác 0
+        String chapter = "\n\n" + BookCorpus.plainBook(8000, 5).trim();
+        LineLayouter layouter = new LineLayouter(40, 12);
+        Paginator<String> paginator = new Paginator<>(Arrays.asList(chapter), layouter);
+        List<Page<String>> pages = readForward(paginator, paginator.pageAt(0, 0));
+
+        assertTrue(pages.size() > 10);
+        StringBuilder shown = new StringBuilder();
+        for (Page<String> page : pages) {
+            assertTrue(layouter.lineCount(page.getText()) <= 12);
+            shown.append(page.getText());
+        }
+        assertEquals(chapter.replaceAll("\\s+", ""), shown.toString().replaceAll("\\s+", ""));
+        assertEquals(chapter.length(), pages.get(pages.size() - 1).getEnd());
+    }
+
+    @Test
+    public void pagesDoNotReadTheChapterAfterTheyAreBuilt() {
+        String chapter = BookCorpus.plainBook(3000, 7).trim();
+        int[] reads = new int[1];
+        // Như chương chỉ được giữ yếu: mọi lần đọc sau khi dựng trang đều có thể phải tải lại
+        CharSequence lazy = new CharSequence() {
+            @Override
+            public int length() {
+                return chapter.length();
+            }
+
+            @Override
+            public char charAt(int index) {
+                reads[0]++;
+                return chapter.charAt(index);
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                reads[0]++;
+                return chapter.subSequence(start, end);
+            }
+
+            @Override
+            public String toString() {
+                return chapter;
+            }
+        };
+        Paginator<String> paginator = new Paginator<>(Arrays.asList(lazy), new FakeLayouter(400));
+        Page<String> page = paginator.pageAt(0, 0);
+
+        reads[0] = 0;
+        String shown = page.getText().toString();
+        for (int i = 0; i < page.getText().length(); i++) {
+            page.getText().charAt(i);
+        }
+        assertEquals(0, reads[0]);
+        assertEquals(chapter.substring(page.getStart(), page.getEnd()), shown);
+    }
+}
@@ -0,0 +1,75 @@
+package quynh.ph59304.bansach.reader;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParagraphSplitterTest {
+
+    @Test
+    public void splitsOnBlankLinesAndKeepsSingleLineBreaks() {
+        String text = "\n  Đoạn một, dòng một.\nĐoạn một, dòng hai.\n\n \t\nĐoạn hai.\r\n\r\nĐoạn ba.  \n";
+        List<CharSequence> paragraphs = ParagraphSplitter.split(text);
+
+        assertEquals(3, paragraphs.size());
+        assertEquals("Đoạn một, dòng một.\nĐoạn một, dòng hai.", paragraphs.get(0).toString());
+        assertEquals("Đoạn hai.", paragraphs.get(1).toString());
+        assertEquals("Đoạn ba.", paragraphs.get(2).toString());
+        assertTrue(paragraphs.get(0) instanceof TextSlice);
+    }
+
+    @Test
+    public void emptyOrBlankTextHasNoParagraphs() {
+        assertEquals(0, ParagraphSplitter.split("").size());
+        assertEquals(0, ParagraphSplitter.split(" \n\n\t ").size());
+    }
+
+    @Test
+    public void longParagraphIsCutAtSentenceEnds() {
+        // Chương không có dòng trống: vẫn phải chia thành nhiều mục nhỏ
+        String text = BookCorpus.plainBook(20_000, 9).replace("\n", " ");
+        List<CharSequence> paragraphs = ParagraphSplitter.split(text);
+
+        assertTrue(paragraphs.size() >= 20_000 / ParagraphSplitter.MAX_PARAGRAPH_LENGTH);
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < paragraphs.size(); i++) {
+            CharSequence paragraph = paragraphs.get(i);
+            assertTrue(paragraph.length() <= ParagraphSplitter.MAX_PARAGRAPH_LENGTH);
+            if (i < paragraphs.size() - 1) {
+                char last = paragraph.charAt(paragraph.length() - 1);
+                assertTrue(last == '.' || last == '!' || last == '?');
+            }
+            joined.append(paragraph).append(' ');
+        }
+        // Không mất chữ nào ngoài khoảng trắng
+        assertEquals(text.replaceAll("\\s+", ""), joined.toString().replaceAll("\\s+", ""));
+    }
+
+    @Test
+    public void textWithoutBreaksIsCutHard() {
+        String text = BookCorpus.repeat('x', 4500);
+        List<CharSequence> paragraphs = ParagraphSplitter.split(text);
+
+        assertEquals(3, paragraphs.size());
+        assertEquals(ParagraphSplitter.MAX_PARAGRAPH_LENGTH, paragraphs.get(0).length());
+        assertEquals(500, paragraphs.get(2).length());
+    }
+
+    @Test
+    public void offsetsPointAtParagraphStartsInTheChapter() {
+        String book = "Lời nói đầu.\n\nĐoạn một.\n\n  Đoạn hai.\n";
+        // Chương là một lát cắt của cả cuốn sách: vị trí tính trong chương
+        CharSequence chapter = new TextSlice(book, 14, book.length());
+        List<CharSequence> paragraphs = ParagraphSplitter.split(chapter);
+        int[] offsets = ParagraphSplitter.offsets(chapter, paragraphs);
+
+        assertEquals(2, offsets.length);
+        for (int i = 0; i < offsets.length; i++) {
+            String paragraph = paragraphs.get(i).toString();
+            assertEquals(paragraph, chapter.toString().substring(offsets[i], offsets[i] + paragraph.length()));
+        }
+    }
+}
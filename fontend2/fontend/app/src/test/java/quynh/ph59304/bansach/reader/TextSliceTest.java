@@ -0,0 +1,86 @@
+package quynh.ph59304.bansach.reader;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TextSliceTest {
+
+    @Test
+    public void sliceReadsThroughToSource() {
+        String text = "Mở đầu. Chương 1: Khởi đầu";
+        TextSlice slice = new TextSlice(text, 8, text.length());
+
+        assertEquals(text.length() - 8, slice.length());
+        assertEquals('C', slice.charAt(0));
+        assertEquals("Chương 1: Khởi đầu", slice.toString());
+        assertEquals("Khởi đầu", slice.subSequence(10, slice.length()).toString());
+    }
+
+    @Test
+    public void sliceOfSliceIsFlattened() {
+        StringBuilder source = new StringBuilder("0123456789");
+        TextSlice outer = new TextSlice(source, 2, 9);
+        CharSequence inner = outer.subSequence(3, 5);
+
+        assertEquals("56", inner.toString());
+        assertEquals("34567", new TextSlice(TextSlice.of(outer), 1, 6).toString());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void charAtOutsideSliceThrows() {
+        new TextSlice("abcdef", 1, 3).charAt(2);
+    }
+
+    /**
+     * A ~20 MB (10M UTF-16 chars) book split into chapter views must not copy the text;
+     * copying each chapter with substring() would add roughly the size of the book.
+     */
+    @Test
+    public void chapterViewsOnLargeBookDoNotCopyText() {
+        String book = BookCorpus.structuredBook(2700, 12, 11);
+        assertTrue(book.length() >= 10_000_000);
+        long bookBytes = 2L * book.length();
+
+        long before = usedHeap();
+        List<ChapterSpan> spans = ChapterSegmenter.segment(book);
+        List<CharSequence> views = new ArrayList<>(spans.size());
+        for (ChapterSpan span : spans) {
+            views.add(new TextSlice(book, span.getStart(), span.getEnd()));
+        }
+        long viewsBytes = usedHeap() - before;
+
+        before = usedHeap();
+        List<String> copies = new ArrayList<>(spans.size());
+        for (ChapterSpan span : spans) {
+            copies.add(book.substring(span.getStart(), span.getEnd()));
+        }
+        long copiesBytes = usedHeap() - before;
+
+        System.out.println(String.format("book %.1f MB: views %.2f MB, substring copies %.1f MB",
+                bookBytes / 1048576.0, viewsBytes / 1048576.0, copiesBytes / 1048576.0));
+
+        assertEquals(spans.size(), views.size());
+        assertEquals(copies.get(7), views.get(7).toString());
+        assertTrue("views should cost < 5% of the book", viewsBytes < bookBytes / 20);
+        // Sanity check that the measurement sees real copies
+        assertTrue(copiesBytes > bookBytes / 2);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
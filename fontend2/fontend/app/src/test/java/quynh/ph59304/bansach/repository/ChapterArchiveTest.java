@@ -0,0 +1,112 @@
+package quynh.ph59304.bansach.repository;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import quynh.ph59304.bansach.reader.ReaderChapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ChapterArchiveTest {
+
+    private static List<ReaderChapter> chapters(int count) {
+        List<ReaderChapter> chapters = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int p = 0; p < 40; p++) {
+                text.append("Chương ").append(i).append(", đoạn ").append(p)
+                        .append(": những dòng chữ tiếng Việt có dấu để nén thử.\n\n");
+            }
+            chapters.add(new ReaderChapter("Chương " + i, text.toString().trim(), i));
+        }
+        return chapters;
+    }
+
+    private static File tempDir() throws IOException {
+        File dir = Files.createTempDirectory("archive").toFile();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    @Test
+    public void roundTripReadsEachChapterOnDemand() throws IOException {
+        File dir = tempDir();
+        List<ReaderChapter> source = chapters(12);
+        ChapterArchive.write(dir, source, "abc123");
+
+        ChapterArchive archive = ChapterArchive.open(dir);
+        assertEquals("abc123", archive.getContentHash());
+        assertEquals(12, archive.getEntries().size());
+        List<ReaderChapter> chapters = archive.toReaderChapters();
+        for (int i = 0; i < source.size(); i++) {
+            ReaderChapter expected = source.get(i);
+            ReaderChapter actual = chapters.get(i);
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.getChapterNumber(), actual.getChapterNumber());
+            // Độ dài lấy từ index, chưa cần đọc chương
+            assertEquals(expected.getContent().length(), actual.getContent().length());
+            assertEquals(expected.getContent().toString(), actual.getContent().toString());
+        }
+
+        long rawBytes = 0;
+        for (ReaderChapter chapter : source) {
+            rawBytes += chapter.getContent().toString().getBytes("UTF-8").length;
+        }
+        assertTrue("chapters should be compressed",
+                new File(dir, ChapterArchive.DATA_FILE).length() < rawBytes / 2);
+    }
+
+    @Test
+    public void missingIndexMeansNotDownloaded() throws IOException {
+        File dir = tempDir();
+        assertNull(ChapterArchive.open(dir));
+
+        ChapterArchive.write(dir, chapters(2), "h");
+        assertTrue(new File(dir, ChapterArchive.INDEX_FILE).delete());
+        assertNull(ChapterArchive.open(dir));
+    }
+
+    @Test(expected = IOException.class)
+    public void damagedIndexIsRejected() throws IOException {
+        File dir = tempDir();
+        ChapterArchive.write(dir, chapters(3), "h");
+        try (RandomAccessFile index = new RandomAccessFile(new File(dir, ChapterArchive.INDEX_FILE), "rw")) {
+            index.seek(20);
+            index.write(index.read() ^ 0xFF);
+        }
+        ChapterArchive.open(dir);
+    }
+
+    @Test
+    public void damagedChapterIsDetectedWhenRead() throws IOException {
+        File dir = tempDir();
+        ChapterArchive.write(dir, chapters(3), "h");
+        ChapterArchive archive = ChapterArchive.open(dir);
+        long secondChapter = archive.getEntries().get(0).getCompressedLength();
+        try (RandomAccessFile data = new RandomAccessFile(new File(dir, ChapterArchive.DATA_FILE), "rw")) {
+            data.seek(secondChapter + 10);
+            int b = data.read();
+            data.seek(secondChapter + 10);
+            data.write(b ^ 0x55);
+        }
+
+        List<ReaderChapter> chapters = archive.toReaderChapters();
+        assertTrue(chapters.get(0).getContent().toString().startsWith("Chương 1"));
+        try {
+            chapters.get(1).getContent().charAt(0);
+            fail("corruption was not detected");
+        } catch (UncheckedIOException expected) {
+            assertTrue(expected.getCause() instanceof IOException);
+        }
+    }
+}
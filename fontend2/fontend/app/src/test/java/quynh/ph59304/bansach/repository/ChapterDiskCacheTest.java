@@ -0,0 +1,74 @@
+package quynh.ph59304.bansach.repository;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ChapterDiskCacheTest {
+
+    private static File tempDir() throws IOException {
+        File dir = Files.createTempDirectory("chapters").toFile();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    private static String text(int bytes) {
+        StringBuilder sb = new StringBuilder(bytes);
+        while (sb.length() < bytes) {
+            sb.append('a');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void storesAndReadsChaptersPerBookAndVersion() throws IOException {
+        ChapterDiskCache cache = new ChapterDiskCache(tempDir(), 1024 * 1024);
+        cache.put("book1", "100", 0, "Chương một có dấu");
+        cache.put("book2", "100", 0, "Sách khác");
+
+        assertEquals("Chương một có dấu", cache.get("book1", "100", 0));
+        assertEquals("Sách khác", cache.get("book2", "100", 0));
+        assertNull(cache.get("book1", "100", 1));
+        assertNull(cache.get("book1", "200", 0));
+    }
+
+    @Test
+    public void newVersionDropsTheOldChaptersOfThatBook() throws IOException {
+        ChapterDiskCache cache = new ChapterDiskCache(tempDir(), 1024 * 1024);
+        cache.put("book", "1", 0, "cũ");
+        cache.put("book", "1", 1, "cũ");
+        cache.put("other", "1", 0, "giữ");
+        cache.put("book", "2", 0, "mới");
+
+        assertNull(cache.get("book", "1", 1));
+        assertEquals("mới", cache.get("book", "2", 0));
+        assertEquals("giữ", cache.get("other", "1", 0));
+    }
+
+    @Test
+    public void evictsLeastRecentlyReadChaptersOverTheLimit() throws IOException {
+        File dir = tempDir();
+        ChapterDiskCache cache = new ChapterDiskCache(dir, 3000);
+        cache.put("book", "1", 0, text(1000));
+        cache.put("book", "1", 1, text(1000));
+        cache.put("book", "1", 2, text(1000));
+        // Đọc lại chương 0: chương 1 trở thành cũ nhất
+        assertNotNull(cache.get("book", "1", 0));
+        cache.put("book", "1", 3, text(1000));
+
+        assertNull(cache.get("book", "1", 1));
+        assertNotNull(cache.get("book", "1", 0));
+        assertNotNull(cache.get("book", "1", 3));
+        assertTrue(cache.getTotalBytes() <= 3000);
+
+        // Mở lại (vd. khởi động lại app): kích thước tính từ các file còn lại
+        assertEquals(3000, new ChapterDiskCache(dir, 3000).getTotalBytes());
+    }
+}
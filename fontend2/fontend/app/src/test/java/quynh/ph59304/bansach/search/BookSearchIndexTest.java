@@ -0,0 +1,101 @@
+package quynh.ph59304.bansach.search;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import quynh.ph59304.bansach.models.Book;
+
+import static org.junit.Assert.assertEquals;
+
+public class BookSearchIndexTest {
+
+    @Test
+    public void foldsDiacriticsAndMatchesEveryTokenAsPrefix() {
+        BookSearchIndex index = new BookSearchIndex();
+        index.add(book("1", "Đất rừng phương Nam", "Đoàn Giỏi"));
+        index.add(book("2", "Dế mèn phiêu lưu ký", "Tô Hoài"));
+
+        assertEquals(1, index.search("dat phuong", null).size());
+        assertEquals(1, index.search("TO hoai", null).size());
+        assertEquals(0, index.search("rung hoai", null).size());
+        assertEquals(2, index.search("", null).size());
+    }
+
+    @Test
+    public void refiningWhenAnEarlierTokenGrowsDropsStaleMatches() {
+        // Trên ngưỡng kiểm tra từng tài liệu: nhánh giao với postings
+        BookSearchIndex index = new BookSearchIndex();
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            books.add(book("a" + i, "ab cx ex", "x"));
+        }
+        for (int i = 0; i < 10; i++) {
+            books.add(book("b" + i, "abc cd dx ex", "x"));
+        }
+        index.addAll(books);
+
+        assertEquals(2510, index.search("ab", null).size());
+        // "ab" -> "abc d": token đầu cũng dài thêm
+        assertEquals(10, index.search("abc d", null).size());
+
+        assertEquals(2510, index.search("ab c", null).size());
+        // "ab c" -> "ab cd e": token giữa dài thêm và có thêm token mới
+        assertEquals(10, index.search("ab cd e", null).size());
+        assertEquals(10, freshIndex(books).search("ab cd e", null).size());
+    }
+
+    @Test
+    public void resultsKeepInsertionOrderAndSkipRemovedBooks() {
+        BookSearchIndex index = new BookSearchIndex();
+        index.add(book("1", "Sach mot", "A"));
+        index.add(book("2", "Sach hai", "A"));
+        index.add(book("3", "Sach ba", "A"));
+        index.remove("2");
+        index.add(book("1", "Sach mot moi", "A"));
+
+        List<Book> result = index.search("sach", null);
+        assertEquals(2, result.size());
+        assertEquals("3", result.get(0).getId());
+        assertEquals("Sach mot moi", result.get(1).getTitle());
+    }
+
+    @Test
+    public void updatesApplyDeltasAndKeepTheGivenOrder() {
+        BookSearchIndex index = new BookSearchIndex((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()));
+        index.addAll(Arrays.asList(book("2", "Sach hai", "A", "2024-02"), book("1", "Sach mot", "A", "2024-01")));
+        assertEquals(2, index.search("sach", null).size());
+
+        // Sách mới và sách sửa được thêm vào cuối chỉ mục nhưng kết quả vẫn mới nhất trước
+        index.update(Arrays.asList(book("3", "Sach ba", "A", "2024-03"), book("1", "Sach mot moi", "A", "2024-01")),
+                Collections.singletonList("2"));
+        List<Book> result = index.search("sach", null);
+        assertEquals(2, result.size());
+        assertEquals("3", result.get(0).getId());
+        assertEquals("Sach mot moi", result.get(1).getTitle());
+        assertEquals(0, index.search("hai", null).size());
+    }
+
+    private static BookSearchIndex freshIndex(List<Book> books) {
+        BookSearchIndex index = new BookSearchIndex();
+        index.addAll(books);
+        return index;
+    }
+
+    private static Book book(String id, String title, String author, String createdAt) {
+        Book book = book(id, title, author);
+        book.setCreatedAt(createdAt);
+        return book;
+    }
+
+    private static Book book(String id, String title, String author) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        return book;
+    }
+}
@@ -0,0 +1,87 @@
+package quynh.ph59304.bansach.search;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BookTextIndexTest {
+    private static final String[] WORDS = {
+            "Chương", "này", "cũng", "chứa", "đựng", "những", "manh", "mối", "quan", "trọng",
+            "cho", "các", "sự", "kiện", "sắp", "tới", "người", "đọc", "câu", "chuyện",
+            "nhân", "vật", "bước", "ngoặt", "bí", "mật", "thành", "phố", "đêm", "mưa"
+    };
+
+    @Test
+    public void findsPhrasesIgnoringDiacriticsAndCase() {
+        BookTextIndex index = new BookTextIndex();
+        String text = "Đêm mưa ở thành phố. Người đọc thấy đêm   Mưa lạnh.";
+        index.addChapter(0, text);
+
+        List<BookTextIndex.Hit> hits = index.search("dem mua").getHits();
+        assertEquals(2, hits.size());
+        assertEquals(0, hits.get(0).getOffset());
+        assertEquals("Đêm mưa", text.substring(hits.get(0).getOffset(),
+                hits.get(0).getOffset() + hits.get(0).getLength()));
+        assertEquals("đêm   Mưa", text.substring(hits.get(1).getOffset(),
+                hits.get(1).getOffset() + hits.get(1).getLength()));
+
+        // Từ cuối được so như tiền tố, các từ trước phải khớp trọn
+        assertEquals(1, index.search("thanh ph").getTotalCount());
+        assertEquals(0, index.search("than pho").getTotalCount());
+        assertEquals(0, index.search("").getTotalCount());
+    }
+
+    @Test
+    public void hitsAreInReadingOrderAndDoNotCrossChapters() {
+        BookTextIndex index = new BookTextIndex();
+        // Thêm không theo thứ tự, như khi đọc trực tuyến nhảy chương
+        index.addChapter(2, "bí mật cuối cùng");
+        index.addChapter(0, "mở đầu có bí");
+        index.addChapter(1, "mật thư và bí mật");
+        index.addChapter(1, "bị bỏ qua vì đã có");
+
+        BookTextIndex.Result result = index.search("bi mat");
+        assertEquals(3, result.getIndexedChapterCount());
+        assertEquals(2, result.getTotalCount());
+        assertEquals(1, result.getHits().get(0).getChapterIndex());
+        assertEquals(2, result.getHits().get(1).getChapterIndex());
+
+        List<BookTextIndex.Hit> single = index.search("bi").getHits();
+        assertEquals(3, single.size());
+        assertEquals(0, single.get(0).getChapterIndex());
+        assertEquals(1, single.get(1).getChapterIndex());
+        assertEquals(2, single.get(2).getChapterIndex());
+    }
+
+    @Test
+    public void queriesOnATwoMegabyteBookAreFast() {
+        BookTextIndex index = new BookTextIndex();
+        Random random = new Random(7);
+        int chapters = 100;
+        for (int c = 0; c < chapters; c++) {
+            StringBuilder sb = new StringBuilder();
+            while (sb.length() < 20_000) {
+                sb.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(12) == 0 ? ". " : " ");
+            }
+            index.addChapter(c, sb);
+        }
+
+        String[] queries = {"c", "chuong", "nguoi doc", "thanh pho dem", "bi mat cua", "khong co"};
+        long worst = 0;
+        for (String query : queries) {
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < 5; run++) {
+                long start = System.nanoTime();
+                BookTextIndex.Result result = index.search(query);
+                best = Math.min(best, System.nanoTime() - start);
+                assertTrue(result.getHits().size() <= BookTextIndex.MAX_HITS);
+            }
+            worst = Math.max(worst, best);
+        }
+        assertTrue("slowest query took " + worst / 1_000_000 + " ms", worst < 50_000_000L);
+    }
+}